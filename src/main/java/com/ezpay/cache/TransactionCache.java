@@ -0,0 +1,105 @@
+package com.ezpay.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ezpay.entity.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Bounded in-process cache of transactions keyed by transaction ID.
+ *
+ * Entries are evicted by size using Caffeine's W-TinyLFU policy, which keeps the frequently
+ * opened transactions over ones seen once. Every service method that saves a transaction
+ * invalidates its entry. Entries also expire after a fixed time, which bounds how long a
+ * change made outside these services can stay hidden.
+ *
+ * Cached transactions are shared between requests and must not be modified by callers.
+ */
+@Component
+public class TransactionCache {
+
+    private static final Logger logger = LogManager.getLogger(TransactionCache.class);
+
+    private final Cache<Long, Transaction> cache;
+
+    private final long maximumSize;
+
+    /**
+     * Creates the cache.
+     * @param maximumSize Maximum number of cached transactions
+     * @param expireAfterWrite Time after which a cached transaction is reloaded
+     */
+    public TransactionCache(@Value("${ezpay.cache.transactions.maximum-size:10000}") long maximumSize,
+                            @Value("${ezpay.cache.transactions.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.maximumSize = maximumSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached transaction, loading it when absent. Missing transactions are not cached.
+     * @param transactionId ID of the transaction
+     * @param loader Loads the transaction from the database
+     * @return Optional containing the transaction if found, otherwise empty
+     */
+    public Optional<Transaction> get(long transactionId, Function<Long, Optional<Transaction>> loader) {
+        return Optional.ofNullable(cache.get(transactionId, id -> loader.apply(id).orElse(null)));
+    }
+
+    /**
+     * Returns the cached transaction without loading it.
+     * @param transactionId ID of the transaction
+     * @return The cached transaction, or null if it is not cached
+     */
+    public Transaction getIfPresent(long transactionId) {
+        return cache.getIfPresent(transactionId);
+    }
+
+    /**
+     * Adds a transaction loaded from the database to the cache.
+     * @param transaction The loaded transaction
+     */
+    public void put(Transaction transaction) {
+        cache.put(transaction.getTransactionId(), transaction);
+    }
+
+    /**
+     * Removes a transaction from the cache. Called whenever the transaction is saved.
+     * @param transactionId ID of the transaction
+     */
+    public void invalidate(long transactionId) {
+        cache.invalidate(transactionId);
+        logger.debug("Invalidated cached transaction with ID: {}", transactionId);
+    }
+
+    /**
+     * Removes every transaction from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        logger.info("Invalidated all cached transactions.");
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the cache.
+     * @return Snapshot of the cache statistics
+     */
+    public TransactionCacheStats stats() {
+        cache.cleanUp(); // Apply pending evictions so the counters are current
+        CacheStats stats = cache.stats();
+        return new TransactionCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                stats.hitRate(), cache.estimatedSize(), maximumSize);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ezpay.cache;
+
+/**
+ * Snapshot of the transaction cache counters.
+ */
+public class TransactionCacheStats {
+
+    private final long hitCount;        // Lookups answered from the cache
+    private final long missCount;       // Lookups that went to the database
+    private final long evictionCount;   // Entries removed to stay within the size or expiry bounds
+    private final double hitRate;       // Share of lookups answered from the cache
+    private final long size;            // Approximate number of cached transactions
+    private final long maximumSize;     // Configured capacity
+
+    public TransactionCacheStats(long hitCount, long missCount, long evictionCount, double hitRate,
+                                 long size, long maximumSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.hitRate = hitRate;
+        this.size = size;
+        this.maximumSize = maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+}
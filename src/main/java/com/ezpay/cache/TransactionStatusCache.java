@@ -0,0 +1,329 @@
+package com.ezpay.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.ezpay.event.TransactionStatusChangedEvent;
+
+/**
+ * Cache of transaction statuses for status polling, keyed by transaction ID.
+ *
+ * The cache is an open-addressing hash table with linear probing over parallel primitive
+ * arrays: the transaction ID, a one byte code of the interned status text, and an expiry
+ * deadline. Lookups neither box the ID nor allocate, and entries are not objects.
+ * Reads are optimistic and only fall back to a read lock when they overlap a write.
+ *
+ * Final statuses (Success, Failure) never expire. Other statuses expire after a configured
+ * time so that changes made outside the services are picked up. When the table is full,
+ * expired entries are dropped first, then non-final ones. If only final entries remain,
+ * new entries are not cached and are served from the database.
+ */
+@Component
+public class TransactionStatusCache {
+
+    private static final Logger logger = LogManager.getLogger(TransactionStatusCache.class);
+
+    /** Marks a free slot, transaction IDs are positive. */
+    private static final long EMPTY = 0;
+
+    /** Deadline of entries that never expire. */
+    private static final long NEVER = Long.MAX_VALUE;
+
+    /** Status codes are stored in a byte, code 0 means no status. */
+    private static final int MAX_STATUSES = Byte.MAX_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+    private final long[] keys;
+    private final byte[] codes;
+    private final long[] deadlines;
+    private final int mask;
+    private final int maximumSize;
+    private final long ttlNanos;
+    private int size;
+
+    /** Status texts by code, replaced as a whole when a status is added. */
+    private volatile String[] statuses = new String[1];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates the cache.
+     * @param maximumSize Maximum number of cached statuses
+     * @param ttl Time after which a status that is not final is reloaded
+     */
+    public TransactionStatusCache(@Value("${ezpay.cache.status.maximum-size:262144}") int maximumSize,
+                                  @Value("${ezpay.cache.status.ttl:10s}") Duration ttl) {
+        // Keep the load factor at or below 0.75 so probe sequences stay short
+        int slots = Integer.highestOneBit(Math.max(2, maximumSize + maximumSize / 3) - 1) << 1;
+        this.keys = new long[slots];
+        this.codes = new byte[slots];
+        this.deadlines = new long[slots];
+        this.mask = slots - 1;
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Returns the cached status of a transaction.
+     * @param transactionId ID of the transaction
+     * @return Status of the transaction, or null if it is not cached or has expired
+     */
+    public String get(long transactionId) {
+        int code = 0;
+        if (transactionId > 0) {
+            long stamp = lock.tryOptimisticRead();
+            code = lookup(transactionId);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    code = lookup(transactionId);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+        }
+        if (code == 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return statuses[code];
+    }
+
+    /**
+     * Stores the status of a transaction.
+     * @param transactionId ID of the transaction
+     * @param status Current status of the transaction
+     */
+    public void put(long transactionId, String status) {
+        store(transactionId, status, true);
+    }
+
+    /**
+     * Stores a status read from the database, unless a live status is already cached. A status
+     * written by {@link #onStatusChanged} while the read was running is newer than the one read,
+     * and is kept.
+     * @param transactionId ID of the transaction
+     * @param status Status of the transaction read from the database
+     */
+    public void putIfAbsent(long transactionId, String status) {
+        store(transactionId, status, false);
+    }
+
+    private void store(long transactionId, String status, boolean replace) {
+        if (transactionId <= 0 || status == null) {
+            return;
+        }
+        byte code = intern(status);
+        if (code == 0) {
+            if (replace) {
+                invalidate(transactionId); // Too many distinct statuses, fall back to the database
+            }
+            return;
+        }
+        long deadline = isFinal(status) ? NEVER : System.nanoTime() + ttlNanos;
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(transactionId);
+            if (keys[slot] == transactionId && !replace) {
+                long current = deadlines[slot];
+                if (current == NEVER || current - System.nanoTime() > 0) {
+                    return;
+                }
+            } else if (keys[slot] != transactionId) {
+                if (size >= maximumSize) {
+                    makeRoom();
+                    if (size >= maximumSize) {
+                        logger.debug("Status cache full of final statuses, not caching transaction ID: {}", transactionId);
+                        return;
+                    }
+                    slot = slotOf(transactionId);
+                }
+                keys[slot] = transactionId;
+                size++;
+            }
+            codes[slot] = code;
+            deadlines[slot] = deadline;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Stores the status of a saved transaction, in the thread that saved it.
+     * @param event Status change of the transaction
+     */
+    @EventListener
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        put(event.getTransactionId(), event.getStatus());
+    }
+
+    /**
+     * Removes the status of a transaction from the cache.
+     * @param transactionId ID of the transaction
+     */
+    public void invalidate(long transactionId) {
+        if (transactionId <= 0) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(transactionId);
+            if (keys[slot] == transactionId) {
+                remove(slot);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the cache.
+     * @return Snapshot of the cache statistics
+     */
+    public TransactionCacheStats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        long stamp = lock.readLock();
+        try {
+            return new TransactionCacheStats(hitCount, missCount, evictions.sum(),
+                    requests == 0 ? 1.0 : (double) hitCount / requests, size, maximumSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Tells whether a status can no longer change.
+     */
+    static boolean isFinal(String status) {
+        return "Success".equalsIgnoreCase(status) || "Failure".equalsIgnoreCase(status);
+    }
+
+    /**
+     * Returns the code of a live entry, or 0 if the transaction is absent or expired.
+     * May run concurrently with a write, the caller validates the result.
+     */
+    private int lookup(long transactionId) {
+        int slot = spread(transactionId) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long key = keys[slot];
+            if (key == EMPTY) {
+                return 0;
+            }
+            if (key == transactionId) {
+                long deadline = deadlines[slot];
+                return deadline == NEVER || deadline - System.nanoTime() > 0 ? codes[slot] : 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the slot holding the transaction, or the free slot where it belongs.
+     * Called with the write lock held. The table is never full, so the loop ends.
+     */
+    private int slotOf(long transactionId) {
+        int slot = spread(transactionId) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != transactionId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entry in a slot, shifting later entries of the probe sequence back
+     * so that no tombstones are needed.
+     */
+    private void remove(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = spread(keys[next]) & mask;
+            // The entry may fill the hole only if the hole lies on its probe sequence
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                codes[hole] = codes[next];
+                deadlines[hole] = deadlines[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        codes[hole] = 0;
+        deadlines[hole] = 0;
+        size--;
+    }
+
+    /**
+     * Drops expired entries, and all entries that are not final if that frees nothing.
+     * Called with the write lock held.
+     */
+    private void makeRoom() {
+        long now = System.nanoTime();
+        int before = size;
+        dropWhere(now, false);
+        if (size == before) {
+            dropWhere(now, true);
+        }
+        evictions.add(before - size);
+        logger.debug("Status cache evicted {} entries.", before - size);
+    }
+
+    private void dropWhere(long now, boolean allNonFinal) {
+        for (int slot = 0; slot <= mask; ) {
+            long deadline = deadlines[slot];
+            boolean drop = keys[slot] != EMPTY && deadline != NEVER && (allNonFinal || deadline - now <= 0);
+            if (drop) {
+                remove(slot); // Shifts a later entry into this slot, so check it again
+            } else {
+                slot++;
+            }
+        }
+    }
+
+    /**
+     * Returns the code of a status text, adding it if it is new.
+     * @return Code of the status, or 0 if no more codes are available
+     */
+    private synchronized byte intern(String status) {
+        String[] current = statuses;
+        for (int code = 1; code < current.length; code++) {
+            if (current[code].equals(status)) {
+                return (byte) code;
+            }
+        }
+        if (current.length > MAX_STATUSES) {
+            return 0;
+        }
+        String[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = status;
+        statuses = grown;
+        return (byte) current.length;
+    }
+
+    /**
+     * Spreads time-ordered IDs over the table (murmur3 64-bit finalizer).
+     */
+    private static int spread(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -4,7 +4,17 @@
  */
 package com.ezpay.controller;
 
+import com.ezpay.entity.BulkUpdateResult;
+import com.ezpay.entity.CashFlowForecast;
+import com.ezpay.entity.CatchUpStats;
+import com.ezpay.entity.KeysetPage;
 import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentBulkRequest;
+import com.ezpay.entity.ScheduledPaymentPatch;
+import com.ezpay.entity.ScheduledPaymentRetry;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+import com.ezpay.service.ScheduledPaymentForecastService;
+import com.ezpay.service.ScheduledPaymentRetryService;
 import com.ezpay.service.ScheduledPaymentService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,6 +39,15 @@ public class ScheduledPaymentController {
     @Autowired
     private ScheduledPaymentService scheduledPaymentService;
 
+    @Autowired
+    private ScheduledPaymentForecastService scheduledPaymentForecastService;
+
+    @Autowired
+    private ScheduledPaymentExecutionService scheduledPaymentExecutionService;
+
+    @Autowired
+    private ScheduledPaymentRetryService scheduledPaymentRetryService;
+
     /**
      * Adds a new scheduled payment.
      *
@@ -57,6 +76,91 @@ public class ScheduledPaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    /**
+     * Retrieves one page of the scheduled payments matching some filters, earliest next payment
+     * date first.
+     *
+     * @param sourceAccount The source account, any if not given.
+     * @param destinationAccount The destination account, any if not given.
+     * @param status The status, any if not given.
+     * @param autoPayEnabled The auto-pay flag, both if not given.
+     * @param dueFrom The earliest next payment date, YYYY-MM-DD or YYYY-MM-DDTHH:MM:SS.
+     * @param dueTo The latest next payment date, YYYY-MM-DD or YYYY-MM-DDTHH:MM:SS.
+     * @param cursor The cursor returned with the previous page, omitted for the first page.
+     * @param size The number of payments per page.
+     * @return ResponseEntity containing the page and the cursor of the next one.
+     */
+    @GetMapping("/ScheduledPaymentsHistory/page")
+    public ResponseEntity<KeysetPage<ScheduledPayment>> getScheduledPaymentsPage(
+            @RequestParam(required = false) String sourceAccount,
+            @RequestParam(required = false) String destinationAccount,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Boolean autoPayEnabled,
+            @RequestParam(required = false) String dueFrom,
+            @RequestParam(required = false) String dueTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        logger.info("Retrieving scheduled payments page of size {}.", size);
+        KeysetPage<ScheduledPayment> page = scheduledPaymentService.findScheduledPaymentsPage(sourceAccount,
+                destinationAccount, status, autoPayEnabled, dueFrom, dueTo, cursor, size);
+        logger.info("Retrieved {} scheduled payments, more: {}.", page.getSize(), page.isHasMore());
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Forecasts what the auto-pay scheduled payments will take out of some source accounts.
+     *
+     * @param sourceAccounts The source accounts to forecast.
+     * @param from The first day of the horizon in YYYY-MM-DD format, today if not given.
+     * @param days The number of days of the horizon.
+     * @return ResponseEntity containing the amounts per day of each account.
+     */
+    @GetMapping("/forecast")
+    public ResponseEntity<List<CashFlowForecast>> getForecast(@RequestParam("sourceAccount") List<String> sourceAccounts,
+                                                              @RequestParam(required = false) String from,
+                                                              @RequestParam(defaultValue = "90") int days) {
+        logger.info("Forecasting scheduled payments of accounts {} from {} for {} days.", sourceAccounts, from, days);
+        List<CashFlowForecast> forecasts = scheduledPaymentForecastService.forecast(sourceAccounts, from, days);
+        return ResponseEntity.ok(forecasts);
+    }
+
+    /**
+     * Reports the catch-up of the runs missed while the runner was down on this instance.
+     *
+     * @return ResponseEntity containing the backlog of missed runs and the progress made.
+     */
+    @GetMapping("/catch-up/stats")
+    public ResponseEntity<CatchUpStats> getCatchUpStats() {
+        return ResponseEntity.ok(scheduledPaymentExecutionService.catchUpStats());
+    }
+
+    /**
+     * Retrieves the failed runs waiting for another attempt, or the dead-lettered ones.
+     *
+     * @param status "pending" or "dead", dead if not given.
+     * @return ResponseEntity containing the failed runs, latest failure first.
+     */
+    @GetMapping("/retries")
+    public ResponseEntity<List<ScheduledPaymentRetry>> getRetries(@RequestParam(required = false) String status) {
+        logger.info("Retrieving {} scheduled payment retries.", status);
+        List<ScheduledPaymentRetry> retries = scheduledPaymentRetryService.getRetries(status);
+        logger.info("Retrieved {} scheduled payment retries.", retries.size());
+        return ResponseEntity.ok(retries);
+    }
+
+    /**
+     * Requeues the dead-lettered run of a scheduled payment, which is attempted again at once.
+     *
+     * @param transactionId The ID of the scheduled payment.
+     * @return ResponseEntity with no content, or 404 Not Found if the payment has no dead-lettered run.
+     */
+    @PostMapping("/retries/{transactionId}/requeue")
+    public ResponseEntity<Void> requeueRetry(@PathVariable long transactionId) {
+        logger.info("Requeuing the dead-lettered run of scheduled payment {}.", transactionId);
+        scheduledPaymentRetryService.requeue(transactionId);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Retrieves a scheduled payment by its transaction ID.
      *
@@ -64,7 +168,7 @@ public class ScheduledPaymentController {
      * @return ResponseEntity containing the ScheduledPayment if found, or 404 Not Found if not.
      */
     @GetMapping("/{transactionId}")
-    public ResponseEntity<ScheduledPayment> getScheduledPaymentById(@PathVariable int transactionId) {
+    public ResponseEntity<ScheduledPayment> getScheduledPaymentById(@PathVariable long transactionId) {
         logger.info("Retrieving scheduled payment with transaction ID: {}", transactionId);
         Optional<ScheduledPayment> payment = scheduledPaymentService.getScheduledPaymentById(transactionId);
         if (payment.isPresent()) {
@@ -84,7 +188,7 @@ public class ScheduledPaymentController {
      * @return ResponseEntity containing the modified ScheduledPayment, or 404 Not Found if not found.
      */
     @PutMapping("/modify/{transactionId}")
-    public ResponseEntity<ScheduledPayment> modifyScheduledPayment(@PathVariable int transactionId, @RequestBody ScheduledPayment updatedPayment) {
+    public ResponseEntity<ScheduledPayment> modifyScheduledPayment(@PathVariable long transactionId, @RequestBody ScheduledPayment updatedPayment) {
         logger.info("Modifying scheduled payment with transaction ID: {}", transactionId);
         ScheduledPayment modifiedPayment = scheduledPaymentService.modifyScheduledPayment(transactionId, updatedPayment);
         if (modifiedPayment != null) {
@@ -96,6 +200,23 @@ public class ScheduledPaymentController {
         }
     }
 
+    /**
+     * Partially updates a scheduled payment, changing only the fields given.
+     *
+     * @param transactionId The ID of the scheduled payment to update.
+     * @param patch The fields to change and the version the payment was read at.
+     * @return ResponseEntity containing the updated ScheduledPayment, 404 Not Found if not found,
+     *         or 409 Conflict if the payment has been changed since it was read.
+     */
+    @PatchMapping("/{transactionId}")
+    public ResponseEntity<ScheduledPayment> patchScheduledPayment(@PathVariable long transactionId,
+                                                                  @RequestBody ScheduledPaymentPatch patch) {
+        logger.info("Patching scheduled payment with transaction ID: {}", transactionId);
+        ScheduledPayment patchedPayment = scheduledPaymentService.patchScheduledPayment(transactionId, patch);
+        logger.info("Successfully patched scheduled payment with ID: {}", transactionId);
+        return ResponseEntity.ok(patchedPayment);
+    }
+
     /**
      * Cancels a scheduled payment.
      *
@@ -103,11 +224,9 @@ public class ScheduledPaymentController {
      * @return ResponseEntity with no content (204 No Content) if the cancellation is successful.
      */
     @DeleteMapping("/cancel/{transactionId}")
-    public ResponseEntity<Void> cancelScheduledPayment(@PathVariable int transactionId) {
+    public ResponseEntity<Void> cancelScheduledPayment(@PathVariable long transactionId) {
         logger.info("Cancelling scheduled payment with transaction ID: {}", transactionId);
-        Optional<ScheduledPayment> payment = scheduledPaymentService.getScheduledPaymentById(transactionId);
-        if (payment.isPresent()) {
-            scheduledPaymentService.cancelScheduledPayment(transactionId);
+        if (scheduledPaymentService.cancelScheduledPayment(transactionId)) {
             logger.info("Successfully cancelled scheduled payment with ID: {}", transactionId);
             return ResponseEntity.noContent().build();
         } else {
@@ -115,4 +234,33 @@ public class ScheduledPaymentController {
             return ResponseEntity.notFound().build(); // Return 404 if not found
         }
     }
+
+    /**
+     * Cancels the scheduled payments with some IDs or of a source account.
+     *
+     * @param request The IDs or the source account of the payments.
+     * @return ResponseEntity containing the number of payments selected and cancelled.
+     */
+    @PostMapping("/bulk/cancel")
+    public ResponseEntity<BulkUpdateResult> cancelScheduledPayments(@RequestBody ScheduledPaymentBulkRequest request) {
+        logger.info("Bulk cancelling scheduled payments of account {}.", request.getSourceAccount());
+        BulkUpdateResult result = scheduledPaymentService.cancelScheduledPayments(request);
+        logger.info("Bulk cancelled {} of {} scheduled payments.", result.getUpdated(), result.getRequested());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Modifies the amount, the auto-pay flag or the source account of the scheduled payments with
+     * some IDs or of a source account.
+     *
+     * @param request The IDs or the source account of the payments and the values to set.
+     * @return ResponseEntity containing the number of payments selected and modified.
+     */
+    @PostMapping("/bulk/modify")
+    public ResponseEntity<BulkUpdateResult> modifyScheduledPayments(@RequestBody ScheduledPaymentBulkRequest request) {
+        logger.info("Bulk modifying scheduled payments of account {}.", request.getSourceAccount());
+        BulkUpdateResult result = scheduledPaymentService.modifyScheduledPayments(request);
+        logger.info("Bulk modified {} of {} scheduled payments.", result.getUpdated(), result.getRequested());
+        return ResponseEntity.ok(result);
+    }
 }
@@ -6,21 +6,31 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.cache.TransactionCacheStats;
 import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.KeysetPage;
 import com.ezpay.entity.Transaction;
 import com.ezpay.entity.TransactionDetailsResponse;
+import com.ezpay.entity.TransactionReview;
+import com.ezpay.entity.TransactionSummary;
 import com.ezpay.entity.UPITransaction;
+import com.ezpay.service.TransactionExportService;
+import com.ezpay.service.TransactionFilters;
 import com.ezpay.service.TransactionService;
 
 /**
@@ -36,6 +46,12 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
     /**
      * Get all transaction history.
      * @return List of all transactions
@@ -46,13 +62,72 @@ public class TransactionController {
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
 
+    /**
+     * Get one page of the transaction history, newest first.
+     * @param cursor Continuation token returned with the previous page, omitted for the first page
+     * @param size Number of transactions per page
+     * @return Page of transaction summaries with the token for the next page
+     */
+    @GetMapping("/history/page")
+    public ResponseEntity<KeysetPage<TransactionSummary>> getHistoryPage(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "20") int size) {
+        KeysetPage<TransactionSummary> page = transactionService.findTransactionHistoryPage(cursor, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    /**
+     * Get all transaction history as flat summaries, without the type specific details.
+     * @return List of all transaction summaries, newest first
+     */
+    @GetMapping("/summary/history")
+    public ResponseEntity<List<TransactionSummary>> getSummaryHistory() {
+        List<TransactionSummary> transactions = transactionService.findAllSummariesSortByDate();
+        return new ResponseEntity<>(transactions, HttpStatus.OK);
+    }
+
+    /**
+     * Filter transaction summaries by type.
+     * @param type Transaction type
+     * @return List of summaries of the transactions of the specified type
+     */
+    @GetMapping("/summary/filterByType")
+    public ResponseEntity<List<TransactionSummary>> filterSummariesByType(@RequestParam("type") String type) {
+        List<TransactionSummary> transactions = transactionService.filterSummariesByType(type);
+        return new ResponseEntity<>(transactions, HttpStatus.OK);
+    }
+
+    /**
+     * Filter transaction summaries by status.
+     * @param status Transaction status
+     * @return List of summaries of the transactions with the specified status
+     */
+    @GetMapping("/summary/filterByStatus")
+    public ResponseEntity<List<TransactionSummary>> filterSummariesByStatus(@RequestParam("status") String status) {
+        List<TransactionSummary> transactions = transactionService.filterSummariesByStatus(status);
+        return new ResponseEntity<>(transactions, HttpStatus.OK);
+    }
+
+    /**
+     * Stream the transaction history, newest first, without loading it into memory.
+     * @param format Output format, ndjson (default) or json
+     * @return Transactions written to the response as they are read
+     */
+    @GetMapping("/history/stream")
+    public ResponseEntity<StreamingResponseBody> streamHistory(@RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParameter(format);
+        StreamingResponseBody body = out -> transactionExportService.streamTransactionHistory(exportFormat, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .body(body);
+    }
+
     /**
      * Get transaction by transaction ID.
      * @param transactionId ID of the transaction
      * @return Transaction details
      */
     @GetMapping("/{transactionId}")
-    public ResponseEntity<Transaction> getByTransactionId(@PathVariable int transactionId) {
+    public ResponseEntity<Transaction> getByTransactionId(@PathVariable long transactionId) {
         Transaction transaction = transactionService.getTransactionById(transactionId);
         return transaction != null ? new ResponseEntity<>(transaction, HttpStatus.OK)
                                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -71,6 +146,27 @@ public class TransactionController {
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
 
+    /**
+     * Stream transactions in a date range without loading them into memory.
+     * @param startDate Start date
+     * @param endDate End date
+     * @param format Output format, ndjson (default) or json
+     * @return Transactions in the date range written to the response as they are read
+     */
+    @GetMapping("/filterByDateRange/stream")
+    public ResponseEntity<StreamingResponseBody> streamByDateRange(@RequestParam("startDate") String startDate,
+                                                                   @RequestParam("endDate") String endDate,
+                                                                   @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParameter(format);
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        TransactionFilters.validateDateRange(start, end);
+        StreamingResponseBody body = out -> transactionExportService.streamByDateRange(start, end, exportFormat, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .body(body);
+    }
+
     /**
      * Filter transactions by type.
      * @param type Transaction type
@@ -82,6 +178,20 @@ public class TransactionController {
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
 
+    /**
+     * Stream transactions of a type without loading them into memory.
+     * @param type Transaction type
+     * @param format Output format, ndjson (default) or json
+     * @return Transactions of the type, newest first, written to the response as they are read
+     */
+    @GetMapping("/filterByType/stream")
+    public ResponseEntity<StreamingResponseBody> streamByType(@RequestParam("type") String type,
+                                                              @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParameter(format);
+        TransactionFilters.validateType(type);
+        return streamFiltered(null, null, type, null, exportFormat);
+    }
+
     /**
      * Filter transactions by status.
      * @param status Transaction status
@@ -92,6 +202,20 @@ public class TransactionController {
         List<Transaction> transactions = transactionService.filterByStatus(status);
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
+
+    /**
+     * Stream transactions with a status without loading them into memory.
+     * @param status Transaction status
+     * @param format Output format, ndjson (default) or json
+     * @return Transactions with the status, newest first, written to the response as they are read
+     */
+    @GetMapping("/filterByStatus/stream")
+    public ResponseEntity<StreamingResponseBody> streamByStatus(@RequestParam("status") String status,
+                                                                @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParameter(format);
+        TransactionFilters.validateStatus(status);
+        return streamFiltered(null, null, null, status, exportFormat);
+    }
 /**
  * 
  * @param startDate
@@ -111,6 +235,60 @@ public class TransactionController {
     	List<Transaction> transactions = transactionService.getFilteredTransactions(start, end, type, status);
     	return new ResponseEntity<>(transactions,HttpStatus.OK);
     }
+
+    /**
+     * Stream the transactions matching the filters of filterByMultipleFilters without loading
+     * them into memory.
+     * @param startDate Start date, or omitted
+     * @param endDate End date, or omitted
+     * @param type Transaction type, or omitted
+     * @param status Transaction status, or omitted
+     * @param format Output format, ndjson (default) or json
+     * @return Matching transactions, newest first, written to the response as they are read
+     */
+    @GetMapping("/filterByMultipleFilters/stream")
+    public ResponseEntity<StreamingResponseBody> streamByMultipleFilters(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParameter(format);
+        LocalDate start = (startDate != null) ? LocalDate.parse(startDate) : null;
+        LocalDate end = (endDate != null) ? LocalDate.parse(endDate) : null;
+        TransactionFilters.validateOptionalDateRange(start, end);
+        return streamFiltered(start, end, type, status, exportFormat);
+    }
+    /**
+     * Download a CSV statement of the transactions matching the filters of filterByMultipleFilters.
+     * The statement is written incrementally while it is read from the database.
+     * @param startDate
+     * @param endDate
+     * @param type
+     * @param status
+     * @param gzip Whether to gzip the statement
+     * @return CSV statement as an attachment
+     */
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        LocalDate start = (startDate != null) ? LocalDate.parse(startDate) : null;
+        LocalDate end = (endDate != null) ? LocalDate.parse(endDate) : null;
+        TransactionFilters.validateOptionalDateRange(start, end);
+        StreamingResponseBody body = out -> transactionExportService.exportCsv(start, end, type, status, gzip, out);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, TransactionExportService.CSV_CONTENT_TYPE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions.csv\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     /**
      * Review a transaction.
      * @param transaction Transaction details
@@ -132,14 +310,60 @@ public class TransactionController {
         return new ResponseEntity<>(statusMessage, HttpStatus.OK);
     }
 
+    /**
+     * Review a transaction by setting its status, without rewriting the rest of it.
+     * @param transactionId ID of the transaction
+     * @param review New status and the version the transaction was read at
+     * @return The reviewed transaction, or 409 Conflict if it has been changed since it was read
+     */
+    @PatchMapping("/review/{transactionId}")
+    public ResponseEntity<Transaction> reviewTransaction(@PathVariable long transactionId,
+                                                         @RequestBody TransactionReview review) {
+        Transaction transaction = transactionService.reviewTransaction(transactionId, review);
+        logger.info("Transaction review completed: {}", transaction.getStatus());
+        return ResponseEntity.ok(transaction);
+    }
+
     /**
      * View more details of a transaction.
      * @param transactionId ID of the transaction
      * @return Transaction details
      */
     @GetMapping("/viewMore/{transactionId}")
-    public ResponseEntity<TransactionDetailsResponse> getTransactionDetails(@PathVariable int transactionId) {
+    public ResponseEntity<TransactionDetailsResponse> getTransactionDetails(@PathVariable long transactionId) {
         TransactionDetailsResponse response = transactionService.viewMoreDetails(transactionId);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * View more details of several transactions in one round trip.
+     * @param transactionIds IDs of the transactions
+     * @return Details of the transactions that exist, in the order of the IDs
+     */
+    @PostMapping("/viewMore/batch")
+    public ResponseEntity<List<TransactionDetailsResponse>> getTransactionDetailsBatch(@RequestBody List<Long> transactionIds) {
+        List<TransactionDetailsResponse> responses = transactionService.viewMoreDetails(transactionIds);
+        return new ResponseEntity<>(responses, HttpStatus.OK);
+    }
+
+    /**
+     * Get the hit, miss and eviction counters of the transaction cache.
+     * @return Cache statistics
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<TransactionCacheStats> getCacheStats() {
+        return new ResponseEntity<>(transactionCache.stats(), HttpStatus.OK);
+    }
+
+    /**
+     * Streams the transactions matching the filters in the given format.
+     */
+    private ResponseEntity<StreamingResponseBody> streamFiltered(LocalDate start, LocalDate end, String type,
+                                                                 String status, TransactionExportService.Format format) {
+        StreamingResponseBody body = out -> transactionExportService.streamFiltered(start, end, type, status, format,
+                out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, format.getContentType())
+                .body(body);
+    }
 }
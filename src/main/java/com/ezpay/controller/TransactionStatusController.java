@@ -4,25 +4,45 @@
  */
 package com.ezpay.controller;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+import com.fasterxml.jackson.core.JsonParser;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
+
+import com.ezpay.cache.TransactionCacheStats;
+import com.ezpay.cache.TransactionStatusCache;
 import com.ezpay.entity.BankTransferTransaction;
 import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionStatusResponse;
 import com.ezpay.entity.UPITransaction;
+import com.ezpay.event.TransactionStatusChangedEvent;
 import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.service.TransactionExportService;
+import com.ezpay.service.TransactionIngestService;
 import com.ezpay.service.TransactionStatusService;
+import com.ezpay.service.TransactionStatusStreamService;
 
 /**
  * Controller class for handling transaction-related requests.
@@ -39,6 +59,18 @@ public class TransactionStatusController {
 	@Autowired
 	TransactionStatusService transactionService;
 
+	@Autowired
+	TransactionExportService transactionExportService;
+
+	@Autowired
+	TransactionStatusCache transactionStatusCache;
+
+	@Autowired
+	TransactionStatusStreamService transactionStatusStreamService;
+
+	@Autowired
+	TransactionIngestService transactionIngestService;
+
 	/**
 	 * Adds a new transaction.
 	 * 
@@ -60,6 +92,24 @@ public class TransactionStatusController {
         return addedTransaction;
     }
 	
+	/**
+	 * Adds many UPI and bank transfer transactions from a JSON array, read and stored
+	 * batch by batch without loading the whole upload into memory.
+	 * 
+	 * @param request The request whose body is the JSON array of transactions.
+	 * @return A ResponseEntity whose body writes the result of every item as its batch is stored.
+	 * @throws IOException If the request body cannot be read.
+	 */
+	@PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> bulkAddTransactions(HttpServletRequest request) throws IOException {
+		JsonParser parser = transactionIngestService.openArray(request.getInputStream());
+		logger.info("Receiving bulk transaction upload.");
+		StreamingResponseBody body = out -> transactionIngestService.ingest(parser, out);
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(body);
+	}
+	
 	/**
 	 * Retrieves the history of all transactions.
 	 * 
@@ -78,6 +128,22 @@ public class TransactionStatusController {
         return transactions;
     }
 	
+	/**
+	 * Streams the history of all transactions without loading it into memory.
+	 * 
+	 * @param format Output format, ndjson (default) or json.
+	 * @return A ResponseEntity whose body writes the transactions as they are read.
+	 */
+	@GetMapping("/history/stream")
+	public ResponseEntity<StreamingResponseBody> streamTransactionHistory(@RequestParam(defaultValue = "ndjson") String format) {
+		TransactionExportService.Format exportFormat = TransactionExportService.Format.fromParameter(format);
+		logger.info("Streaming transaction history as {}.", exportFormat);
+		StreamingResponseBody body = out -> transactionExportService.streamAllTransactions(exportFormat, out);
+		return ResponseEntity.ok()
+				.header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+				.body(body);
+	}
+	
 	/**
 	 * Retrieves a transaction by its ID.
 	 * 
@@ -87,11 +153,11 @@ public class TransactionStatusController {
 	@GetMapping("/{transactionId}")
     public Optional<Transaction> getTransactionById(@PathVariable String transactionId) throws Exception {
         logger.info("Fetching transaction with ID: {}", transactionId);
-        if (!isValidInteger(transactionId)) {
+        if (!isValidLong(transactionId)) {
             logger.error("Invalid transaction ID format: {}", transactionId);
             throw new TransactionNotFoundException("Invalid transaction ID format: " + transactionId);
         }
-        Optional<Transaction> transaction = transactionService.getTransactionById(Integer.parseInt(transactionId));
+        Optional<Transaction> transaction = transactionService.getTransactionById(Long.parseLong(transactionId));
         if (transaction.isEmpty()) {
             logger.error("Transaction with ID {} not found.", transactionId);
             throw new TransactionNotFoundException("Transaction with ID " + transactionId + " not found.");
@@ -100,6 +166,22 @@ public class TransactionStatusController {
         return transaction;
     }
 	
+	/**
+	 * Retrieves the status transitions of a transaction, oldest first.
+	 * 
+	 * @param transactionId The ID of the transaction whose status history is to be retrieved.
+	 * @return The status events of the transaction, each with the status before and after it.
+	 */
+	@GetMapping("/{transactionId}/timeline")
+	public List<TransactionStatusEvent> getStatusTimeline(@PathVariable String transactionId) {
+		logger.info("Fetching status timeline of transaction ID: {}", transactionId);
+		if (!isValidLong(transactionId)) {
+			logger.error("Invalid transaction ID format: {}", transactionId);
+			throw new TransactionNotFoundException("Invalid transaction ID format: " + transactionId);
+		}
+		return transactionService.getStatusTimeline(Long.parseLong(transactionId));
+	}
+	
 	/**
 	 * Tracks the status of a transaction by its ID.
 	 * 
@@ -110,11 +192,11 @@ public class TransactionStatusController {
 	@GetMapping("/status/{transactionId}")
     public String getTransactionStatus(@PathVariable String transactionId) throws Exception {
         logger.info("Tracking status for transaction ID: {}", transactionId);
-        if (!isValidInteger(transactionId)) {
+        if (!isValidLong(transactionId)) {
             logger.error("Invalid transaction ID format: {}", transactionId);
             throw new TransactionNotFoundException("Invalid transaction ID format: " + transactionId);
         }
-        String status = transactionService.trackTransactionStatus(Integer.parseInt(transactionId));
+        String status = transactionService.trackTransactionStatus(Long.parseLong(transactionId));
         if (status == null) {
             logger.error("Transaction with ID {} not found.", transactionId);
             throw new TransactionNotFoundException("Transaction with ID " + transactionId + " not found.");
@@ -123,12 +205,64 @@ public class TransactionStatusController {
         return status;
     }
 	
+	/**
+	 * Tracks the statuses of several transactions in one round trip.
+	 * 
+	 * @param transactionIds The IDs of the transactions whose status is to be tracked.
+	 * @return The statuses of the transactions that exist, in the order of the IDs.
+	 */
+	@PostMapping("/status/batch")
+	public List<TransactionStatusResponse> getTransactionStatuses(@RequestBody List<Long> transactionIds) {
+		logger.info("Tracking status for {} transaction IDs.", transactionIds == null ? 0 : transactionIds.size());
+		return transactionService.trackTransactionStatuses(transactionIds);
+	}
+	
+	/**
+	 * Opens a Server-Sent Events stream of the status changes of one or more transactions.
+	 * The current status of each transaction is sent first, then a "status" event per change.
+	 * 
+	 * @param ids IDs of the transactions to watch.
+	 * @return An emitter pushing the status changes until the client disconnects.
+	 */
+	@GetMapping(path = "/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamTransactionStatus(@RequestParam List<Long> ids) {
+		logger.info("Opening status stream for transaction IDs: {}", ids);
+		return transactionStatusStreamService.subscribe(ids);
+	}
+	
+	/**
+	 * Waits for the next status change of one or more transactions (long-poll).
+	 * 
+	 * @param ids IDs of the transactions to watch.
+	 * @param known Statuses the client last saw, in the order of the IDs. If any differs from
+	 * the current status the request returns immediately.
+	 * @param timeout Seconds to wait for a change, at most 120.
+	 * @return The changed statuses, or no content if nothing changed before the timeout.
+	 */
+	@GetMapping("/status/poll")
+	public DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> pollTransactionStatus(
+			@RequestParam List<Long> ids, @RequestParam(required = false) List<String> known,
+			@RequestParam(defaultValue = "30") long timeout) {
+		logger.info("Long-polling status of transaction IDs: {}", ids);
+		return transactionStatusStreamService.poll(ids, known, Duration.ofSeconds(timeout));
+	}
+	
+	/**
+	 * Retrieves the hit, miss and eviction counters of the status cache.
+	 * 
+	 * @return Statistics of the cache answering the status polls.
+	 */
+	@GetMapping("/status/cache/stats")
+	public TransactionCacheStats getStatusCacheStats() {
+		return transactionStatusCache.stats();
+	}
+	
 	/**
 	 * Checks the validity of the transaction ID.
 	 */
-	private boolean isValidInteger(String transactionId) {
+	private boolean isValidLong(String transactionId) {
         try {
-            Integer.parseInt(transactionId);
+            Long.parseLong(transactionId);
             return true;
         } catch (NumberFormatException e) {
             return false;
@@ -8,6 +8,9 @@
 package com.ezpay.entity;
 
 import java.time.LocalDate;
+
+import org.hibernate.annotations.DynamicUpdate;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
@@ -17,6 +20,7 @@ import jakarta.persistence.PrimaryKeyJoinColumn;
  * Represents a bank transfer transaction.
  */
 @Entity
+@DynamicUpdate
 @Table(name = "bank_transfer_transaction")  // Specify the table name in the database
 @PrimaryKeyJoinColumn(name = "transaction_id")  // Indicates the foreign key relationship
 public class BankTransferTransaction extends Transaction {
@@ -46,7 +50,7 @@ public class BankTransferTransaction extends Transaction {
      * @param senderAccount Account from which the transfer is made
      * @param receiverAccount Account to which the transfer is made
      */
-    public BankTransferTransaction(int transactionId, String type, double amount, LocalDate date, String status,
+    public BankTransferTransaction(long transactionId, String type, double amount, LocalDate date, String status,
                                    String transferId, String senderAccount, String receiverAccount) {
         super(transactionId, type, amount, date, status);
         this.transferId = transferId;
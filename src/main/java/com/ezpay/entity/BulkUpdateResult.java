@@ -0,0 +1,23 @@
+package com.ezpay.entity;
+
+/**
+ * Represents the outcome of a bulk cancel or bulk modify of scheduled payments.
+ */
+public class BulkUpdateResult {
+
+    private final int requested;    // IDs given, or payments of the source account that were not cancelled
+    private final int updated;      // Payments updated; cancelled and unknown payments are not
+
+    public BulkUpdateResult(int requested, int updated) {
+        this.requested = requested;
+        this.updated = updated;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ezpay.entity;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Amounts the auto-pay scheduled payments of one source account will take out of it, per day,
+ * over a forecast horizon. Only the days with payments are listed. Payments overdue at the
+ * start of the horizon are counted on its first day, as they run at once.
+ */
+public class CashFlowForecast {
+    private final String sourceAccount;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final double total;
+    private final int payments;
+    private final List<Day> days;
+
+    public CashFlowForecast(String sourceAccount, LocalDate from, LocalDate to, double total, int payments,
+                            List<Day> days) {
+        this.sourceAccount = sourceAccount;
+        this.from = from;
+        this.to = to;
+        this.total = total;
+        this.payments = payments;
+        this.days = days;
+    }
+
+    // Getters
+    public String getSourceAccount() { return sourceAccount; }
+
+    public LocalDate getFrom() { return from; }
+
+    public LocalDate getTo() { return to; }
+
+    public double getTotal() { return total; }
+
+    public int getPayments() { return payments; }
+
+    public List<Day> getDays() { return days; }
+
+    /**
+     * Payments of one day.
+     */
+    public static class Day {
+        private final LocalDate date;
+        private final double amount;
+        private final int payments;
+
+        public Day(LocalDate date, double amount, int payments) {
+            this.date = date;
+            this.amount = amount;
+            this.payments = payments;
+        }
+
+        public LocalDate getDate() { return date; }
+
+        public double getAmount() { return amount; }
+
+        public int getPayments() { return payments; }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ezpay.entity;
+
+/**
+ * What a scheduled payment does with the runs it missed while the runner was down, that is
+ * the due times older than the catch-up grace period. Runs still within the grace period are
+ * on time and always run.
+ */
+public enum CatchUpPolicy {
+
+    /** Every missed run is made, oldest first. The default. */
+    RUN_ALL,
+
+    /** Only the latest missed run is made, the earlier ones are skipped. */
+    LATEST_ONLY,
+
+    /** No missed run is made, the payment moves on to its next due time. */
+    SKIP
+}
@@ -0,0 +1,56 @@
+package com.ezpay.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of the catch-up of missed scheduled payment runs on this instance.
+ */
+public class CatchUpStats {
+
+    private final long backlog;                 // Auto-pay payments of the owned shards with a missed run
+    private final LocalDateTime oldestDue;      // Oldest missed due time, null without backlog
+    private final long runsExecuted;            // Missed runs made since startup
+    private final long paymentsSkipped;         // Payments that skipped missed runs by their policy since startup
+    private final LocalDateTime lastPass;       // Time of the last catch-up pass that found missed runs
+    private final int lastPassRuns;             // Missed runs made by that pass
+    private final int runsPerSecond;            // Configured catch-up rate
+
+    public CatchUpStats(long backlog, LocalDateTime oldestDue, long runsExecuted, long paymentsSkipped,
+                        LocalDateTime lastPass, int lastPassRuns, int runsPerSecond) {
+        this.backlog = backlog;
+        this.oldestDue = oldestDue;
+        this.runsExecuted = runsExecuted;
+        this.paymentsSkipped = paymentsSkipped;
+        this.lastPass = lastPass;
+        this.lastPassRuns = lastPassRuns;
+        this.runsPerSecond = runsPerSecond;
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    public LocalDateTime getOldestDue() {
+        return oldestDue;
+    }
+
+    public long getRunsExecuted() {
+        return runsExecuted;
+    }
+
+    public long getPaymentsSkipped() {
+        return paymentsSkipped;
+    }
+
+    public LocalDateTime getLastPass() {
+        return lastPass;
+    }
+
+    public int getLastPassRuns() {
+        return lastPassRuns;
+    }
+
+    public int getRunsPerSecond() {
+        return runsPerSecond;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ezpay.entity;
+
+import java.util.List;
+
+/**
+ * Represents one page of a keyset (cursor) paginated listing.
+ * The nextCursor is an opaque token to be passed back to fetch the following page,
+ * and is null when there are no more results.
+ *
+ * @param <T> Type of the items in the page
+ */
+public class KeysetPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public KeysetPage() {
+    }
+
+    public KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters and setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public int getSize() { return items == null ? 0 : items.size(); }
+}
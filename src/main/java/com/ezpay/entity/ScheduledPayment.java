@@ -7,8 +7,13 @@ package com.ezpay.entity;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrimaryKeyJoinColumn;
 import jakarta.persistence.Table;
 
@@ -17,7 +22,14 @@ import jakarta.persistence.Table;
  * This class extends the Transaction class and adds details specific to scheduled payments.
  */
 @Entity
-@Table(name = "scheduled_payment")
+@DynamicUpdate
+@Table(name = "scheduled_payment", indexes = { // Same as db/oracle/V4, V9 and V13
+    @Index(name = "idx_sp_due", columnList = "is_auto_pay_enabled, next_payment_date, transaction_id"),
+    @Index(name = "idx_sp_source_next_due", columnList = "source_account, next_payment_date, transaction_id"),
+    @Index(name = "idx_sp_destination_due", columnList = "destination_account, next_payment_date, transaction_id"),
+    @Index(name = "idx_sp_status_due", columnList = "payment_status, next_payment_date, transaction_id"),
+    @Index(name = "idx_sp_next_due", columnList = "next_payment_date, transaction_id")
+})
 @PrimaryKeyJoinColumn(name = "transaction_id")  // Indicates the foreign key relationship
 public class ScheduledPayment extends Transaction {
 
@@ -42,6 +54,13 @@ public class ScheduledPayment extends Transaction {
     @Column(name = "destination_account")
     private String destinationAccount; // Account to which the payment will be made
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "catch_up_policy", length = 16)
+    private CatchUpPolicy catchUpPolicy; // What to do with missed runs, RUN_ALL if null
+
+    @Column(name = "payment_status")
+    private String paymentStatus; // Copy of the transaction status, so the history pages filter it by index
+
     /**
      * Default constructor.
      */
@@ -70,6 +89,7 @@ public class ScheduledPayment extends Transaction {
                             String frequency, boolean isAutoPayEnabled,  
                             String sourceAccount, String destinationAccount) {
         super(amount, LocalDate.now(), status); // Call to the Transaction constructor
+        this.paymentStatus = status;
         this.nextPaymentDate = nextPaymentDate;
         this.startDate = startDate;
         this.endDate = endDate;
@@ -138,4 +158,22 @@ public class ScheduledPayment extends Transaction {
     public void setDestinationAccount(String destinationAccount) {
         this.destinationAccount = destinationAccount;
     }
+
+    /**
+     * Sets the status of the payment, and its copy in the scheduled_payment table.
+     * @param status The status to set
+     */
+    @Override
+    public void setStatus(String status) {
+        super.setStatus(status);
+        this.paymentStatus = status;
+    }
+
+    public CatchUpPolicy getCatchUpPolicy() {
+        return catchUpPolicy;
+    }
+
+    public void setCatchUpPolicy(CatchUpPolicy catchUpPolicy) {
+        this.catchUpPolicy = catchUpPolicy;
+    }
 }
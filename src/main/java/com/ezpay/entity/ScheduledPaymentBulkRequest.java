@@ -0,0 +1,59 @@
+package com.ezpay.entity;
+
+import java.util.List;
+
+/**
+ * Request of a bulk cancel or bulk modify of scheduled payments.
+ *
+ * The payments are selected either by their IDs or by their source account, exactly one of
+ * the two is given. A bulk modify sets the fields that are given on every selected payment,
+ * a bulk cancel ignores them.
+ */
+public class ScheduledPaymentBulkRequest {
+
+    private List<Long> transactionIds;      // IDs of the payments, or null to select by account
+    private String sourceAccount;           // Source account of the payments, or null to select by ID
+    private Double amount;                  // New amount, null to keep it
+    private Boolean isAutoPayEnabled;       // New auto-pay flag, null to keep it
+    private String newSourceAccount;        // New source account, null to keep it
+
+    public List<Long> getTransactionIds() {
+        return transactionIds;
+    }
+
+    public void setTransactionIds(List<Long> transactionIds) {
+        this.transactionIds = transactionIds;
+    }
+
+    public String getSourceAccount() {
+        return sourceAccount;
+    }
+
+    public void setSourceAccount(String sourceAccount) {
+        this.sourceAccount = sourceAccount;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public Boolean getIsAutoPayEnabled() {
+        return isAutoPayEnabled;
+    }
+
+    public void setIsAutoPayEnabled(Boolean isAutoPayEnabled) {
+        this.isAutoPayEnabled = isAutoPayEnabled;
+    }
+
+    public String getNewSourceAccount() {
+        return newSourceAccount;
+    }
+
+    public void setNewSourceAccount(String newSourceAccount) {
+        this.newSourceAccount = newSourceAccount;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ezpay.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Partial update of a scheduled payment. The fields that are given replace those of the
+ * payment, the others are kept. The version is the one the payment was read at; the update
+ * is rejected if the payment has been changed since.
+ */
+public class ScheduledPaymentPatch {
+
+    private Long version;                   // Version the payment was read at, required
+    private Double amount;
+    private LocalDateTime nextPaymentDate;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private String frequency;
+    private Boolean isAutoPayEnabled;
+    private String sourceAccount;
+    private String destinationAccount;
+    private CatchUpPolicy catchUpPolicy;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public LocalDateTime getNextPaymentDate() {
+        return nextPaymentDate;
+    }
+
+    public void setNextPaymentDate(LocalDateTime nextPaymentDate) {
+        this.nextPaymentDate = nextPaymentDate;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDateTime endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+    }
+
+    public Boolean getIsAutoPayEnabled() {
+        return isAutoPayEnabled;
+    }
+
+    public void setIsAutoPayEnabled(Boolean isAutoPayEnabled) {
+        this.isAutoPayEnabled = isAutoPayEnabled;
+    }
+
+    public String getSourceAccount() {
+        return sourceAccount;
+    }
+
+    public void setSourceAccount(String sourceAccount) {
+        this.sourceAccount = sourceAccount;
+    }
+
+    public String getDestinationAccount() {
+        return destinationAccount;
+    }
+
+    public void setDestinationAccount(String destinationAccount) {
+        this.destinationAccount = destinationAccount;
+    }
+
+    public CatchUpPolicy getCatchUpPolicy() {
+        return catchUpPolicy;
+    }
+
+    public void setCatchUpPolicy(CatchUpPolicy catchUpPolicy) {
+        this.catchUpPolicy = catchUpPolicy;
+    }
+}
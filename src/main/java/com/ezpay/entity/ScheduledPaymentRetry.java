@@ -0,0 +1,112 @@
+package com.ezpay.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Failed run of a scheduled payment waiting to be tried again, or given up on.
+ *
+ * A scheduled payment has at most one entry, for the run at its next payment date: its later
+ * runs wait until that run succeeds, so retries never reorder the runs of a payment. While it
+ * has an entry, the payment is only run by the timer at the next attempt time. Once the
+ * attempts are used up the entry is dead-lettered and the payment stops running until the
+ * entry is requeued. The entry is removed when the run succeeds.
+ */
+@Entity
+@Table(name = "scheduled_payment_retry", indexes = { // Same as db/oracle/V8
+    @Index(name = "idx_spr_status_failed", columnList = "status, last_failed_at")
+})
+public class ScheduledPaymentRetry {
+
+    @Id
+    @Column(name = "scheduled_payment_id")
+    private long scheduledPaymentId;        // ID of the scheduled payment
+
+    @Column(name = "due_time")
+    private LocalDateTime dueTime;          // Due time of the failed run
+
+    @Column(name = "attempts")
+    private int attempts;                   // Failed attempts so far
+
+    @Column(name = "status")
+    private String status;                  // "pending" or "dead"
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;    // Time of the next attempt, null once dead-lettered
+
+    @Column(name = "last_failed_at")
+    private LocalDateTime lastFailedAt;     // Time of the last failed attempt
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;               // Error of the last failed attempt
+
+    /**
+     * Default constructor.
+     */
+    public ScheduledPaymentRetry() {}
+
+    /**
+     * Creates the entry of a run that has not failed yet.
+     * @param scheduledPaymentId ID of the scheduled payment
+     * @param dueTime Due time of the run
+     */
+    public ScheduledPaymentRetry(long scheduledPaymentId, LocalDateTime dueTime) {
+        this.scheduledPaymentId = scheduledPaymentId;
+        this.dueTime = dueTime;
+    }
+
+    // Getters and setters for the fields
+
+    public long getScheduledPaymentId() {
+        return scheduledPaymentId;
+    }
+
+    public LocalDateTime getDueTime() {
+        return dueTime;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLastFailedAt() {
+        return lastFailedAt;
+    }
+
+    public void setLastFailedAt(LocalDateTime lastFailedAt) {
+        this.lastFailedAt = lastFailedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ezpay.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Lease of one shard of the scheduled payments.
+ *
+ * The instance owning an unexpired lease is the only one running the scheduled payments of
+ * that shard. Owners renew their leases with every heartbeat; a lease left to expire can be
+ * claimed by any instance.
+ */
+@Entity
+@Table(name = "scheduler_lease")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "shard")
+    private int shard;          // Shard number, 0 to the shard count - 1
+
+    @Column(name = "owner")
+    private String owner;       // Instance ID of the owner, null when released
+
+    @Column(name = "expires_at")
+    private Instant expiresAt;  // End of the lease unless renewed
+
+    /**
+     * Default constructor.
+     */
+    public SchedulerLease() {}
+
+    /**
+     * Creates an unowned lease.
+     * @param shard Shard number
+     */
+    public SchedulerLease(int shard) {
+        this.shard = shard;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ezpay.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Running instance taking part in scheduled payment runs, as last seen by its heartbeat.
+ * The number of live instances decides how many shards each instance should own, and the
+ * node IDs of the live instances are checked for duplicates at startup.
+ */
+@Entity
+@Table(name = "scheduler_node")
+public class SchedulerNode {
+
+    @Id
+    @Column(name = "instance_id")
+    private String instanceId;    // Instance ID, see ezpay.scheduler.instance-id
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;  // Time of the last heartbeat
+
+    @Column(name = "node_id")
+    private Integer nodeId;       // Node ID of its transaction IDs, see TimeOrderedIds
+
+    /**
+     * Default constructor.
+     */
+    public SchedulerNode() {}
+
+    /**
+     * Creates the row of an instance.
+     * @param instanceId Instance ID
+     * @param heartbeatAt Time of the heartbeat
+     * @param nodeId Node ID of the instance
+     */
+    public SchedulerNode(String instanceId, Instant heartbeatAt, int nodeId) {
+        this.instanceId = instanceId;
+        this.heartbeatAt = heartbeatAt;
+        this.nodeId = nodeId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public Integer getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ezpay.entity;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Marks an ID assigned by {@link TransactionIdGenerator}: time-ordered, unique across the
+ * instances and made in memory, see {@link TimeOrderedIds}.
+ */
+@IdGeneratorType(TransactionIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface TimeOrderedId {
+}
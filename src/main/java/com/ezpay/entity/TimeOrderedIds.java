@@ -0,0 +1,94 @@
+package com.ezpay.entity;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Source of 64-bit, time-ordered transaction IDs, unique per node without a database trip.
+ *
+ * An ID holds, from the most significant bit: a zero sign bit, 41 bits of milliseconds since
+ * {@link #EPOCH} (until 2093), {@value #NODE_BITS} bits of node ID and {@value #COUNTER_BITS}
+ * bits of counter within the millisecond. IDs of one node are strictly increasing, and IDs of
+ * all nodes sort by creation time to the millisecond, so recent transactions sit together at
+ * the end of the primary key index.
+ *
+ * The clock and counter of a node are kept in one atomic word and advanced with a compare and
+ * set, so threads never block. When the counter of a millisecond runs out, or the clock moves
+ * back, the node keeps counting into the following milliseconds instead of waiting, and falls
+ * back in line when the clock catches up.
+ */
+public final class TimeOrderedIds {
+
+    /** Start of the timestamp, 2024-01-01T00:00:00Z. */
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    public static final int NODE_BITS = 10;
+    public static final int COUNTER_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + COUNTER_BITS;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long EPOCH_MILLIS = EPOCH.toEpochMilli();
+
+    /** One source per node, so every generator of the node shares its counter. */
+    private static final ConcurrentHashMap<Integer, TimeOrderedIds> NODES = new ConcurrentHashMap<>();
+
+    private final long node;
+    private final LongSupplier clock;
+
+    /** Milliseconds since the epoch shifted left by the counter bits, plus the counter. */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Creates a source. Applications use {@link #forNode(int)}, which hands out one source per node.
+     * @param nodeId ID of this node, unique among the running instances
+     * @param clock Current time in milliseconds since 1970
+     */
+    public TimeOrderedIds(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the ID source of a node.
+     * @param nodeId ID of this node, unique among the running instances
+     * @return The shared source of the node
+     */
+    public static TimeOrderedIds forNode(int nodeId) {
+        return NODES.computeIfAbsent(nodeId, id -> new TimeOrderedIds(id, System::currentTimeMillis));
+    }
+
+    /**
+     * Returns a new ID, greater than every ID this source returned before.
+     */
+    public long next() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << COUNTER_BITS;
+        while (true) {
+            long previous = state.get();
+            // Same millisecond or clock behind: count on, an exhausted counter carries into the next millisecond
+            long next = now > previous ? now : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                return (next >>> COUNTER_BITS) << TIMESTAMP_SHIFT | node << COUNTER_BITS | (next & COUNTER_MASK);
+            }
+        }
+    }
+
+    /**
+     * Returns the time an ID was created, to the millisecond.
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS);
+    }
+
+    /**
+     * Returns the node that created an ID.
+     */
+    public static int nodeOf(long id) {
+        return (int) (id >>> COUNTER_BITS) & MAX_NODE_ID;
+    }
+}
@@ -9,17 +9,22 @@ package com.ezpay.entity;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Transaction model class.
@@ -28,8 +33,14 @@ import jakarta.persistence.Table;
  * date, status, sender, and receiver. It provides getters and setters for each of these fields.
  */
 @Entity
+@DynamicUpdate // Updates write the changed columns only
 @Inheritance(strategy = InheritanceType.JOINED)
-@Table(name = "transaction")
+@Table(name = "transaction", indexes = { // Same as db/oracle/V2__transaction_indexes.sql
+    @Index(name = "idx_txn_date_id", columnList = "transaction_date DESC, transaction_id DESC"),
+    @Index(name = "idx_txn_type_date_id", columnList = "transaction_type, transaction_date DESC, transaction_id DESC"),
+    @Index(name = "idx_txn_status_date_id", columnList = "status, transaction_date DESC, transaction_id DESC"),
+    @Index(name = "idx_txn_id_status", columnList = "transaction_id, status")
+})
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "transactionType")
 @JsonSubTypes({
     @JsonSubTypes.Type(value = UPITransaction.class, name = "UPI"),
@@ -39,11 +50,10 @@ import jakarta.persistence.Table;
 public class Transaction {
 
     @Id
-//    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
-//    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_sequence", allocationSize = 1)
-   @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     @Column(name = "transaction_id")
-    private int transactionId;  // Unique identifier for the transaction
+    @JsonSerialize(using = ToStringSerializer.class) // JavaScript numbers cannot hold every 64-bit ID
+    private long transactionId;  // Unique identifier for the transaction
 
     @Column(name = "transactionType")
     private String transactionType;        // Type of transaction (e.g., "UPI", "Bank Transfer")
@@ -63,6 +73,11 @@ public class Transaction {
     @Column(name = "receiver")
     private String receiver;    // Receiver of the transaction
 
+    @Version
+    @ColumnDefault("0") // Rows inserted without it, e.g. by TransactionBatchWriter, start at 0
+    @Column(name = "version", nullable = false)
+    private long version;       // Optimistic lock, incremented by every update
+
     /**
      * Default constructor.
      */
@@ -77,7 +92,7 @@ public class Transaction {
      * @param date The date of the transaction
      * @param status The status of the transaction
      */
-    public Transaction(int transactionId, String type, double amount, LocalDate date, String status) {
+    public Transaction(long transactionId, String type, double amount, LocalDate date, String status) {
         this.transactionId = transactionId;
         this.transactionType = type;
         this.amount = amount;
@@ -111,7 +126,7 @@ public class Transaction {
      * Gets the unique identifier for the transaction.
      * @return The transaction ID
      */
-    public int getTransactionId() {
+    public long getTransactionId() {
         return transactionId;
     }
 
@@ -119,7 +134,7 @@ public class Transaction {
      * Sets the unique identifier for the transaction.
      * @param transactionId The transaction ID to set
      */
-    public void setTransactionId(int transactionId) {
+    public void setTransactionId(long transactionId) {
         this.transactionId = transactionId;
     }
 
@@ -187,6 +202,23 @@ public class Transaction {
         this.status = status;
     }
 
+    /**
+     * Gets the version of the transaction, incremented by every update. An update based on
+     * an older version is rejected.
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version the transaction was read at.
+     * @param version The version to set
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     /**
      * Gets the sender of the transaction.
      * @return The sender
@@ -0,0 +1,56 @@
+package com.ezpay.entity;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Assigns transaction IDs from the {@link TimeOrderedIds} source of this node, in memory.
+ *
+ * The node ID is read from the Hibernate setting {@value #NODE_ID_SETTING} and must be
+ * unique among the running instances.
+ */
+public class TransactionIdGenerator implements IdentifierGenerator {
+
+    /** Setting holding the node ID of this instance. */
+    public static final String NODE_ID_SETTING = "ezpay.ids.node-id";
+
+    private TimeOrderedIds ids;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Object nodeId = serviceRegistry.requireService(ConfigurationService.class).getSettings().get(NODE_ID_SETTING);
+        ids = TimeOrderedIds.forNode(nodeId(nodeId));
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return ids.next();
+    }
+
+    /**
+     * Parses the node ID setting.
+     * @param value Setting value, or null for node 0
+     * @return Node ID of this instance
+     * @throws MappingException if the value is not a valid node ID
+     */
+    public static int nodeId(Object value) {
+        if (value == null || value.toString().isBlank()) {
+            return 0;
+        }
+        try {
+            int nodeId = Integer.parseInt(value.toString().trim());
+            if (nodeId >= 0 && nodeId <= TimeOrderedIds.MAX_NODE_ID) {
+                return nodeId;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new MappingException(NODE_ID_SETTING + " must be between 0 and " + TimeOrderedIds.MAX_NODE_ID + ": " + value);
+    }
+}
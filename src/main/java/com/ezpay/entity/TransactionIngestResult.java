@@ -0,0 +1,55 @@
+package com.ezpay.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+/**
+ * Represents the outcome of one item of a bulk transaction upload.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionIngestResult {
+
+    /** Outcome of an item. */
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private final int index;              // Position of the item in the uploaded array
+    @JsonSerialize(using = ToStringSerializer.class)
+    private final Long transactionId;     // ID of the created transaction, null if it failed
+    private final Status status;          // Whether the item was stored
+    private final String error;           // Reason the item failed, null if it was created
+
+    private TransactionIngestResult(int index, Long transactionId, Status status, String error) {
+        this.index = index;
+        this.transactionId = transactionId;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static TransactionIngestResult created(int index, long transactionId) {
+        return new TransactionIngestResult(index, transactionId, Status.CREATED, null);
+    }
+
+    public static TransactionIngestResult failed(int index, String error) {
+        return new TransactionIngestResult(index, null, Status.FAILED, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ezpay.entity;
+
+/**
+ * Review of a transaction: its new status, and the version the transaction was read at. The
+ * review is rejected if the transaction has been changed since.
+ */
+public class TransactionReview {
+
+    private String status;      // New status, e.g. "Success", "Failure" or "In Review"
+    private Long version;       // Version the transaction was read at, required
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ezpay.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Immutable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Status transition of a transaction, appended to the transaction_status_event log whenever a
+ * status is set. The log is never updated: the status column of the transaction is the current
+ * status projected from it, written in the same database transaction as the event.
+ *
+ * Event IDs are time-ordered like transaction IDs, so the events of a transaction sorted by ID
+ * are in the order they happened. In Oracle the table is organized by (transaction_id, event_id),
+ * see db/oracle/V11, so a timeline is one range scan of its primary key. No index is declared
+ * here, the primary key covers it; the embedded test database creates one in its place.
+ */
+@Entity
+@Immutable
+@Table(name = "transaction_status_event")
+public class TransactionStatusEvent {
+
+    @Id
+    @Column(name = "event_id")
+    @JsonSerialize(using = ToStringSerializer.class)
+    private long eventId;               // Time-ordered ID, see TransactionIdAllocator
+
+    @Column(name = "transaction_id", nullable = false)
+    @JsonSerialize(using = ToStringSerializer.class)
+    private long transactionId;         // ID of the transaction
+
+    @Column(name = "from_status")
+    private String fromStatus;          // Status before the change, null when the transaction was created
+
+    @Column(name = "to_status")
+    private String toStatus;            // Status after the change
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;    // Time the change was made
+
+    /**
+     * Default constructor.
+     */
+    public TransactionStatusEvent() {}
+
+    /**
+     * Creates the event of a status change made now. Its ID is assigned when it is appended.
+     * @param transactionId ID of the transaction
+     * @param fromStatus Status before the change, or null if the transaction is new
+     * @param toStatus Status after the change
+     */
+    public TransactionStatusEvent(long transactionId, String fromStatus, String toStatus) {
+        this.transactionId = transactionId;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Creates the event of a new transaction taking its first status.
+     * @param transaction The new transaction, with its ID set
+     * @return The event
+     */
+    public static TransactionStatusEvent created(Transaction transaction) {
+        return new TransactionStatusEvent(transaction.getTransactionId(), null, transaction.getStatus());
+    }
+
+    /**
+     * @return Whether the status actually changed
+     */
+    @JsonIgnore
+    public boolean isTransition() {
+        return toStatus != null && !toStatus.equals(fromStatus);
+    }
+
+    // Getters and setters for the fields
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getFromStatus() {
+        return fromStatus;
+    }
+
+    public String getToStatus() {
+        return toStatus;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionStatusEvent{eventId=" + eventId + ", transactionId=" + transactionId + ", fromStatus='"
+                + fromStatus + "', toStatus='" + toStatus + "', changedAt=" + changedAt + "}";
+    }
+}
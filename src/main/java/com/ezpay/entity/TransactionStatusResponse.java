@@ -0,0 +1,27 @@
+package com.ezpay.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+/**
+ * Represents the status of one transaction in a batch status lookup.
+ */
+public class TransactionStatusResponse {
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    private final long transactionId;  // ID of the transaction
+    private final String status;       // Current status of the transaction
+
+    public TransactionStatusResponse(long transactionId, String status) {
+        this.transactionId = transactionId;
+        this.status = status;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
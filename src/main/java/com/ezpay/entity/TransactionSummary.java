@@ -0,0 +1,49 @@
+package com.ezpay.entity;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+/**
+ * Read-only row of a transaction listing.
+ * 
+ * Built by a constructor expression over the columns of the transaction table only, so
+ * listings neither join the subclass tables nor load managed entities.
+ */
+public class TransactionSummary {
+    @JsonSerialize(using = ToStringSerializer.class)
+    private final long transactionId;
+    private final String transactionType;
+    private final double amount;
+    private final LocalDate date;
+    private final String status;
+    private final String sender;
+    private final String receiver;
+
+    public TransactionSummary(long transactionId, String transactionType, double amount, LocalDate date,
+                              String status, String sender, String receiver) {
+        this.transactionId = transactionId;
+        this.transactionType = transactionType;
+        this.amount = amount;
+        this.date = date;
+        this.status = status;
+        this.sender = sender;
+        this.receiver = receiver;
+    }
+
+    // Getters
+    public long getTransactionId() { return transactionId; }
+
+    public String getTransactionType() { return transactionType; }
+
+    public double getAmount() { return amount; }
+
+    public LocalDate getDate() { return date; }
+
+    public String getStatus() { return status; }
+
+    public String getSender() { return sender; }
+
+    public String getReceiver() { return receiver; }
+}
@@ -9,6 +9,8 @@ package com.ezpay.entity;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.PrimaryKeyJoinColumn;
@@ -18,6 +20,7 @@ import jakarta.persistence.Table;
  * Represents a UPI transaction.
  */
 @Entity
+@DynamicUpdate
 @Table(name = "upi_transaction")  // Specify the table name in the database
 @PrimaryKeyJoinColumn(name = "transaction_id")  // Indicates the foreign key relationship
 public class UPITransaction extends Transaction {
@@ -43,7 +46,7 @@ public class UPITransaction extends Transaction {
      * @param upi_Id UPI ID of the transaction
      * @param userId User ID associated with the transaction
      */
-    public UPITransaction(int transactionId, String type, double amount, LocalDate date, String status,
+    public UPITransaction(long transactionId, String type, double amount, LocalDate date, String status,
                           String upiId, String userId) {
         super(transactionId, type, amount, date, status);
         this.upiId = upiId;
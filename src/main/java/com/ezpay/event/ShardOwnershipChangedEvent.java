@@ -0,0 +1,31 @@
+package com.ezpay.event;
+
+import java.util.BitSet;
+
+/**
+ * Published when this instance gains or loses scheduled payment shards, once the lease
+ * changes have committed. The scheduled payment timer loads and drops payments from it.
+ */
+public class ShardOwnershipChangedEvent {
+
+    private final BitSet gained;  // Shards newly owned
+    private final BitSet lost;    // Shards no longer owned
+
+    public ShardOwnershipChangedEvent(BitSet gained, BitSet lost) {
+        this.gained = (BitSet) gained.clone();
+        this.lost = (BitSet) lost.clone();
+    }
+
+    public BitSet getGained() {
+        return (BitSet) gained.clone();
+    }
+
+    public BitSet getLost() {
+        return (BitSet) lost.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ShardOwnershipChangedEvent{gained=" + gained + ", lost=" + lost + "}";
+    }
+}
@@ -0,0 +1,35 @@
+package com.ezpay.event;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+/**
+ * Published whenever a transaction is saved with its current status.
+ *
+ * The status cache is updated from it synchronously, and status subscribers receive it once
+ * the saving transaction has committed. It is also the payload pushed to subscribers.
+ */
+public class TransactionStatusChangedEvent {
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    private final long transactionId;  // ID of the saved transaction
+    private final String status;       // Status the transaction was saved with
+
+    public TransactionStatusChangedEvent(long transactionId, String status) {
+        this.transactionId = transactionId;
+        this.status = status;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionStatusChangedEvent{transactionId=" + transactionId + ", status='" + status + "'}";
+    }
+}
@@ -0,0 +1,12 @@
+package com.ezpay.exception;
+
+
+/**
+ * Thrown when a request carries parameters that cannot be processed,
+ * such as a malformed cursor or an out of range page size.
+ */
+public class InvalidRequestException extends RuntimeException {
+	public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -4,10 +4,22 @@
  * **/
 package com.ezpay.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.ezpay.entity.BankTransferTransaction;
 
-public interface BankTransferTransactionRepository extends JpaRepository<BankTransferTransaction, Integer>{
+public interface BankTransferTransactionRepository extends JpaRepository<BankTransferTransaction, Long>{
 
+    /**
+     * Finds which of the given transfer IDs are already taken.
+     * @param transferIds Transfer IDs to look up, at most {@link InLists#MAX_SIZE}
+     * @return The transfer IDs that exist
+     */
+    @Query("SELECT b.transferId FROM BankTransferTransaction b WHERE b.transferId IN :transferIds")
+    List<String> findExistingTransferIds(@Param("transferIds") Collection<String> transferIds);
 }
@@ -0,0 +1,39 @@
+package com.ezpay.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helper for queries taking a list of IDs in an IN clause.
+ *
+ * Oracle accepts at most 1000 expressions in an IN list, so longer lists are split into
+ * chunks queried one after the other. Hibernate pads each IN list to the next power of two,
+ * capped at 1000 (hibernate.query.in_clause_parameter_padding in application.properties), so a
+ * chunk of any size reuses one of a few statements and their cached plans.
+ */
+public final class InLists {
+
+    /** Largest IN list Oracle accepts. */
+    public static final int MAX_SIZE = 1000;
+
+    private InLists() {
+    }
+
+    /**
+     * Runs a query once per chunk of IDs and concatenates the results.
+     * @param ids IDs to query
+     * @param query Query taking one chunk of at most {@link #MAX_SIZE} IDs
+     * @return Results of all chunks
+     */
+    public static <T> List<T> queryInChunks(List<Long> ids, Function<List<Long>, List<T>> query) {
+        if (ids.size() <= MAX_SIZE) {
+            return query.apply(ids);
+        }
+        List<T> results = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_SIZE) {
+            results.addAll(query.apply(ids.subList(from, Math.min(from + MAX_SIZE, ids.size()))));
+        }
+        return results;
+    }
+}
@@ -4,11 +4,27 @@
  */
 package com.ezpay.repository;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.TransactionStatusResponse;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repository interface for handling ScheduledPayment entities.
@@ -16,12 +32,160 @@ import java.util.Optional;
  * and additional custom queries.
  */
 @Repository
-public interface ScheduledPaymentRepository extends JpaRepository<ScheduledPayment, Integer> {
+public interface ScheduledPaymentRepository extends JpaRepository<ScheduledPayment, Long>,
+        JpaSpecificationExecutor<ScheduledPayment> {
+
+    /** Shard of a scheduled payment: its ID plus the millisecond part of its ID, modulo the shard count. */
+    String SHARD = "MOD(s.transactionId + FLOOR(s.transactionId / 4194304), :shardCount)";
+
+    /** The payment has no failed run, which only the retry queue runs. */
+    String NOT_RETRYING = "NOT EXISTS (SELECT r.scheduledPaymentId FROM ScheduledPaymentRetry r "
+            + "WHERE r.scheduledPaymentId = s.transactionId)";
+
+    /** The payment has not been cancelled. */
+    String NOT_CANCELLED = "(s.status IS NULL OR s.status <> 'cancelled')";
+
 	/**
      * Finds a ScheduledPayment by its transaction ID.
      *
      * @param transactionId The ID of the transaction associated with the scheduled payment.
      * @return An Optional containing the ScheduledPayment if found, or empty if not found.
      */
-	Optional<ScheduledPayment> findByTransactionId(int transactionId);
+	Optional<ScheduledPayment> findByTransactionId(long transactionId);
+
+    /**
+     * Finds the IDs of the auto-pay scheduled payments due by the given time in some shards,
+     * oldest due first, leaving out those with a failed run. Read from the idx_sp_due index and
+     * the primary key of the retries; the shard is computed like
+     * {@link com.ezpay.scheduling.ShardLeaseManager#shardOf(long, int)}.
+     *
+     * @param now Time the payments must be due by.
+     * @param shardCount Number of shards.
+     * @param shards Shards to read.
+     * @param pageable Number of IDs to return.
+     * @return IDs of the due scheduled payments.
+     */
+    @Query("SELECT s.transactionId FROM ScheduledPayment s "
+            + "WHERE s.isAutoPayEnabled = true AND s.nextPaymentDate <= :now AND " + SHARD + " IN :shards "
+            + "AND " + NOT_RETRYING + " ORDER BY s.nextPaymentDate, s.transactionId")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, @Param("shardCount") int shardCount,
+                          @Param("shards") Collection<Integer> shards, Pageable pageable);
+
+    /**
+     * Finds the IDs of the auto-pay scheduled payments due in a window in some shards, oldest
+     * due first, leaving out those with a failed run, like {@link #findDueIds}.
+     *
+     * @param after Time the payments must be due after.
+     * @param now Time the payments must be due by.
+     * @param shardCount Number of shards.
+     * @param shards Shards to read.
+     * @param pageable Number of IDs to return.
+     * @return IDs of the due scheduled payments.
+     */
+    @Query("SELECT s.transactionId FROM ScheduledPayment s "
+            + "WHERE s.isAutoPayEnabled = true AND s.nextPaymentDate > :after AND s.nextPaymentDate <= :now "
+            + "AND " + SHARD + " IN :shards AND " + NOT_RETRYING + " ORDER BY s.nextPaymentDate, s.transactionId")
+    List<Long> findDueIdsBetween(@Param("after") LocalDateTime after, @Param("now") LocalDateTime now,
+                                 @Param("shardCount") int shardCount, @Param("shards") Collection<Integer> shards,
+                                 Pageable pageable);
+
+    /**
+     * Counts the auto-pay scheduled payments due by a given time in some shards, leaving out
+     * those with a failed run, and finds the oldest due time among them.
+     *
+     * @param before Time the payments must be due by.
+     * @param shardCount Number of shards.
+     * @param shards Shards to read.
+     * @return A single row of [count, oldest nextPaymentDate].
+     */
+    @Query("SELECT COUNT(s), MIN(s.nextPaymentDate) FROM ScheduledPayment s "
+            + "WHERE s.isAutoPayEnabled = true AND s.nextPaymentDate <= :before AND " + SHARD + " IN :shards "
+            + "AND " + NOT_RETRYING)
+    List<Object[]> countDue(@Param("before") LocalDateTime before, @Param("shardCount") int shardCount,
+                            @Param("shards") Collection<Integer> shards);
+
+    /**
+     * Streams the ID and next payment date of every auto-pay scheduled payment in some shards
+     * without a failed run, read from the idx_sp_due index. Must be consumed inside a transaction
+     * and closed after use.
+     *
+     * @param shardCount Number of shards.
+     * @param shards Shards to read.
+     * @return Stream of [transactionId, nextPaymentDate] rows.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TransactionRepository.STREAM_FETCH_SIZE))
+    @Query("SELECT s.transactionId, s.nextPaymentDate FROM ScheduledPayment s "
+            + "WHERE s.isAutoPayEnabled = true AND s.nextPaymentDate IS NOT NULL AND " + SHARD + " IN :shards "
+            + "AND " + NOT_RETRYING)
+    Stream<Object[]> streamDueTimes(@Param("shardCount") int shardCount, @Param("shards") Collection<Integer> shards);
+
+    /**
+     * Finds what the forecast needs of the auto-pay scheduled payments of some source accounts
+     * due by a given time, using the idx_sp_source_next_due index.
+     *
+     * @param accounts Source accounts.
+     * @param until End of the forecast horizon.
+     * @return Rows of [sourceAccount, amount, nextPaymentDate, startDate, endDate, frequency,
+     *         catchUpPolicy].
+     */
+    @Query("SELECT s.sourceAccount, s.amount, s.nextPaymentDate, s.startDate, s.endDate, s.frequency, "
+            + "s.catchUpPolicy "
+            + "FROM ScheduledPayment s WHERE s.sourceAccount IN :accounts AND s.isAutoPayEnabled = true "
+            + "AND s.nextPaymentDate <= :until")
+    List<Object[]> findForecastRows(@Param("accounts") Collection<String> accounts, @Param("until") LocalDateTime until);
+
+    /**
+     * Finds which of some scheduled payments exist and have not been cancelled, by primary key,
+     * with the status they are cancelled from, and locks their rows until the end of the
+     * database transaction. A concurrent cancellation waits, then no longer finds them.
+     *
+     * @param ids IDs of the scheduled payments.
+     * @return IDs and statuses of those not cancelled.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.ezpay.entity.TransactionStatusResponse(s.transactionId, s.status) "
+            + "FROM ScheduledPayment s WHERE s.transactionId IN :ids AND " + NOT_CANCELLED)
+    List<TransactionStatusResponse> findNotCancelledStatuses(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the scheduled payments of a source account that have not been cancelled, using the
+     * idx_sp_source_next_due index.
+     *
+     * @param sourceAccount Source account.
+     * @return IDs of the payments.
+     */
+    @Query("SELECT s.transactionId FROM ScheduledPayment s WHERE s.sourceAccount = :sourceAccount AND " + NOT_CANCELLED
+            + " ORDER BY s.transactionId")
+    List<Long> findNotCancelledIdsBySourceAccount(@Param("sourceAccount") String sourceAccount);
+
+    /**
+     * Cancels some scheduled payments in one statement: turns auto-pay off and sets their status
+     * to cancelled, and moves their version on. Payments already cancelled are left as they are.
+     *
+     * @param ids IDs of the scheduled payments, at most 1000 for Oracle.
+     * @return Number of payments cancelled.
+     */
+    @Modifying
+    @Query("UPDATE ScheduledPayment s SET s.status = 'cancelled', s.paymentStatus = 'cancelled', "
+            + "s.isAutoPayEnabled = false, s.version = s.version + 1 "
+            + "WHERE s.transactionId IN :ids AND " + NOT_CANCELLED)
+    int cancelByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Modifies some scheduled payments in one statement, setting the values that are given and
+     * keeping the others, and moves their version on. Cancelled payments are left as they are.
+     *
+     * @param ids IDs of the scheduled payments, at most 1000 for Oracle.
+     * @param amount New amount, or null to keep it.
+     * @param autoPayEnabled New auto-pay flag, or null to keep it.
+     * @param sourceAccount New source account, or null to keep it.
+     * @return Number of payments modified.
+     */
+    @Modifying
+    @Query("UPDATE ScheduledPayment s SET s.amount = COALESCE(:amount, s.amount), "
+            + "s.isAutoPayEnabled = COALESCE(:autoPayEnabled, s.isAutoPayEnabled), "
+            + "s.sourceAccount = COALESCE(:sourceAccount, s.sourceAccount), s.version = s.version + 1 "
+            + "WHERE s.transactionId IN :ids AND " + NOT_CANCELLED)
+    int modifyByIds(@Param("ids") Collection<Long> ids, @Param("amount") Double amount,
+                    @Param("autoPayEnabled") Boolean autoPayEnabled, @Param("sourceAccount") String sourceAccount);
 }
@@ -0,0 +1,75 @@
+package com.ezpay.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ezpay.entity.ScheduledPaymentRetry;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repository interface for the retries of failed scheduled payment runs.
+ */
+@Repository
+public interface ScheduledPaymentRetryRepository extends JpaRepository<ScheduledPaymentRetry, Long> {
+
+    /** Shard of the scheduled payment of a retry, like {@link ScheduledPaymentRepository#SHARD}. */
+    String SHARD = "MOD(r.scheduledPaymentId + FLOOR(r.scheduledPaymentId / 4194304), :shardCount)";
+
+    /**
+     * Streams the scheduled payment ID and next attempt time of the pending retries in some
+     * shards. Must be consumed inside a transaction and closed after use.
+     *
+     * @param status Status of the retries, pending.
+     * @param shardCount Number of shards.
+     * @param shards Shards to read.
+     * @return Stream of [scheduledPaymentId, nextAttemptAt] rows.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TransactionRepository.STREAM_FETCH_SIZE))
+    @Query("SELECT r.scheduledPaymentId, r.nextAttemptAt FROM ScheduledPaymentRetry r "
+            + "WHERE r.status = :status AND " + SHARD + " IN :shards")
+    Stream<Object[]> streamAttemptTimes(@Param("status") String status, @Param("shardCount") int shardCount,
+                                        @Param("shards") Collection<Integer> shards);
+
+    /**
+     * Finds the retries with a status, using the idx_spr_status_failed index.
+     *
+     * @param status Status of the retries.
+     * @return Retries, latest failure first.
+     */
+    @Query("SELECT r FROM ScheduledPaymentRetry r WHERE r.status = :status "
+            + "ORDER BY r.lastFailedAt DESC, r.scheduledPaymentId")
+    List<ScheduledPaymentRetry> findByStatus(@Param("status") String status);
+
+    /**
+     * Deletes the retries of some scheduled payments.
+     *
+     * @param scheduledPaymentIds IDs of the scheduled payments.
+     * @return Number of retries deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM ScheduledPaymentRetry r WHERE r.scheduledPaymentId IN :ids")
+    int deleteByScheduledPaymentIds(@Param("ids") Collection<Long> scheduledPaymentIds);
+
+    /**
+     * Deletes the retry of a scheduled payment if it has a given status.
+     *
+     * @param scheduledPaymentId ID of the scheduled payment.
+     * @param status Status the retry must have.
+     * @return 1 if the retry was deleted, 0 if there is none with that status.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ScheduledPaymentRetry r WHERE r.scheduledPaymentId = :id AND r.status = :status")
+    int deleteByScheduledPaymentIdAndStatus(@Param("id") long scheduledPaymentId, @Param("status") String status);
+}
@@ -0,0 +1,133 @@
+package com.ezpay.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.ezpay.entity.ScheduledPayment;
+
+/**
+ * Query building blocks for filtering scheduled payments.
+ *
+ * Like {@link TransactionSpecifications}, each filter only contributes a predicate when its
+ * value is supplied. The listing is ordered by next payment date and transaction ID, which
+ * the index of each filter ends with, so the first rows of a page are read in order from the
+ * index matching the filters, without a sort:
+ * <ul>
+ *   <li>source account: idx_sp_source_next_due</li>
+ *   <li>destination account: idx_sp_destination_due</li>
+ *   <li>status, copied to scheduled_payment for this: idx_sp_status_due</li>
+ *   <li>auto-pay flag: idx_sp_due</li>
+ *   <li>due window alone, or no filter: idx_sp_next_due</li>
+ * </ul>
+ * A page combining filters reads the index of one of them and checks the others on its rows.
+ */
+public final class ScheduledPaymentSpecifications {
+
+    private ScheduledPaymentSpecifications() {
+    }
+
+    /**
+     * Builds the filter used by the scheduled payment history pages. Payments without a next
+     * payment date have no place in the order and are left out.
+     * @param sourceAccount Source account, or null for any account
+     * @param destinationAccount Destination account, or null for any account
+     * @param status Status, or null for any status
+     * @param autoPayEnabled Auto-pay flag, or null for both
+     * @param dueFrom Earliest next payment date, or null for no lower bound
+     * @param dueTo Latest next payment date, or null for no upper bound
+     * @return Specification with one predicate per supplied filter
+     */
+    public static Specification<ScheduledPayment> filtered(String sourceAccount, String destinationAccount, String status,
+                                                           Boolean autoPayEnabled, LocalDateTime dueFrom,
+                                                           LocalDateTime dueTo) {
+        Specification<ScheduledPayment> specification = Specification.where(hasNextPaymentDate());
+        if (sourceAccount != null) {
+            specification = specification.and(hasSourceAccount(sourceAccount));
+        }
+        if (destinationAccount != null) {
+            specification = specification.and(hasDestinationAccount(destinationAccount));
+        }
+        if (status != null) {
+            specification = specification.and(hasStatus(status));
+        }
+        if (autoPayEnabled != null) {
+            specification = specification.and(hasAutoPay(autoPayEnabled));
+        }
+        if (dueFrom != null) {
+            specification = specification.and(dueFrom(dueFrom));
+        }
+        if (dueTo != null) {
+            specification = specification.and(dueTo(dueTo));
+        }
+        return specification;
+    }
+
+    /**
+     * @return Specification matching payments with a next payment date
+     */
+    public static Specification<ScheduledPayment> hasNextPaymentDate() {
+        return (root, query, builder) -> builder.isNotNull(root.get("nextPaymentDate"));
+    }
+
+    /**
+     * @param sourceAccount Source account
+     * @return Specification matching payments from the account
+     */
+    public static Specification<ScheduledPayment> hasSourceAccount(String sourceAccount) {
+        return (root, query, builder) -> builder.equal(root.get("sourceAccount"), sourceAccount);
+    }
+
+    /**
+     * @param destinationAccount Destination account
+     * @return Specification matching payments to the account
+     */
+    public static Specification<ScheduledPayment> hasDestinationAccount(String destinationAccount) {
+        return (root, query, builder) -> builder.equal(root.get("destinationAccount"), destinationAccount);
+    }
+
+    /**
+     * @param status Status
+     * @return Specification matching payments with the status
+     */
+    public static Specification<ScheduledPayment> hasStatus(String status) {
+        return (root, query, builder) -> builder.equal(root.get("paymentStatus"), status);
+    }
+
+    /**
+     * @param autoPayEnabled Auto-pay flag
+     * @return Specification matching payments with the flag
+     */
+    public static Specification<ScheduledPayment> hasAutoPay(boolean autoPayEnabled) {
+        return (root, query, builder) -> builder.equal(root.get("isAutoPayEnabled"), autoPayEnabled);
+    }
+
+    /**
+     * @param dueFrom Earliest next payment date, inclusive
+     * @return Specification matching payments due at or after the time
+     */
+    public static Specification<ScheduledPayment> dueFrom(LocalDateTime dueFrom) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("nextPaymentDate"), dueFrom);
+    }
+
+    /**
+     * @param dueTo Latest next payment date, inclusive
+     * @return Specification matching payments due at or before the time
+     */
+    public static Specification<ScheduledPayment> dueTo(LocalDateTime dueTo) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("nextPaymentDate"), dueTo);
+    }
+
+    /**
+     * Keyset predicate of the page following a payment.
+     * @param nextPaymentDate Next payment date of the last payment of the previous page
+     * @param transactionId Transaction ID of the last payment of the previous page
+     * @return Specification matching payments after it in (next payment date, transaction ID) order
+     */
+    public static Specification<ScheduledPayment> after(LocalDateTime nextPaymentDate, long transactionId) {
+        return (root, query, builder) -> builder.or(
+                builder.greaterThan(root.get("nextPaymentDate"), nextPaymentDate),
+                builder.and(builder.equal(root.get("nextPaymentDate"), nextPaymentDate),
+                        builder.greaterThan(root.get("transactionId"), transactionId)));
+    }
+}
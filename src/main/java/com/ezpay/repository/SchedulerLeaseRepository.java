@@ -0,0 +1,75 @@
+package com.ezpay.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ezpay.entity.SchedulerLease;
+
+/**
+ * Repository interface for the shard leases of the scheduled payment runs.
+ *
+ * Every change is a single conditional UPDATE, so that two instances never own the same
+ * shard at the same time whatever order their statements run in.
+ */
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, Integer> {
+
+    /**
+     * Claims a shard if it is free, expired or already owned by the instance.
+     * @param shard Shard to claim
+     * @param owner Instance ID of the claiming instance
+     * @param now Current time
+     * @param expiresAt End of the lease
+     * @return 1 if the shard was claimed, 0 if another instance owns it
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = :owner, l.expiresAt = :expiresAt WHERE l.shard = :shard "
+            + "AND (l.owner IS NULL OR l.owner = :owner OR l.expiresAt <= :now)")
+    int claim(@Param("shard") int shard, @Param("owner") String owner, @Param("now") Instant now,
+              @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Extends the unexpired leases of an instance.
+     * @param owner Instance ID of the owner
+     * @param now Current time
+     * @param expiresAt New end of the leases
+     * @return Number of leases extended
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.expiresAt = :expiresAt WHERE l.owner = :owner AND l.expiresAt > :now")
+    int renew(@Param("owner") String owner, @Param("now") Instant now, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Releases leases of an instance.
+     * @param owner Instance ID of the owner
+     * @param shards Shards to release
+     * @return Number of leases released
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.owner = NULL, l.expiresAt = NULL WHERE l.owner = :owner AND l.shard IN :shards")
+    int release(@Param("owner") String owner, @Param("shards") Collection<Integer> shards);
+
+    /**
+     * Finds the shards an instance owns.
+     * @param owner Instance ID of the owner
+     * @param now Current time
+     * @return Shards with an unexpired lease of the instance
+     */
+    @Query("SELECT l.shard FROM SchedulerLease l WHERE l.owner = :owner AND l.expiresAt > :now ORDER BY l.shard")
+    List<Integer> findOwned(@Param("owner") String owner, @Param("now") Instant now);
+
+    /**
+     * Finds the shards any instance may claim.
+     * @param now Current time
+     * @return Free and expired shards, lowest first
+     */
+    @Query("SELECT l.shard FROM SchedulerLease l WHERE l.owner IS NULL OR l.expiresAt <= :now ORDER BY l.shard")
+    List<Integer> findClaimable(@Param("now") Instant now);
+}
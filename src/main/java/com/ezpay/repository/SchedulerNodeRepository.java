@@ -0,0 +1,44 @@
+package com.ezpay.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ezpay.entity.SchedulerNode;
+
+/**
+ * Repository interface for the instances taking part in scheduled payment runs.
+ */
+@Repository
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+
+    /**
+     * Counts the instances whose last heartbeat is recent.
+     * @param since Oldest heartbeat of a live instance
+     * @return Number of live instances
+     */
+    @Query("SELECT COUNT(n) FROM SchedulerNode n WHERE n.heartbeatAt > :since")
+    long countAlive(@Param("since") Instant since);
+
+    /**
+     * Finds the instances whose last heartbeat is recent.
+     * @param since Oldest heartbeat of a live instance
+     * @return Live instances
+     */
+    @Query("SELECT n FROM SchedulerNode n WHERE n.heartbeatAt > :since")
+    List<SchedulerNode> findAlive(@Param("since") Instant since);
+
+    /**
+     * Removes the instances that stopped sending heartbeats.
+     * @param before Heartbeats up to this time are removed
+     * @return Number of instances removed
+     */
+    @Modifying
+    @Query("DELETE FROM SchedulerNode n WHERE n.heartbeatAt <= :before")
+    int deleteDead(@Param("before") Instant before);
+}
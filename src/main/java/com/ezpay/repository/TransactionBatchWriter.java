@@ -0,0 +1,118 @@
+package com.ezpay.repository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.UPITransaction;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Inserts UPI and bank transfer transactions with JDBC batch statements, bypassing the
+ * persistence context. Rows must already carry their IDs, see {@link TransactionIdAllocator}.
+ *
+ * Supports both storage layouts of the transaction hierarchy: with the default joined
+ * layout each transaction is one row of the transaction table plus one of its subtype
+ * table, with the single table layout it is one row of the transaction table.
+ */
+@Repository
+public class TransactionBatchWriter {
+
+    private static final String INSERT_TRANSACTION = "INSERT INTO transaction "
+            + "(transaction_id, transaction_type, amount, transaction_date, status, sender, receiver) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_UPI = "INSERT INTO upi_transaction (transaction_id, upi_id, user_id) "
+            + "VALUES (?, ?, ?)";
+    private static final String INSERT_BANK_TRANSFER = "INSERT INTO bank_transfer_transaction "
+            + "(transaction_id, transfer_id, sender_account, receiver_account) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_SINGLE_TABLE = "INSERT INTO transaction "
+            + "(transaction_id, transaction_type, amount, transaction_date, status, sender, receiver, entity_type, "
+            + "upi_id, user_id, transfer_id, sender_account, receiver_account) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private boolean singleTable;
+
+    @PostConstruct
+    void detectLayout() {
+        EntityPersister persister = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(Transaction.class);
+        singleTable = persister instanceof SingleTableEntityPersister;
+    }
+
+    /**
+     * Inserts the transactions as JDBC batches. Runs in the caller's transaction.
+     * @param transactions UPI and bank transfer transactions with their IDs set
+     */
+    public void insert(List<Transaction> transactions) {
+        if (singleTable) {
+            List<Object[]> rows = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                Object[] row = new Object[13];
+                fillTransaction(row, transaction);
+                if (transaction instanceof UPITransaction upiTransaction) {
+                    row[7] = "UPI";
+                    row[8] = upiTransaction.getUpiId();
+                    row[9] = upiTransaction.getUserId();
+                } else if (transaction instanceof BankTransferTransaction bankTransfer) {
+                    row[7] = "Bank Transfer";
+                    row[10] = bankTransfer.getTransferId();
+                    row[11] = bankTransfer.getSenderAccount();
+                    row[12] = bankTransfer.getReceiverAccount();
+                }
+                rows.add(row);
+            }
+            jdbcTemplate.batchUpdate(INSERT_SINGLE_TABLE, rows);
+            return;
+        }
+
+        List<Object[]> parents = new ArrayList<>(transactions.size());
+        List<Object[]> upiRows = new ArrayList<>();
+        List<Object[]> bankTransferRows = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            Object[] parent = new Object[7];
+            fillTransaction(parent, transaction);
+            parents.add(parent);
+            if (transaction instanceof UPITransaction upiTransaction) {
+                upiRows.add(new Object[] {transaction.getTransactionId(), upiTransaction.getUpiId(),
+                        upiTransaction.getUserId()});
+            } else if (transaction instanceof BankTransferTransaction bankTransfer) {
+                bankTransferRows.add(new Object[] {transaction.getTransactionId(), bankTransfer.getTransferId(),
+                        bankTransfer.getSenderAccount(), bankTransfer.getReceiverAccount()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, parents);
+        if (!upiRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_UPI, upiRows);
+        }
+        if (!bankTransferRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_BANK_TRANSFER, bankTransferRows);
+        }
+    }
+
+    private static void fillTransaction(Object[] row, Transaction transaction) {
+        row[0] = transaction.getTransactionId();
+        row[1] = transaction.getTransactionType();
+        row[2] = transaction.getAmount();
+        row[3] = transaction.getDate() == null ? null : Date.valueOf(transaction.getDate());
+        row[4] = transaction.getStatus();
+        row[5] = transaction.getSender();
+        row[6] = transaction.getReceiver();
+    }
+}
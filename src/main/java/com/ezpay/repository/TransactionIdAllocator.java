@@ -0,0 +1,38 @@
+package com.ezpay.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import com.ezpay.entity.TimeOrderedIds;
+import com.ezpay.entity.TransactionIdGenerator;
+
+/**
+ * Reserves transaction IDs for rows inserted with JDBC.
+ *
+ * IDs come from the same {@link TimeOrderedIds} source of this node as the IDs assigned by
+ * Hibernate, so they never collide and need no database trip. The IDs of a whole batch are
+ * known up front, so the parent and subtype rows can be inserted as JDBC batches.
+ */
+@Repository
+public class TransactionIdAllocator {
+
+    private final TimeOrderedIds ids;
+
+    public TransactionIdAllocator(@Value("${spring.jpa.properties." + TransactionIdGenerator.NODE_ID_SETTING + ":}")
+                                  String nodeId) {
+        this.ids = TimeOrderedIds.forNode(TransactionIdGenerator.nodeId(nodeId));
+    }
+
+    /**
+     * Reserves new transaction IDs.
+     * @param count Number of IDs to reserve
+     * @return The reserved IDs, in increasing order
+     */
+    public long[] allocate(int count) {
+        long[] block = new long[count];
+        for (int i = 0; i < count; i++) {
+            block[i] = ids.next();
+        }
+        return block;
+    }
+}
@@ -5,16 +5,37 @@ package com.ezpay.repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionSummary;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction,Integer> {
+public interface TransactionRepository extends JpaRepository<Transaction,Long>,
+        JpaSpecificationExecutor<Transaction>, TransactionRepositoryCustom {
+
+	/**
+	 * Number of rows the JDBC driver fetches per round trip for the streaming queries.
+	 */
+	String STREAM_FETCH_SIZE = "500";
+
+	/**
+	 * Constructor expression selecting a {@link TransactionSummary} from the transaction table columns only.
+	 */
+	String SUMMARY_SELECT = "SELECT new com.ezpay.entity.TransactionSummary(t.transactionId, t.transactionType, "
+	        + "t.amount, t.date, t.status, t.sender, t.receiver) FROM Transaction t ";
+
 /**
  * Find all transactions which is not of scheduled payment and sort it by descending order of date 
  * @return List of transactions which are either upi or bank transfer sorted by date
@@ -22,6 +43,38 @@ public interface TransactionRepository extends JpaRepository<Transaction,Integer
 	
 	@Query("SELECT t FROM Transaction t WHERE t.transactionType != 'Scheduled Payment' order by t.date desc")
 	List<Transaction> findAllSortAndFilterScheduled();
+
+	/**
+	 * Find all transactions which are not scheduled payments as summaries, newest first.
+	 * @return List of upi and bank transfer transaction summaries sorted by date
+	 */
+	@Query(SUMMARY_SELECT + "WHERE t.transactionType != 'Scheduled Payment' ORDER BY t.date DESC, t.transactionId DESC")
+	List<TransactionSummary> findSummariesSortAndFilterScheduled();
+
+	/**
+	 * Find the first page of the transaction history as summaries, newest first.
+	 * Ties on date are broken by transaction ID so the order is stable across pages.
+	 * @param pageable Page request carrying the page size
+	 * @return First page of transactions which are either upi or bank transfer
+	 */
+	@Query(SUMMARY_SELECT + "WHERE t.transactionType != 'Scheduled Payment' " +
+	       "ORDER BY t.date DESC, t.transactionId DESC")
+	List<TransactionSummary> findHistoryFirstPage(Pageable pageable);
+
+	/**
+	 * Find the page of the transaction history that follows the given keyset position.
+	 * @param date Date of the last transaction of the previous page
+	 * @param transactionId ID of the last transaction of the previous page
+	 * @param pageable Page request carrying the page size
+	 * @return Next page of transactions which are either upi or bank transfer
+	 */
+	@Query(SUMMARY_SELECT + "WHERE t.transactionType != 'Scheduled Payment' " +
+	       "AND (t.date < :date OR (t.date = :date AND t.transactionId < :transactionId)) " +
+	       "ORDER BY t.date DESC, t.transactionId DESC")
+	List<TransactionSummary> findHistoryPageAfter(@Param("date") LocalDate date,
+	                                              @Param("transactionId") long transactionId,
+	                                              Pageable pageable);
+
 	 /**
      * Find transactions by date range.
      * @param startDate Start date
@@ -33,6 +86,45 @@ public interface TransactionRepository extends JpaRepository<Transaction,Integer
     @Query("SELECT t FROM Transaction t WHERE t.date BETWEEN :startDate AND :endDate")
     List<Transaction> findByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
+    /**
+     * Stream all transactions which are not scheduled payments, newest first.
+     * Must be consumed inside a transaction and closed after use.
+     * @return Stream of upi and bank transfer transactions sorted by date
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.transactionType != 'Scheduled Payment' " +
+           "ORDER BY t.date DESC, t.transactionId DESC")
+    Stream<Transaction> streamAllSortAndFilterScheduled();
+
+    /**
+     * Stream transactions by date range.
+     * Must be consumed inside a transaction and closed after use.
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Stream of transactions in the date range
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.date BETWEEN :startDate AND :endDate")
+    Stream<Transaction> streamByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * Stream every transaction, including scheduled payments.
+     * Must be consumed inside a transaction and closed after use.
+     * @return Stream of all transactions
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t")
+    Stream<Transaction> streamAll();
+
     /**
      * Find transactions by type.
      * @param type Transaction type
@@ -40,29 +132,42 @@ public interface TransactionRepository extends JpaRepository<Transaction,Integer
      */
     List<Transaction> findByTransactionType(String type);
 
+    /**
+     * Find transaction summaries by type.
+     * @param type Transaction type
+     * @return List of summaries of the transactions of the specified type, newest first
+     */
+    @Query(SUMMARY_SELECT + "WHERE t.transactionType = :type ORDER BY t.date DESC, t.transactionId DESC")
+    List<TransactionSummary> findSummariesByTransactionType(@Param("type") String type);
+
     /**
      * Find transactions by status.
      * @param status Transaction status
      * @return List of transactions with the specified status
      */
     List<Transaction> findByStatus(String status);
+
     /**
-     * 
-     * @param startDate
-     * @param endDate
-     * @param type
-     * @param status
-     * @return List of transactions with given filters
+     * Find transaction summaries by status.
+     * @param status Transaction status
+     * @return List of summaries of the transactions with the specified status, newest first
+     */
+    @Query(SUMMARY_SELECT + "WHERE t.status = :status ORDER BY t.date DESC, t.transactionId DESC")
+    List<TransactionSummary> findSummariesByStatus(@Param("status") String status);
+
+    /**
+     * Find the current status of a transaction from the idx_txn_id_status index alone.
+     * @param transactionId ID of the transaction
+     * @return Status of the transaction, or null if it does not exist
      */
-    @Query("SELECT t FROM Transaction t " +
-    	       "WHERE (:startDate IS NULL OR t.date BETWEEN :startDate AND :endDate) " +
-    	       "AND (:type IS NULL OR t.transactionType = :type) " +
-    	       "AND (:status IS NULL OR t.status = :status) " +
-    	       "AND t.transactionType != 'Scheduled Payment'")
-    	List<Transaction> getFilteredTransactions(
-    	    @Param("startDate") LocalDate startDate,
-    	    @Param("endDate") LocalDate endDate,
-    	    @Param("type") String type,
-    	    @Param("status") String status);
+    @Query("SELECT t.status FROM Transaction t WHERE t.transactionId = :transactionId")
+    String findStatusById(@Param("transactionId") long transactionId);
 
+    /**
+     * Find several transactions with their type specific details in one query.
+     * @param ids IDs of the transactions, at most {@link InLists#MAX_SIZE}
+     * @return Transactions that exist, in no particular order
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.transactionId IN :ids")
+    List<Transaction> findByTransactionIds(@Param("ids") List<Long> ids);
 }
@@ -0,0 +1,23 @@
+package com.ezpay.repository;
+
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.ezpay.entity.Transaction;
+
+/**
+ * Custom queries of {@link TransactionRepository} that Spring Data cannot derive.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Streams the transactions matching a specification with the streaming fetch size
+     * and in read-only mode. Must be consumed inside a transaction and closed after use.
+     * @param specification Filter to apply
+     * @param sort Order of the results
+     * @return Stream of matching transactions
+     */
+    Stream<Transaction> stream(Specification<Transaction> specification, Sort sort);
+}
@@ -0,0 +1,85 @@
+package com.ezpay.repository;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.ezpay.entity.Transaction;
+
+/**
+ * Query building blocks for filtering transactions.
+ * 
+ * Each filter only contributes a predicate when its value is supplied, so the generated SQL
+ * contains exactly the conditions the caller asked for. Every filter combination then gets
+ * its own statement and execution plan, and the optimizer can pick the index that matches it.
+ */
+public final class TransactionSpecifications {
+
+    private TransactionSpecifications() {
+    }
+
+    /**
+     * Builds the filter used by the transaction listing and the CSV statement.
+     * Scheduled payments are always excluded.
+     * @param startDate Earliest transaction date, or null for no lower bound
+     * @param endDate Latest transaction date, or null for no upper bound
+     * @param type Transaction type, or null for any type
+     * @param status Transaction status, or null for any status
+     * @return Specification with one predicate per supplied filter
+     */
+    public static Specification<Transaction> filtered(LocalDate startDate, LocalDate endDate, String type, String status) {
+        Specification<Transaction> specification = Specification.where(notScheduledPayment());
+        if (startDate != null) {
+            specification = specification.and(dateFrom(startDate));
+        }
+        if (endDate != null) {
+            specification = specification.and(dateTo(endDate));
+        }
+        if (type != null) {
+            specification = specification.and(hasType(type));
+        }
+        if (status != null) {
+            specification = specification.and(hasStatus(status));
+        }
+        return specification;
+    }
+
+    /**
+     * @return Specification excluding scheduled payments
+     */
+    public static Specification<Transaction> notScheduledPayment() {
+        return (root, query, builder) -> builder.notEqual(root.get("transactionType"), "Scheduled Payment");
+    }
+
+    /**
+     * @param startDate Earliest transaction date, inclusive
+     * @return Specification matching transactions on or after the date
+     */
+    public static Specification<Transaction> dateFrom(LocalDate startDate) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("date"), startDate);
+    }
+
+    /**
+     * @param endDate Latest transaction date, inclusive
+     * @return Specification matching transactions on or before the date
+     */
+    public static Specification<Transaction> dateTo(LocalDate endDate) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("date"), endDate);
+    }
+
+    /**
+     * @param type Transaction type
+     * @return Specification matching transactions of the type
+     */
+    public static Specification<Transaction> hasType(String type) {
+        return (root, query, builder) -> builder.equal(root.get("transactionType"), type);
+    }
+
+    /**
+     * @param status Transaction status
+     * @return Specification matching transactions with the status
+     */
+    public static Specification<Transaction> hasStatus(String status) {
+        return (root, query, builder) -> builder.equal(root.get("status"), status);
+    }
+}
@@ -0,0 +1,28 @@
+package com.ezpay.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ezpay.entity.TransactionStatusEvent;
+
+/**
+ * Repository reading the transaction status event log. Events are appended by
+ * {@link TransactionStatusEventWriter}.
+ */
+@Repository
+public interface TransactionStatusEventRepository extends JpaRepository<TransactionStatusEvent, Long> {
+
+    /**
+     * Finds the status events of a transaction, oldest first, with one range scan of the
+     * (transaction_id, event_id) key.
+     *
+     * @param transactionId ID of the transaction.
+     * @return The events of the transaction, in the order they happened.
+     */
+    @Query("SELECT e FROM TransactionStatusEvent e WHERE e.transactionId = :transactionId ORDER BY e.eventId")
+    List<TransactionStatusEvent> findTimeline(@Param("transactionId") long transactionId);
+}
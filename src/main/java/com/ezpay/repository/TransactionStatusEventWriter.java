@@ -0,0 +1,64 @@
+package com.ezpay.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.ezpay.entity.TransactionStatusEvent;
+
+/**
+ * Appends status events to the transaction_status_event log with JDBC batch statements,
+ * bypassing the persistence context. The log is insert-only, so the events of a whole
+ * database transaction are sent as one batch and no row is ever read back or updated.
+ *
+ * Event IDs are reserved from {@link TransactionIdAllocator}, without a database trip.
+ */
+@Repository
+public class TransactionStatusEventWriter {
+
+    private static final String INSERT_EVENT = "INSERT INTO transaction_status_event "
+            + "(event_id, transaction_id, from_status, to_status, changed_at) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionIdAllocator transactionIdAllocator;
+
+    /**
+     * Appends one event. Runs in the caller's transaction.
+     * @param event The event, ignored if the status did not change
+     */
+    public void append(TransactionStatusEvent event) {
+        append(List.of(event));
+    }
+
+    /**
+     * Appends events as one JDBC batch, in their order. Runs in the caller's transaction.
+     * @param events The events, those whose status did not change are ignored
+     */
+    public void append(List<TransactionStatusEvent> events) {
+        List<TransactionStatusEvent> transitions = new ArrayList<>(events.size());
+        for (TransactionStatusEvent event : events) {
+            if (event.isTransition()) {
+                transitions.add(event);
+            }
+        }
+        if (transitions.isEmpty()) {
+            return;
+        }
+        long[] ids = transactionIdAllocator.allocate(transitions.size());
+        List<Object[]> rows = new ArrayList<>(transitions.size());
+        for (int i = 0; i < transitions.size(); i++) {
+            TransactionStatusEvent event = transitions.get(i);
+            event.setEventId(ids[i]);
+            rows.add(new Object[] {ids[i], event.getTransactionId(), event.getFromStatus(), event.getToStatus(),
+                    Timestamp.valueOf(event.getChangedAt())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+    }
+}
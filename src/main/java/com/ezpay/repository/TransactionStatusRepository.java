@@ -12,7 +12,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionStatusResponse;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,14 +23,14 @@ import java.util.Optional;
  * for retrieving transactions by ID and status.
  */
 @Repository
-public interface TransactionStatusRepository extends JpaRepository<Transaction,Integer> {
+public interface TransactionStatusRepository extends JpaRepository<Transaction,Long> {
 	/**
      * Finds a transaction by its ID.
      * 
      * @param transactionId The ID of the transaction to retrieve.
      * @return An Optional containing the transaction if found, or an empty Optional if not.
      */
-    Optional<Transaction> findByTransactionId(int transactionId);
+    Optional<Transaction> findByTransactionId(long transactionId);
     
     /**
      * Finds the status of a transaction by its ID.
@@ -37,7 +39,17 @@ public interface TransactionStatusRepository extends JpaRepository<Transaction,I
      * @return A string representing the status of the transaction.
      */
     @Query("select transaction.status from Transaction transaction where transaction.transactionId =:transactionId")
-    String findByStatus(@Param("transactionId") int transactionId);
+    String findByStatus(@Param("transactionId") long transactionId);
+
+    /**
+     * Finds the statuses of several transactions in one query, reading the transaction table only.
+     * 
+     * @param transactionIds IDs of the transactions, at most {@link InLists#MAX_SIZE}.
+     * @return The statuses of the transactions that exist, in no particular order.
+     */
+    @Query("select new com.ezpay.entity.TransactionStatusResponse(transaction.transactionId, transaction.status) "
+            + "from Transaction transaction where transaction.transactionId in :transactionIds")
+    List<TransactionStatusResponse> findStatusesByTransactionIds(@Param("transactionIds") List<Long> transactionIds);
 }
 
 
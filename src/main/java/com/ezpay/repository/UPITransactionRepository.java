@@ -8,6 +8,6 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.ezpay.entity.UPITransaction;
 
-public interface UPITransactionRepository extends JpaRepository<UPITransaction, Integer> {
+public interface UPITransactionRepository extends JpaRepository<UPITransaction, Long> {
 
 }
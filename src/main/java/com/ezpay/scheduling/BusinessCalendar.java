@@ -0,0 +1,105 @@
+package com.ezpay.scheduling;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Business days, precomputed as one bit per day.
+ *
+ * Saturdays, Sundays and the given holidays are not business days. The bits cover the
+ * years {@value #FIRST_YEAR} to {@value #LAST_YEAR}, about 15 KB; outside of them only
+ * weekends are skipped. Days are epoch days, see {@link LocalDate#toEpochDay()}. Immutable.
+ */
+public final class BusinessCalendar {
+
+    static final int FIRST_YEAR = 1970;
+    static final int LAST_YEAR = 2299;
+
+    /** Calendar with weekends only. */
+    public static final BusinessCalendar WEEKDAYS = new BusinessCalendar(List.of());
+
+    private final long firstDay = LocalDate.of(FIRST_YEAR, 1, 1).toEpochDay();
+    private final long endDay = LocalDate.of(LAST_YEAR + 1, 1, 1).toEpochDay();
+
+    /** Bit set for each business day from the first day. */
+    private final long[] words;
+
+    /** Most days a day can be moved forward to reach a business day. */
+    private final int maxRoll;
+
+    /**
+     * Builds a calendar.
+     * @param holidays Days off besides the weekends
+     */
+    public BusinessCalendar(Collection<LocalDate> holidays) {
+        int days = (int) (endDay - firstDay);
+        words = new long[(days + 63) >>> 6];
+        for (int i = 0; i < days; i++) {
+            if (!isWeekend(firstDay + i)) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        for (LocalDate holiday : holidays) {
+            long index = holiday.toEpochDay() - firstDay;
+            if (index >= 0 && index < days) {
+                words[(int) (index >>> 6)] &= ~(1L << index);
+            }
+        }
+        int longest = 2;
+        int run = 0;
+        for (int i = 0; i < days; i++) {
+            run = (words[i >>> 6] & (1L << i)) != 0 ? 0 : run + 1;
+            longest = Math.max(longest, run);
+        }
+        maxRoll = longest;
+    }
+
+    /**
+     * @param epochDay Day to check
+     * @return Whether the day is a business day
+     */
+    public boolean isBusinessDay(long epochDay) {
+        if (epochDay < firstDay || epochDay >= endDay) {
+            return !isWeekend(epochDay);
+        }
+        int index = (int) (epochDay - firstDay);
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Finds the business day on or after a day.
+     * @param epochDay Day to start from
+     * @return The day itself if it is a business day, else the next business day
+     */
+    public long onOrAfter(long epochDay) {
+        if (epochDay >= firstDay && epochDay < endDay) {
+            int index = (int) (epochDay - firstDay);
+            int word = index >>> 6;
+            long bits = words[word] & (-1L << index);
+            while (bits == 0 && ++word < words.length) {
+                bits = words[word];
+            }
+            if (bits != 0) {
+                return firstDay + ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            epochDay = endDay;
+        }
+        while (isWeekend(epochDay)) {
+            epochDay++;
+        }
+        return epochDay;
+    }
+
+    /**
+     * @return Most days {@link #onOrAfter} moves a day forward
+     */
+    public int maxRoll() {
+        return maxRoll;
+    }
+
+    /** Day of week of an epoch day, 1970-01-01 being a Thursday. */
+    private static boolean isWeekend(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7) >= 5;
+    }
+}
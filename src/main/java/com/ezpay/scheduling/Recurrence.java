@@ -0,0 +1,301 @@
+package com.ezpay.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Compiled recurrence of a scheduled payment, parsed from its frequency.
+ *
+ * A frequency is a unit, optionally followed by parameters separated by semicolons, in any case:
+ * <ul>
+ * <li>DAILY, WEEKLY, MONTHLY, QUARTERLY, YEARLY or ANNUALLY;</li>
+ * <li>INTERVAL=n to recur every n units, 1 to {@value #MAX_INTERVAL};</li>
+ * <li>BUSINESS_DAYS to move occurrences falling on a weekend or holiday to the next business day.</li>
+ * </ul>
+ * For example "Monthly", "WEEKLY;INTERVAL=2" or "monthly;business_days".
+ *
+ * Occurrences are counted from an anchor, the start of the payment: occurrence k is the anchor
+ * plus k times the interval, at the time of day of the anchor. Monthly and yearly occurrences
+ * keep the day of month of the anchor, clamped to the length of shorter months, so a payment
+ * starting on January 31st runs on the last day of February and on March 31st. Moving to a
+ * business day never shifts the later occurrences.
+ *
+ * The next occurrence is computed in constant time on epoch days, without allocating;
+ * only the {@link LocalDateTime} methods allocate their result. Immutable and thread safe.
+ */
+public final class Recurrence {
+
+    /** Largest interval accepted. */
+    public static final int MAX_INTERVAL = 999;
+
+    private final boolean monthly;              // Whether the step counts months rather than days
+    private final int step;                     // Days or months between occurrences
+    private final BusinessCalendar calendar;    // Business days occurrences move to, or null
+    private final String text;
+
+    private Recurrence(boolean monthly, int step, BusinessCalendar calendar, String text) {
+        this.monthly = monthly;
+        this.step = step;
+        this.calendar = calendar;
+        this.text = text;
+    }
+
+    /**
+     * Parses a frequency.
+     * @param frequency Frequency of a scheduled payment
+     * @param calendar Business days used by frequencies with BUSINESS_DAYS
+     * @return Compiled recurrence
+     * @throws IllegalArgumentException if the frequency is not understood
+     */
+    public static Recurrence parse(String frequency, BusinessCalendar calendar) {
+        if (frequency == null || frequency.isBlank()) {
+            throw new IllegalArgumentException("The frequency is missing");
+        }
+        String[] parts = frequency.trim().toUpperCase(Locale.ROOT).split("\\s*;\\s*");
+        boolean monthly;
+        int unit;
+        switch (parts[0]) {
+            case "DAILY" -> { monthly = false; unit = 1; }
+            case "WEEKLY" -> { monthly = false; unit = 7; }
+            case "MONTHLY" -> { monthly = true; unit = 1; }
+            case "QUARTERLY" -> { monthly = true; unit = 3; }
+            case "YEARLY", "ANNUALLY" -> { monthly = true; unit = 12; }
+            default -> throw new IllegalArgumentException("Unknown frequency '" + frequency
+                    + "', expected DAILY, WEEKLY, MONTHLY, QUARTERLY or YEARLY");
+        }
+        int interval = 1;
+        boolean businessDays = false;
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].equals("BUSINESS_DAYS")) {
+                businessDays = true;
+            } else if (parts[i].startsWith("INTERVAL=")) {
+                try {
+                    interval = Integer.parseInt(parts[i].substring("INTERVAL=".length()).trim());
+                } catch (NumberFormatException e) {
+                    interval = 0;
+                }
+                if (interval < 1 || interval > MAX_INTERVAL) {
+                    throw new IllegalArgumentException("Invalid interval in frequency '" + frequency
+                            + "', expected 1 to " + MAX_INTERVAL);
+                }
+            } else if (!parts[i].isEmpty()) {
+                throw new IllegalArgumentException("Unknown parameter '" + parts[i] + "' in frequency '"
+                        + frequency + "', expected INTERVAL=n or BUSINESS_DAYS");
+            }
+        }
+        String name = parts[0].equals("ANNUALLY") ? "YEARLY" : parts[0];
+        String text = name + (interval == 1 ? "" : ";INTERVAL=" + interval) + (businessDays ? ";BUSINESS_DAYS" : "");
+        return new Recurrence(monthly, unit * interval, businessDays ? calendar : null, text);
+    }
+
+    /**
+     * Anchor of the recurrence of a scheduled payment: its start date, or its due time if it
+     * has no start date or the start date is later.
+     * @param startDate Start date of the payment, may be null
+     * @param due Due time of the payment
+     * @return Anchor to count the occurrences from
+     */
+    public static LocalDateTime anchorOf(LocalDateTime startDate, LocalDateTime due) {
+        return startDate != null && !startDate.isAfter(due) ? startDate : due;
+    }
+
+    /**
+     * Computes the first occurrence.
+     * @param anchor Start of the recurrence
+     * @return The anchor, moved to a business day if required
+     */
+    public LocalDateTime first(LocalDateTime anchor) {
+        long day = anchor.toLocalDate().toEpochDay();
+        return atDay(adjust(day), anchor);
+    }
+
+    /**
+     * Computes the first occurrence after a time.
+     * @param anchor Start of the recurrence
+     * @param after Time the occurrence must be after, usually the current due time
+     * @return Next occurrence
+     */
+    public LocalDateTime next(LocalDateTime anchor, LocalDateTime after) {
+        long anchorDay = anchor.toLocalDate().toEpochDay();
+        long afterDay = after.toLocalDate().toEpochDay();
+        // An occurrence on the day itself is after it only if its time of day is later
+        if (anchor.toLocalTime().isAfter(after.toLocalTime())) {
+            afterDay--;
+        }
+        return atDay(nextDay(anchorDay, afterDay), anchor);
+    }
+
+    /**
+     * Computes the last occurrence at or before a time.
+     * @param anchor Start of the recurrence
+     * @param at Time the occurrence must not be after, usually the current time
+     * @return Latest occurrence, or null if the first occurrence is after the time
+     */
+    public LocalDateTime last(LocalDateTime anchor, LocalDateTime at) {
+        long anchorDay = anchor.toLocalDate().toEpochDay();
+        long atDay = at.toLocalDate().toEpochDay();
+        // An occurrence on the day itself is not after it only if its time of day is not later
+        if (anchor.toLocalTime().isAfter(at.toLocalTime())) {
+            atDay--;
+        }
+        long day = lastDay(anchorDay, atDay);
+        return day == Long.MIN_VALUE ? null : atDay(day, anchor);
+    }
+
+    /**
+     * Computes the day of the last occurrence on or before a day, in constant time.
+     * @param anchorDay Epoch day of the start of the recurrence
+     * @param atDay Epoch day the occurrence must not be after
+     * @return Epoch day of the latest occurrence, or Long.MIN_VALUE if the first one is later
+     */
+    public long lastDay(long anchorDay, long atDay) {
+        long k = startIndex(anchorDay, atDay - maxRoll());
+        long last = Long.MIN_VALUE;
+        long day;
+        while ((day = adjust(occurrence(anchorDay, k))) <= atDay) {
+            last = day;
+            k++;
+        }
+        return last;
+    }
+
+    /**
+     * Computes the day of the first occurrence after a day, in constant time.
+     * @param anchorDay Epoch day of the start of the recurrence
+     * @param afterDay Epoch day the occurrence must be after
+     * @return Epoch day of the next occurrence
+     */
+    public long nextDay(long anchorDay, long afterDay) {
+        long k = startIndex(anchorDay, afterDay - maxRoll());
+        long day;
+        while ((day = adjust(occurrence(anchorDay, k))) <= afterDay) {
+            k++;
+        }
+        return day;
+    }
+
+    /**
+     * Enumerates the days of the occurrences after a day, without allocating.
+     * @param anchorDay Epoch day of the start of the recurrence
+     * @param afterDay Epoch day the occurrences must be after
+     * @param untilDay Last epoch day an occurrence may be on
+     * @param days Receives the epoch days of the occurrences, up to its length
+     * @return Number of occurrences written to days
+     */
+    public int nextDays(long anchorDay, long afterDay, long untilDay, long[] days) {
+        int count = 0;
+        long k = startIndex(anchorDay, afterDay - maxRoll());
+        long previous = afterDay;
+        while (count < days.length) {
+            long day = adjust(occurrence(anchorDay, k++));
+            if (day > untilDay) {
+                break;
+            }
+            // Occurrences moved onto the same business day run once
+            if (day > previous) {
+                days[count++] = day;
+                previous = day;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Whether occurrences move to business days
+     */
+    public boolean isBusinessDays() {
+        return calendar != null;
+    }
+
+    /**
+     * @return Canonical form of the frequency, such as "MONTHLY;INTERVAL=2"
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Index of an occurrence on or before a day, 0 if the day is before the anchor.
+     */
+    private long startIndex(long anchorDay, long day) {
+        if (day <= anchorDay) {
+            return 0;
+        }
+        if (!monthly) {
+            return (day - anchorDay) / step;
+        }
+        long months = monthIndex(day) - monthIndex(anchorDay);
+        // The occurrence in the month of the day may be later than the day
+        return Math.max(0, months / step - 1);
+    }
+
+    /**
+     * Epoch day of occurrence k, before moving to a business day.
+     */
+    private long occurrence(long anchorDay, long k) {
+        if (!monthly) {
+            return anchorDay + k * step;
+        }
+        long anchorMonth = monthIndex(anchorDay);
+        int dayOfMonth = (int) (anchorDay - epochDay(anchorMonth, 1)) + 1;
+        long month = anchorMonth + k * step;
+        return epochDay(month, Math.min(dayOfMonth, lengthOfMonth(month)));
+    }
+
+    private long adjust(long day) {
+        return calendar == null ? day : calendar.onOrAfter(day);
+    }
+
+    private int maxRoll() {
+        return calendar == null ? 0 : calendar.maxRoll();
+    }
+
+    private static LocalDateTime atDay(long epochDay, LocalDateTime anchor) {
+        return LocalDateTime.of(LocalDate.ofEpochDay(epochDay), anchor.toLocalTime());
+    }
+
+    /**
+     * Months since year 0 of an epoch day: year * 12 + month - 1.
+     */
+    private static long monthIndex(long epochDay) {
+        // Civil from days (H. Hinnant), years starting in March
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Epoch day of a day of a month given as a month index.
+     */
+    private static long epochDay(long monthIndex, int dayOfMonth) {
+        // Days from civil (H. Hinnant)
+        long year = Math.floorDiv(monthIndex, 12);
+        int month = (int) Math.floorMod(monthIndex, 12) + 1;
+        if (month <= 2) {
+            year--;
+        }
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static int lengthOfMonth(long monthIndex) {
+        int month = (int) Math.floorMod(monthIndex, 12) + 1;
+        if (month == 2) {
+            long year = Math.floorDiv(monthIndex, 12);
+            boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return 30 + ((month + (month >>> 3)) & 1);
+    }
+}
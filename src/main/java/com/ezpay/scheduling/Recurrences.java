@@ -0,0 +1,68 @@
+package com.ezpay.scheduling;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compiles the frequencies of scheduled payments into {@link Recurrence}s, with the business
+ * day calendar of the application. Compiled frequencies are kept, as payments share a handful
+ * of them.
+ */
+@Component
+public class Recurrences {
+
+    /** Most distinct frequencies kept compiled. */
+    private static final int MAX_COMPILED = 1024;
+
+    private final BusinessCalendar calendar;
+
+    private final ConcurrentHashMap<String, Recurrence> compiled = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the compiler.
+     * @param holidays Days off besides the weekends, as comma separated ISO dates
+     */
+    public Recurrences(@Value("${ezpay.scheduled-payments.holidays:}") String holidays) {
+        List<LocalDate> days = new ArrayList<>();
+        for (String day : holidays.split(",")) {
+            if (!day.isBlank()) {
+                try {
+                    days.add(LocalDate.parse(day.trim()));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalStateException("ezpay.scheduled-payments.holidays holds an invalid date: " + day, e);
+                }
+            }
+        }
+        calendar = days.isEmpty() ? BusinessCalendar.WEEKDAYS : new BusinessCalendar(days);
+    }
+
+    /**
+     * Compiles a frequency.
+     * @param frequency Frequency of a scheduled payment
+     * @return Compiled recurrence
+     * @throws IllegalArgumentException if the frequency is not understood
+     */
+    public Recurrence compile(String frequency) {
+        Recurrence recurrence = frequency == null ? null : compiled.get(frequency);
+        if (recurrence == null) {
+            recurrence = Recurrence.parse(frequency, calendar);
+            if (compiled.size() < MAX_COMPILED) {
+                compiled.put(frequency, recurrence);
+            }
+        }
+        return recurrence;
+    }
+
+    /**
+     * @return Business days of the application
+     */
+    public BusinessCalendar getCalendar() {
+        return calendar;
+    }
+}
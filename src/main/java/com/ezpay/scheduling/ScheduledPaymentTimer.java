@@ -0,0 +1,202 @@
+package com.ezpay.scheduling;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.event.ShardOwnershipChangedEvent;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.ScheduledPaymentRetryRepository;
+import com.ezpay.service.ScheduledPaymentRetryService;
+
+/**
+ * In-memory timer of the next due time of every auto-pay scheduled payment in the shards
+ * this instance owns.
+ *
+ * The due times are held in a {@link TimingWheel} of one second ticks, loaded from the
+ * database whenever the {@link ShardLeaseManager} gains shards and kept up to date by the
+ * scheduled payment service and the runner. Finding the due payments then needs no
+ * database query: the database is only read once payments are actually due. Payments of
+ * the shards of other instances are ignored, and dropped when a shard is lost. Due times
+ * older than the catch-up grace period are missed runs, which are left to the catch-up
+ * rather than all run on the next tick. Payments with a failed run are held at the time of
+ * their next attempt instead.
+ */
+@Component
+public class ScheduledPaymentTimer {
+
+    private static final Logger logger = LogManager.getLogger(ScheduledPaymentTimer.class);
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private ScheduledPaymentRetryRepository scheduledPaymentRetryRepository;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @Value("${ezpay.scheduled-payments.catch-up.grace:PT5M}")
+    private Duration catchUpGrace;
+
+    private final TimingWheel wheel = new TimingWheel(tickOf(LocalDateTime.now()), 1024);
+
+    /**
+     * Loads the due times of the auto-pay scheduled payments of the shards this instance
+     * owns. Payments scheduled meanwhile keep their newer due time.
+     */
+    @Transactional(readOnly = true)
+    public void load() {
+        load(shardLeaseManager.ownedShards());
+    }
+
+    /**
+     * Loads the payments of the shards gained and drops those of the shards lost.
+     * @param event Change of the shards owned by this instance
+     */
+    @EventListener
+    @Transactional(readOnly = true)
+    public void onShardOwnershipChanged(ShardOwnershipChangedEvent event) {
+        BitSet lost = event.getLost();
+        if (!lost.isEmpty()) {
+            int dropped;
+            synchronized (wheel) {
+                dropped = wheel.removeIf(id -> lost.get(shardLeaseManager.shardOf(id)));
+            }
+            logger.info("Dropped the due times of {} scheduled payments of shards {}.", dropped, lost);
+        }
+        load(event.getGained());
+    }
+
+    private void load(BitSet shards) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        int[] loaded = new int[1];
+        LocalDateTime missedBy = LocalDateTime.now().minus(catchUpGrace);
+        try (Stream<Object[]> dueTimes = scheduledPaymentRepository.streamDueTimes(shardLeaseManager.getShardCount(),
+                shards.stream().boxed().toList())) {
+            dueTimes.forEach(row -> {
+                long id = (Long) row[0];
+                if (((LocalDateTime) row[1]).isBefore(missedBy)) {
+                    return;
+                }
+                synchronized (wheel) {
+                    if (wheel.deadlineOf(id) == Long.MIN_VALUE) {
+                        wheel.schedule(id, tickOf((LocalDateTime) row[1]));
+                    }
+                }
+                loaded[0]++;
+            });
+        }
+        // Attempts overdue since a restart are made at once, missed or not
+        try (Stream<Object[]> attemptTimes = scheduledPaymentRetryRepository.streamAttemptTimes(
+                ScheduledPaymentRetryService.PENDING, shardLeaseManager.getShardCount(), shards.stream().boxed().toList())) {
+            attemptTimes.forEach(row -> {
+                synchronized (wheel) {
+                    wheel.schedule((Long) row[0], tickOf((LocalDateTime) row[1]));
+                }
+                loaded[0]++;
+            });
+        }
+        logger.info("Loaded the due times of {} scheduled payments of shards {}.", loaded[0], shards);
+    }
+
+    /**
+     * Schedules a payment at its next due time, or removes it if auto-pay is off or it has no
+     * next due time.
+     * @param payment Scheduled payment as stored
+     */
+    public void schedule(ScheduledPayment payment) {
+        if (payment.getIsAutoPayEnabled()) {
+            schedule(payment.getTransactionId(), payment.getNextPaymentDate());
+        } else {
+            cancel(payment.getTransactionId());
+        }
+    }
+
+    /**
+     * Schedules a payment, replacing its previous due time. Payments of a shard owned by
+     * another instance, or whose due time is a missed run, are removed instead.
+     * @param scheduledPaymentId ID of the scheduled payment
+     * @param due Next due time, or null to remove the payment
+     */
+    public void schedule(long scheduledPaymentId, LocalDateTime due) {
+        if (due == null || !shardLeaseManager.isAssigned(scheduledPaymentId)
+                || due.isBefore(LocalDateTime.now().minus(catchUpGrace))) {
+            cancel(scheduledPaymentId);
+            return;
+        }
+        synchronized (wheel) {
+            wheel.schedule(scheduledPaymentId, tickOf(due));
+        }
+    }
+
+    /**
+     * Removes a payment.
+     * @param scheduledPaymentId ID of the scheduled payment
+     */
+    public void cancel(long scheduledPaymentId) {
+        synchronized (wheel) {
+            wheel.cancel(scheduledPaymentId);
+        }
+    }
+
+    /**
+     * Removes and returns the payments due by a time. The caller schedules them again
+     * once they have run.
+     * @param now Time the payments must be due by
+     * @return IDs of the due payments
+     */
+    public long[] takeDue(LocalDateTime now) {
+        DueIds due = new DueIds();
+        synchronized (wheel) {
+            wheel.advance(tickOf(now), due);
+        }
+        return Arrays.copyOf(due.ids, due.count);
+    }
+
+    /**
+     * @return Number of payments scheduled
+     */
+    public int size() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Tick of a due time: epoch second of the local date and time in the system time zone,
+     * so that ticks keep increasing when the clocks go back.
+     */
+    static long tickOf(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    /** Collects expired IDs without boxing them. */
+    private static final class DueIds implements LongConsumer {
+        long[] ids = new long[64];
+        int count;
+
+        @Override
+        public void accept(long id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count << 1);
+            }
+            ids[count++] = id;
+        }
+    }
+}
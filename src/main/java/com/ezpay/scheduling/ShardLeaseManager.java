@@ -0,0 +1,350 @@
+package com.ezpay.scheduling;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ezpay.entity.SchedulerLease;
+import com.ezpay.entity.SchedulerNode;
+import com.ezpay.entity.TransactionIdGenerator;
+import com.ezpay.event.ShardOwnershipChangedEvent;
+import com.ezpay.repository.SchedulerLeaseRepository;
+import com.ezpay.repository.SchedulerNodeRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Shares the scheduled payments between the running instances.
+ *
+ * Scheduled payments are split into a fixed number of shards by their ID, see
+ * {@link #shardOf(long, int)}. Each shard has a lease in the scheduler_lease table, and an
+ * instance only runs the payments of the shards it holds an unexpired lease on. With every
+ * heartbeat an instance records itself in scheduler_node, renews its leases, and claims or
+ * releases shards to own its fair share: the shard count divided by the number of live
+ * instances, rounded up. An instance joining makes the others release shards at their next
+ * heartbeat; the leases of an instance that dies expire and are claimed by the others.
+ *
+ * An instance stops running a shard as soon as its own lease has expired, even if renewing
+ * failed, so two instances never run the same shard provided their clocks agree to well
+ * within the lease time. Runs are idempotent besides. The heartbeat has a thread of its own,
+ * so long runs on the scheduler thread do not hold up the renewals.
+ *
+ * Each instance also records the node ID its transaction IDs are made with. An instance
+ * refuses to start when a live instance already has its node ID, or when it has no node ID
+ * set and other instances are running, as they would all make IDs with node 0.
+ */
+@Component
+public class ShardLeaseManager {
+
+    private static final Logger logger = LogManager.getLogger(ShardLeaseManager.class);
+
+    /** Heartbeats of dead instances are deleted after this many lease times. */
+    private static final int DEAD_NODE_LEASES = 10;
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final SchedulerNodeRepository nodeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId;
+    private final int nodeId;
+    private final boolean nodeIdSet;
+    private final int shardCount;
+    private final Duration leaseTtl;
+    private final Duration heartbeatInterval;
+
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shard-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Ownership ownership = new Ownership(new BitSet(), Instant.MIN);
+    private boolean leasesCreated;
+
+    /**
+     * Creates the manager of one instance.
+     * @param leaseRepository Shard leases
+     * @param nodeRepository Live instances
+     * @param transactionManager Transaction manager of the database holding the leases
+     * @param eventPublisher Publisher of the ownership changes
+     * @param instanceId ID of this instance, unique among the running instances; generated if blank
+     * @param nodeId Node ID of the transaction IDs of this instance, see TransactionIdGenerator; 0 if blank
+     * @param shardCount Number of shards, the same for every instance
+     * @param leaseTtl Time a lease lasts unless renewed, several heartbeats long
+     * @param heartbeatInterval Time between two heartbeats
+     */
+    public ShardLeaseManager(SchedulerLeaseRepository leaseRepository, SchedulerNodeRepository nodeRepository,
+                             PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                             @Value("${ezpay.scheduler.instance-id:}") String instanceId,
+                             @Value("${spring.jpa.properties." + TransactionIdGenerator.NODE_ID_SETTING + ":}")
+                             String nodeId,
+                             @Value("${ezpay.scheduler.shards:64}") int shardCount,
+                             @Value("${ezpay.scheduler.lease-ttl:PT30S}") Duration leaseTtl,
+                             @Value("${ezpay.scheduler.heartbeat:PT5S}") Duration heartbeatInterval) {
+        if (shardCount < 1) {
+            throw new IllegalStateException("ezpay.scheduler.shards must be positive: " + shardCount);
+        }
+        if (heartbeatInterval.isNegative() || heartbeatInterval.isZero()) {
+            throw new IllegalStateException("ezpay.scheduler.heartbeat must be positive: " + heartbeatInterval);
+        }
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.instanceId = instanceId == null || instanceId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt())
+                : instanceId.trim();
+        this.nodeId = TransactionIdGenerator.nodeId(nodeId);
+        this.nodeIdSet = nodeId != null && !nodeId.isBlank();
+        this.shardCount = shardCount;
+        this.leaseTtl = leaseTtl;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Shard of a scheduled payment: its ID plus the millisecond part of its time-ordered ID,
+     * modulo the shard count. Payments created in the same millisecond and payments created
+     * one per millisecond both spread evenly. Computed the same way in the queries.
+     * @param transactionId ID of the scheduled payment
+     * @param shardCount Number of shards
+     * @return Shard number
+     */
+    public static int shardOf(long transactionId, int shardCount) {
+        return (int) Math.floorMod(transactionId + (transactionId >>> 22), (long) shardCount);
+    }
+
+    /**
+     * @param transactionId ID of the scheduled payment
+     * @return Shard number of the payment
+     */
+    public int shardOf(long transactionId) {
+        return shardOf(transactionId, shardCount);
+    }
+
+    /**
+     * Tells whether this instance holds an unexpired lease on the shard of a payment.
+     * @param transactionId ID of the scheduled payment
+     * @return Whether this instance may run the payment
+     */
+    public boolean ownsShardOf(long transactionId) {
+        Ownership current = ownership;
+        return current.shards.get(shardOf(transactionId)) && Instant.now().isBefore(current.expiresAt);
+    }
+
+    /**
+     * Tells whether the shard of a payment was owned by this instance at its last heartbeat,
+     * even if the lease has run out since. Such payments are kept in memory.
+     * @param transactionId ID of the scheduled payment
+     * @return Whether the payment belongs to this instance
+     */
+    public boolean isAssigned(long transactionId) {
+        return ownership.shards.get(shardOf(transactionId));
+    }
+
+    /**
+     * @return Shards this instance held after its last heartbeat
+     */
+    public BitSet ownedShards() {
+        return (BitSet) ownership.shards.clone();
+    }
+
+    /**
+     * Shards this instance may run now: those it holds an unexpired lease on. Empty once the
+     * leases have run out, until the next successful heartbeat. Read again before each batch
+     * of runs, as the leases may be lost in between.
+     * @return Shards leased to this instance
+     */
+    public BitSet leasedShards() {
+        Ownership current = ownership;
+        return Instant.now().isBefore(current.expiresAt) ? (BitSet) current.shards.clone() : new BitSet();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Takes the first share of shards once the application is ready, then starts the
+     * heartbeat thread.
+     * @throws IllegalStateException if the node ID of this instance clashes with a live instance
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        heartbeat();
+        checkNodeId(Instant.now());
+        long interval = heartbeatInterval.toMillis();
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Renews the leases and rebalances. Called periodically on the heartbeat thread.
+     */
+    public void heartbeat() {
+        try {
+            heartbeat(Instant.now());
+        } catch (RuntimeException e) {
+            // Would cancel the periodic heartbeat
+            logger.error("Scheduler heartbeat of {} failed unexpectedly", instanceId, e);
+        }
+    }
+
+    /**
+     * Records this instance as live, renews its leases, then claims or releases shards to
+     * own its fair share. If the database cannot be reached, the leases are left to expire.
+     * @param now Current time
+     */
+    public synchronized void heartbeat(Instant now) {
+        Instant expiresAt = now.plus(leaseTtl);
+        BitSet owned;
+        try {
+            createLeases();
+            owned = transactionTemplate.execute(status -> rebalance(now, expiresAt));
+        } catch (DataAccessException e) {
+            logger.warn("Scheduler heartbeat of {} failed, its leases run out at {}: {}", instanceId,
+                    ownership.expiresAt, e.getMessage());
+            return;
+        }
+
+        BitSet before = ownership.shards;
+        ownership = new Ownership(owned, expiresAt);
+        BitSet gained = (BitSet) owned.clone();
+        gained.andNot(before);
+        BitSet lost = (BitSet) before.clone();
+        lost.andNot(owned);
+        if (!gained.isEmpty() || !lost.isEmpty()) {
+            logger.info("Instance {} now owns {} of {} shards (gained {}, lost {}).", instanceId,
+                    owned.cardinality(), shardCount, gained, lost);
+            eventPublisher.publishEvent(new ShardOwnershipChangedEvent(gained, lost));
+        }
+    }
+
+    /**
+     * Releases the leases of this instance so the others take them over at once.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        heartbeats.shutdownNow();
+        BitSet owned = ownership.shards;
+        ownership = new Ownership(new BitSet(), Instant.MIN);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!owned.isEmpty()) {
+                    leaseRepository.release(instanceId, owned.stream().boxed().toList());
+                }
+                nodeRepository.deleteById(instanceId);
+            });
+            logger.info("Instance {} released its {} shards.", instanceId, owned.cardinality());
+        } catch (DataAccessException e) {
+            logger.warn("Instance {} could not release its shards, they expire on their own: {}", instanceId,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the new share of this instance. Called within a database transaction.
+     */
+    private BitSet rebalance(Instant now, Instant expiresAt) {
+        nodeRepository.save(new SchedulerNode(instanceId, now, nodeId));
+        nodeRepository.deleteDead(now.minus(leaseTtl.multipliedBy(DEAD_NODE_LEASES)));
+        long alive = Math.max(1, nodeRepository.countAlive(now.minus(leaseTtl)));
+        int share = (int) ((shardCount + alive - 1) / alive);
+
+        leaseRepository.renew(instanceId, now, expiresAt);
+        List<Integer> owned = new ArrayList<>(leaseRepository.findOwned(instanceId, now));
+        if (owned.size() > share) {
+            // Release the highest shards, the others claim the lowest free ones first
+            List<Integer> released = new ArrayList<>(owned.subList(share, owned.size()));
+            leaseRepository.release(instanceId, released);
+            owned.removeAll(released);
+        } else if (owned.size() < share) {
+            for (int shard : leaseRepository.findClaimable(now)) {
+                if (owned.size() == share) {
+                    break;
+                }
+                if (leaseRepository.claim(shard, instanceId, now, expiresAt) == 1) {
+                    owned.add(shard);
+                }
+            }
+        }
+        BitSet shards = new BitSet(shardCount);
+        owned.forEach(shards::set);
+        return shards;
+    }
+
+    /**
+     * Checks the node ID of this instance against the other live instances, once it has
+     * recorded itself. Two instances starting at the same time both fail rather than both
+     * making the same IDs.
+     * @param now Current time
+     * @throws IllegalStateException if another live instance has the same node ID, or if this
+     *         instance has none set while others run
+     */
+    public void checkNodeId(Instant now) {
+        List<String> others = new ArrayList<>();
+        for (SchedulerNode node : nodeRepository.findAlive(now.minus(leaseTtl))) {
+            if (node.getInstanceId().equals(instanceId)) {
+                continue;
+            }
+            if (node.getNodeId() != null && node.getNodeId() == nodeId) {
+                throw new IllegalStateException("Node ID " + nodeId + " of instance " + instanceId
+                        + " is already used by live instance " + node.getInstanceId() + ", set "
+                        + TransactionIdGenerator.NODE_ID_SETTING + " to a node ID of its own");
+            }
+            others.add(node.getInstanceId());
+        }
+        if (!nodeIdSet && !others.isEmpty()) {
+            throw new IllegalStateException("Instance " + instanceId + " runs alongside " + others + " without "
+                    + TransactionIdGenerator.NODE_ID_SETTING + ", set a node ID of its own on every instance");
+        }
+    }
+
+    /**
+     * Creates the lease rows missing for the configured shard count. Another instance
+     * creating them at the same time makes this fail; the next heartbeat tries again.
+     */
+    private void createLeases() {
+        if (leasesCreated) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Integer> existing = new HashSet<>();
+            leaseRepository.findAll().forEach(lease -> existing.add(lease.getShard()));
+            List<SchedulerLease> missing = new ArrayList<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (!existing.contains(shard)) {
+                    missing.add(new SchedulerLease(shard));
+                }
+            }
+            leaseRepository.saveAll(missing);
+        });
+        leasesCreated = true;
+    }
+
+    /** Shards owned after a heartbeat and the end of their leases. */
+    private record Ownership(BitSet shards, Instant expiresAt) {
+    }
+}
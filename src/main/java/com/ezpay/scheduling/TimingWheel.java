@@ -0,0 +1,349 @@
+package com.ezpay.scheduling;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Hierarchical timing wheel of IDs by deadline tick, with one deadline per ID.
+ *
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} buckets. Level n holds the IDs due
+ * within 64^(n+1) ticks, in the bucket of their deadline at the resolution of that level.
+ * Each time the lower levels wrap around, the next bucket of the level above is cascaded
+ * down, so every ID is moved at most {@value #LEVELS} times before it expires. Scheduling
+ * and cancelling an ID take constant time; advancing takes time proportional to the
+ * ticks passed plus the IDs cascaded and expired.
+ *
+ * Entries are not objects: they live in parallel primitive arrays and buckets are doubly
+ * linked lists of entry indexes. IDs are found through an open-addressing table of entry
+ * indexes, so 5 million IDs take about 160 MB. Not thread safe.
+ */
+public final class TimingWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    /** Furthest deadline, about 2179 years of one second ticks; later deadlines are clamped. */
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+
+    /** Bucket of the IDs whose deadline has passed. */
+    private static final int OVERDUE = LEVELS * SLOTS;
+
+    private static final int NONE = -1;
+
+    private final int[] heads = new int[OVERDUE + 1];
+
+    private long[] ids;
+    private long[] deadlines;
+    private int[] next;
+    private int[] prev;
+    private short[] buckets;
+    private int allocated;
+    private int free = NONE;
+    private int size;
+
+    /** Entry index plus one by ID hash, 0 for a free slot. */
+    private int[] table;
+    private int mask;
+
+    /** Last tick processed, IDs due by it are overdue. */
+    private long currentTick;
+
+    /**
+     * Creates an empty wheel.
+     * @param currentTick Tick the wheel starts at
+     * @param expectedSize Number of IDs to make room for up front
+     */
+    public TimingWheel(long currentTick, int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new long[capacity];
+        deadlines = new long[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        buckets = new short[capacity];
+        table = new int[tableSize(capacity)];
+        mask = table.length - 1;
+        Arrays.fill(heads, NONE);
+        this.currentTick = currentTick;
+    }
+
+    /**
+     * Schedules an ID, replacing its previous deadline. IDs due by the current tick
+     * expire on the next call to {@link #advance}.
+     * @param id ID to schedule
+     * @param deadlineTick Tick the ID is due at
+     */
+    public void schedule(long id, long deadlineTick) {
+        int slot = slotOf(id);
+        int entry = table[slot] - 1;
+        if (entry == NONE) {
+            entry = allocate();
+            ids[entry] = id;
+            table[slot] = entry + 1;
+            size++;
+            if (size > (mask + 1) / 4 * 3) {
+                resizeTable();
+            }
+        } else {
+            unlink(entry);
+        }
+        deadlines[entry] = deadlineTick;
+        place(entry);
+    }
+
+    /**
+     * Removes an ID.
+     * @param id ID to remove
+     * @return Whether the ID was scheduled
+     */
+    public boolean cancel(long id) {
+        int slot = slotOf(id);
+        int entry = table[slot] - 1;
+        if (entry == NONE) {
+            return false;
+        }
+        unlink(entry);
+        removeSlot(slot);
+        release(entry);
+        return true;
+    }
+
+    /**
+     * Removes every ID matching a predicate, in time proportional to the number of IDs.
+     * @param filter Tells which IDs to remove, must not modify the wheel
+     * @return Number of IDs removed
+     */
+    public int removeIf(LongPredicate filter) {
+        int count = 0;
+        for (int bucket = 0; bucket < heads.length; bucket++) {
+            int entry = heads[bucket];
+            while (entry != NONE) {
+                int following = next[entry];
+                long id = ids[entry];
+                if (filter.test(id)) {
+                    unlink(entry);
+                    removeSlot(slotOf(id));
+                    release(entry);
+                    count++;
+                }
+                entry = following;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the deadline of an ID.
+     * @param id ID to look up
+     * @return Deadline tick, or {@link Long#MIN_VALUE} if the ID is not scheduled
+     */
+    public long deadlineOf(long id) {
+        int entry = table[slotOf(id)] - 1;
+        return entry == NONE ? Long.MIN_VALUE : deadlines[entry];
+    }
+
+    /**
+     * Moves the wheel to a tick, removing the IDs due by it.
+     * @param tick Tick to move to; earlier ticks only expire the overdue IDs
+     * @param expired Receives the removed IDs, must not modify the wheel
+     * @return Number of IDs removed
+     */
+    public int advance(long tick, LongConsumer expired) {
+        int count = expire(OVERDUE, expired);
+        if (size == 0) {
+            currentTick = Math.max(currentTick, tick);
+            return count;
+        }
+        while (currentTick < tick) {
+            long now = ++currentTick;
+            int index = (int) (now & MASK);
+            if (index == 0) {
+                for (int level = 1; level < LEVELS; level++) {
+                    int levelIndex = (int) ((now >>> (BITS * level)) & MASK);
+                    cascade(level * SLOTS + levelIndex);
+                    if (levelIndex != 0) {
+                        break;
+                    }
+                }
+            }
+            count += expire(index, expired);
+            count += expire(OVERDUE, expired); // Cascaded entries due now
+            if (size == 0) {
+                currentTick = tick;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of scheduled IDs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Last tick processed
+     */
+    public long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Puts an entry in the bucket matching its deadline.
+     */
+    private void place(int entry) {
+        long delta = deadlines[entry] - currentTick;
+        int bucket;
+        if (delta <= 0) {
+            bucket = OVERDUE;
+        } else {
+            long deadline = deadlines[entry];
+            if (delta > MAX_DELTA) {
+                deadline = currentTick + MAX_DELTA; // Placed again when cascaded
+                delta = MAX_DELTA;
+            }
+            int level = (63 - Long.numberOfLeadingZeros(delta)) / BITS;
+            bucket = level * SLOTS + (int) ((deadline >>> (BITS * level)) & MASK);
+        }
+        buckets[entry] = (short) bucket;
+        int head = heads[bucket];
+        next[entry] = head;
+        prev[entry] = NONE;
+        if (head != NONE) {
+            prev[head] = entry;
+        }
+        heads[bucket] = entry;
+    }
+
+    private void unlink(int entry) {
+        int before = prev[entry];
+        int after = next[entry];
+        if (before == NONE) {
+            heads[buckets[entry]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            prev[after] = before;
+        }
+    }
+
+    /**
+     * Places the entries of a bucket again, on lower levels now that they are closer.
+     */
+    private void cascade(int bucket) {
+        int entry = heads[bucket];
+        heads[bucket] = NONE;
+        while (entry != NONE) {
+            int following = next[entry];
+            place(entry);
+            entry = following;
+        }
+    }
+
+    private int expire(int bucket, LongConsumer expired) {
+        int count = 0;
+        int entry = heads[bucket];
+        heads[bucket] = NONE;
+        while (entry != NONE) {
+            int following = next[entry];
+            long id = ids[entry];
+            removeSlot(slotOf(id));
+            release(entry);
+            expired.accept(id);
+            count++;
+            entry = following;
+        }
+        return count;
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            int entry = free;
+            free = next[entry];
+            return entry;
+        }
+        if (allocated == ids.length) {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            buckets = Arrays.copyOf(buckets, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int entry) {
+        next[entry] = free;
+        free = entry;
+        size--;
+    }
+
+    /**
+     * Slot holding an ID, or the free slot where it would go.
+     */
+    private int slotOf(long id) {
+        int slot = spread(id) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0 && ids[entry - 1] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a table slot, shifting later entries of the probe sequence back
+     * so that no tombstones are needed.
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int following = (hole + 1) & mask;
+        while (table[following] != 0) {
+            int home = spread(ids[table[following] - 1]) & mask;
+            // The entry may fill the hole only if the hole lies on its probe sequence
+            if (((following - home) & mask) >= ((following - hole) & mask)) {
+                table[hole] = table[following];
+                hole = following;
+            }
+            following = (following + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private void resizeTable() {
+        int[] old = table;
+        table = new int[old.length << 1];
+        mask = table.length - 1;
+        for (int value : old) {
+            if (value != 0) {
+                int slot = spread(ids[value - 1]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    /** Smallest power of two keeping the load factor at or below 0.75. */
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity + capacity / 3) - 1) << 1;
+    }
+
+    /**
+     * Spreads time-ordered IDs over the table (murmur3 64-bit finalizer).
+     */
+    private static int spread(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ezpay.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.ezpay.exception.InvalidRequestException;
+
+/**
+ * Opaque continuation token for keyset pagination.
+ * 
+ * A cursor holds the sort key and the transaction ID of the last row of a page,
+ * so the next page can be fetched with a range predicate instead of an offset.
+ * The token is URL-safe Base64 and its content is not part of the API contract.
+ */
+public final class KeysetCursor {
+
+    private static final String VERSION = "v1";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String sortKey;
+    private final long transactionId;
+
+    public KeysetCursor(String sortKey, long transactionId) {
+        this.sortKey = sortKey;
+        this.transactionId = transactionId;
+    }
+
+    /**
+     * Gets the sort key of the last row of the previous page.
+     * @return Sort key in its ISO string form
+     */
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Gets the transaction ID of the last row of the previous page.
+     * @return Transaction ID
+     */
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Encodes this cursor as an opaque token.
+     * @return URL-safe token
+     */
+    public String encode() {
+        String raw = VERSION + "|" + sortKey + "|" + transactionId;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     * @param token Opaque cursor token
+     * @return Decoded cursor
+     * @throws InvalidRequestException if the token is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0]) || parts[1].isEmpty()) {
+                throw new InvalidRequestException("Invalid cursor: " + token);
+            }
+            return new KeysetCursor(parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor: " + token);
+        }
+    }
+}
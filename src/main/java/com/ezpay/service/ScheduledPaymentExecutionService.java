@@ -0,0 +1,607 @@
+package com.ezpay.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.CatchUpPolicy;
+import com.ezpay.entity.CatchUpStats;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentRetry;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.repository.BankTransferTransactionRepository;
+import com.ezpay.repository.InLists;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.ScheduledPaymentRetryRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.scheduling.Recurrence;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+import com.ezpay.scheduling.ShardLeaseManager;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Service class running the due auto-pay scheduled payments.
+ *
+ * Every tick, the payments due are taken from the in-memory {@link ScheduledPaymentTimer},
+ * so the database is only read when payments are due; {@link #executeDue} finds them in
+ * the database instead, and sweeps up the payments added or changed on other instances.
+ * Only the payments of the shards this instance leases from the {@link ShardLeaseManager}
+ * are run. Due payments are run in batches. Each run of a scheduled payment creates a bank
+ * transfer from its source account to its destination account and moves its next payment
+ * date on to the next occurrence of the {@link Recurrence} its frequency compiles to; once
+ * past its end date the scheduled payment is completed. A batch is stored in one database
+ * transaction; if it fails, its payments are retried one by one so that only the offending
+ * payments are left for the next poll. The runs that still fail go to the durable retry
+ * queue of the {@link ScheduledPaymentRetryService}, and the payment makes no other run
+ * until its failed run succeeds.
+ *
+ * Runs are idempotent per scheduled payment and due time: the transfer of a run has the
+ * transfer ID "SP-&lt;scheduled payment ID&gt;-&lt;due time&gt;", which is unique, and a run whose
+ * transfer already exists only moves the next payment date on.
+ *
+ * Due times older than the catch-up grace period are missed runs, left after downtime. The
+ * timer and the sweep leave them to {@link #catchUpMissedRuns}, which drains them oldest first
+ * at a bounded rate, so that on-time runs keep running while a backlog is caught up. What is
+ * made of the missed runs of a payment depends on its {@link CatchUpPolicy}.
+ */
+@Service
+public class ScheduledPaymentExecutionService {
+
+    private static final Logger logger = LogManager.getLogger(ScheduledPaymentExecutionService.class);
+
+    /** Status of a scheduled payment whose end date has passed. */
+    public static final String COMPLETED = "completed";
+
+    /** Status of a scheduled payment whose frequency is not understood, see {@link Recurrence}. */
+    public static final String SUSPENDED = "suspended";
+
+    /** Status of the transfers created by the runs, settled like any other transfer. */
+    public static final String RUN_STATUS = "processing";
+
+    /** Delay before a payment whose run failed is tried again, if the retry queue cannot be written either. */
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private static final DateTimeFormatter RUN_KEY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmm");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private BankTransferTransactionRepository bankTransferTransactionRepository;
+
+    @Autowired
+    private ScheduledPaymentRetryRepository scheduledPaymentRetryRepository;
+
+    @Autowired
+    private ScheduledPaymentRetryService scheduledPaymentRetryService;
+
+    @Autowired
+    private ScheduledPaymentTimer scheduledPaymentTimer;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @Autowired
+    private Recurrences recurrences;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private TransactionStatusEventWriter statusEventWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /** Number of scheduled payments run per database transaction. */
+    @Value("${ezpay.scheduled-payments.batch-size:500}")
+    private int batchSize;
+
+    /** Lateness after which a due time is a missed run, left to the catch-up. */
+    @Value("${ezpay.scheduled-payments.catch-up.grace:PT5M}")
+    private Duration catchUpGrace;
+
+    /** Missed runs made per second at most while catching up. */
+    @Value("${ezpay.scheduled-payments.catch-up.runs-per-second:100}")
+    private int catchUpRate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong catchUpRuns = new AtomicLong();
+    private final AtomicLong paymentsSkipped = new AtomicLong();
+    private volatile LocalDateTime lastCatchUpPass;
+    private volatile int lastCatchUpPassRuns;
+
+    // Token bucket of the catch-up rate, holding at most one second of runs. Only used by the scheduler thread
+    private double catchUpPermits;
+    private long catchUpPermitsAt;
+
+    @PostConstruct
+    void init() {
+        if (batchSize < 1 || batchSize > InLists.MAX_SIZE) {
+            throw new IllegalStateException("ezpay.scheduled-payments.batch-size must be between 1 and "
+                    + InLists.MAX_SIZE + ": " + batchSize);
+        }
+        if (catchUpRate < 1) {
+            throw new IllegalStateException("ezpay.scheduled-payments.catch-up.runs-per-second must be positive: "
+                    + catchUpRate);
+        }
+        if (catchUpGrace.isNegative()) {
+            throw new IllegalStateException("ezpay.scheduled-payments.catch-up.grace must not be negative: "
+                    + catchUpGrace);
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        catchUpPermitsAt = System.nanoTime();
+    }
+
+    /**
+     * Runs the payments the timer has due now. Called every tick.
+     */
+    @Scheduled(fixedDelayString = "${ezpay.scheduled-payments.tick:PT1S}",
+            initialDelayString = "${ezpay.scheduled-payments.tick:PT1S}")
+    public void runDuePayments() {
+        runTimerDue(LocalDateTime.now());
+    }
+
+    /**
+     * Runs the payments the database has due now, which the timer misses if they were added
+     * or changed on another instance. Missed runs are left to the catch-up. Called every
+     * sweep interval.
+     */
+    @Scheduled(fixedDelayString = "${ezpay.scheduled-payments.sweep-interval:PT1M}",
+            initialDelayString = "${ezpay.scheduled-payments.sweep-interval:PT1M}")
+    public void sweepDuePayments() {
+        LocalDateTime now = LocalDateTime.now();
+        executeDue(now.minus(catchUpGrace), now);
+    }
+
+    /**
+     * Makes the missed runs the rate allows since the previous pass, up to one second of runs.
+     * Each pass is short, so the on-time runs sharing the scheduler thread are never held up
+     * for long. Called every catch-up interval.
+     */
+    @Scheduled(fixedDelayString = "${ezpay.scheduled-payments.catch-up.interval:PT1S}",
+            initialDelayString = "${ezpay.scheduled-payments.catch-up.interval:PT1S}")
+    public void catchUpMissedRuns() {
+        long nanos = System.nanoTime();
+        catchUpPermits = Math.min(catchUpRate, catchUpPermits + (nanos - catchUpPermitsAt) * catchUpRate / 1e9);
+        catchUpPermitsAt = nanos;
+        int permits = (int) catchUpPermits;
+        if (permits > 0) {
+            catchUpPermits -= catchUpPayments(LocalDateTime.now(), permits);
+        }
+    }
+
+    /**
+     * Runs the payments the timer has due by the given time. A scheduled payment that missed
+     * several runs is run once per missed due time, as its catch-up policy allows. Payments
+     * that fail are tried again after a delay, as are payments whose shard lease has run out
+     * until it is renewed.
+     *
+     * @param now Time the payments must be due by.
+     * @return Number of runs executed.
+     */
+    public int runTimerDue(LocalDateTime now) {
+        int executed = 0;
+        long[] due;
+        boolean progress = true;
+        // Payments still due after their run come back at once. Payments the database has not
+        // due yet would too if the clock went back, so stop once a round runs nothing
+        while (progress && (due = scheduledPaymentTimer.takeDue(now)).length > 0) {
+            progress = false;
+            List<Long> ids = new ArrayList<>(Math.min(batchSize, due.length));
+            for (int i = 0; i < due.length; i++) {
+                if (shardLeaseManager.ownsShardOf(due[i])) {
+                    ids.add(due[i]);
+                } else {
+                    scheduledPaymentTimer.schedule(due[i], now.plus(RETRY_DELAY)); // Dropped if the shard is gone
+                }
+                if (ids.size() == batchSize || (i == due.length - 1 && !ids.isEmpty())) {
+                    BatchResult result = executeBatch(ids, now);
+                    executed += result.executed;
+                    progress |= result.updated > 0;
+                    ids = new ArrayList<>(Math.min(batchSize, due.length - i - 1));
+                }
+            }
+        }
+        if (executed > 0) {
+            logger.info("Executed {} scheduled payment runs due by {}.", executed, now);
+        }
+        return executed;
+    }
+
+    /**
+     * Runs every payment of the shards of this instance the database has due by the given time,
+     * whether the timer holds it or not, missed runs included. A scheduled payment that missed
+     * several runs is run once per missed due time, as its catch-up policy allows. Payments
+     * that fail are left for the next call.
+     *
+     * @param now Time the payments must be due by.
+     * @return Number of runs executed.
+     */
+    public int executeDue(LocalDateTime now) {
+        return executeDue(null, now);
+    }
+
+    /**
+     * Runs the payments due in a window, or by a time if the window has no start.
+     */
+    private int executeDue(LocalDateTime after, LocalDateTime now) {
+        int executed = 0;
+        List<Integer> shards;
+        // The leases are checked again before each batch, they may run out while it runs
+        while (!(shards = leasedShards()).isEmpty()) {
+            int shardCount = shardLeaseManager.getShardCount();
+            List<Long> ids = after == null
+                    ? scheduledPaymentRepository.findDueIds(now, shardCount, shards, PageRequest.of(0, batchSize))
+                    : scheduledPaymentRepository.findDueIdsBetween(after, now, shardCount, shards,
+                            PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            BatchResult result = executeBatch(ids, now);
+            executed += result.executed;
+            // Payments still due after their run are read again; failed payments would be too
+            if (result.failed > 0 || result.updated == 0) {
+                break;
+            }
+        }
+        if (executed > 0) {
+            logger.info("Executed {} scheduled payment runs due by {}.", executed, now);
+        }
+        return executed;
+    }
+
+    /**
+     * @return Shards this instance holds an unexpired lease on.
+     */
+    private List<Integer> leasedShards() {
+        return shardLeaseManager.leasedShards().stream().boxed().toList();
+    }
+
+    /**
+     * Runs the missed runs of the shards of this instance, oldest due first: the payments due
+     * before the catch-up grace period, at most a given number of them. A payment that missed
+     * several runs makes one run per payment read, as its policy allows.
+     *
+     * @param now Current time.
+     * @param maxPayments Number of payments to read at most.
+     * @return Number of payments read, each made one run at most.
+     */
+    public int catchUpPayments(LocalDateTime now, int maxPayments) {
+        LocalDateTime missedBy = now.minus(catchUpGrace);
+        int read = 0;
+        int executed = 0;
+        List<Integer> shards;
+        while (read < maxPayments && !(shards = leasedShards()).isEmpty()) {
+            List<Long> ids = scheduledPaymentRepository.findDueIds(missedBy, shardLeaseManager.getShardCount(),
+                    shards, PageRequest.of(0, Math.min(batchSize, maxPayments - read)));
+            if (ids.isEmpty()) {
+                break;
+            }
+            read += ids.size();
+            BatchResult result = executeBatch(ids, now);
+            executed += result.executed;
+            if (result.failed > 0 || result.updated == 0) {
+                break;
+            }
+        }
+        if (read > 0) {
+            lastCatchUpPass = now;
+            lastCatchUpPassRuns = executed;
+            logger.info("Caught up {} missed scheduled payment runs, {} since startup.", executed,
+                    catchUpRuns.addAndGet(executed));
+        }
+        return read;
+    }
+
+    /**
+     * Reports the missed runs left to catch up on the shards of this instance and the progress so far.
+     *
+     * @return Catch-up counters.
+     */
+    public CatchUpStats catchUpStats() {
+        return catchUpStats(LocalDateTime.now());
+    }
+
+    /**
+     * Reports the missed runs left to catch up at a given time and the progress so far.
+     *
+     * @param now Current time.
+     * @return Catch-up counters.
+     */
+    public CatchUpStats catchUpStats(LocalDateTime now) {
+        long backlog = 0;
+        LocalDateTime oldestDue = null;
+        List<Integer> shards = shardLeaseManager.ownedShards().stream().boxed().toList();
+        if (!shards.isEmpty()) {
+            Object[] row = scheduledPaymentRepository.countDue(now.minus(catchUpGrace),
+                    shardLeaseManager.getShardCount(), shards).get(0);
+            backlog = ((Number) row[0]).longValue();
+            oldestDue = (LocalDateTime) row[1];
+        }
+        return new CatchUpStats(backlog, oldestDue, catchUpRuns.get(), paymentsSkipped.get(), lastCatchUpPass,
+                lastCatchUpPassRuns, catchUpRate);
+    }
+
+    /**
+     * Runs a batch in one database transaction, falling back to one payment per transaction
+     * if the batch fails. Once the runs are committed, the payments are scheduled again on
+     * the timer and events are published. A payment failing on its own, including when no
+     * transaction can be begun or committed, is queued for retry, so none is lost from the timer.
+     */
+    private BatchResult executeBatch(List<Long> ids, LocalDateTime now) {
+        BatchResult result = new BatchResult();
+        try {
+            List<Run> runs = transactionTemplate.execute(status ->
+                    execute(scheduledPaymentRepository.findAllById(ids), now));
+            result.add(runs);
+        } catch (DataAccessException | TransactionException batchFailure) {
+            logger.warn("Batch of {} scheduled payments failed, retrying them one by one: {}", ids.size(),
+                    batchFailure.getMessage());
+            for (Long id : ids) {
+                try {
+                    List<Run> runs = transactionTemplate.execute(status -> {
+                        Optional<ScheduledPayment> payment = scheduledPaymentRepository.findById(id);
+                        return execute(payment.map(List::of).orElse(List.of()), now);
+                    });
+                    result.add(runs);
+                } catch (DataAccessException | TransactionException itemFailure) {
+                    logger.error("Scheduled payment {} could not be run: {}", id, itemFailure.getMessage());
+                    scheduledPaymentTimer.schedule(id, retryAt(id, itemFailure, now));
+                    result.failed++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queues a failed run for a later attempt. If the queue cannot be written either, the run
+     * is tried again after a delay, until this instance stops.
+     *
+     * @return Time of the next attempt, or null if the run is dead-lettered.
+     */
+    private LocalDateTime retryAt(long id, RuntimeException failure, LocalDateTime now) {
+        try {
+            return scheduledPaymentRetryService.recordFailure(id, failure.getMessage(), now);
+        } catch (DataAccessException | TransactionException e) {
+            logger.error("Failed run of scheduled payment {} could not be queued: {}", id, e.getMessage());
+            return now.plus(RETRY_DELAY);
+        }
+    }
+
+    /**
+     * Runs the due time of each payment that is still due. Called within a database transaction.
+     * Returns a run for every payment, also those no longer due, so the timer follows them.
+     * A payment whose failed run is waiting for its next attempt, or dead-lettered, makes no run.
+     * The status changes of the payments and the transfers made are appended to the status event log.
+     */
+    private List<Run> execute(List<ScheduledPayment> payments, LocalDateTime now) {
+        Map<Long, ScheduledPaymentRetry> retries = new HashMap<>();
+        if (!payments.isEmpty()) {
+            List<Long> ids = new ArrayList<>(payments.size());
+            payments.forEach(payment -> ids.add(payment.getTransactionId()));
+            scheduledPaymentRetryRepository.findAllById(ids)
+                    .forEach(retry -> retries.put(retry.getScheduledPaymentId(), retry));
+        }
+        List<Long> resolvedRetries = new ArrayList<>();
+
+        List<LocalDateTime> runDueTimes = new ArrayList<>(payments.size());
+        List<String> runKeys = new ArrayList<>(payments.size());
+        for (ScheduledPayment payment : payments) {
+            LocalDateTime runDue = runDue(payment, now);
+            runDueTimes.add(runDue);
+            if (runDue != null) {
+                runKeys.add(runKey(payment.getTransactionId(), runDue));
+            }
+        }
+        Set<String> executedKeys = runKeys.isEmpty() ? Set.of()
+                : new HashSet<>(bankTransferTransactionRepository.findExistingTransferIds(runKeys));
+
+        List<Run> runs = new ArrayList<>(payments.size());
+        List<TransactionStatusEvent> statusEvents = new ArrayList<>();
+        for (int i = 0; i < payments.size(); i++) {
+            ScheduledPayment payment = payments.get(i);
+            LocalDateTime due = payment.getNextPaymentDate();
+            // Changed since it was found due
+            if (!payment.getIsAutoPayEnabled() || due == null || due.isAfter(now)) {
+                runs.add(new Run(payment.getTransactionId(), payment.getIsAutoPayEnabled() ? due : null,
+                        false, false, null, 0, null));
+                continue;
+            }
+            ScheduledPaymentRetry retry = retries.get(payment.getTransactionId());
+            if (retry != null) {
+                if (due.equals(retry.getDueTime()) && (retry.getNextAttemptAt() == null
+                        || retry.getNextAttemptAt().isAfter(now))) {
+                    runs.add(new Run(payment.getTransactionId(), retry.getNextAttemptAt(), false, false, null, 0, null));
+                    continue;
+                }
+                // Attempted again, or left over from before the payment changed
+                resolvedRetries.add(payment.getTransactionId());
+            }
+            LocalDateTime runDue = runDueTimes.get(i);
+            boolean skipped = runDue == null || runDue.isAfter(due);
+            if (skipped) {
+                logger.info("Scheduled payment {} skips its missed runs from {} by its {} policy.",
+                        payment.getTransactionId(), due, payment.getCatchUpPolicy());
+            }
+            String statusBefore = payment.getStatus();
+            BankTransferTransaction transfer = null;
+            if (payment.getEndDate() != null && due.isAfter(payment.getEndDate())) {
+                close(payment, COMPLETED);
+            } else {
+                LocalDateTime next = nextPaymentDate(payment, due, runDue == null ? now : runDue);
+                if (next == null) {
+                    close(payment, SUSPENDED);
+                } else {
+                    String runKey = runDue == null ? null : runKey(payment.getTransactionId(), runDue);
+                    if (runKey != null && !executedKeys.contains(runKey)) {
+                        transfer = new BankTransferTransaction("Bank Transfer", payment.getAmount(),
+                                runDue.toLocalDate(), RUN_STATUS, runKey, payment.getSourceAccount(),
+                                payment.getDestinationAccount());
+                        transfer.setSender(payment.getSender());
+                        transfer.setReceiver(payment.getReceiver());
+                        entityManager.persist(transfer);
+                    }
+                    payment.setNextPaymentDate(next);
+                    if (payment.getEndDate() != null && next.isAfter(payment.getEndDate())) {
+                        close(payment, COMPLETED);
+                    }
+                }
+            }
+            statusEvents.add(new TransactionStatusEvent(payment.getTransactionId(), statusBefore, payment.getStatus()));
+            if (transfer != null) {
+                statusEvents.add(TransactionStatusEvent.created(transfer));
+            }
+            runs.add(new Run(payment.getTransactionId(),
+                    payment.getIsAutoPayEnabled() ? payment.getNextPaymentDate() : null, true, skipped,
+                    payment.getStatus() == null || payment.getStatus().equals(statusBefore) ? null : payment.getStatus(),
+                    transfer == null ? 0 : transfer.getTransactionId(), transfer == null ? null : transfer.getStatus()));
+        }
+        if (!resolvedRetries.isEmpty()) {
+            scheduledPaymentRetryRepository.deleteByScheduledPaymentIds(resolvedRetries);
+        }
+        // Closed payments and new transfers, one batch for the whole run
+        statusEventWriter.append(statusEvents);
+        return runs;
+    }
+
+    private static void close(ScheduledPayment payment, String status) {
+        payment.setIsAutoPayEnabled(false);
+        payment.setStatus(status);
+    }
+
+    /**
+     * Transfer ID of the run of a scheduled payment at a due time.
+     *
+     * @param scheduledPaymentId ID of the scheduled payment.
+     * @param due Due time of the run.
+     * @return Transfer ID identifying the run.
+     */
+    public static String runKey(long scheduledPaymentId, LocalDateTime due) {
+        return "SP-" + scheduledPaymentId + "-" + due.format(RUN_KEY_FORMAT);
+    }
+
+    /**
+     * Due time of the run a due payment makes: its next payment date, or for a missed run, the
+     * run its catch-up policy makes of its missed runs. Null if it makes none.
+     *
+     * @param payment Scheduled payment.
+     * @param now Current time.
+     * @return Due time of the run, the latest missed one for LATEST_ONLY, or null to skip them all.
+     */
+    private LocalDateTime runDue(ScheduledPayment payment, LocalDateTime now) {
+        LocalDateTime due = payment.getNextPaymentDate();
+        CatchUpPolicy policy = payment.getCatchUpPolicy();
+        LocalDateTime endDate = payment.getEndDate();
+        LocalDateTime missedBy = now.minus(catchUpGrace);
+        if (due == null || policy == null || policy == CatchUpPolicy.RUN_ALL || !due.isBefore(missedBy)
+                || (endDate != null && due.isAfter(endDate))) {
+            return due;
+        }
+        Recurrence recurrence;
+        try {
+            recurrence = recurrences.compile(payment.getFrequency());
+        } catch (IllegalArgumentException e) {
+            return due; // Suspended when run
+        }
+        LocalDateTime latest = recurrence.last(Recurrence.anchorOf(payment.getStartDate(), due),
+                endDate != null && endDate.isBefore(now) ? endDate : now);
+        if (latest == null || latest.isBefore(due)) {
+            latest = due;
+        }
+        // The latest run may be on time, which SKIP still makes
+        return policy == CatchUpPolicy.SKIP && latest.isBefore(missedBy) ? null : latest;
+    }
+
+    /**
+     * Computes the due time following a time from the recurrence of the payment, counted
+     * from its start date.
+     *
+     * @param payment Scheduled payment.
+     * @param due Current due time.
+     * @param after Time the next due time must be after, the current due time unless runs are skipped.
+     * @return Next due time, or null if the frequency is not understood.
+     */
+    private LocalDateTime nextPaymentDate(ScheduledPayment payment, LocalDateTime due, LocalDateTime after) {
+        Recurrence recurrence;
+        try {
+            recurrence = recurrences.compile(payment.getFrequency());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Scheduled payment {} cannot recur, suspending it: {}", payment.getTransactionId(),
+                    e.getMessage());
+            return null;
+        }
+        return recurrence.next(Recurrence.anchorOf(payment.getStartDate(), due), after);
+    }
+
+    /** What a run changed, applied to the timer and published once committed. */
+    private record Run(long scheduledPaymentId, LocalDateTime nextPaymentDate, boolean updated, boolean skipped,
+                       String scheduledPaymentStatus, long transferId, String transferStatus) {
+    }
+
+    /** Outcome of one batch. */
+    private final class BatchResult {
+        int executed;
+        int updated;
+        int failed;
+
+        void add(List<Run> runs) {
+            for (Run run : runs) {
+                scheduledPaymentTimer.schedule(run.scheduledPaymentId(), run.nextPaymentDate());
+                if (!run.updated()) {
+                    continue;
+                }
+                updated++;
+                if (run.skipped()) {
+                    paymentsSkipped.incrementAndGet();
+                }
+                transactionCache.invalidate(run.scheduledPaymentId());
+                if (run.scheduledPaymentStatus() != null) {
+                    eventPublisher.publishEvent(new TransactionStatusChangedEvent(run.scheduledPaymentId(),
+                            run.scheduledPaymentStatus()));
+                }
+                if (run.transferStatus() != null) {
+                    executed++;
+                    eventPublisher.publishEvent(new TransactionStatusChangedEvent(run.transferId(),
+                            run.transferStatus()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.ezpay.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.ezpay.entity.CashFlowForecast;
+import com.ezpay.entity.CatchUpPolicy;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.scheduling.Recurrence;
+import com.ezpay.scheduling.Recurrences;
+
+/**
+ * Service class forecasting the amounts the auto-pay scheduled payments will take out of
+ * their source accounts.
+ *
+ * The payments of the requested accounts are read with one index query, then the recurrence
+ * of each payment is expanded over the horizon and its amounts added up per day. Accounts
+ * are split into partitions expanded in parallel on the common fork-join pool; within an
+ * account, the occurrences are enumerated into a reused buffer and summed into arrays
+ * indexed by day, so an account with hundreds of payments takes well under a millisecond.
+ *
+ * Runs due before today are overdue and made at once, today, as many of them as the
+ * {@link CatchUpPolicy} of the payment selects.
+ */
+@Service
+public class ScheduledPaymentForecastService {
+
+    private static final Logger logger = LogManager.getLogger(ScheduledPaymentForecastService.class);
+
+    /** Horizon when none is given, in days. */
+    public static final int DEFAULT_DAYS = 90;
+
+    /** Longest horizon, in days. */
+    public static final int MAX_DAYS = 366;
+
+    /** Most source accounts per request. */
+    public static final int MAX_ACCOUNTS = 100;
+
+    /** Accounts expanded by one fork-join task. */
+    private static final int ACCOUNTS_PER_TASK = 4;
+
+    /** Occurrences enumerated per call to the recurrence. */
+    private static final int OCCURRENCE_BUFFER = 64;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private Recurrences recurrences;
+
+    /**
+     * Forecasts the payments of some source accounts, per day.
+     *
+     * @param sourceAccounts Source accounts to forecast.
+     * @param from First day of the horizon in YYYY-MM-DD format, today if null.
+     * @param days Number of days of the horizon.
+     * @return One forecast per distinct account, in the order requested.
+     * @throws InvalidRequestException if the accounts, the first day or the horizon are invalid.
+     */
+    public List<CashFlowForecast> forecast(List<String> sourceAccounts, String from, int days) {
+        return forecast(sourceAccounts, from, days, LocalDate.now());
+    }
+
+    /**
+     * Forecasts the payments of some source accounts, per day, as of a given day.
+     *
+     * @param sourceAccounts Source accounts to forecast.
+     * @param from First day of the horizon in YYYY-MM-DD format, today if null.
+     * @param days Number of days of the horizon.
+     * @param today The current day: runs due before it are overdue and paid on it.
+     * @return One forecast per distinct account, in the order requested.
+     * @throws InvalidRequestException if the accounts, the first day or the horizon are invalid.
+     */
+    public List<CashFlowForecast> forecast(List<String> sourceAccounts, String from, int days, LocalDate today) {
+        List<String> accounts = validateAccounts(sourceAccounts);
+        if (days < 1 || days > MAX_DAYS) {
+            throw new InvalidRequestException("Forecast days must be between 1 and " + MAX_DAYS + ".");
+        }
+        LocalDate first;
+        try {
+            first = from == null || from.isBlank() ? today : LocalDate.parse(from.trim());
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid forecast start date: " + from);
+        }
+        LocalDate last = first.plusDays(days - 1);
+        logger.info("Forecasting the scheduled payments of {} accounts from {} to {}.", accounts.size(), first, last);
+
+        Map<String, List<Object[]>> rowsByAccount = new HashMap<>();
+        for (Object[] row : scheduledPaymentRepository.findForecastRows(accounts, LocalDateTime.of(last, LocalTime.MAX))) {
+            rowsByAccount.computeIfAbsent((String) row[0], account -> new ArrayList<>()).add(row);
+        }
+        CashFlowForecast[] forecasts = new CashFlowForecast[accounts.size()];
+        ForkJoinPool.commonPool().invoke(new ForecastTask(accounts, rowsByAccount, first, days,
+                today.toEpochDay(), forecasts, 0, accounts.size()));
+        return Arrays.asList(forecasts);
+    }
+
+    private static List<String> validateAccounts(List<String> sourceAccounts) {
+        LinkedHashSet<String> accounts = new LinkedHashSet<>();
+        if (sourceAccounts != null) {
+            for (String account : sourceAccounts) {
+                if (account != null && !account.isBlank()) {
+                    accounts.add(account.trim());
+                }
+            }
+        }
+        if (accounts.isEmpty()) {
+            throw new InvalidRequestException("At least one source account must be given.");
+        }
+        if (accounts.size() > MAX_ACCOUNTS) {
+            throw new InvalidRequestException("At most " + MAX_ACCOUNTS + " source accounts can be given.");
+        }
+        return new ArrayList<>(accounts);
+    }
+
+    /**
+     * Expands the payments of one account over the horizon.
+     *
+     * @param today Epoch day of the current day.
+     * @param buffer Reused to enumerate occurrences.
+     */
+    private CashFlowForecast forecastAccount(String account, List<Object[]> rows, LocalDate first, int days,
+                                             long today, long[] buffer) {
+        double[] amounts = new double[days];
+        int[] counts = new int[days];
+        long firstDay = first.toEpochDay();
+        long lastDay = firstDay + days - 1;
+        for (Object[] row : rows) {
+            double amount = ((Number) row[1]).doubleValue();
+            LocalDateTime due = (LocalDateTime) row[2];
+            LocalDateTime endDate = (LocalDateTime) row[4];
+            Recurrence recurrence;
+            try {
+                recurrence = recurrences.compile((String) row[5]);
+            } catch (IllegalArgumentException e) {
+                continue; // Suspended at its next run without paying
+            }
+            if (endDate != null && due.isAfter(endDate)) {
+                continue; // Completed at its next run without paying
+            }
+            long anchorDay = Recurrence.anchorOf((LocalDateTime) row[3], due).toLocalDate().toEpochDay();
+            // Runs up to yesterday are enumerated even past the horizon, to count the overdue ones
+            long untilDay = Math.max(lastDay, today - 1);
+            if (endDate != null) {
+                untilDay = Math.min(untilDay, endDate.toLocalDate().toEpochDay());
+            }
+            long day = due.toLocalDate().toEpochDay();
+            int overdue = 0;
+            if (day < today) {
+                overdue++;
+            } else {
+                add(amounts, counts, firstDay, day, amount, 1);
+            }
+            int count;
+            do {
+                count = recurrence.nextDays(anchorDay, day, untilDay, buffer);
+                for (int i = 0; i < count; i++) {
+                    if (buffer[i] < today) {
+                        overdue++;
+                    } else {
+                        add(amounts, counts, firstDay, buffer[i], amount, 1);
+                    }
+                }
+                if (count > 0) {
+                    day = buffer[count - 1];
+                }
+            } while (count == buffer.length);
+            add(amounts, counts, firstDay, today, amount, caughtUp((CatchUpPolicy) row[6], overdue));
+        }
+
+        List<CashFlowForecast.Day> forecastDays = new ArrayList<>();
+        double total = 0;
+        int payments = 0;
+        for (int i = 0; i < days; i++) {
+            if (counts[i] > 0) {
+                forecastDays.add(new CashFlowForecast.Day(first.plusDays(i), amounts[i], counts[i]));
+                total += amounts[i];
+                payments += counts[i];
+            }
+        }
+        return new CashFlowForecast(account, first, first.plusDays(days - 1), total, payments, forecastDays);
+    }
+
+    /**
+     * Number of the overdue runs of a payment made today, as its catch-up policy selects them.
+     * Runs due earlier today are taken as on time.
+     */
+    private static int caughtUp(CatchUpPolicy policy, int overdue) {
+        if (policy == CatchUpPolicy.SKIP) {
+            return 0;
+        }
+        return policy == CatchUpPolicy.LATEST_ONLY ? Math.min(1, overdue) : overdue;
+    }
+
+    /**
+     * Adds runs to their day, unless it is outside the horizon.
+     */
+    private static void add(double[] amounts, int[] counts, long firstDay, long day, double amount, int runs) {
+        if (runs == 0 || day < firstDay || day - firstDay >= amounts.length) {
+            return;
+        }
+        int index = (int) (day - firstDay);
+        amounts[index] += amount * runs;
+        counts[index] += runs;
+    }
+
+    /** Expands a partition of the accounts, splitting it while it is large. */
+    private final class ForecastTask extends RecursiveAction {
+        private final List<String> accounts;
+        private final Map<String, List<Object[]>> rowsByAccount;
+        private final LocalDate first;
+        private final int days;
+        private final long today;
+        private final CashFlowForecast[] forecasts;
+        private final int from;
+        private final int to;
+
+        ForecastTask(List<String> accounts, Map<String, List<Object[]>> rowsByAccount, LocalDate first, int days,
+                     long today, CashFlowForecast[] forecasts, int from, int to) {
+            this.accounts = accounts;
+            this.rowsByAccount = rowsByAccount;
+            this.first = first;
+            this.days = days;
+            this.today = today;
+            this.forecasts = forecasts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ACCOUNTS_PER_TASK) {
+                long[] buffer = new long[OCCURRENCE_BUFFER];
+                for (int i = from; i < to; i++) {
+                    String account = accounts.get(i);
+                    forecasts[i] = forecastAccount(account, rowsByAccount.getOrDefault(account, List.of()), first,
+                            days, today, buffer);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForecastTask(accounts, rowsByAccount, first, days, today, forecasts, from, middle),
+                    new ForecastTask(accounts, rowsByAccount, first, days, today, forecasts, middle, to));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.ezpay.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentRetry;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.ScheduledPaymentRetryRepository;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Service class keeping the durable queue of failed scheduled payment runs.
+ *
+ * A run that fails is tried again after an exponential backoff with jitter: the delay doubles
+ * with every attempt from the initial delay up to the maximum delay, and a random part of up to
+ * half of it spreads out the retries of runs that failed together. The attempts are put on the
+ * {@link ScheduledPaymentTimer} rather than polled for. After the last attempt the run is
+ * dead-lettered until it is requeued. See {@link ScheduledPaymentRetry}.
+ */
+@Service
+public class ScheduledPaymentRetryService {
+
+    private static final Logger logger = LogManager.getLogger(ScheduledPaymentRetryService.class);
+
+    /** Status of a failed run waiting for its next attempt. */
+    public static final String PENDING = "pending";
+
+    /** Status of a failed run whose attempts are used up. */
+    public static final String DEAD = "dead";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private ScheduledPaymentRetryRepository scheduledPaymentRetryRepository;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private ScheduledPaymentTimer scheduledPaymentTimer;
+
+    /** Delay before the second attempt of a run. */
+    @Value("${ezpay.scheduled-payments.retry.initial-delay:PT30S}")
+    private Duration initialDelay;
+
+    /** Longest delay between two attempts. */
+    @Value("${ezpay.scheduled-payments.retry.max-delay:PT1H}")
+    private Duration maxDelay;
+
+    /** Attempts of a run, the first one included, before it is dead-lettered. */
+    @Value("${ezpay.scheduled-payments.retry.max-attempts:8}")
+    private int maxAttempts;
+
+    @PostConstruct
+    void init() {
+        if (initialDelay.isNegative() || initialDelay.isZero() || maxDelay.compareTo(initialDelay) < 0) {
+            throw new IllegalStateException("ezpay.scheduled-payments.retry.initial-delay must be positive and at most "
+                    + "ezpay.scheduled-payments.retry.max-delay: " + initialDelay + ", " + maxDelay);
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalStateException("ezpay.scheduled-payments.retry.max-attempts must be positive: "
+                    + maxAttempts);
+        }
+    }
+
+    /**
+     * Records a failed run of a scheduled payment, the run at its next payment date. Called
+     * once the transaction of the run has been rolled back.
+     *
+     * @param scheduledPaymentId ID of the scheduled payment.
+     * @param error Error of the failed attempt.
+     * @param now Current time.
+     * @return Time of the next attempt, or null if the run is dead-lettered or the payment is gone.
+     */
+    @Transactional
+    public LocalDateTime recordFailure(long scheduledPaymentId, String error, LocalDateTime now) {
+        ScheduledPayment payment = scheduledPaymentRepository.findById(scheduledPaymentId).orElse(null);
+        if (payment == null || payment.getNextPaymentDate() == null) {
+            return null;
+        }
+        LocalDateTime due = payment.getNextPaymentDate();
+        // The attempts of an earlier due time no longer count once the payment has changed
+        ScheduledPaymentRetry retry = scheduledPaymentRetryRepository.findById(scheduledPaymentId)
+                .filter(existing -> due.equals(existing.getDueTime()))
+                .orElseGet(() -> new ScheduledPaymentRetry(scheduledPaymentId, due));
+        retry.setAttempts(retry.getAttempts() + 1);
+        retry.setLastFailedAt(now);
+        retry.setLastError(error == null || error.length() <= MAX_ERROR_LENGTH ? error
+                : error.substring(0, MAX_ERROR_LENGTH));
+        if (retry.getAttempts() >= maxAttempts) {
+            retry.setStatus(DEAD);
+            retry.setNextAttemptAt(null);
+            logger.error("Run of scheduled payment {} due {} failed {} times, dead-lettering it.", scheduledPaymentId,
+                    due, retry.getAttempts());
+        } else {
+            retry.setStatus(PENDING);
+            retry.setNextAttemptAt(now.plus(backoff(retry.getAttempts())));
+            logger.warn("Run of scheduled payment {} due {} failed {} times, trying again at {}.", scheduledPaymentId,
+                    due, retry.getAttempts(), retry.getNextAttemptAt());
+        }
+        scheduledPaymentRetryRepository.save(retry);
+        return retry.getNextAttemptAt();
+    }
+
+    /**
+     * Computes the delay after a number of failed attempts: the initial delay doubled for every
+     * attempt after the first, capped at the maximum delay, of which a random half is taken off.
+     *
+     * @param attempts Failed attempts so far, at least 1.
+     * @return Delay before the next attempt.
+     */
+    public Duration backoff(int attempts) {
+        long cap = maxDelay.toMillis();
+        long delay = initialDelay.toMillis();
+        for (int i = 1; i < attempts && delay < cap; i++) {
+            delay <<= 1;
+        }
+        delay = Math.min(delay, cap);
+        long jitter = delay / 2;
+        return Duration.ofMillis(delay - jitter + ThreadLocalRandom.current().nextLong(jitter + 1));
+    }
+
+    /**
+     * Retrieves the failed runs with a status.
+     *
+     * @param status "pending" or "dead", dead if null.
+     * @return Failed runs, latest failure first.
+     * @throws InvalidRequestException if the status is not known.
+     */
+    public List<ScheduledPaymentRetry> getRetries(String status) {
+        String normalized = status == null || status.isBlank() ? DEAD : status.trim().toLowerCase(Locale.ROOT);
+        if (!normalized.equals(PENDING) && !normalized.equals(DEAD)) {
+            throw new InvalidRequestException("Invalid retry status: " + status + ". Expected pending or dead.");
+        }
+        return scheduledPaymentRetryRepository.findByStatus(normalized);
+    }
+
+    /**
+     * Requeues a dead-lettered run: the scheduled payment runs again at once, with its
+     * attempts counted from zero.
+     *
+     * @param scheduledPaymentId ID of the scheduled payment.
+     * @throws TransactionNotFoundException if the payment has no dead-lettered run.
+     */
+    public void requeue(long scheduledPaymentId) {
+        if (scheduledPaymentRetryRepository.deleteByScheduledPaymentIdAndStatus(scheduledPaymentId, DEAD) == 0) {
+            throw new TransactionNotFoundException("No dead-lettered run found for scheduled payment "
+                    + scheduledPaymentId + ".");
+        }
+        // Missed runs are left to the catch-up
+        scheduledPaymentRepository.findById(scheduledPaymentId).ifPresent(scheduledPaymentTimer::schedule);
+        logger.info("Requeued the dead-lettered run of scheduled payment {}.", scheduledPaymentId);
+    }
+}
@@ -1,15 +1,50 @@
 package com.ezpay.service;
 
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.entity.BulkUpdateResult;
+import com.ezpay.entity.KeysetPage;
 import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentBulkRequest;
+import com.ezpay.entity.ScheduledPaymentPatch;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionStatusResponse;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.InLists;
 import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.ScheduledPaymentRetryRepository;
+import com.ezpay.repository.ScheduledPaymentSpecifications;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.scheduling.Recurrence;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * Service class for handling operations related to ScheduledPayments.
  * This class provides methods for creating, retrieving, modifying, and deleting scheduled payments.
@@ -19,19 +54,69 @@ public class ScheduledPaymentService {
 
     private static final Logger logger = LogManager.getLogger(ScheduledPaymentService.class);
 
+    /** Largest page of the scheduled payment history. */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /** Order of the history pages, the columns ending the index of each filter. */
+    private static final Sort PAGE_ORDER = Sort.by("nextPaymentDate", "transactionId");
+
+    /** Most IDs a bulk request may list. */
+    public static final int MAX_BULK_IDS = 10_000;
+
     @Autowired
     private ScheduledPaymentRepository scheduledPaymentRepository;
 
+    @Autowired
+    private ScheduledPaymentRetryRepository scheduledPaymentRetryRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionStatusEventWriter statusEventWriter;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private ScheduledPaymentTimer scheduledPaymentTimer;
+
+    @Autowired
+    private Recurrences recurrences;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Adds a new scheduled payment to the repository.
      *
      * @param scheduledPayment The ScheduledPayment object to be added.
      * @return The added ScheduledPayment object.
+     * @throws InvalidRequestException if its frequency or dates are invalid.
      */
     public ScheduledPayment addScheduledPayment(ScheduledPayment scheduledPayment) {
         logger.info("Adding scheduled payment: {}", scheduledPayment);
-        
-        ScheduledPayment savedPayment = scheduledPaymentRepository.save(scheduledPayment);
+        validateSchedule(scheduledPayment);
+
+        ScheduledPayment savedPayment = transactionTemplate.execute(status -> {
+            ScheduledPayment saved = scheduledPaymentRepository.save(scheduledPayment);
+            statusEventWriter.append(TransactionStatusEvent.created(saved));
+            return saved;
+        });
+        transactionCache.invalidate(savedPayment.getTransactionId());
+        scheduledPaymentTimer.schedule(savedPayment);
+        eventPublisher.publishEvent(new TransactionStatusChangedEvent(savedPayment.getTransactionId(),
+                savedPayment.getStatus()));
         logger.info("Successfully added scheduled payment with ID: {}", savedPayment.getTransactionId());
         return savedPayment;
     }
@@ -48,13 +133,68 @@ public class ScheduledPaymentService {
         return payments;
     }
 
+    /**
+     * Retrieves one page of the scheduled payments matching some filters, earliest next payment
+     * date first. Only the filters that are supplied become part of the query, and the page
+     * after a cursor is read with a range predicate on (next payment date, transaction ID), so
+     * every page is read from the index matching the filters, see {@link ScheduledPaymentSpecifications}.
+     *
+     * @param sourceAccount Source account, or null for any account.
+     * @param destinationAccount Destination account, or null for any account.
+     * @param status Status, or null for any status.
+     * @param autoPayEnabled Auto-pay flag, or null for both.
+     * @param dueFrom Earliest next payment date as YYYY-MM-DD or YYYY-MM-DDTHH:MM:SS, or null.
+     * @param dueTo Latest next payment date as YYYY-MM-DD (the whole day) or YYYY-MM-DDTHH:MM:SS, or null.
+     * @param cursor Cursor returned with the previous page, or null for the first page.
+     * @param size Number of payments per page.
+     * @return The page of scheduled payments, with the cursor of the next page if there is one.
+     * @throws InvalidRequestException if the size, the due window or the cursor is invalid.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ScheduledPayment> findScheduledPaymentsPage(String sourceAccount, String destinationAccount,
+                                                                  String status, Boolean autoPayEnabled, String dueFrom,
+                                                                  String dueTo, String cursor, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        LocalDateTime from = parseDue(dueFrom, LocalTime.MIN);
+        LocalDateTime to = parseDue(dueTo, LocalTime.MAX);
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new InvalidRequestException("The end of the due window must not be before its start.");
+        }
+        Specification<ScheduledPayment> specification = ScheduledPaymentSpecifications.filtered(blankToNull(sourceAccount),
+                blankToNull(destinationAccount), blankToNull(status), autoPayEnabled, from, to);
+        if (cursor != null && !cursor.isEmpty()) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            LocalDateTime after;
+            try {
+                after = LocalDateTime.parse(position.getSortKey());
+            } catch (DateTimeParseException e) {
+                throw new InvalidRequestException("Invalid cursor.");
+            }
+            specification = specification.and(ScheduledPaymentSpecifications.after(after, position.getTransactionId()));
+        }
+        logger.info("Fetching scheduled payments page of size {} after cursor {}", size, cursor);
+
+        // Fetch one extra row to find out whether another page follows
+        List<ScheduledPayment> payments = scheduledPaymentRepository.findBy(specification,
+                query -> query.sortBy(PAGE_ORDER).limit(size + 1).all());
+        if (payments.size() <= size) {
+            return new KeysetPage<>(payments, null);
+        }
+        List<ScheduledPayment> page = payments.subList(0, size);
+        ScheduledPayment last = page.get(size - 1);
+        String nextCursor = new KeysetCursor(last.getNextPaymentDate().toString(), last.getTransactionId()).encode();
+        return new KeysetPage<>(page, nextCursor);
+    }
+
     /**
      * Retrieves a scheduled payment by its transaction ID.
      *
      * @param transactionId The ID of the transaction associated with the scheduled payment.
      * @return An Optional containing the ScheduledPayment if found, or empty if not found.
      */
-    public Optional<ScheduledPayment> getScheduledPaymentById(int transactionId) {
+    public Optional<ScheduledPayment> getScheduledPaymentById(long transactionId) {
         logger.info("Retrieving scheduled payment with transaction ID: {}", transactionId);
         Optional<ScheduledPayment> payment = scheduledPaymentRepository.findByTransactionId(transactionId);
         if (payment.isPresent()) {
@@ -66,37 +206,113 @@ public class ScheduledPaymentService {
     }
 
     /**
-     * Cancels a scheduled payment by updating its status and auto-pay settings.
+     * Cancels a scheduled payment by updating its status and auto-pay settings, see
+     * {@link #cancelScheduledPayments}. A payment already cancelled is left as it is.
      *
      * @param transactionId The ID of the transaction to be canceled.
+     * @return true if the payment exists, false if it was not found.
      */
-    public void cancelScheduledPayment(int transactionId) {
+    public boolean cancelScheduledPayment(long transactionId) {
         logger.info("Cancelling scheduled payment with transaction ID: {}", transactionId);
-        Optional<ScheduledPayment> optionalPayment = scheduledPaymentRepository.findByTransactionId(transactionId);
-        
-        if (optionalPayment.isPresent()) {
-            ScheduledPayment payment = optionalPayment.get();
-            payment.setIsAutoPayEnabled(false); // Set auto-pay to false
-            payment.setStatus("cancelled"); // Set status to cancelled
-            scheduledPaymentRepository.save(payment); // Save the updated payment
+        if (cancel(List.of(transactionId)) > 0) {
             logger.info("Successfully cancelled scheduled payment with ID: {}", transactionId);
-        } else {
-            logger.warn("Scheduled payment with transaction ID {} not found for cancellation.", transactionId);
+            return true;
+        }
+        if (scheduledPaymentRepository.existsById(transactionId)) {
+            logger.info("Scheduled payment with ID {} was already cancelled.", transactionId);
+            return true;
+        }
+        logger.warn("Scheduled payment with transaction ID {} not found for cancellation.", transactionId);
+        return false;
+    }
+
+    /**
+     * Cancels the scheduled payments selected by IDs or by source account, e.g. when the account
+     * is closed. The payments are updated with set-based UPDATE statements of up to
+     * {@value InLists#MAX_SIZE} payments each rather than read and saved one by one; their failed
+     * runs are dropped, and once committed they are evicted from the cache, taken off the timer
+     * and their status change is published.
+     *
+     * @param request The IDs or the source account of the payments.
+     * @return The number of payments selected and of payments cancelled.
+     * @throws InvalidRequestException if the selection is invalid.
+     */
+    public BulkUpdateResult cancelScheduledPayments(ScheduledPaymentBulkRequest request) {
+        List<Long> ids = selectBulkIds(request);
+        logger.info("Cancelling {} scheduled payments.", ids.size());
+        int cancelled = cancel(ids);
+        logger.info("Cancelled {} of {} scheduled payments.", cancelled, ids.size());
+        return new BulkUpdateResult(ids.size(), cancelled);
+    }
+
+    /**
+     * Modifies the scheduled payments selected by IDs or by source account, setting the amount,
+     * the auto-pay flag and the source account where given. Cancelled payments are not modified.
+     * The payments are updated like {@link #cancelScheduledPayments}, and once committed they are
+     * evicted from the cache and taken off or put on the timer if auto-pay changed.
+     *
+     * @param request The IDs or the source account of the payments and the values to set.
+     * @return The number of payments selected and of payments modified.
+     * @throws InvalidRequestException if the selection or the values are invalid.
+     */
+    public BulkUpdateResult modifyScheduledPayments(ScheduledPaymentBulkRequest request) {
+        Double amount = request.getAmount();
+        Boolean autoPayEnabled = request.getIsAutoPayEnabled();
+        String sourceAccount = blankToNull(request.getNewSourceAccount());
+        if (amount == null && autoPayEnabled == null && sourceAccount == null) {
+            throw new InvalidRequestException("At least one of amount, isAutoPayEnabled and newSourceAccount must be given.");
+        }
+        if (amount != null && !(amount > 0)) {
+            throw new InvalidRequestException("The amount must be positive.");
         }
+        List<Long> ids = selectBulkIds(request);
+        logger.info("Modifying {} scheduled payments.", ids.size());
+
+        int modified = 0;
+        for (int from = 0; from < ids.size(); from += InLists.MAX_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + InLists.MAX_SIZE, ids.size()));
+            List<ScheduledPayment> rescheduled = new ArrayList<>();
+            modified += transactionTemplate.execute(status -> {
+                int count = scheduledPaymentRepository.modifyByIds(chunk, amount, autoPayEnabled, sourceAccount);
+                if (Boolean.TRUE.equals(autoPayEnabled)) {
+                    rescheduled.addAll(scheduledPaymentRepository.findAllById(chunk));
+                }
+                return count;
+            });
+            chunk.forEach(transactionCache::invalidate);
+            if (Boolean.FALSE.equals(autoPayEnabled)) {
+                chunk.forEach(scheduledPaymentTimer::cancel);
+            }
+            rescheduled.forEach(scheduledPaymentTimer::schedule);
+        }
+        logger.info("Modified {} of {} scheduled payments.", modified, ids.size());
+        return new BulkUpdateResult(ids.size(), modified);
     }
 
     /**
-     * Modifies an existing scheduled payment.
+     * Modifies an existing scheduled payment, replacing all its fields. The payment must carry
+     * the version it was read at, see {@link #patchScheduledPayment}.
      *
      * @param transactionId The ID of the transaction to modify.
      * @param updatedPayment The updated ScheduledPayment object.
      * @return The modified ScheduledPayment object, or null if not found.
+     * @throws InvalidRequestException if its frequency or dates are invalid.
+     * @throws ObjectOptimisticLockingFailureException if the payment has been changed since it was read.
      */
-    public ScheduledPayment modifyScheduledPayment(int transactionId, ScheduledPayment updatedPayment) {
+    public ScheduledPayment modifyScheduledPayment(long transactionId, ScheduledPayment updatedPayment) {
         logger.info("Modifying scheduled payment with transaction ID: {}", transactionId);
         if (scheduledPaymentRepository.existsById(transactionId)) {
+            validateSchedule(updatedPayment);
             updatedPayment.setTransactionId(transactionId);
-            ScheduledPayment modifiedPayment = scheduledPaymentRepository.save(updatedPayment);
+            ScheduledPayment modifiedPayment = transactionTemplate.execute(status -> {
+                String previousStatus = transactionRepository.findStatusById(transactionId);
+                ScheduledPayment saved = scheduledPaymentRepository.save(updatedPayment);
+                statusEventWriter.append(new TransactionStatusEvent(transactionId, previousStatus, saved.getStatus()));
+                return saved;
+            });
+            transactionCache.invalidate(transactionId);
+            scheduledPaymentTimer.schedule(modifiedPayment);
+            eventPublisher.publishEvent(new TransactionStatusChangedEvent(transactionId, modifiedPayment.getStatus()));
             logger.info("Successfully modified scheduled payment with ID: {}", modifiedPayment.getTransactionId());
             return modifiedPayment;
         } else {
@@ -104,4 +320,201 @@ public class ScheduledPaymentService {
             return null; // Or throw an exception
         }
     }
+
+    /**
+     * Cancels the scheduled payments that are not cancelled yet, {@value InLists#MAX_SIZE} per
+     * database transaction, and appends the cancellations to the status event log as one batch.
+     * Their rows are locked as they are read, so of concurrent cancellations only one changes,
+     * logs and publishes each payment.
+     *
+     * @param ids IDs of the scheduled payments.
+     * @return Number of payments cancelled.
+     */
+    private int cancel(List<Long> ids) {
+        int cancelled = 0;
+        for (int from = 0; from < ids.size(); from += InLists.MAX_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + InLists.MAX_SIZE, ids.size()));
+            List<Long> changed = transactionTemplate.execute(status -> {
+                List<Long> notCancelled = new ArrayList<>();
+                List<TransactionStatusEvent> events = new ArrayList<>();
+                for (TransactionStatusResponse current : scheduledPaymentRepository.findNotCancelledStatuses(chunk)) {
+                    notCancelled.add(current.getTransactionId());
+                    events.add(new TransactionStatusEvent(current.getTransactionId(), current.getStatus(), "cancelled"));
+                }
+                if (notCancelled.isEmpty()) {
+                    return notCancelled;
+                }
+                int updated = scheduledPaymentRepository.cancelByIds(notCancelled);
+                if (updated != notCancelled.size()) { // Cannot happen while the rows are locked
+                    throw new OptimisticLockingFailureException("Cancelled " + updated + " of "
+                            + notCancelled.size() + " locked scheduled payments.");
+                }
+                statusEventWriter.append(events);
+                // Their failed runs, if any, are not retried
+                scheduledPaymentRetryRepository.deleteByScheduledPaymentIds(notCancelled);
+                return notCancelled;
+            });
+            for (long id : changed) {
+                transactionCache.invalidate(id);
+                scheduledPaymentTimer.cancel(id);
+                eventPublisher.publishEvent(new TransactionStatusChangedEvent(id, "cancelled"));
+            }
+            cancelled += changed.size();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Reads the payments a bulk request selects: the IDs it lists, without duplicates, or the
+     * payments of its source account that are not cancelled.
+     *
+     * @param request The bulk request.
+     * @return IDs of the selected payments.
+     * @throws InvalidRequestException if neither or both of the IDs and the account are given,
+     *         or if too many IDs are given.
+     */
+    private List<Long> selectBulkIds(ScheduledPaymentBulkRequest request) {
+        List<Long> ids = request.getTransactionIds();
+        String sourceAccount = blankToNull(request.getSourceAccount());
+        boolean byIds = ids != null && !ids.isEmpty();
+        if (byIds == (sourceAccount != null)) {
+            throw new InvalidRequestException("Either transactionIds or sourceAccount must be given.");
+        }
+        if (sourceAccount != null) {
+            return scheduledPaymentRepository.findNotCancelledIdsBySourceAccount(sourceAccount);
+        }
+        if (ids.size() > MAX_BULK_IDS) {
+            throw new InvalidRequestException("At most " + MAX_BULK_IDS + " transaction IDs can be given.");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Transaction IDs must not be null.");
+        }
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    /**
+     * Reads a bound of the due window.
+     *
+     * @param value Date or date and time, or null.
+     * @param timeOfDay Time of day of a bound given as a date.
+     * @return The bound, or null if not given.
+     * @throws InvalidRequestException if the value is neither a date nor a date and time.
+     */
+    private static LocalDateTime parseDue(String value, LocalTime timeOfDay) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return trimmed.length() == 10 ? LocalDate.parse(trimmed).atTime(timeOfDay) : LocalDateTime.parse(trimmed);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid due date: " + value + ".");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Partially updates a scheduled payment: only the fields given in the patch are changed,
+     * and only the columns that changed are written. The patch is applied if the payment is
+     * still at the version it carries, checked again by the UPDATE itself, so of two
+     * concurrent updates read at the same version only the first one is applied.
+     *
+     * @param transactionId The ID of the scheduled payment.
+     * @param patch The fields to change and the version the payment was read at.
+     * @return The updated ScheduledPayment object, with its new version.
+     * @throws InvalidRequestException if the version is missing, the payment is cancelled, or
+     *         its frequency, dates or amount become invalid.
+     * @throws TransactionNotFoundException if the payment is not found.
+     * @throws ObjectOptimisticLockingFailureException if the payment has been changed since.
+     */
+    public ScheduledPayment patchScheduledPayment(long transactionId, ScheduledPaymentPatch patch) {
+        logger.info("Patching scheduled payment with transaction ID: {}", transactionId);
+        if (patch.getVersion() == null) {
+            throw new InvalidRequestException("The version of the scheduled payment must be given.");
+        }
+        if (patch.getAmount() != null && !(patch.getAmount() > 0)) {
+            throw new InvalidRequestException("The amount must be positive.");
+        }
+        ScheduledPayment patched = transactionTemplate.execute(status -> {
+            ScheduledPayment payment = scheduledPaymentRepository.findById(transactionId)
+                    .orElseThrow(() -> new TransactionNotFoundException("Scheduled payment not found with ID: "
+                            + transactionId + "."));
+            if (payment.getVersion() != patch.getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(ScheduledPayment.class, transactionId);
+            }
+            if ("cancelled".equals(payment.getStatus())) {
+                throw new InvalidRequestException("Scheduled payment " + transactionId + " is cancelled.");
+            }
+            applyPatch(payment, patch);
+            validateSchedule(payment);
+            // Flushed on commit: one UPDATE per table with changed columns, conditional on the version
+            return payment;
+        });
+        transactionCache.invalidate(transactionId);
+        scheduledPaymentTimer.schedule(patched);
+        logger.info("Successfully patched scheduled payment with ID: {}, now at version {}", transactionId,
+                patched.getVersion());
+        return patched;
+    }
+
+    /**
+     * Copies the fields given in a patch to a managed payment, leaving the others alone so
+     * they are not part of the UPDATE.
+     */
+    private static void applyPatch(ScheduledPayment payment, ScheduledPaymentPatch patch) {
+        if (patch.getAmount() != null) {
+            payment.setAmount(patch.getAmount());
+        }
+        if (patch.getNextPaymentDate() != null) {
+            payment.setNextPaymentDate(patch.getNextPaymentDate());
+        }
+        if (patch.getStartDate() != null) {
+            payment.setStartDate(patch.getStartDate());
+        }
+        if (patch.getEndDate() != null) {
+            payment.setEndDate(patch.getEndDate());
+        }
+        if (patch.getFrequency() != null) {
+            payment.setFrequency(patch.getFrequency());
+        }
+        if (patch.getIsAutoPayEnabled() != null) {
+            payment.setIsAutoPayEnabled(patch.getIsAutoPayEnabled());
+        }
+        if (patch.getSourceAccount() != null) {
+            payment.setSourceAccount(patch.getSourceAccount());
+        }
+        if (patch.getDestinationAccount() != null) {
+            payment.setDestinationAccount(patch.getDestinationAccount());
+        }
+        if (patch.getCatchUpPolicy() != null) {
+            payment.setCatchUpPolicy(patch.getCatchUpPolicy());
+        }
+    }
+
+    /**
+     * Checks that the frequency of a payment compiles to a recurrence and that its dates are
+     * in order. A payment without next payment date is first due at its start date, moved to
+     * a business day if its frequency asks for it.
+     *
+     * @param payment The scheduled payment to check.
+     * @throws InvalidRequestException if the frequency or the dates are invalid.
+     */
+    private void validateSchedule(ScheduledPayment payment) {
+        Recurrence recurrence;
+        try {
+            recurrence = recurrences.compile(payment.getFrequency());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+        if (payment.getStartDate() != null && payment.getEndDate() != null
+                && payment.getEndDate().isBefore(payment.getStartDate())) {
+            throw new InvalidRequestException("The end date must not be before the start date");
+        }
+        if (payment.getNextPaymentDate() == null && payment.getStartDate() != null) {
+            payment.setNextPaymentDate(recurrence.first(payment.getStartDate()));
+        }
+    }
 }
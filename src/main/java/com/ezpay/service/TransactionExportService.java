@@ -0,0 +1,316 @@
+package com.ezpay.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionSpecifications;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Service class for streaming transaction listings straight from the database to the response.
+ *
+ * Rows are read through a database cursor with a bounded JDBC fetch size, written as soon as
+ * they arrive and detached from the persistence context once written, so memory use stays
+ * constant however many transactions the listing contains.
+ */
+@Service
+public class TransactionExportService {
+
+    private static final Logger logger = LogManager.getLogger(TransactionExportService.class);
+
+    /** Number of rows written between two flushes of the response. */
+    private static final int FLUSH_INTERVAL = Integer.parseInt(TransactionRepository.STREAM_FETCH_SIZE);
+
+    /** Content type of the CSV statement. */
+    public static final String CSV_CONTENT_TYPE = "text/csv;charset=UTF-8";
+
+    /** Statements list the newest transactions first. */
+    private static final Sort STATEMENT_ORDER = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("transactionId"));
+
+    private static final String CSV_HEADER = "Transaction ID,Date,Type,Amount,Status,Sender,Receiver,"
+            + "UPI ID,User ID,Transfer ID,Sender Account,Receiver Account";
+
+    /**
+     * Output formats supported by the streaming endpoints.
+     */
+    public enum Format {
+        /** One JSON document per line. */
+        NDJSON("application/x-ndjson"),
+        /** A single JSON array written element by element. */
+        JSON(MediaType.APPLICATION_JSON_VALUE);
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Resolves a format from a request parameter.
+         * @param value Format name, case insensitive
+         * @return Matching format
+         * @throws InvalidRequestException if the format is not supported
+         */
+        public static Format fromParameter(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new InvalidRequestException("Unsupported format: " + value);
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Streams the transaction history, newest first, excluding scheduled payments.
+     * @param format Output format
+     * @param out Stream the transactions are written to
+     * @return Number of transactions written
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional(readOnly = true)
+    public long streamTransactionHistory(Format format, OutputStream out) throws IOException {
+        logger.info("Streaming transaction history as {}", format);
+        try (Stream<Transaction> transactions = transactionRepository.streamAllSortAndFilterScheduled()) {
+            return writeJson(transactions, format, out);
+        }
+    }
+
+    /**
+     * Streams the transactions within a date range.
+     * @param startDate Start date
+     * @param endDate End date
+     * @param format Output format
+     * @param out Stream the transactions are written to
+     * @return Number of transactions written
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional(readOnly = true)
+    public long streamByDateRange(LocalDate startDate, LocalDate endDate, Format format, OutputStream out)
+            throws IOException {
+        TransactionFilters.validateDateRange(startDate, endDate);
+        logger.info("Streaming transactions from {} to {} as {}", startDate, endDate, format);
+        try (Stream<Transaction> transactions = transactionRepository.streamByDateRange(startDate, endDate)) {
+            return writeJson(transactions, format, out);
+        }
+    }
+
+    /**
+     * Streams the transactions matching any combination of date range, type and status,
+     * newest first. The filters behave as in {@link TransactionService#getFilteredTransactions};
+     * an empty result is streamed as an empty listing.
+     * @param startDate Start date, or null for no date filter
+     * @param endDate End date, or null for no date filter
+     * @param type Transaction type, or null for any type
+     * @param status Transaction status, or null for any status
+     * @param format Output format
+     * @param out Stream the transactions are written to
+     * @return Number of transactions written
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional(readOnly = true)
+    public long streamFiltered(LocalDate startDate, LocalDate endDate, String type, String status, Format format,
+                               OutputStream out) throws IOException {
+        TransactionFilters.validateOptionalDateRange(startDate, endDate);
+        logger.info("Streaming transactions with applied filters as {}", format);
+        try (Stream<Transaction> transactions = transactionRepository.stream(
+                TransactionSpecifications.filtered(startDate, endDate, type, status), STATEMENT_ORDER)) {
+            return writeJson(transactions, format, out);
+        }
+    }
+
+    /**
+     * Streams every transaction, including scheduled payments.
+     * @param format Output format
+     * @param out Stream the transactions are written to
+     * @return Number of transactions written
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional(readOnly = true)
+    public long streamAllTransactions(Format format, OutputStream out) throws IOException {
+        logger.info("Streaming all transactions as {}", format);
+        try (Stream<Transaction> transactions = transactionRepository.streamAll()) {
+            return writeJson(transactions, format, out);
+        }
+    }
+
+    /**
+     * Writes a CSV statement of the transactions matching the filters, newest first.
+     * The filters behave as in {@link TransactionService#getFilteredTransactions}; an empty
+     * result produces a statement with only the header row.
+     * @param startDate Start date, or null for no date filter
+     * @param endDate End date, or null for no date filter
+     * @param type Transaction type, or null for any type
+     * @param status Transaction status, or null for any status
+     * @param gzip Whether to gzip the statement
+     * @param out Stream the statement is written to
+     * @return Number of transactions written
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(LocalDate startDate, LocalDate endDate, String type, String status, boolean gzip,
+                          OutputStream out) throws IOException {
+        TransactionFilters.validateOptionalDateRange(startDate, endDate);
+        logger.info("Exporting CSV statement (gzip: {}).", gzip);
+        // Sync flush lets each flushed batch reach the client instead of waiting in the deflater
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(out, 8192, true) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipStream : out, StandardCharsets.UTF_8));
+        long count = 0;
+        try (Stream<Transaction> transactions = transactionRepository.stream(
+                TransactionSpecifications.filtered(startDate, endDate, type, status), STATEMENT_ORDER)) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                writeCsvRow(writer, transaction);
+                entityManager.detach(transaction);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+        out.flush();
+        logger.info("Exported {} transactions to CSV.", count);
+        return count;
+    }
+
+    /**
+     * Writes one transaction as a CSV row.
+     */
+    private void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        String upiId = null;
+        String userId = null;
+        String transferId = null;
+        String senderAccount = null;
+        String receiverAccount = null;
+        if (transaction instanceof UPITransaction upiTransaction) {
+            upiId = upiTransaction.getUpiId();
+            userId = upiTransaction.getUserId();
+        } else if (transaction instanceof BankTransferTransaction bankTransferTransaction) {
+            transferId = bankTransferTransaction.getTransferId();
+            senderAccount = bankTransferTransaction.getSenderAccount();
+            receiverAccount = bankTransferTransaction.getReceiverAccount();
+        }
+        writer.write(String.valueOf(transaction.getTransactionId()));
+        writer.write(',');
+        writer.write(transaction.getDate() == null ? "" : transaction.getDate().toString());
+        writer.write(',');
+        writeCsvField(writer, transaction.getTransactionType());
+        writer.write(',');
+        writer.write(BigDecimal.valueOf(transaction.getAmount()).toPlainString());
+        writer.write(',');
+        writeCsvField(writer, transaction.getStatus());
+        writer.write(',');
+        writeCsvField(writer, transaction.getSender());
+        writer.write(',');
+        writeCsvField(writer, transaction.getReceiver());
+        writer.write(',');
+        writeCsvField(writer, upiId);
+        writer.write(',');
+        writeCsvField(writer, userId);
+        writer.write(',');
+        writeCsvField(writer, transferId);
+        writer.write(',');
+        writeCsvField(writer, senderAccount);
+        writer.write(',');
+        writeCsvField(writer, receiverAccount);
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a text field, quoting it when needed (RFC 4180). Values starting with a formula
+     * character are prefixed with a quote so spreadsheets do not evaluate them.
+     */
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            value = "'" + value;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Writes the transactions one by one, detaching each from the persistence context once written.
+     */
+    private long writeJson(Stream<Transaction> transactions, Format format, OutputStream out) throws IOException {
+        // The response stream belongs to the container, closing the writer must not close it
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        try (SequenceWriter sequenceWriter = format == Format.NDJSON
+                ? writer.withRootValueSeparator("\n").writeValues(out)
+                : writer.writeValuesAsArray(out)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                sequenceWriter.write(transaction);
+                entityManager.detach(transaction);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    sequenceWriter.flush();
+                }
+            }
+        }
+        if (format == Format.NDJSON && count > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        logger.info("Streamed {} transactions.", count);
+        return count;
+    }
+}
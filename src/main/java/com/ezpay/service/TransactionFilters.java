@@ -0,0 +1,70 @@
+package com.ezpay.service;
+
+import java.time.LocalDate;
+
+import com.ezpay.exception.InvalidRequestException;
+
+/**
+ * Validation of the filters taken by the transaction listings, shared by the paged and the
+ * streamed endpoints so both accept the same requests. Controllers of streamed listings call
+ * these before the response body starts, so an invalid filter can still be reported as a 400.
+ */
+public final class TransactionFilters {
+
+    private TransactionFilters() {
+    }
+
+    /**
+     * Validates a date range that must be given.
+     * @param startDate Start date
+     * @param endDate End date
+     * @throws InvalidRequestException if a date is missing or in the future, or the range is inverted
+     */
+    public static void validateDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new InvalidRequestException("Start date and end date must not be null.");
+        }
+        if (startDate.isAfter(LocalDate.now()) || endDate.isAfter(LocalDate.now())) {
+            throw new InvalidRequestException("Start date and end date cannot be in the future.");
+        }
+        validateOptionalDateRange(startDate, endDate);
+    }
+
+    /**
+     * Validates a date range whose bounds may be left out.
+     * @param startDate Start date, or null for no lower bound
+     * @param endDate End date, or null for no upper bound
+     * @throws InvalidRequestException if the range is inverted
+     */
+    public static void validateOptionalDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new InvalidRequestException("Start date cannot be after end date.");
+        }
+    }
+
+    /**
+     * Validates a transaction type filter.
+     * @param type Transaction type
+     * @throws InvalidRequestException if the type is blank
+     */
+    public static void validateType(String type) {
+        if (type == null || type.trim().isEmpty()) {
+            throw new InvalidRequestException("Transaction type must not be null or empty.");
+        }
+    }
+
+    /**
+     * Validates a transaction status filter.
+     * @param status Transaction status
+     * @throws InvalidRequestException if the status is not Success, Processing or Failure
+     */
+    public static void validateStatus(String status) {
+        if (status == null || status.trim().isEmpty()) {
+            throw new InvalidRequestException("Transaction status must not be null or empty.");
+        }
+        if (!("success".equalsIgnoreCase(status) || "processing".equalsIgnoreCase(status)
+                || "failure".equalsIgnoreCase(status))) {
+            throw new InvalidRequestException("Transaction status not of correct type");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ezpay.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.ezpay.exception.InvalidRequestException;
+
+/**
+ * Validation of the transaction ID lists taken by the batch and subscription endpoints.
+ */
+final class TransactionIds {
+
+    /** Largest number of transactions looked up by one batch request. */
+    static final int MAX_BATCH_SIZE = 5000;
+
+    private TransactionIds() {
+    }
+
+    /**
+     * Validates a list of transaction IDs and removes duplicates.
+     * @param transactionIds IDs given by the client
+     * @param maxSize Largest number of IDs accepted
+     * @return Distinct IDs in the order given
+     * @throws InvalidRequestException if the list is empty, too long or holds an invalid ID
+     */
+    static Set<Long> validate(List<Long> transactionIds, int maxSize) {
+        if (transactionIds == null || transactionIds.isEmpty()) {
+            throw new InvalidRequestException("At least one transaction ID must be given.");
+        }
+        if (transactionIds.size() > maxSize) {
+            throw new InvalidRequestException("At most " + maxSize + " transaction IDs can be given.");
+        }
+        for (Long id : transactionIds) {
+            if (id == null || id <= 0) {
+                throw new InvalidRequestException("Invalid transaction ID: " + id);
+            }
+        }
+        return new LinkedHashSet<>(transactionIds);
+    }
+}
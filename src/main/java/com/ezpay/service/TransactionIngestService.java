@@ -0,0 +1,269 @@
+package com.ezpay.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionIngestResult;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.TransactionBatchWriter;
+import com.ezpay.repository.TransactionIdAllocator;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Service class for bulk uploads of UPI and bank transfer transactions.
+ *
+ * The uploaded JSON array is read one element at a time with the streaming parser, so only
+ * one batch of transactions is held in memory. Each batch gets its IDs from the in-memory
+ * {@code @TimeOrderedId} generator without touching the database, and is inserted with JDBC
+ * batch statements in its own database transaction.
+ * If a batch fails, its items are retried one by one so that only the offending items fail.
+ * The result of every item is written to the response as soon as its batch is done.
+ */
+@Service
+public class TransactionIngestService {
+
+    private static final Logger logger = LogManager.getLogger(TransactionIngestService.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionIdAllocator transactionIdAllocator;
+
+    @Autowired
+    private TransactionBatchWriter transactionBatchWriter;
+
+    @Autowired
+    private TransactionStatusEventWriter statusEventWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /** Number of transactions inserted per JDBC batch and database transaction. */
+    @Value("${ezpay.ingest.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        if (batchSize < 1) {
+            throw new IllegalStateException("ezpay.ingest.batch-size must be positive: " + batchSize);
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Opens the uploaded body and checks that it is a JSON array. Called before the
+     * response starts so that an invalid body can still be reported as a 400.
+     * @param in Request body
+     * @return Parser positioned on the start of the array
+     * @throws InvalidRequestException if the body is not a JSON array
+     * @throws IOException if reading the body fails
+     */
+    public JsonParser openArray(InputStream in) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(in);
+        JsonToken first;
+        try {
+            first = parser.nextToken();
+        } catch (JsonProcessingException e) {
+            parser.close();
+            throw new InvalidRequestException("Request body is not valid JSON.");
+        }
+        if (first != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new InvalidRequestException("Request body must be a JSON array of transactions.");
+        }
+        return parser;
+    }
+
+    /**
+     * Stores the transactions of an uploaded array and writes the result of every item as
+     * {"results": [...], "created": n, "failed": n}. A syntax error ends the upload: the items
+     * before it are kept and the error is reported in an "error" field.
+     * @param parser Parser returned by {@link #openArray}
+     * @param out Stream the results are written to
+     * @return Number of transactions created
+     * @throws IOException if writing the results fails
+     */
+    public int ingest(JsonParser parser, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("results");
+        Counts counts = new Counts();
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        List<Integer> indexes = new ArrayList<>(batchSize);
+        String error = null;
+        int index = 0;
+        try (parser) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    error = "Unexpected end of input at item " + index + ".";
+                    break;
+                }
+                JsonNode item = parser.readValueAsTree();
+                try {
+                    batch.add(toTransaction(item));
+                    indexes.add(index);
+                } catch (JsonProcessingException | InvalidRequestException e) {
+                    write(generator, TransactionIngestResult.failed(index, describe(e)), counts);
+                }
+                index++;
+                if (batch.size() == batchSize) {
+                    store(batch, indexes, generator, counts);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            error = "Malformed JSON at item " + index + ": " + e.getOriginalMessage();
+        }
+        if (!batch.isEmpty()) {
+            store(batch, indexes, generator, counts);
+        }
+
+        generator.writeEndArray();
+        generator.writeNumberField("created", counts.created);
+        generator.writeNumberField("failed", counts.failed);
+        if (error != null) {
+            generator.writeStringField("error", error);
+        }
+        generator.writeEndObject();
+        generator.close();
+        out.flush();
+        logger.info("Bulk upload finished: {} created, {} failed{}.", counts.created, counts.failed,
+                error == null ? "" : ", stopped by malformed input");
+        return counts.created;
+    }
+
+    /**
+     * Converts one uploaded item, accepting UPI and bank transfer transactions only.
+     */
+    private Transaction toTransaction(JsonNode item) throws JsonProcessingException {
+        Transaction transaction = objectMapper.treeToValue(item, Transaction.class);
+        if (transaction instanceof UPITransaction) {
+            transaction.setTransactionType("UPI");
+        } else if (transaction instanceof BankTransferTransaction) {
+            transaction.setTransactionType("Bank Transfer");
+        } else {
+            throw new InvalidRequestException("Only UPI and Bank Transfer transactions can be uploaded.");
+        }
+        return transaction;
+    }
+
+    /**
+     * Inserts a batch, falling back to one item per transaction if the batch fails,
+     * then writes the results of its items and clears it.
+     */
+    private void store(List<Transaction> batch, List<Integer> indexes, JsonGenerator generator, Counts counts)
+            throws IOException {
+        long[] ids = transactionIdAllocator.allocate(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setTransactionId(ids[i]);
+        }
+        boolean[] created = new boolean[batch.size()];
+        String[] errors = new String[batch.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            Arrays.fill(created, true);
+        } catch (DataAccessException batchFailure) {
+            logger.warn("Batch of {} transactions failed, retrying them one by one: {}", batch.size(),
+                    batchFailure.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                List<Transaction> single = List.of(batch.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(single));
+                    created[i] = true;
+                } catch (DataAccessException itemFailure) {
+                    errors[i] = describe(itemFailure);
+                }
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction transaction = batch.get(i);
+            if (created[i]) {
+                write(generator, TransactionIngestResult.created(indexes.get(i), transaction.getTransactionId()), counts);
+                eventPublisher.publishEvent(new TransactionStatusChangedEvent(transaction.getTransactionId(),
+                        transaction.getStatus()));
+            } else {
+                write(generator, TransactionIngestResult.failed(indexes.get(i), errors[i]), counts);
+            }
+        }
+        generator.flush();
+        batch.clear();
+        indexes.clear();
+    }
+
+    /**
+     * Inserts transactions and their first status events, one JDBC batch per table.
+     */
+    private void insert(List<Transaction> transactions) {
+        transactionBatchWriter.insert(transactions);
+        List<TransactionStatusEvent> events = new ArrayList<>(transactions.size());
+        transactions.forEach(transaction -> events.add(TransactionStatusEvent.created(transaction)));
+        statusEventWriter.append(events);
+    }
+
+    private void write(JsonGenerator generator, TransactionIngestResult result, Counts counts) throws IOException {
+        generator.writeObject(result);
+        if (result.getStatus() == TransactionIngestResult.Status.CREATED) {
+            counts.created++;
+        } else {
+            counts.failed++;
+        }
+    }
+
+    /**
+     * Describes why an item failed without exposing database details.
+     */
+    private static String describe(Exception e) {
+        if (e instanceof InvalidRequestException) {
+            return e.getMessage();
+        }
+        if (e instanceof JsonProcessingException json) {
+            return "Invalid transaction: " + json.getOriginalMessage();
+        }
+        if (e instanceof DataIntegrityViolationException) {
+            return "Violates a database constraint, such as a duplicate UPI ID or transfer ID.";
+        }
+        return "Could not be stored.";
+    }
+
+    /** Running totals of an upload. */
+    private static final class Counts {
+        int created;
+        int failed;
+    }
+}
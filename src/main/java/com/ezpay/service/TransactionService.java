@@ -6,19 +6,43 @@
 package com.ezpay.service;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+
+import jakarta.annotation.PostConstruct;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.ezpay.cache.TransactionCache;
 import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.KeysetPage;
 import com.ezpay.entity.Transaction;
 import com.ezpay.entity.TransactionDetailsResponse;
+import com.ezpay.entity.TransactionReview;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionSummary;
 import com.ezpay.entity.UPITransaction;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.InLists;
 import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionSpecifications;
+import com.ezpay.repository.TransactionStatusEventWriter;
 
 /**
  * Service class for transaction management.
@@ -28,9 +52,31 @@ public class TransactionService {
 
     private static final Logger logger = LogManager.getLogger(TransactionService.class);
 
+    /** Largest page size accepted by the paginated history. */
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private TransactionStatusEventWriter statusEventWriter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
      * Get all transactions.
      * @return List of all transactions
@@ -45,16 +91,61 @@ public class TransactionService {
     	
     }
 
+    /**
+     * Get all transactions which are not scheduled payments as summaries, newest first.
+     * Summaries are read from the transaction table only, without loading entities.
+     * @return List of transaction summaries sorted by date
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionSummary> findAllSummariesSortByDate() {
+        logger.info("Fetching transaction summaries in descending order of date.");
+        return transactionRepository.findSummariesSortAndFilterScheduled();
+    }
+
+    /**
+     * Get one page of the transaction history, newest first.
+     * Pages are keyed on (date desc, transaction ID desc) so fetching a page costs the same
+     * regardless of how deep into the history it is.
+     * @param cursor Continuation token from the previous page, or null for the first page
+     * @param size Number of transactions per page
+     * @return Page of transaction summaries with the token for the next page
+     * @throws InvalidRequestException if the cursor or the page size is invalid
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<TransactionSummary> findTransactionHistoryPage(String cursor, int size) {
+        validatePageSize(size);
+        // Fetch one extra row to find out whether another page follows
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<TransactionSummary> transactions;
+        if (cursor == null || cursor.isEmpty()) {
+            logger.info("Fetching first history page of size {}", size);
+            transactions = transactionRepository.findHistoryFirstPage(limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            logger.info("Fetching history page of size {} after transaction ID: {}", size, position.getTransactionId());
+            transactions = transactionRepository.findHistoryPageAfter(parseCursorDate(position),
+                    position.getTransactionId(), limit);
+        }
+
+        if (transactions.size() <= size) {
+            return new KeysetPage<>(transactions, null);
+        }
+        List<TransactionSummary> page = transactions.subList(0, size);
+        TransactionSummary last = page.get(size - 1);
+        String nextCursor = new KeysetCursor(String.valueOf(last.getDate()), last.getTransactionId()).encode();
+        return new KeysetPage<>(page, nextCursor);
+    }
+
     /**
      * Get a transaction by its ID.
      * @param transactionId ID of the transaction
      * @return Transaction object if found, null otherwise
      * @throws RuntimeException if transaction is not found
      */
-    public Transaction getTransactionById(int transactionId) {
+    public Transaction getTransactionById(long transactionId) {
         validateTransactionId(transactionId);
         logger.info("Fetching transaction with ID: {}", transactionId);
-        Optional<Transaction> transaction = transactionRepository.findById(transactionId);
+        Optional<Transaction> transaction = transactionCache.get(transactionId, transactionRepository::findById);
         return transaction.orElseThrow(() -> {
             logger.error("Transaction not found with ID: {}", transactionId);
             return new RuntimeException("Transaction not found with ID: " + transactionId);
@@ -69,7 +160,7 @@ public class TransactionService {
      * @throws RuntimeException if date validation fails
      */
     public List<Transaction> filterByDateRange(LocalDate startDate, LocalDate endDate) {
-        validateDateRange(startDate, endDate);
+        TransactionFilters.validateDateRange(startDate, endDate);
         logger.info("Filtering transactions from {} to {}", startDate, endDate);
         return transactionRepository.findByDateRange(startDate, endDate);
     }
@@ -81,11 +172,24 @@ public class TransactionService {
      * @throws RuntimeException if transaction type is invalid
      */
     public List<Transaction> filterByType(String type) {
-        validateTransactionType(type);
+        TransactionFilters.validateType(type);
         logger.info("Filtering transactions by type: {}", type);
         return transactionRepository.findByTransactionType(type);
     }
 
+    /**
+     * Filter transaction summaries by type.
+     * @param type Transaction type
+     * @return List of summaries of the transactions of the specified type
+     * @throws RuntimeException if transaction type is invalid
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionSummary> filterSummariesByType(String type) {
+        TransactionFilters.validateType(type);
+        logger.info("Filtering transaction summaries by type: {}", type);
+        return transactionRepository.findSummariesByTransactionType(type);
+    }
+
     /**
      * Filter transactions by status.
      * @param status Transaction status
@@ -93,22 +197,38 @@ public class TransactionService {
      * @throws RuntimeException if transaction status is invalid
      */
     public List<Transaction> filterByStatus(String status) {
-        validateTransactionStatus(status);
+        TransactionFilters.validateStatus(status);
         logger.info("Filtering transactions with status: {}", status);
         return transactionRepository.findByStatus(status);
     }
     /**
-     * 
-     * @param startDate
-     * @param endDate
-     * @param type
-     * @param status
-     * @return 
+     * Filter transaction summaries by status.
+     * @param status Transaction status
+     * @return List of summaries of the transactions with the specified status
+     * @throws RuntimeException if transaction status is invalid
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionSummary> filterSummariesByStatus(String status) {
+        TransactionFilters.validateStatus(status);
+        logger.info("Filtering transaction summaries with status: {}", status);
+        return transactionRepository.findSummariesByStatus(status);
+    }
+
+    /**
+     * Filter transactions by any combination of date range, type and status.
+     * Only the filters that are supplied become part of the query.
+     * @param startDate Start date, or null for no lower bound
+     * @param endDate End date, or null for no upper bound
+     * @param type Transaction type, or null for any type
+     * @param status Transaction status, or null for any status
+     * @return List of transactions matching the filters
+     * @throws RuntimeException if no transaction matches
      */
 
     public List<Transaction> getFilteredTransactions(LocalDate startDate, LocalDate endDate, String type, String status) {
         logger.info("Filtering transactions with applied filters.");
-        List<Transaction> transactions=transactionRepository.getFilteredTransactions(startDate, endDate, type, status);
+        List<Transaction> transactions=transactionRepository.findAll(
+                TransactionSpecifications.filtered(startDate, endDate, type, status));
         if (transactions.isEmpty() ){
             logger.error("Transactions not found with applied filters");
             throw new RuntimeException("Transactions not found with applied filters");
@@ -121,33 +241,128 @@ public class TransactionService {
     /**
      * Review a transaction.
      * This can be used to approve, reject, or mark transactions in review.
+     * A change of status is appended to the status event log in the same database transaction.
      * @param transaction Transaction object to review
      * @return Status message indicating the result of the operation
      * @throws RuntimeException if transaction is not found
+     * @throws ObjectOptimisticLockingFailureException if the transaction has been changed since it was read
      */
     public String reviewTransaction(Transaction transaction) {
-        transactionRepository.save(transaction);
+        transactionTemplate.executeWithoutResult(status -> {
+            String previousStatus = transactionRepository.findStatusById(transaction.getTransactionId());
+            transactionRepository.save(transaction);
+            statusEventWriter.append(new TransactionStatusEvent(transaction.getTransactionId(), previousStatus,
+                    transaction.getStatus()));
+        });
+        transactionCache.invalidate(transaction.getTransactionId());
+        eventPublisher.publishEvent(new TransactionStatusChangedEvent(transaction.getTransactionId(),
+                transaction.getStatus()));
         logger.info("Reviewed transaction: {}", transaction);
         return ("Transaction is :" + transaction.getStatus());
     }
 
+    /**
+     * Review a transaction by setting its status alone. Only the status and version columns
+     * are written, and only if the transaction is still at the version the review was based
+     * on, so a review cannot overwrite a concurrent one. The transition is appended to the
+     * status event log in the same database transaction.
+     * @param transactionId ID of the transaction
+     * @param review New status and the version the transaction was read at
+     * @return The reviewed transaction, with its new version
+     * @throws InvalidRequestException if the status or the version is missing
+     * @throws TransactionNotFoundException if the transaction is not found
+     * @throws ObjectOptimisticLockingFailureException if the transaction has been changed since
+     */
+    public Transaction reviewTransaction(long transactionId, TransactionReview review) {
+        validateTransactionId(transactionId);
+        if (review.getStatus() == null || review.getStatus().isBlank()) {
+            throw new InvalidRequestException("The status must be given.");
+        }
+        if (review.getVersion() == null) {
+            throw new InvalidRequestException("The version of the transaction must be given.");
+        }
+        Transaction reviewed = transactionTemplate.execute(status -> {
+            Transaction transaction = transactionRepository.findById(transactionId)
+                    .orElseThrow(() -> new TransactionNotFoundException("Transaction not found with ID: "
+                            + transactionId + "."));
+            if (transaction.getVersion() != review.getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(Transaction.class, transactionId);
+            }
+            statusEventWriter.append(new TransactionStatusEvent(transactionId, transaction.getStatus(),
+                    review.getStatus().trim()));
+            transaction.setStatus(review.getStatus().trim());
+            return transaction;
+        });
+        transactionCache.invalidate(transactionId);
+        eventPublisher.publishEvent(new TransactionStatusChangedEvent(transactionId, reviewed.getStatus()));
+        logger.info("Reviewed transaction {}: {}, now at version {}", transactionId, reviewed.getStatus(),
+                reviewed.getVersion());
+        return reviewed;
+    }
+
     /**
      * View more details of a specific transaction.
      * @param transactionId ID of the transaction
      * @return Transaction details if found, null otherwise
      * @throws RuntimeException if transaction is not found
      */
-    public TransactionDetailsResponse viewMoreDetails(int transactionId) {
+    public TransactionDetailsResponse viewMoreDetails(long transactionId) {
         validateTransactionId(transactionId);
         logger.info("Fetching details for transaction ID: {}", transactionId);
 
-        Optional<Transaction> optionalTransaction = transactionRepository.findById(transactionId);
+        Optional<Transaction> optionalTransaction = transactionCache.get(transactionId, transactionRepository::findById);
         if (optionalTransaction.isEmpty()) {
             logger.error("Transaction not found with ID: {}", transactionId);
             throw new RuntimeException("Transaction not found");
         }
 
-        Transaction transaction = optionalTransaction.get();
+        return toDetailsResponse(optionalTransaction.get());
+    }
+
+    /**
+     * View more details of several transactions in one call. Cached transactions are used
+     * as they are, the others are loaded with one IN-list query per 1000 transactions.
+     * @param transactionIds IDs of the transactions
+     * @return Details of the transactions that exist, in the order of the IDs
+     * @throws InvalidRequestException if the list is empty, too long or holds an invalid ID
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionDetailsResponse> viewMoreDetails(List<Long> transactionIds) {
+        Set<Long> ids = TransactionIds.validate(transactionIds, TransactionIds.MAX_BATCH_SIZE);
+        logger.info("Fetching details for {} transactions.", ids.size());
+        Map<Long, Transaction> transactions = new HashMap<>(ids.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Transaction cached = transactionCache.getIfPresent(id);
+            if (cached != null) {
+                transactions.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Transaction loaded : InLists.queryInChunks(missing, transactionRepository::findByTransactionIds)) {
+                transactionCache.put(loaded);
+                transactions.put(loaded.getTransactionId(), loaded);
+            }
+        }
+
+        List<TransactionDetailsResponse> responses = new ArrayList<>(transactions.size());
+        for (Long id : ids) {
+            Transaction transaction = transactions.get(id);
+            if (transaction != null) {
+                responses.add(toDetailsResponse(transaction));
+            }
+        }
+        logger.info("Found details for {} of {} transactions ({} from the database).", responses.size(), ids.size(),
+                missing.size());
+        return responses;
+    }
+
+    /**
+     * Builds the details response of a transaction.
+     */
+    private TransactionDetailsResponse toDetailsResponse(Transaction transaction) {
         TransactionDetailsResponse response = new TransactionDetailsResponse();
 
         response.setTransactionId(String.valueOf(transaction.getTransactionId()));
@@ -171,46 +386,27 @@ public class TransactionService {
     }
 
     /**
-     * Validate the date range for filtering transactions.
-     * @param startDate Start date
-     * @param endDate End date
-     * @throws RuntimeException if dates are invalid
+     * Validate the page size of a paginated request.
+     * @param size Requested page size
+     * @throws InvalidRequestException if the size is out of range
      */
-    private void validateDateRange(LocalDate startDate, LocalDate endDate) {
-        if (startDate == null || endDate == null) {
-            throw new RuntimeException("Start date and end date must not be null.");
-        }
-        if (startDate.isAfter(LocalDate.now()) || endDate.isAfter(LocalDate.now())) {
-            throw new RuntimeException("Start date and end date cannot be in the future.");
-        }
-        if (startDate.isAfter(endDate)) {
-            throw new RuntimeException("Start date cannot be after end date.");
+    private void validatePageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
         }
     }
 
     /**
-     * Validate the transaction type.
-     * @param type Transaction type
-     * @throws RuntimeException if the type is invalid
-     */
-    private void validateTransactionType(String type) {
-        if (type == null || type.trim().isEmpty()) {
-            throw new RuntimeException("Transaction type must not be null or empty.");
-        }
-        // Add logic to check if the type is within a valid set of transaction types
-    }
-
-    /**
-     * Validate the transaction status.
-     * @param status Transaction status
-     * @throws RuntimeException if the status is invalid
+     * Reads the date sort key of a history cursor.
+     * @param cursor Decoded cursor
+     * @return Date of the last transaction of the previous page
+     * @throws InvalidRequestException if the sort key is not a date
      */
-    private void validateTransactionStatus(String status) {
-        if (status == null || status.trim().isEmpty()) {
-            throw new RuntimeException("Transaction status must not be null or empty.");
-        }
-        if(!("success".equalsIgnoreCase(status) || "processing".equalsIgnoreCase(status) || "failure".equalsIgnoreCase(status))) {
-        	throw new RuntimeException("Transaction status not of correct type");
+    private LocalDate parseCursorDate(KeysetCursor cursor) {
+        try {
+            return LocalDate.parse(cursor.getSortKey());
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid cursor.");
         }
     }
 
@@ -219,7 +415,7 @@ public class TransactionService {
      * @param transactionId Transaction ID
      * @throws RuntimeException if the transaction ID is invalid
      */
-    private void validateTransactionId(int transactionId) {
+    private void validateTransactionId(long transactionId) {
         if (transactionId <= 0) {
             throw new RuntimeException("Transaction ID must be a positive integer.");
         }
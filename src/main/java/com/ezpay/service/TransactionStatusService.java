@@ -2,14 +2,34 @@ package com.ezpay.service;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PostConstruct;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.cache.TransactionStatusCache;
 import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionStatusResponse;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.InLists;
+import com.ezpay.repository.TransactionStatusEventRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
 import com.ezpay.repository.TransactionStatusRepository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Author: Shivaji Reddy Suram
@@ -26,15 +46,48 @@ public class TransactionStatusService implements TransactionStatusServiceInterfa
     @Autowired
     private TransactionStatusRepository transactionRepository;
 
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private TransactionStatusCache transactionStatusCache;
+
+    @Autowired
+    private TransactionStatusEventRepository statusEventRepository;
+
+    @Autowired
+    private TransactionStatusEventWriter statusEventWriter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     /**
-     * Adds a new transaction to the repository.
+     * Adds a new transaction to the repository, and its first status to the status event log
+     * in the same database transaction.
      * 
      * @param transaction The transaction object to be added.
      * @return The added transaction object.
      */
     public Transaction addTransactionService(Transaction transaction) {
         logger.info("Adding a new transaction: {}", transaction);
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        Transaction savedTransaction = transactionTemplate.execute(status -> {
+            Transaction saved = transactionRepository.save(transaction);
+            statusEventWriter.append(TransactionStatusEvent.created(saved));
+            return saved;
+        });
+        transactionCache.invalidate(savedTransaction.getTransactionId());
+        eventPublisher.publishEvent(new TransactionStatusChangedEvent(savedTransaction.getTransactionId(),
+                savedTransaction.getStatus()));
         logger.info("Transaction added successfully: {}", savedTransaction);
         return savedTransaction;
     }
@@ -46,17 +99,84 @@ public class TransactionStatusService implements TransactionStatusServiceInterfa
      * @return The status of the transaction.
      * @throws Exception If the transaction status cannot be found.
      */
-    public String trackTransactionStatus(int transactionId) throws Exception {
-        logger.info("Tracking status for transaction ID: {}", transactionId);
-        String status = transactionRepository.findByStatus(transactionId);
+    public String trackTransactionStatus(long transactionId) throws Exception {
+        // Polled in tight loops: answered from the status cache, the ID is logged without boxing
+        String status = transactionStatusCache.get(transactionId);
+        if (status != null) {
+            logger.debug("Status for transaction ID {} served from cache: {}", Unbox.box(transactionId), status);
+            return status;
+        }
+        logger.info("Tracking status for transaction ID: {}", Unbox.box(transactionId));
+        status = transactionRepository.findByStatus(transactionId);
         if (status == null) {
-            logger.error("Status for transaction ID {} not found.", transactionId);
+            logger.error("Status for transaction ID {} not found.", Unbox.box(transactionId));
             throw new Exception("Transaction status not found.");
         }
-        logger.info("Status for transaction ID {}: {}", transactionId, status);
+        transactionStatusCache.putIfAbsent(transactionId, status); // Keeps a newer status set meanwhile
+        logger.info("Status for transaction ID {}: {}", Unbox.box(transactionId), status);
         return status;
     }
 
+    /**
+     * Tracks the statuses of several transactions in one call. Cached statuses are used
+     * as they are, the others are read with one IN-list query per 1000 transactions.
+     * 
+     * @param transactionIds The IDs of the transactions to be tracked.
+     * @return The statuses of the transactions that exist, in the order of the IDs.
+     */
+    public List<TransactionStatusResponse> trackTransactionStatuses(List<Long> transactionIds) {
+        Set<Long> ids = TransactionIds.validate(transactionIds, TransactionIds.MAX_BATCH_SIZE);
+        logger.info("Tracking status for {} transactions.", ids.size());
+        Map<Long, String> statuses = new HashMap<>(ids.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            String status = transactionStatusCache.get(id);
+            if (status != null) {
+                statuses.put(id, status);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (TransactionStatusResponse loaded : InLists.queryInChunks(missing,
+                    transactionRepository::findStatusesByTransactionIds)) {
+                transactionStatusCache.putIfAbsent(loaded.getTransactionId(), loaded.getStatus());
+                statuses.put(loaded.getTransactionId(), loaded.getStatus());
+            }
+        }
+
+        List<TransactionStatusResponse> response = new ArrayList<>(statuses.size());
+        for (Long id : ids) {
+            String status = statuses.get(id);
+            if (status != null) {
+                response.add(new TransactionStatusResponse(id, status));
+            }
+        }
+        logger.info("Found status for {} of {} transactions ({} from the database).", response.size(), ids.size(),
+                missing.size());
+        return response;
+    }
+
+    /**
+     * Retrieves the status transitions of a transaction from the status event log, oldest first.
+     * Transactions stored before the log was introduced start with the status they had then.
+     * 
+     * @param transactionId The ID of the transaction.
+     * @return The status events of the transaction.
+     * @throws TransactionNotFoundException If the transaction has no events and does not exist.
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionStatusEvent> getStatusTimeline(long transactionId) {
+        logger.info("Fetching status timeline of transaction ID: {}", transactionId);
+        List<TransactionStatusEvent> timeline = statusEventRepository.findTimeline(transactionId);
+        if (timeline.isEmpty() && !transactionRepository.existsById(transactionId)) {
+            logger.warn("Transaction with ID {} not found.", transactionId);
+            throw new TransactionNotFoundException("Transaction with ID " + transactionId + " not found.");
+        }
+        logger.info("Retrieved {} status events of transaction ID {}.", timeline.size(), transactionId);
+        return timeline;
+    }
+
     /**
      * Retrieves the history of all transactions.
      * 
@@ -75,9 +195,9 @@ public class TransactionStatusService implements TransactionStatusServiceInterfa
      * @param transactionId The ID of the transaction to be retrieved.
      * @return An Optional containing the transaction if found, otherwise empty.
      */
-    public Optional<Transaction> getTransactionById(int transactionId) {
+    public Optional<Transaction> getTransactionById(long transactionId) {
         logger.info("Fetching transaction with ID: {}", transactionId);
-        Optional<Transaction> transaction = transactionRepository.findByTransactionId(transactionId);
+        Optional<Transaction> transaction = transactionCache.get(transactionId, transactionRepository::findByTransactionId);
         if (transaction.isPresent()) {
             logger.info("Transaction retrieved successfully: {}", transaction.get());
         } else {
@@ -12,6 +12,8 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 
 import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionStatusResponse;
 
 /**
  * Interface defining the contract for transaction-related operations.
@@ -33,7 +35,21 @@ public interface TransactionStatusServiceInterface {
      * @return The status of the transaction.
      * @throws Exception If the transaction status cannot be found.
      */
-	public String trackTransactionStatus(int transactionId) throws Exception;
+	public String trackTransactionStatus(long transactionId) throws Exception;
+	/**
+     * Tracks the statuses of several transactions in one call.
+     * 
+     * @param transactionIds The IDs of the transactions to be tracked.
+     * @return The statuses of the transactions that exist, in the order of the IDs.
+     */
+	public List<TransactionStatusResponse> trackTransactionStatuses(List<Long> transactionIds);
+	/**
+     * Retrieves the status transitions of a transaction, oldest first.
+     * 
+     * @param transactionId The ID of the transaction.
+     * @return The status events of the transaction.
+     */
+	public List<TransactionStatusEvent> getStatusTimeline(long transactionId);
 	/**
      * Retrieves the history of all transactions.
      * 
@@ -46,6 +62,6 @@ public interface TransactionStatusServiceInterface {
      * @param transactionId The ID of the transaction to be retrieved.
      * @return An Optional containing the transaction if found, otherwise empty.
      */
-	public Optional<Transaction> getTransactionById(int transactionId);
+	public Optional<Transaction> getTransactionById(long transactionId);
 }
 
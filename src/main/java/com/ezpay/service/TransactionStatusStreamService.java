@@ -0,0 +1,389 @@
+package com.ezpay.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.InvalidRequestException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class pushing transaction status changes to subscribed clients.
+ *
+ * Clients either keep a Server-Sent Events stream open or long-poll for the next change.
+ * Both are asynchronous servlet requests: an idle subscriber holds a connection and a
+ * registry entry, not a thread. Changes are delivered once the saving transaction has
+ * committed. Long-polls are completed at once; each SSE stream queues its events and
+ * writes them in order on a small pool of sender threads, one stream at a time, so a slow
+ * client only holds up itself. A stream falling too far behind is closed.
+ */
+@Service
+public class TransactionStatusStreamService {
+
+    private static final Logger logger = LogManager.getLogger(TransactionStatusStreamService.class);
+
+    /** Maximum number of transactions watched by one subscription. */
+    public static final int MAX_WATCHED_TRANSACTIONS = 100;
+
+    /** Longest time a long-poll request is held open. */
+    public static final Duration MAX_POLL_TIMEOUT = Duration.ofMinutes(2);
+
+    /** SSE event name of status changes. */
+    static final String STATUS_EVENT = "status";
+
+    /** Threads writing to the SSE streams. */
+    private static final int SENDER_THREADS = 8;
+
+    /** Events queued for a stream before it is closed as too slow. */
+    private static final int MAX_PENDING_EVENTS = 1000;
+
+    /** Subscribers by watched transaction ID. */
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /** Open SSE streams, for heartbeats. */
+    private final Set<StreamSubscriber> streams = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor senders = newSenderPool();
+
+    @Autowired
+    private TransactionStatusService transactionStatusService;
+
+    @Value("${ezpay.status-stream.timeout:30m}")
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    /**
+     * Opens an SSE stream of the status changes of the given transactions. The current status
+     * of each transaction is sent first, so no change between the last poll and the
+     * subscription is missed.
+     * @param transactionIds IDs of the watched transactions
+     * @return Emitter the changes are pushed to
+     * @throws InvalidRequestException if no or too many transactions are given
+     */
+    public SseEmitter subscribe(List<Long> transactionIds) {
+        Set<Long> ids = TransactionIds.validate(transactionIds, MAX_WATCHED_TRANSACTIONS);
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        StreamSubscriber subscriber = new StreamSubscriber(emitter, ids);
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(error -> unregister(subscriber));
+        // Register before reading the current statuses so a change in between is not lost
+        register(subscriber);
+        streams.add(subscriber);
+        logger.info("Opened status stream for transaction IDs: {}", ids);
+
+        // Read on the request thread, then sent ahead of the changes queued meanwhile, never older
+        subscriber.start(currentStatuses(ids));
+        return emitter;
+    }
+
+    /**
+     * Waits for the next status change of any of the given transactions.
+     * If the current status of a transaction already differs from the one the client knows,
+     * the request completes immediately.
+     * @param transactionIds IDs of the watched transactions
+     * @param knownStatuses Statuses the client last saw, in the order of the IDs, or null
+     * @param timeout Time to wait for a change
+     * @return Result completed with the changed statuses, or with 204 when the wait times out
+     * @throws InvalidRequestException if the IDs, statuses or timeout are invalid
+     */
+    public DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> poll(List<Long> transactionIds,
+            List<String> knownStatuses, Duration timeout) {
+        Set<Long> ids = TransactionIds.validate(transactionIds, MAX_WATCHED_TRANSACTIONS);
+        if (knownStatuses != null && !knownStatuses.isEmpty() && knownStatuses.size() != transactionIds.size()) {
+            throw new InvalidRequestException("Known statuses must be given for every transaction ID.");
+        }
+        if (timeout.isNegative() || timeout.isZero() || timeout.compareTo(MAX_POLL_TIMEOUT) > 0) {
+            throw new InvalidRequestException("Timeout must be between 1 and " + MAX_POLL_TIMEOUT.toSeconds() + " seconds.");
+        }
+        DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> result =
+                new DeferredResult<>(timeout.toMillis(), ResponseEntity.noContent().build());
+        PollSubscriber subscriber = new PollSubscriber(result, ids);
+        result.onCompletion(() -> unregister(subscriber));
+        // Register before reading the current statuses so a change in between is not lost
+        register(subscriber);
+
+        if (knownStatuses != null && !knownStatuses.isEmpty()) {
+            List<TransactionStatusChangedEvent> changed = new ArrayList<>();
+            for (TransactionStatusChangedEvent current : currentStatuses(ids)) {
+                String known = knownStatuses.get(transactionIds.indexOf(current.getTransactionId()));
+                if (!current.getStatus().equalsIgnoreCase(known)) {
+                    changed.add(current);
+                }
+            }
+            if (!changed.isEmpty()) {
+                subscriber.complete(changed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pushes a status change to the subscribers watching the transaction, after the change
+     * has been committed. Changes saved outside a transaction are pushed straight away.
+     * @param event Status change of the transaction
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        Set<Subscriber> watching = subscribers.get(event.getTransactionId());
+        if (watching == null || watching.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : watching) {
+            subscriber.deliver(event);
+        }
+    }
+
+    /**
+     * Sends a comment on every open stream so that proxies keep idle streams open
+     * and streams of disconnected clients are detected and released.
+     */
+    @Scheduled(fixedDelayString = "${ezpay.status-stream.heartbeat:PT15S}")
+    public void sendHeartbeats() {
+        if (streams.isEmpty()) {
+            return;
+        }
+        for (StreamSubscriber stream : streams) {
+            stream.heartbeat();
+        }
+    }
+
+    /**
+     * Returns the number of subscriptions watching a transaction.
+     * @param transactionId ID of the transaction
+     * @return Number of open SSE streams and pending long-polls watching the transaction
+     */
+    public int getSubscriberCount(long transactionId) {
+        Set<Subscriber> watching = subscribers.get(transactionId);
+        return watching == null ? 0 : watching.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (StreamSubscriber stream : streams) {
+            stream.emitter.complete();
+        }
+    }
+
+    /**
+     * Reads the current statuses, skipping transactions that do not exist (yet).
+     */
+    private List<TransactionStatusChangedEvent> currentStatuses(Set<Long> ids) {
+        List<TransactionStatusChangedEvent> statuses = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            try {
+                statuses.add(new TransactionStatusChangedEvent(id, transactionStatusService.trackTransactionStatus(id)));
+            } catch (Exception e) {
+                logger.debug("No status yet for watched transaction ID: {}", id);
+            }
+        }
+        return statuses;
+    }
+
+    private static ThreadPoolExecutor newSenderPool() {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(SENDER_THREADS, SENDER_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "transaction-status-sender-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private void register(Subscriber subscriber) {
+        for (Long id : subscriber.ids) {
+            // Added within compute so an unregister emptying and removing the set cannot lose it
+            subscribers.compute(id, (key, watching) -> {
+                Set<Subscriber> set = watching == null ? ConcurrentHashMap.newKeySet() : watching;
+                set.add(subscriber);
+                return set;
+            });
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+        if (subscriber instanceof StreamSubscriber stream) {
+            streams.remove(stream);
+        }
+        for (Long id : subscriber.ids) {
+            subscribers.computeIfPresent(id, (key, watching) -> {
+                watching.remove(subscriber);
+                return watching.isEmpty() ? null : watching;
+            });
+        }
+    }
+
+    /**
+     * A client watching a set of transactions.
+     */
+    private abstract static class Subscriber {
+
+        final Set<Long> ids;
+
+        Subscriber(Set<Long> ids) {
+            this.ids = ids;
+        }
+
+        abstract void deliver(TransactionStatusChangedEvent event);
+    }
+
+    /**
+     * An open SSE stream, receiving every change until the client disconnects. Events are
+     * queued and written by one sender thread at a time, in order. Nothing is written until
+     * the current statuses have been queued ahead of the changes.
+     */
+    private final class StreamSubscriber extends Subscriber {
+
+        final SseEmitter emitter;
+
+        private final ArrayDeque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        private boolean started;        // The current statuses are queued
+        private boolean sending;        // A sender thread is writing the queue
+        private boolean closed;
+
+        StreamSubscriber(SseEmitter emitter, Set<Long> ids) {
+            super(ids);
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues the current statuses ahead of the changes delivered since the subscription,
+         * and starts sending.
+         */
+        synchronized void start(List<TransactionStatusChangedEvent> current) {
+            for (int i = current.size() - 1; i >= 0; i--) {
+                pending.addFirst(statusEvent(current.get(i)));
+            }
+            started = true;
+            sendPending();
+        }
+
+        @Override
+        void deliver(TransactionStatusChangedEvent event) {
+            enqueue(statusEvent(event), false);
+        }
+
+        void heartbeat() {
+            enqueue(SseEmitter.event().comment("heartbeat"), true);
+        }
+
+        private SseEmitter.SseEventBuilder statusEvent(TransactionStatusChangedEvent event) {
+            return SseEmitter.event().name(STATUS_EVENT).id(String.valueOf(event.getTransactionId())).data(event);
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event, boolean onlyIfIdle) {
+            synchronized (this) {
+                if (closed || (onlyIfIdle && (sending || !pending.isEmpty()))) {
+                    return;
+                }
+                if (pending.size() < MAX_PENDING_EVENTS) {
+                    pending.add(event);
+                    sendPending();
+                    return;
+                }
+            }
+            logger.warn("Closing status stream of transaction IDs {}, {} events behind", ids, MAX_PENDING_EVENTS);
+            close(new IOException("Status stream too slow"));
+        }
+
+        /**
+         * Hands the queue to a sender thread unless one is writing it. Called holding the lock.
+         */
+        private void sendPending() {
+            if (!started || sending || closed || pending.isEmpty()) {
+                return;
+            }
+            sending = true;
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                sending = false; // Shutting down
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = closed ? null : pending.poll();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away, release the stream
+                    synchronized (this) {
+                        sending = false;
+                    }
+                    close(e);
+                    return;
+                }
+            }
+        }
+
+        private void close(Exception cause) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            unregister(this);
+            emitter.completeWithError(cause);
+        }
+    }
+
+    /**
+     * A pending long-poll, completed by the first change.
+     */
+    private static final class PollSubscriber extends Subscriber {
+
+        final DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> result;
+        final AtomicBoolean completed = new AtomicBoolean();
+
+        PollSubscriber(DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> result, Set<Long> ids) {
+            super(ids);
+            this.result = result;
+        }
+
+        @Override
+        void deliver(TransactionStatusChangedEvent event) {
+            complete(List.of(event));
+        }
+
+        void complete(List<TransactionStatusChangedEvent> changes) {
+            if (completed.compareAndSet(false, true)) {
+                result.setResult(ResponseEntity.ok(changes));
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+----------------------------------------------------------------------
+V10: optimistic lock version of the transactions, see
+Transaction.version. Existing rows, and rows inserted without it by
+TransactionBatchWriter, start at version 0.
+----------------------------------------------------------------------
+
+ALTER TABLE transaction ADD (version NUMBER(19) DEFAULT 0 NOT NULL);
@@ -0,0 +1,29 @@
+----------------------------------------------------------------------
+V11: append-only log of the status changes of the transactions, see
+TransactionStatusEvent. transaction.status stays the current status,
+written in the same database transaction as each event.
+----------------------------------------------------------------------
+
+-- Index-organized on (transaction_id, event_id): the events of a transaction are stored together,
+-- in the order they happened, and TransactionStatusEventRepository.findTimeline reads them with one
+-- range scan of the primary key. COMPRESS 1 stores each transaction ID once per leaf block. Event
+-- IDs are time-ordered and unique, see TransactionStatusEventWriter. There is no foreign key, so
+-- the batched inserts do not check the transaction table.
+CREATE TABLE transaction_status_event (
+    transaction_id NUMBER(19) NOT NULL,
+    event_id NUMBER(19) NOT NULL,
+    from_status VARCHAR2(255 CHAR),
+    to_status VARCHAR2(255 CHAR),
+    changed_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_transaction_status_event PRIMARY KEY (transaction_id, event_id)
+) ORGANIZATION INDEX COMPRESS 1;
+
+-- Existing transactions start their timeline with their current status. Their IDs are unique
+-- and older than any event ID made from now on, so they serve as event IDs.
+INSERT INTO transaction_status_event (transaction_id, event_id, from_status, to_status, changed_at)
+SELECT transaction_id, transaction_id, NULL, status,
+       NVL(CAST(transaction_date AS TIMESTAMP), CAST(SYSTIMESTAMP AS TIMESTAMP))
+FROM transaction
+WHERE status IS NOT NULL;
+
+COMMIT;
@@ -0,0 +1,7 @@
+----------------------------------------------------------------------
+V12: node ID of each running instance, see ShardLeaseManager. An
+instance refuses to start when a live instance already uses its node
+ID, or when other instances run and it has none set.
+----------------------------------------------------------------------
+
+ALTER TABLE scheduler_node ADD (node_id NUMBER(10));
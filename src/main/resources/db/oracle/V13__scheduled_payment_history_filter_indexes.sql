@@ -0,0 +1,26 @@
+----------------------------------------------------------------------
+V13: indexes of the source account and status filters of the scheduled
+payment history pages, ending in (next_payment_date, transaction_id)
+like the other filters so no page is sorted. The same indexes are
+declared on the ScheduledPayment entity.
+----------------------------------------------------------------------
+
+-- The status is kept on the transaction row, away from next_payment_date. ScheduledPayment copies
+-- it to payment_status on every write, so the status filter has an index of its own.
+ALTER TABLE scheduled_payment ADD (payment_status VARCHAR2(255 CHAR));
+
+UPDATE scheduled_payment s
+SET payment_status = (SELECT t.status FROM transaction t WHERE t.transaction_id = s.transaction_id);
+
+COMMIT;
+
+-- ScheduledPaymentService.findScheduledPaymentsPage: the payments from a source account, in
+-- (next_payment_date, transaction_id) order. Replaces idx_sp_source_due of V6, whose auto-pay flag
+-- came before the due date: the forecast reads the same range and checks the flag on each row.
+CREATE INDEX idx_sp_source_next_due ON scheduled_payment (source_account, next_payment_date, transaction_id);
+
+DROP INDEX idx_sp_source_due;
+
+-- ScheduledPaymentService.findScheduledPaymentsPage: the payments with a status, in
+-- (next_payment_date, transaction_id) order.
+CREATE INDEX idx_sp_status_due ON scheduled_payment (payment_status, next_payment_date, transaction_id);
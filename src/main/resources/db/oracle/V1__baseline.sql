@@ -0,0 +1,49 @@
+----------------------------------------------------------------------
+V1: tables of the joined storage layout, as mapped by the entities.
+Databases created from the former sql.txt are at V1 once the TYPE
+column is renamed (single_table_migration.sql step 1) and
+long_transaction_id_migration.sql has run.
+----------------------------------------------------------------------
+
+CREATE TABLE transaction (
+    transaction_id NUMBER(19) NOT NULL,
+    transaction_type VARCHAR2(255 CHAR),
+    amount FLOAT(53),
+    transaction_date DATE,
+    status VARCHAR2(255 CHAR),
+    sender VARCHAR2(255 CHAR),
+    receiver VARCHAR2(255 CHAR),
+    CONSTRAINT pk_transaction PRIMARY KEY (transaction_id)
+);
+
+CREATE TABLE upi_transaction (
+    transaction_id NUMBER(19) NOT NULL,
+    upi_id VARCHAR2(255 CHAR),
+    user_id VARCHAR2(255 CHAR),
+    CONSTRAINT pk_upi_transaction PRIMARY KEY (transaction_id),
+    CONSTRAINT uk_upi_transaction_upi_id UNIQUE (upi_id),
+    CONSTRAINT fk_upi_transaction FOREIGN KEY (transaction_id) REFERENCES transaction (transaction_id)
+);
+
+CREATE TABLE bank_transfer_transaction (
+    transaction_id NUMBER(19) NOT NULL,
+    transfer_id VARCHAR2(255 CHAR),
+    sender_account VARCHAR2(255 CHAR),
+    receiver_account VARCHAR2(255 CHAR),
+    CONSTRAINT pk_bank_transfer_transaction PRIMARY KEY (transaction_id),
+    CONSTRAINT uk_bank_transfer_transfer_id UNIQUE (transfer_id),
+    CONSTRAINT fk_bank_transfer_transaction FOREIGN KEY (transaction_id) REFERENCES transaction (transaction_id)
+);
+
+CREATE TABLE scheduled_payment (
+    transaction_id NUMBER(19) NOT NULL,
+    next_payment_date TIMESTAMP(6),
+    start_date TIMESTAMP(6),
+    end_date TIMESTAMP(6),
+    frequency VARCHAR2(255 CHAR),
+    is_auto_pay_enabled NUMBER(1),
+    source_account VARCHAR2(255 CHAR),
+    destination_account VARCHAR2(255 CHAR),
+    CONSTRAINT pk_scheduled_payment PRIMARY KEY (transaction_id),
+    CONSTRAINT fk_transaction_id FOREIGN KEY (transaction_id) REFERENCES transaction (transaction_id)
+);
@@ -0,0 +1,22 @@
+----------------------------------------------------------------------
+V2: indexes matching the query shapes of TransactionRepository and
+TransactionStatusRepository. The same indexes are declared on the
+Transaction entity, so schemas generated by Hibernate get them too.
+Each listing index ends with transaction_date DESC, transaction_id DESC,
+the order of the newest-first listings, so they read the index in order
+and need no sort.
+----------------------------------------------------------------------
+
+-- Date ranges (findByDateRange, streamByDateRange, date filters) and the newest-first
+-- history (findAllSortAndFilterScheduled, findHistoryFirstPage, findHistoryPageAfter).
+CREATE INDEX idx_txn_date_id ON transaction (transaction_date DESC, transaction_id DESC);
+
+-- findByTransactionType, findSummariesByTransactionType and the type filter.
+CREATE INDEX idx_txn_type_date_id ON transaction (transaction_type, transaction_date DESC, transaction_id DESC);
+
+-- findByStatus(status), findSummariesByStatus and the status filter.
+CREATE INDEX idx_txn_status_date_id ON transaction (status, transaction_date DESC, transaction_id DESC);
+
+-- Covers the status lookups findByStatus(transactionId) and findStatusesByTransactionIds:
+-- both are answered from the index without visiting the table.
+CREATE INDEX idx_txn_id_status ON transaction (transaction_id, status);
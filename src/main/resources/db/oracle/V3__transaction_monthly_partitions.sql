@@ -0,0 +1,26 @@
+----------------------------------------------------------------------
+V3: monthly range partitions on transaction_date (Oracle 12.2 or
+later, Partitioning option). Oracle creates the partition of a new
+month on the first insert into it.
+
+The date indexes become LOCAL, so a date range only reads the index
+partitions of its months. Indexes without the date as leading column
+serve lookups by ID and stay GLOBAL: the primary key and the covering
+status index. Check the plans with verify_partition_pruning.sql.
+----------------------------------------------------------------------
+
+-- An interval partitioned table has no partition for rows without a date. Fails if such rows
+-- exist: give them a date first.
+ALTER TABLE transaction MODIFY (transaction_date NOT NULL);
+
+ALTER TABLE transaction MODIFY
+    PARTITION BY RANGE (transaction_date) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+    (PARTITION p_before_2024 VALUES LESS THAN (DATE '2024-01-01'))
+    ONLINE
+    UPDATE INDEXES (
+        idx_txn_date_id LOCAL,
+        idx_txn_type_date_id LOCAL,
+        idx_txn_status_date_id LOCAL,
+        idx_txn_id_status GLOBAL,
+        pk_transaction GLOBAL
+    );
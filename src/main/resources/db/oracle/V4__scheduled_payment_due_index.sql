@@ -0,0 +1,8 @@
+----------------------------------------------------------------------
+V4: index of the scheduled payment runner. The same index is declared
+on the ScheduledPayment entity.
+----------------------------------------------------------------------
+
+-- ScheduledPaymentRepository.findDueIds: the auto-pay schedules due by a given time, oldest due
+-- first. Answered from the index alone, in index order.
+CREATE INDEX idx_sp_due ON scheduled_payment (is_auto_pay_enabled, next_payment_date, transaction_id);
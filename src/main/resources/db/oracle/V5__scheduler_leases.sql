@@ -0,0 +1,20 @@
+----------------------------------------------------------------------
+V5: shard leases of the scheduled payment runner, see ShardLeaseManager.
+The rows of scheduler_lease are created by the first instance started,
+one per shard of ezpay.scheduler.shards.
+----------------------------------------------------------------------
+
+-- Owner and expiry of each shard. Claimed, renewed and released with conditional updates.
+CREATE TABLE scheduler_lease (
+    shard NUMBER(10) NOT NULL,
+    owner VARCHAR2(255 CHAR),
+    expires_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_scheduler_lease PRIMARY KEY (shard)
+);
+
+-- Last heartbeat of each running instance, to count the live instances.
+CREATE TABLE scheduler_node (
+    instance_id VARCHAR2(255 CHAR) NOT NULL,
+    heartbeat_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_scheduler_node PRIMARY KEY (instance_id)
+);
@@ -0,0 +1,8 @@
+----------------------------------------------------------------------
+V6: index of the cash-flow forecast. The same index is declared on the
+ScheduledPayment entity.
+----------------------------------------------------------------------
+
+-- ScheduledPaymentRepository.findForecastRows: the auto-pay schedules of some source accounts due
+-- by the end of the forecast horizon.
+CREATE INDEX idx_sp_source_due ON scheduled_payment (source_account, is_auto_pay_enabled, next_payment_date);
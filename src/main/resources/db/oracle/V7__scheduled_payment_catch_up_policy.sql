@@ -0,0 +1,9 @@
+----------------------------------------------------------------------
+V7: catch-up policy of the scheduled payments, see CatchUpPolicy.
+Existing payments keep running every missed run (NULL is RUN_ALL).
+----------------------------------------------------------------------
+
+ALTER TABLE scheduled_payment ADD (catch_up_policy VARCHAR2(16 CHAR));
+
+ALTER TABLE scheduled_payment ADD CONSTRAINT ck_sp_catch_up_policy
+    CHECK (catch_up_policy IN ('RUN_ALL', 'LATEST_ONLY', 'SKIP'));
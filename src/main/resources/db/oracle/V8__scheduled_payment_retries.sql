@@ -0,0 +1,19 @@
+----------------------------------------------------------------------
+V8: retries of failed scheduled payment runs, see ScheduledPaymentRetry.
+The same index is declared on the ScheduledPaymentRetry entity.
+----------------------------------------------------------------------
+
+-- At most one entry per scheduled payment, for the run at its next payment date.
+CREATE TABLE scheduled_payment_retry (
+    scheduled_payment_id NUMBER(19) NOT NULL,
+    due_time TIMESTAMP(6),
+    attempts NUMBER(10) NOT NULL,
+    status VARCHAR2(255 CHAR),
+    next_attempt_at TIMESTAMP(6),
+    last_failed_at TIMESTAMP(6),
+    last_error VARCHAR2(1000 CHAR),
+    CONSTRAINT pk_scheduled_payment_retry PRIMARY KEY (scheduled_payment_id)
+);
+
+-- ScheduledPaymentRetryRepository.findByStatus: the dead letters, latest failure first.
+CREATE INDEX idx_spr_status_failed ON scheduled_payment_retry (status, last_failed_at);
@@ -0,0 +1,12 @@
+----------------------------------------------------------------------
+V9: indexes of the filtered scheduled payment history pages. The same
+indexes are declared on the ScheduledPayment entity.
+----------------------------------------------------------------------
+
+-- ScheduledPaymentService.findScheduledPaymentsPage: the payments to a destination account, in
+-- (next_payment_date, transaction_id) order.
+CREATE INDEX idx_sp_destination_due ON scheduled_payment (destination_account, next_payment_date, transaction_id);
+
+-- ScheduledPaymentService.findScheduledPaymentsPage: every payment, or those in a due window, in
+-- (next_payment_date, transaction_id) order.
+CREATE INDEX idx_sp_next_due ON scheduled_payment (next_payment_date, transaction_id);
@@ -0,0 +1,59 @@
+----------------------------------------------------------------------
+Checks that the repository queries use the V2 indexes and, after V3,
+only read the partitions of the requested months. Run in SQL*Plus or
+SQL Developer after V3. The statements are the SQL Hibernate generates
+for the repository methods, restricted to the transaction table.
+
+Expected plans:
+- Date range queries: PARTITION RANGE ITERATOR with Pstart/Pstop
+  limited to the months of the range, over INDEX RANGE SCAN of
+  IDX_TXN_DATE_ID (or of the type/status index when filtered).
+- Newest-first history page: INDEX FULL SCAN of IDX_TXN_DATE_ID with
+  STOPKEY, no SORT ORDER BY.
+- Status lookups: INDEX RANGE SCAN of IDX_TXN_ID_STATUS only, no
+  TABLE ACCESS.
+----------------------------------------------------------------------
+
+-- findByDateRange / streamByDateRange
+EXPLAIN PLAN FOR
+SELECT t.transaction_id, t.amount, t.transaction_date, t.receiver, t.sender, t.status, t.transaction_type
+FROM transaction t
+WHERE t.transaction_date BETWEEN DATE '2024-09-01' AND DATE '2024-09-30';
+SELECT * FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, NULL, 'BASIC +PARTITION'));
+
+-- getFilteredTransactions with a date range and a status
+EXPLAIN PLAN FOR
+SELECT t.transaction_id, t.amount, t.transaction_date, t.status
+FROM transaction t
+WHERE t.transaction_type <> 'Scheduled Payment'
+AND t.transaction_date >= DATE '2024-08-01' AND t.transaction_date <= DATE '2024-09-30'
+AND t.status = 'Failure';
+SELECT * FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, NULL, 'BASIC +PARTITION'));
+
+-- findHistoryFirstPage
+EXPLAIN PLAN FOR
+SELECT t.transaction_id, t.transaction_type, t.amount, t.transaction_date, t.status, t.sender, t.receiver
+FROM transaction t
+WHERE t.transaction_type <> 'Scheduled Payment'
+ORDER BY t.transaction_date DESC, t.transaction_id DESC
+FETCH FIRST 20 ROWS ONLY;
+SELECT * FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, NULL, 'BASIC +PARTITION'));
+
+-- findSummariesByStatus
+EXPLAIN PLAN FOR
+SELECT t.transaction_id, t.transaction_type, t.amount, t.transaction_date, t.status, t.sender, t.receiver
+FROM transaction t
+WHERE t.status = 'processing'
+ORDER BY t.transaction_date DESC, t.transaction_id DESC;
+SELECT * FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, NULL, 'BASIC +PARTITION'));
+
+-- TransactionStatusRepository.findByStatus(transactionId)
+EXPLAIN PLAN FOR
+SELECT t.status FROM transaction t WHERE t.transaction_id = 1;
+SELECT * FROM TABLE(DBMS_XPLAN.DISPLAY(NULL, NULL, 'BASIC +PARTITION'));
+
+-- Partitions created so far
+SELECT partition_name, high_value, num_rows
+FROM user_tab_partitions
+WHERE table_name = 'TRANSACTION'
+ORDER BY partition_position;
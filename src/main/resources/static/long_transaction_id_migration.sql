@@ -0,0 +1,20 @@
+----------------------------------------------------------------------
+Migration to 64-bit, time-ordered transaction IDs assigned by the
+application (com.ezpay.entity.TimeOrderedIds).
+Run on Oracle with the application stopped. Existing IDs are kept; new
+IDs are far above them, so old and new rows never collide.
+----------------------------------------------------------------------
+
+-- 1. Widen the ID columns. Columns created as INT are already NUMBER(38) and need no change,
+--    columns created by Hibernate from the former int mapping are NUMBER(10).
+ALTER TABLE transaction MODIFY (transaction_id NUMBER(19));
+ALTER TABLE upi_transaction MODIFY (transaction_id NUMBER(19));
+ALTER TABLE bank_transfer_transaction MODIFY (transaction_id NUMBER(19));
+ALTER TABLE scheduled_payment MODIFY (transaction_id NUMBER(19));
+
+-- 2. IDs are no longer drawn from the database.
+DROP TRIGGER transaction_id_trigger;
+DROP SEQUENCE transaction_id_seq;
+
+-- 3. Give every running instance its own node ID (0-1023) with spring.jpa.properties.ezpay.ids.node-id,
+--    instances sharing a node ID can create the same transaction ID.
@@ -0,0 +1,77 @@
+----------------------------------------------------------------------
+Migration from the joined schema (sql.txt) to the single table layout
+used by the single-table profile (META-INF/orm-single-table.xml).
+Run on Oracle with the application stopped.
+----------------------------------------------------------------------
+
+-- 1. Tables created from sql.txt name the type column TYPE, the application maps it as TRANSACTION_TYPE.
+--    Skip this step if the column is already named TRANSACTION_TYPE.
+ALTER TABLE transaction RENAME COLUMN type TO transaction_type;
+
+-- 2. Discriminator and subtype columns, all nullable since each row only uses its own subtype's columns.
+ALTER TABLE transaction ADD (
+    entity_type VARCHAR2(31 CHAR),
+    upi_id VARCHAR2(100 CHAR),
+    user_id VARCHAR2(100 CHAR),
+    transfer_id VARCHAR2(100 CHAR),
+    sender_account VARCHAR2(100 CHAR),
+    receiver_account VARCHAR2(100 CHAR),
+    next_payment_date TIMESTAMP(6),
+    start_date TIMESTAMP(6),
+    end_date TIMESTAMP(6),
+    frequency VARCHAR2(255 CHAR),
+    is_auto_pay_enabled NUMBER(1),
+    source_account VARCHAR2(255 CHAR),
+    destination_account VARCHAR2(255 CHAR),
+    catch_up_policy VARCHAR2(16 CHAR),
+    payment_status VARCHAR2(255 CHAR)
+);
+
+-- 3. Copy the subtype rows into the transaction table.
+MERGE INTO transaction t
+USING upi_transaction u ON (t.transaction_id = u.transaction_id)
+WHEN MATCHED THEN UPDATE SET t.entity_type = 'UPI', t.upi_id = u.upi_id, t.user_id = u.user_id;
+
+MERGE INTO transaction t
+USING bank_transfer_transaction b ON (t.transaction_id = b.transaction_id)
+WHEN MATCHED THEN UPDATE SET t.entity_type = 'Bank Transfer', t.transfer_id = b.transfer_id,
+    t.sender_account = b.sender_account, t.receiver_account = b.receiver_account;
+
+MERGE INTO transaction t
+USING scheduled_payment s ON (t.transaction_id = s.transaction_id)
+WHEN MATCHED THEN UPDATE SET t.entity_type = 'Scheduled Payment', t.next_payment_date = s.next_payment_date,
+    t.start_date = s.start_date, t.end_date = s.end_date, t.frequency = s.frequency,
+    t.is_auto_pay_enabled = s.is_auto_pay_enabled, t.source_account = s.source_account,
+    t.destination_account = s.destination_account, t.catch_up_policy = s.catch_up_policy,
+    t.payment_status = t.status;
+
+-- Rows without a subtype row are plain transactions.
+UPDATE transaction SET entity_type = 'Transaction' WHERE entity_type IS NULL;
+
+ALTER TABLE transaction MODIFY (entity_type NOT NULL);
+ALTER TABLE transaction ADD CONSTRAINT uk_transaction_upi_id UNIQUE (upi_id);
+ALTER TABLE transaction ADD CONSTRAINT uk_transaction_transfer_id UNIQUE (transfer_id);
+
+-- 4. Check the copy before dropping the subtype tables, every count must be zero.
+SELECT COUNT(*) FROM upi_transaction u
+WHERE NOT EXISTS (SELECT 1 FROM transaction t WHERE t.transaction_id = u.transaction_id AND t.entity_type = 'UPI');
+SELECT COUNT(*) FROM bank_transfer_transaction b
+WHERE NOT EXISTS (SELECT 1 FROM transaction t WHERE t.transaction_id = b.transaction_id AND t.entity_type = 'Bank Transfer');
+SELECT COUNT(*) FROM scheduled_payment s
+WHERE NOT EXISTS (SELECT 1 FROM transaction t WHERE t.transaction_id = s.transaction_id AND t.entity_type = 'Scheduled Payment');
+
+COMMIT;
+
+-- 5. Drop the subtype tables once the application runs with the single-table profile.
+DROP TABLE upi_transaction;
+DROP TABLE bank_transfer_transaction;
+DROP TABLE scheduled_payment;
+
+-- 6. Indexes of the scheduled payment columns, as declared in orm-single-table.xml. Their names
+--    are free once scheduled_payment is dropped. Without them the runner, the sweep, the forecast
+--    and the history pages scan the whole transaction table.
+CREATE INDEX idx_sp_due ON transaction (is_auto_pay_enabled, next_payment_date, transaction_id);
+CREATE INDEX idx_sp_source_next_due ON transaction (source_account, next_payment_date, transaction_id);
+CREATE INDEX idx_sp_destination_due ON transaction (destination_account, next_payment_date, transaction_id);
+CREATE INDEX idx_sp_status_due ON transaction (payment_status, next_payment_date, transaction_id);
+CREATE INDEX idx_sp_next_due ON transaction (next_payment_date, transaction_id);
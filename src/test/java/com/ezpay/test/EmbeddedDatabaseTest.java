@@ -0,0 +1,49 @@
+package com.ezpay.test;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.cache.TransactionStatusCache;
+import com.ezpay.repository.TransactionIdAllocator;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+import com.ezpay.scheduling.ShardLeaseManager;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+import com.ezpay.service.ScheduledPaymentRetryService;
+import com.ezpay.service.ScheduledPaymentService;
+import com.ezpay.service.TransactionService;
+import com.ezpay.service.TransactionStatusService;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a test class against the embedded database with the transaction and scheduled payment
+ * services, outside a test transaction so every service call commits. The classes using it
+ * share one context and database, and clean up the rows they write.
+ *
+ * The timers, the catch-up, the sweep and the shard lease heartbeat run only every hour, so no
+ * background statement reaches the {@link StatementRecorder} while a test runs.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@DataJpaTest(properties = {"ezpay.scheduled-payments.tick=PT1H", "ezpay.scheduled-payments.catch-up.interval=PT1H",
+        "ezpay.scheduled-payments.sweep-interval=PT1H", "ezpay.scheduler.heartbeat=PT1H",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ezpay.test.StatementRecorder"})
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TransactionStatusService.class, TransactionService.class, ScheduledPaymentService.class,
+        ScheduledPaymentExecutionService.class, ScheduledPaymentRetryService.class, ScheduledPaymentTimer.class,
+        ShardLeaseManager.class, Recurrences.class, TransactionCache.class, TransactionStatusCache.class,
+        TransactionStatusEventWriter.class, TransactionIdAllocator.class, ScheduledPaymentFixtures.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public @interface EmbeddedDatabaseTest {
+}
@@ -0,0 +1,232 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentPatch;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionReview;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.service.ScheduledPaymentService;
+import com.ezpay.service.TransactionService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the partial updates of scheduled payments and transaction reviews against the embedded
+ * database: that they write the changed columns only, and that of concurrent writers based on
+ * the same version exactly one wins and the others are rejected.
+ */
+@EmbeddedDatabaseTest
+public class OptimisticLockingTest {
+
+    private static final int WRITERS = 8;
+    private static final LocalDateTime DUE = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    @Autowired
+    private ScheduledPaymentFixtures payments;
+
+    @Autowired
+    private ScheduledPaymentService scheduledPaymentService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @AfterEach
+    public void cleanUp() {
+        transactionRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that a patch writes only the columns it changes, plus the version, and that the
+     * other fields are kept.
+     */
+    @Test
+    public void testPatchWritesChangedColumnsOnly() {
+        ScheduledPayment payment = payments.save(DUE);
+        assertEquals(0, payment.getVersion());
+
+        StatementRecorder.clear();
+        ScheduledPayment patched = scheduledPaymentService.patchScheduledPayment(payment.getTransactionId(),
+                patch(0, 99.5, null));
+
+        assertEquals(1, patched.getVersion());
+        List<String> updates = updates();
+        assertEquals(1, updates.size(), updates.toString());
+        assertTrue(updates.get(0).startsWith("update transaction set amount=?,version=? where"), updates.toString());
+        assertTrue(updates.get(0).endsWith("and version=?"), updates.toString());
+
+        StatementRecorder.clear();
+        patched = scheduledPaymentService.patchScheduledPayment(payment.getTransactionId(), patch(1, null, "acc-new"));
+
+        assertEquals(2, patched.getVersion());
+        updates = updates();
+        assertEquals(2, updates.size(), updates.toString());
+        assertTrue(updates.stream().anyMatch(sql -> sql.startsWith("update scheduled_payment set source_account=? where")),
+                updates.toString());
+        assertTrue(updates.stream().anyMatch(sql -> sql.startsWith("update transaction set version=? where")),
+                updates.toString());
+
+        ScheduledPayment reloaded = scheduledPaymentRepository.findById(payment.getTransactionId()).orElseThrow();
+        assertEquals(99.5, reloaded.getAmount());
+        assertEquals("acc-new", reloaded.getSourceAccount());
+        assertEquals("acc-dst", reloaded.getDestinationAccount());
+        assertEquals("Daily", reloaded.getFrequency());
+        assertEquals(2, reloaded.getVersion());
+    }
+
+    /**
+     * Tests that updates based on an outdated version are rejected, through the patch and the
+     * full replacement alike, and that invalid patches are rejected.
+     */
+    @Test
+    public void testRejectsOutdatedVersion() {
+        ScheduledPayment payment = payments.save(DUE);
+        long id = payment.getTransactionId();
+        scheduledPaymentService.patchScheduledPayment(id, patch(0, 120.0, null));
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> scheduledPaymentService.patchScheduledPayment(id, patch(0, 130.0, null)));
+        payment.setAmount(140.0); // Still at version 0
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> scheduledPaymentService.modifyScheduledPayment(id, payment));
+        assertEquals(120.0, scheduledPaymentRepository.findById(id).orElseThrow().getAmount());
+
+        assertThrows(InvalidRequestException.class,
+                () -> scheduledPaymentService.patchScheduledPayment(id, new ScheduledPaymentPatch()));
+        assertThrows(InvalidRequestException.class,
+                () -> scheduledPaymentService.patchScheduledPayment(id, patch(1, -5.0, null)));
+        assertThrows(TransactionNotFoundException.class,
+                () -> scheduledPaymentService.patchScheduledPayment(42L, patch(0, 1.0, null)));
+    }
+
+    /**
+     * Tests that of parallel patches read at the same version exactly one is applied.
+     */
+    @Test
+    public void testParallelPatchesConflict() throws Exception {
+        long id = payments.save(DUE).getTransactionId();
+
+        List<Object> outcomes = runInParallel(writer ->
+                scheduledPaymentService.patchScheduledPayment(id, patch(0, 100.0 + writer, null)).getAmount());
+
+        List<Object> winners = outcomes.stream().filter(Double.class::isInstance).toList();
+        assertEquals(1, winners.size(), outcomes.toString());
+        assertEquals(WRITERS - 1, outcomes.stream().filter(OptimisticLockingFailureException.class::isInstance).count(),
+                outcomes.toString());
+        ScheduledPayment stored = scheduledPaymentRepository.findById(id).orElseThrow();
+        assertEquals(winners.get(0), stored.getAmount());
+        assertEquals(1, stored.getVersion());
+    }
+
+    /**
+     * Tests that of parallel reviews read at the same version exactly one is applied, and that
+     * a review writes only the status and the version.
+     */
+    @Test
+    public void testParallelReviewsConflict() throws Exception {
+        Transaction transaction = new UPITransaction("UPI", 500.0, LocalDate.of(2024, 9, 1), "processing", "upi-1",
+                "user1");
+        long id = transactionRepository.save(transaction).getTransactionId();
+
+        StatementRecorder.clear();
+        List<Object> outcomes = runInParallel(writer ->
+                transactionService.reviewTransaction(id, review(0, "Reviewer " + writer)).getStatus());
+
+        List<Object> winners = outcomes.stream().filter(String.class::isInstance).toList();
+        assertEquals(1, winners.size(), outcomes.toString());
+        Transaction stored = transactionRepository.findById(id).orElseThrow();
+        assertEquals(winners.get(0), stored.getStatus());
+        assertEquals(1, stored.getVersion());
+        assertEquals(500.0, stored.getAmount());
+        assertTrue(updates().stream().allMatch(sql -> sql.startsWith("update transaction set status=?,version=? where")),
+                updates().toString());
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> transactionService.reviewTransaction(id, review(0, "Success")));
+        assertThrows(InvalidRequestException.class, () -> transactionService.reviewTransaction(id, review(1, " ")));
+        assertEquals("Success", transactionService.reviewTransaction(id, review(1, "Success")).getStatus());
+    }
+
+    /**
+     * Runs a write from {@value #WRITERS} threads released at the same time.
+     * @return Result or exception of each writer
+     */
+    private List<Object> runInParallel(WriterTask task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                int writer = i;
+                Callable<Object> call = () -> {
+                    start.await();
+                    return task.write(writer);
+                };
+                futures.add(executor.submit(call));
+            }
+            start.countDown();
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriterTask {
+        Object write(int writer);
+    }
+
+    private static List<String> updates() {
+        return StatementRecorder.statements().stream().map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("update")).toList();
+    }
+
+    private static ScheduledPaymentPatch patch(long version, Double amount, String sourceAccount) {
+        ScheduledPaymentPatch patch = new ScheduledPaymentPatch();
+        patch.setVersion(version);
+        patch.setAmount(amount);
+        patch.setSourceAccount(sourceAccount);
+        return patch;
+    }
+
+    private static TransactionReview review(long version, String status) {
+        TransactionReview review = new TransactionReview();
+        review.setVersion(version);
+        review.setStatus(status);
+        return review;
+    }
+}
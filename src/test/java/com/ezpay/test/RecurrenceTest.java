@@ -0,0 +1,152 @@
+package com.ezpay.test;
+
+import com.ezpay.scheduling.BusinessCalendar;
+import com.ezpay.scheduling.Recurrence;
+import com.ezpay.scheduling.Recurrences;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Recurrence and BusinessCalendar classes.
+ */
+public class RecurrenceTest {
+
+    private static final LocalDateTime ANCHOR = LocalDateTime.of(2024, 1, 31, 9, 30);
+
+    /**
+     * Tests the frequencies understood, in any case, and the ones rejected.
+     */
+    @Test
+    public void testParse() {
+        assertEquals("MONTHLY", Recurrence.parse("Monthly", BusinessCalendar.WEEKDAYS).toString());
+        assertEquals("YEARLY", Recurrence.parse(" annually ", BusinessCalendar.WEEKDAYS).toString());
+        Recurrence biweekly = Recurrence.parse("weekly; interval=2; business_days", BusinessCalendar.WEEKDAYS);
+        assertEquals("WEEKLY;INTERVAL=2;BUSINESS_DAYS", biweekly.toString());
+        assertTrue(biweekly.isBusinessDays());
+
+        for (String invalid : new String[] {null, " ", "Fortnightly", "MONTHLY;INTERVAL=0", "MONTHLY;INTERVAL=x",
+                "DAILY;EVERY=2"}) {
+            assertThrows(IllegalArgumentException.class, () -> Recurrence.parse(invalid, BusinessCalendar.WEEKDAYS),
+                    String.valueOf(invalid));
+        }
+        Recurrences recurrences = new Recurrences("");
+        assertSame(recurrences.compile("Quarterly"), recurrences.compile("Quarterly"));
+    }
+
+    /**
+     * Tests that monthly, quarterly and yearly occurrences keep the day of month of the anchor,
+     * clamped to shorter months, and the time of day of the anchor.
+     */
+    @Test
+    public void testClampsDayOfMonth() {
+        Recurrence monthly = Recurrence.parse("MONTHLY", BusinessCalendar.WEEKDAYS);
+        assertEquals(LocalDateTime.of(2024, 2, 29, 9, 30), monthly.next(ANCHOR, ANCHOR));
+        assertEquals(LocalDateTime.of(2024, 3, 31, 9, 30), monthly.next(ANCHOR, LocalDateTime.of(2024, 2, 29, 9, 30)));
+        // Due later the same day as an occurrence: that occurrence is still ahead
+        assertEquals(LocalDateTime.of(2024, 4, 30, 9, 30), monthly.next(ANCHOR, LocalDateTime.of(2024, 4, 30, 9, 29)));
+
+        Recurrence quarterly = Recurrence.parse("QUARTERLY", BusinessCalendar.WEEKDAYS);
+        assertEquals(LocalDateTime.of(2024, 4, 30, 9, 30), quarterly.next(ANCHOR, ANCHOR));
+        Recurrence yearly = Recurrence.parse("YEARLY", BusinessCalendar.WEEKDAYS);
+        LocalDateTime leapDay = LocalDateTime.of(2024, 2, 29, 0, 0);
+        assertEquals(LocalDateTime.of(2025, 2, 28, 0, 0), yearly.next(leapDay, leapDay));
+        assertEquals(LocalDateTime.of(2028, 2, 29, 0, 0), yearly.next(leapDay, LocalDateTime.of(2027, 2, 28, 0, 0)));
+    }
+
+    /**
+     * Tests the constant time arithmetic against the java.time stepping it replaces, for every
+     * unit and interval, from anchors across several centuries.
+     */
+    @Test
+    public void testMatchesJavaTime() {
+        Random random = new Random(11);
+        String[] units = {"DAILY", "WEEKLY", "MONTHLY", "QUARTERLY", "YEARLY"};
+        for (int i = 0; i < 2_000; i++) {
+            String unit = units[random.nextInt(units.length)];
+            int interval = 1 + random.nextInt(5);
+            Recurrence recurrence = Recurrence.parse(unit + ";INTERVAL=" + interval, BusinessCalendar.WEEKDAYS);
+            LocalDate anchor = LocalDate.ofEpochDay(-40_000 + random.nextInt(120_000));
+            LocalDate after = anchor.plusDays(random.nextInt(5_000));
+
+            LocalDate expected = anchor;
+            for (int k = 1; !expected.isAfter(after); k++) {
+                expected = switch (unit) {
+                    case "DAILY" -> anchor.plusDays((long) k * interval);
+                    case "WEEKLY" -> anchor.plusWeeks((long) k * interval);
+                    case "MONTHLY" -> anchor.plusMonths((long) k * interval);
+                    case "QUARTERLY" -> anchor.plusMonths(3L * k * interval);
+                    default -> anchor.plusYears((long) k * interval);
+                };
+            }
+            assertEquals(expected.toEpochDay(), recurrence.nextDay(anchor.toEpochDay(), after.toEpochDay()),
+                    unit + " x" + interval + " from " + anchor + " after " + after);
+        }
+    }
+
+    /**
+     * Tests that the last occurrence at or before a time is the one the next occurrence follows,
+     * including on business days and before the anchor.
+     */
+    @Test
+    public void testLast() {
+        Recurrence monthly = Recurrence.parse("MONTHLY", BusinessCalendar.WEEKDAYS);
+        assertEquals(LocalDateTime.of(2024, 4, 30, 9, 30), monthly.last(ANCHOR, LocalDateTime.of(2024, 5, 30, 9, 30)));
+        assertEquals(LocalDateTime.of(2024, 5, 31, 9, 30), monthly.last(ANCHOR, LocalDateTime.of(2024, 5, 31, 9, 30)));
+        assertEquals(LocalDateTime.of(2024, 4, 30, 9, 30), monthly.last(ANCHOR, LocalDateTime.of(2024, 5, 31, 9, 29)));
+        assertNull(monthly.last(ANCHOR, ANCHOR.minusMinutes(1)));
+
+        Random random = new Random(7);
+        for (String frequency : new String[] {"DAILY;BUSINESS_DAYS", "WEEKLY;INTERVAL=3", "MONTHLY;BUSINESS_DAYS",
+                "QUARTERLY", "YEARLY;BUSINESS_DAYS"}) {
+            Recurrence recurrence = Recurrence.parse(frequency, BusinessCalendar.WEEKDAYS);
+            for (int i = 0; i < 500; i++) {
+                long anchorDay = LocalDate.of(2000, 1, 1).toEpochDay() + random.nextInt(10_000);
+                long atDay = anchorDay + random.nextInt(3_000);
+                long last = recurrence.lastDay(anchorDay, atDay);
+                if (last == Long.MIN_VALUE) { // Anchored on a weekend, moved past the day
+                    assertTrue(recurrence.nextDay(anchorDay, anchorDay - 1) > atDay, frequency);
+                    continue;
+                }
+                assertTrue(last <= atDay, frequency);
+                assertTrue(recurrence.nextDay(anchorDay, last) > atDay, frequency + " from " + anchorDay);
+            }
+        }
+    }
+
+    /**
+     * Tests that business day occurrences move past weekends and holidays without shifting the
+     * following ones, and that occurrences moved onto the same day are enumerated once.
+     */
+    @Test
+    public void testBusinessDays() {
+        LocalDate christmas = LocalDate.of(2024, 12, 25);
+        BusinessCalendar calendar = new BusinessCalendar(List.of(christmas, christmas.plusDays(1)));
+        assertFalse(calendar.isBusinessDay(christmas.toEpochDay()));
+        assertEquals(LocalDate.of(2024, 12, 27).toEpochDay(), calendar.onOrAfter(christmas.toEpochDay()));
+        assertEquals(LocalDate.of(2400, 1, 3).toEpochDay(), calendar.onOrAfter(LocalDate.of(2400, 1, 1).toEpochDay()));
+
+        Recurrence monthly = Recurrence.parse("MONTHLY;BUSINESS_DAYS", calendar);
+        LocalDateTime anchor = LocalDateTime.of(2024, 11, 25, 8, 0);
+        assertEquals(LocalDateTime.of(2024, 12, 27, 8, 0), monthly.next(anchor, anchor));
+        assertEquals(LocalDateTime.of(2025, 1, 27, 8, 0), monthly.next(anchor, LocalDateTime.of(2024, 12, 27, 8, 0)));
+
+        Recurrence daily = Recurrence.parse("DAILY;BUSINESS_DAYS", calendar);
+        long[] days = new long[10];
+        long friday = LocalDate.of(2024, 12, 20).toEpochDay();
+        int count = daily.nextDays(friday, friday - 1, friday + 13, days);
+        assertEquals(8, count); // Two weekends and the two holidays skipped
+        for (int i = 0; i < count; i++) {
+            LocalDate day = LocalDate.ofEpochDay(days[i]);
+            assertTrue(day.getDayOfWeek().getValue() <= DayOfWeek.FRIDAY.getValue(), day.toString());
+            assertTrue(i == 0 || days[i] > days[i - 1]);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.ezpay.test;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.entity.BulkUpdateResult;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentBulkRequest;
+import com.ezpay.entity.ScheduledPaymentRetry;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.ScheduledPaymentRetryRepository;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.service.ScheduledPaymentRetryService;
+import com.ezpay.service.ScheduledPaymentService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the set-based bulk cancel and bulk modify of scheduled payments against the embedded
+ * database.
+ */
+@EmbeddedDatabaseTest
+@RecordApplicationEvents
+public class ScheduledPaymentBulkUpdateTest {
+
+    private static final LocalDateTime DUE = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    @Autowired
+    private ScheduledPaymentFixtures payments;
+
+    @Autowired
+    private ScheduledPaymentService scheduledPaymentService;
+
+    @Autowired
+    private ScheduledPaymentRetryRepository retryRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionCache transactionCache;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        retryRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        transactionCache.invalidateAll();
+    }
+
+    /**
+     * Tests that cancelling the payments of an account updates them without reading them one by
+     * one, leaves the other accounts alone, drops their failed runs, evicts them from the cache
+     * and publishes their status change.
+     */
+    @Test
+    public void testCancelsPaymentsOfAccount() {
+        List<ScheduledPayment> closed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            closed.add(payments.save("acc-closed", i == 0 ? "cancelled" : "Active", DUE));
+        }
+        ScheduledPayment other = payments.save("acc-open", "Active", DUE);
+        ScheduledPaymentRetry retry = new ScheduledPaymentRetry(closed.get(1).getTransactionId(), DUE);
+        retry.setStatus(ScheduledPaymentRetryService.DEAD);
+        retryRepository.save(retry);
+        transactionCache.put(closed.get(2));
+
+        StatementRecorder.clear();
+        BulkUpdateResult result = scheduledPaymentService.cancelScheduledPayments(bySourceAccount("acc-closed"));
+
+        assertEquals(4, result.getRequested());
+        assertEquals(4, result.getUpdated());
+        List<String> statements = StatementRecorder.statements();
+        assertEquals(0, statements.stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).startsWith("update")
+                        && sql.toLowerCase(Locale.ROOT).contains("where transaction_id=?"))
+                .count(), statements.toString());
+        for (ScheduledPayment payment : closed) {
+            ScheduledPayment reloaded = payments.reload(payment);
+            assertEquals("cancelled", reloaded.getStatus());
+            assertFalse(reloaded.getIsAutoPayEnabled());
+        }
+        assertEquals("Active", payments.reload(other).getStatus());
+        assertTrue(payments.reload(other).getIsAutoPayEnabled());
+        assertFalse(retryRepository.existsById(closed.get(1).getTransactionId()));
+        assertNull(transactionCache.getIfPresent(closed.get(2).getTransactionId()));
+        assertEquals(4, events.stream(TransactionStatusChangedEvent.class).count());
+
+        assertEquals(0, scheduledPaymentService.cancelScheduledPayments(bySourceAccount("acc-closed")).getUpdated());
+    }
+
+    /**
+     * Tests that cancelling by IDs counts the IDs given and cancels only the known payments
+     * that were not cancelled yet, and that a single cancel reports unknown payments.
+     */
+    @Test
+    public void testCancelsPaymentsById() {
+        ScheduledPayment first = payments.save("acc-1", "Active", DUE);
+        ScheduledPayment second = payments.save("acc-2", "Active", DUE);
+        ScheduledPayment cancelled = payments.save("acc-3", "cancelled", DUE);
+
+        ScheduledPaymentBulkRequest request = new ScheduledPaymentBulkRequest();
+        request.setTransactionIds(List.of(first.getTransactionId(), cancelled.getTransactionId(),
+                first.getTransactionId(), 42L));
+        BulkUpdateResult result = scheduledPaymentService.cancelScheduledPayments(request);
+
+        assertEquals(3, result.getRequested());
+        assertEquals(1, result.getUpdated());
+        assertEquals("cancelled", payments.reload(first).getStatus());
+        assertEquals("Active", payments.reload(second).getStatus());
+
+        assertTrue(scheduledPaymentService.cancelScheduledPayment(second.getTransactionId()));
+        assertEquals("cancelled", payments.reload(second).getStatus());
+        assertTrue(scheduledPaymentService.cancelScheduledPayment(second.getTransactionId()));
+        assertFalse(scheduledPaymentService.cancelScheduledPayment(42L));
+    }
+
+    /**
+     * Tests that of concurrent cancellations of the same payments each payment is cancelled,
+     * and logged, by one only.
+     */
+    @Test
+    public void testConcurrentCancelsLogEachPaymentOnce() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(payments.save("acc-closed", "Active", DUE).getTransactionId());
+        }
+        ScheduledPaymentBulkRequest request = new ScheduledPaymentBulkRequest();
+        request.setTransactionIds(ids);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<BulkUpdateResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return scheduledPaymentService.cancelScheduledPayments(request);
+                }));
+            }
+            start.countDown();
+            int updated = 0;
+            for (Future<BulkUpdateResult> result : results) {
+                updated += result.get().getUpdated();
+            }
+            assertEquals(ids.size(), updated);
+        } finally {
+            executor.shutdownNow();
+        }
+        Integer logged = new NamedParameterJdbcTemplate(jdbcTemplate).queryForObject(
+                "SELECT COUNT(*) FROM transaction_status_event WHERE to_status = 'cancelled' AND transaction_id IN (:ids)",
+                Map.of("ids", ids), Integer.class);
+        assertEquals(ids.size(), logged);
+    }
+
+    /**
+     * Tests that a bulk modify sets only the values given, and leaves cancelled payments alone.
+     */
+    @Test
+    public void testModifiesPayments() {
+        ScheduledPayment first = payments.save("acc-old", "Active", DUE);
+        ScheduledPayment second = payments.save("acc-old", "Active", DUE);
+        ScheduledPayment cancelled = payments.save("acc-old", "cancelled", DUE);
+        transactionCache.put(first);
+
+        ScheduledPaymentBulkRequest request = bySourceAccount("acc-old");
+        request.setNewSourceAccount("acc-new");
+        request.setIsAutoPayEnabled(false);
+        BulkUpdateResult result = scheduledPaymentService.modifyScheduledPayments(request);
+
+        assertEquals(2, result.getRequested());
+        assertEquals(2, result.getUpdated());
+        for (ScheduledPayment payment : List.of(first, second)) {
+            ScheduledPayment reloaded = payments.reload(payment);
+            assertEquals("acc-new", reloaded.getSourceAccount());
+            assertFalse(reloaded.getIsAutoPayEnabled());
+            assertEquals(250.0, reloaded.getAmount());
+            assertEquals("Active", reloaded.getStatus());
+        }
+        assertEquals("acc-old", payments.reload(cancelled).getSourceAccount());
+        assertNull(transactionCache.getIfPresent(first.getTransactionId()));
+
+        request = new ScheduledPaymentBulkRequest();
+        request.setTransactionIds(List.of(first.getTransactionId(), cancelled.getTransactionId()));
+        request.setAmount(99.5);
+        request.setIsAutoPayEnabled(true);
+        result = scheduledPaymentService.modifyScheduledPayments(request);
+
+        assertEquals(1, result.getUpdated());
+        assertEquals(99.5, payments.reload(first).getAmount());
+        assertTrue(payments.reload(first).getIsAutoPayEnabled());
+        assertEquals("acc-new", payments.reload(first).getSourceAccount());
+        assertEquals(250.0, payments.reload(cancelled).getAmount());
+    }
+
+    /**
+     * Tests that requests selecting no payments or setting nothing are rejected.
+     */
+    @Test
+    public void testRejectsInvalidRequests() {
+        assertThrows(InvalidRequestException.class,
+                () -> scheduledPaymentService.cancelScheduledPayments(new ScheduledPaymentBulkRequest()));
+        ScheduledPaymentBulkRequest both = bySourceAccount("acc-1");
+        both.setTransactionIds(List.of(1L));
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.cancelScheduledPayments(both));
+        assertThrows(InvalidRequestException.class,
+                () -> scheduledPaymentService.modifyScheduledPayments(bySourceAccount("acc-1")));
+        ScheduledPaymentBulkRequest negative = bySourceAccount("acc-1");
+        negative.setAmount(-1.0);
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.modifyScheduledPayments(negative));
+    }
+
+    private static ScheduledPaymentBulkRequest bySourceAccount(String sourceAccount) {
+        ScheduledPaymentBulkRequest request = new ScheduledPaymentBulkRequest();
+        request.setSourceAccount(sourceAccount);
+        return request;
+    }
+}
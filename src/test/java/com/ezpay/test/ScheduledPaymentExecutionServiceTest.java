@@ -0,0 +1,298 @@
+package com.ezpay.test;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.CatchUpPolicy;
+import com.ezpay.entity.CatchUpStats;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.repository.BankTransferTransactionRepository;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.TransactionIdAllocator;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+import com.ezpay.scheduling.ShardLeaseManager;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+import com.ezpay.service.ScheduledPaymentRetryService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the scheduled payment runner against the embedded database with the default joined
+ * storage layout. Every batch commits on its own, so the tests run outside a test transaction.
+ */
+@DataJpaTest(properties = {"ezpay.scheduled-payments.batch-size=2", "ezpay.scheduled-payments.tick=PT1H",
+        "ezpay.scheduled-payments.catch-up.interval=PT1H"})
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ScheduledPaymentExecutionService.class, ScheduledPaymentTimer.class, ShardLeaseManager.class,
+        ScheduledPaymentRetryService.class, Recurrences.class, TransactionCache.class, TransactionStatusEventWriter.class,
+        TransactionIdAllocator.class, ScheduledPaymentFixtures.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ScheduledPaymentExecutionServiceTest {
+
+    private static final LocalDateTime DUE = LocalDateTime.of(2024, 9, 1, 10, 0);
+
+    @Autowired
+    private ScheduledPaymentFixtures payments;
+
+    @Autowired
+    private ScheduledPaymentExecutionService executionService;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private BankTransferTransactionRepository bankTransferTransactionRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ScheduledPaymentTimer scheduledPaymentTimer;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @BeforeEach
+    public void takeShards() {
+        shardLeaseManager.heartbeat(); // The only instance, owns every shard
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        transactionRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that due auto-pay payments create their transfer and move on by their frequency,
+     * while payments not yet due or without auto-pay are left alone.
+     */
+    @Test
+    public void testExecutesDuePayments() {
+        ScheduledPayment monthly = payments.save(DUE, null, "Monthly", true);
+        ScheduledPayment weekly = payments.save(DUE.minusHours(1), null, "WEEKLY", true);
+        ScheduledPayment later = payments.save(DUE.plusDays(1), null, "Monthly", true);
+        ScheduledPayment manual = payments.save(DUE, null, "Monthly", false);
+
+        assertEquals(2, executionService.executeDue(DUE.plusHours(2)));
+
+        assertEquals(DUE.plusMonths(1), payments.reload(monthly).getNextPaymentDate());
+        assertEquals(DUE.minusHours(1).plusWeeks(1), payments.reload(weekly).getNextPaymentDate());
+        assertEquals(DUE.plusDays(1), payments.reload(later).getNextPaymentDate());
+        assertEquals(DUE, payments.reload(manual).getNextPaymentDate());
+
+        List<BankTransferTransaction> transfers = bankTransferTransactionRepository.findAll();
+        assertEquals(2, transfers.size());
+        BankTransferTransaction transfer = transfers.stream()
+                .filter(t -> t.getTransferId().equals(ScheduledPaymentExecutionService.runKey(monthly.getTransactionId(), DUE)))
+                .findFirst().orElseThrow();
+        assertEquals("Bank Transfer", transfer.getTransactionType());
+        assertEquals(250.0, transfer.getAmount());
+        assertEquals(LocalDate.of(2024, 9, 1), transfer.getDate());
+        assertEquals(ScheduledPaymentExecutionService.RUN_STATUS, transfer.getStatus());
+        assertEquals("acc-src", transfer.getSenderAccount());
+        assertEquals("acc-dst", transfer.getReceiverAccount());
+    }
+
+    /**
+     * Tests that a payment which missed several due times is run once per due time, across batches.
+     */
+    @Test
+    public void testRunsEveryMissedDueTime() {
+        ScheduledPayment daily = payments.save(DUE, null, "daily", true);
+
+        assertEquals(4, executionService.executeDue(DUE.plusDays(3)));
+
+        assertEquals(DUE.plusDays(4), payments.reload(daily).getNextPaymentDate());
+        assertEquals(4, bankTransferTransactionRepository.count());
+    }
+
+    /**
+     * Tests that nothing is run once the leases of this instance have run out, although it
+     * still holds its shards until its next heartbeat.
+     */
+    @Test
+    public void testRunsNothingWithoutLeases() {
+        ScheduledPayment daily = payments.save(DUE, null, "daily", true);
+        shardLeaseManager.heartbeat(Instant.now().minus(Duration.ofHours(1))); // Leases ran out since
+
+        assertEquals(0, executionService.executeDue(DUE.plusDays(3)));
+        assertEquals(0, executionService.catchUpPayments(DUE.plusDays(3), 10));
+        assertEquals(DUE, payments.reload(daily).getNextPaymentDate());
+
+        shardLeaseManager.heartbeat();
+        assertEquals(4, executionService.executeDue(DUE.plusDays(3)));
+    }
+
+    /**
+     * Tests that the last run before the end date completes the payment and nothing runs after it.
+     */
+    @Test
+    public void testStopsAtEndDate() {
+        ScheduledPayment monthly = payments.save(DUE, DUE.plusDays(40), "Monthly", true);
+
+        assertEquals(2, executionService.executeDue(DUE.plusYears(1)));
+
+        ScheduledPayment completed = payments.reload(monthly);
+        assertEquals(ScheduledPaymentExecutionService.COMPLETED, completed.getStatus());
+        assertFalse(completed.getIsAutoPayEnabled());
+        assertEquals(0, executionService.executeDue(DUE.plusYears(2)));
+        assertEquals(2, bankTransferTransactionRepository.count());
+    }
+
+    /**
+     * Tests that running the same due time again moves the payment on without a second transfer.
+     */
+    @Test
+    public void testRunIsIdempotentPerDueTime() {
+        ScheduledPayment monthly = payments.save(DUE, null, "Monthly", true);
+        assertEquals(1, executionService.executeDue(DUE));
+
+        ScheduledPayment rewound = payments.reload(monthly);
+        rewound.setNextPaymentDate(DUE); // As if the run had not been recorded
+        scheduledPaymentRepository.save(rewound);
+
+        assertEquals(0, executionService.executeDue(DUE));
+        assertEquals(DUE.plusMonths(1), payments.reload(monthly).getNextPaymentDate());
+        assertEquals(1, bankTransferTransactionRepository.count());
+    }
+
+    /**
+     * Tests that monthly runs keep the day of month of the start date, clamped to shorter months,
+     * and that business day runs skip the weekend without shifting the later runs.
+     */
+    @Test
+    public void testRunsFollowTheRecurrence() {
+        LocalDateTime endOfJanuary = LocalDateTime.of(2024, 1, 31, 9, 0);
+        ScheduledPayment monthly = payments.save(endOfJanuary, null, "Monthly", true);
+        // Saturday August 31st moves to Monday September 2nd, the next run is back on October 31st
+        LocalDateTime endOfAugust = LocalDateTime.of(2024, 8, 31, 9, 0);
+        ScheduledPayment businessDays = payments.save(endOfAugust, null, "MONTHLY;INTERVAL=2;BUSINESS_DAYS", true);
+        businessDays.setNextPaymentDate(LocalDateTime.of(2024, 9, 2, 9, 0));
+        scheduledPaymentRepository.save(businessDays);
+
+        assertEquals(9, executionService.executeDue(LocalDateTime.of(2024, 9, 3, 0, 0)));
+        assertEquals(LocalDateTime.of(2024, 9, 30, 9, 0), payments.reload(monthly).getNextPaymentDate());
+        assertTrue(bankTransferTransactionRepository.findAll().stream().anyMatch(t -> t.getTransferId()
+                .equals(ScheduledPaymentExecutionService.runKey(monthly.getTransactionId(), LocalDateTime.of(2024, 2, 29, 9, 0)))));
+        assertEquals(LocalDateTime.of(2024, 10, 31, 9, 0), payments.reload(businessDays).getNextPaymentDate());
+    }
+
+    /**
+     * Tests that a payment with an unknown frequency is suspended instead of being read on every poll.
+     */
+    @Test
+    public void testSuspendsUnknownFrequency() {
+        ScheduledPayment fortnightly = payments.save(DUE, null, "Fortnightly", true);
+
+        assertEquals(0, executionService.executeDue(DUE));
+
+        ScheduledPayment suspended = payments.reload(fortnightly);
+        assertEquals(ScheduledPaymentExecutionService.SUSPENDED, suspended.getStatus());
+        assertFalse(suspended.getIsAutoPayEnabled());
+        assertEquals(0, bankTransferTransactionRepository.count());
+    }
+
+    /**
+     * Tests that the timer loaded from the database hands out only the due payments and
+     * follows them to their next due time.
+     */
+    @Test
+    public void testTimerRunsDuePayments() {
+        LocalDateTime due = LocalDateTime.now().withNano(0).plusMinutes(1); // The timer runs on the clock
+        ScheduledPayment daily = payments.save(due, null, "Daily", true);
+        ScheduledPayment weekly = payments.save(due.plusDays(2), null, "Weekly", true);
+        payments.save(due, null, "Daily", false);
+        scheduledPaymentTimer.load();
+
+        assertEquals(1, executionService.runTimerDue(due.plusHours(1)));
+        assertEquals(due.plusDays(1), payments.reload(daily).getNextPaymentDate());
+        assertEquals(0, executionService.runTimerDue(due.plusHours(2)));
+
+        assertEquals(3, executionService.runTimerDue(due.plusDays(2)));
+        assertEquals(due.plusDays(3), payments.reload(daily).getNextPaymentDate());
+        assertEquals(due.plusDays(2).plusWeeks(1), payments.reload(weekly).getNextPaymentDate());
+        assertEquals(4, bankTransferTransactionRepository.count());
+    }
+
+    /**
+     * Tests that the catch-up makes every missed run, only the latest one or none according to
+     * the policy of each payment, while a latest run still on time is made under any policy.
+     */
+    @Test
+    public void testCatchUpPolicies() {
+        LocalDateTime now = DUE.plusDays(3).plusHours(2);
+        ScheduledPayment runAll = payments.save(DUE, null, "Daily", true);
+        ScheduledPayment latestOnly = payments.save(DUE, null, "Daily", true, CatchUpPolicy.LATEST_ONLY);
+        ScheduledPayment skip = payments.save(DUE, null, "Daily", true, CatchUpPolicy.SKIP);
+        LocalDateTime twoMinutesLate = now.minusMinutes(2).minusDays(3);
+        ScheduledPayment skipOnTime = payments.save(twoMinutesLate, null, "Daily", true, CatchUpPolicy.SKIP);
+        CatchUpStats before = executionService.catchUpStats(now);
+        assertEquals(4, before.getBacklog());
+        assertEquals(DUE, before.getOldestDue());
+
+        assertEquals(4 + 1 + 1 + 1, executionService.catchUpPayments(now, 100));
+
+        assertEquals(DUE.plusDays(4), payments.reload(runAll).getNextPaymentDate());
+        assertEquals(DUE.plusDays(4), payments.reload(latestOnly).getNextPaymentDate());
+        assertEquals(DUE.plusDays(4), payments.reload(skip).getNextPaymentDate());
+        assertEquals(twoMinutesLate.plusDays(4), payments.reload(skipOnTime).getNextPaymentDate());
+        List<String> transferIds = bankTransferTransactionRepository.findAll().stream()
+                .map(BankTransferTransaction::getTransferId).toList();
+        assertEquals(6, transferIds.size());
+        assertTrue(transferIds.contains(ScheduledPaymentExecutionService.runKey(latestOnly.getTransactionId(),
+                DUE.plusDays(3))));
+        assertTrue(transferIds.contains(ScheduledPaymentExecutionService.runKey(skipOnTime.getTransactionId(),
+                twoMinutesLate.plusDays(3))));
+
+        CatchUpStats after = executionService.catchUpStats(now);
+        assertEquals(0, after.getBacklog());
+        assertNull(after.getOldestDue());
+        assertEquals(6, after.getRunsExecuted() - before.getRunsExecuted());
+        assertEquals(3, after.getPaymentsSkipped() - before.getPaymentsSkipped());
+        assertEquals(now, after.getLastPass());
+    }
+
+    /**
+     * Tests that a catch-up pass reads no more payments than it is given, and that the timer
+     * leaves missed runs to the catch-up so that on-time runs are not held up by a backlog.
+     */
+    @Test
+    public void testCatchUpIsBounded() {
+        LocalDateTime now = LocalDateTime.now().withNano(0); // The timer runs on the clock
+        for (int i = 0; i < 5; i++) {
+            payments.save(now.minusDays(10).plusMinutes(i), null, "Daily", true);
+        }
+        ScheduledPayment onTime = payments.save(now.minusMinutes(1), null, "Daily", true);
+        scheduledPaymentTimer.load();
+
+        assertEquals(1, executionService.runTimerDue(now));
+        assertEquals(now.minusMinutes(1).plusDays(1), payments.reload(onTime).getNextPaymentDate());
+
+        assertEquals(3, executionService.catchUpPayments(now, 3));
+        assertEquals(4, bankTransferTransactionRepository.count());
+        CatchUpStats stats = executionService.catchUpStats(now);
+        assertEquals(5, stats.getBacklog());
+        assertEquals(now.minusDays(10).plusMinutes(3), stats.getOldestDue());
+        assertEquals(3, stats.getLastPassRuns());
+    }
+}
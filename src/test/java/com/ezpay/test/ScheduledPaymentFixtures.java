@@ -0,0 +1,68 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.CatchUpPolicy;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.repository.ScheduledPaymentRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scheduled payments for the embedded database tests: 250.0 from acc-src to acc-dst, daily and
+ * on auto-pay unless stated otherwise. Imported by {@link EmbeddedDatabaseTest}.
+ */
+@TestComponent
+public class ScheduledPaymentFixtures {
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    /**
+     * Creates an unsaved payment.
+     * @param sourceAccount Source account
+     * @param status Status, a cancelled payment has auto-pay off
+     * @param nextPaymentDate Next and first payment date
+     * @param endDate End date, or null for none
+     */
+    static ScheduledPayment payment(String sourceAccount, String status, LocalDateTime nextPaymentDate,
+                                    LocalDateTime endDate) {
+        ScheduledPayment payment = new ScheduledPayment(250.0, nextPaymentDate, status, "user1", "user2",
+                nextPaymentDate, endDate, "Daily", !"cancelled".equals(status), sourceAccount, "acc-dst");
+        payment.setTransactionType("Scheduled Payment");
+        return payment;
+    }
+
+    ScheduledPayment save(ScheduledPayment payment) {
+        return scheduledPaymentRepository.save(payment);
+    }
+
+    ScheduledPayment save(String sourceAccount, String status, LocalDateTime nextPaymentDate) {
+        return save(payment(sourceAccount, status, nextPaymentDate, null));
+    }
+
+    ScheduledPayment save(LocalDateTime nextPaymentDate) {
+        return save(payment("acc-src", "Active", nextPaymentDate, null));
+    }
+
+    ScheduledPayment save(LocalDateTime nextPaymentDate, LocalDateTime endDate, String frequency, boolean autoPay) {
+        return save(nextPaymentDate, endDate, frequency, autoPay, null);
+    }
+
+    ScheduledPayment save(LocalDateTime nextPaymentDate, LocalDateTime endDate, String frequency, boolean autoPay,
+                          CatchUpPolicy catchUpPolicy) {
+        ScheduledPayment payment = payment("acc-src", "Active", nextPaymentDate, endDate);
+        payment.setFrequency(frequency);
+        payment.setIsAutoPayEnabled(autoPay);
+        payment.setCatchUpPolicy(catchUpPolicy);
+        return save(payment);
+    }
+
+    /**
+     * @return The payment as stored now
+     */
+    ScheduledPayment reload(ScheduledPayment payment) {
+        return scheduledPaymentRepository.findById(payment.getTransactionId()).orElseThrow();
+    }
+}
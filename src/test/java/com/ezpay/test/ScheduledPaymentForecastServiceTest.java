@@ -0,0 +1,172 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.CashFlowForecast;
+import com.ezpay.entity.CatchUpPolicy;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.service.ScheduledPaymentForecastService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ScheduledPaymentForecastService class.
+ */
+public class ScheduledPaymentForecastServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 9, 1);
+
+    @Mock
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Spy
+    private Recurrences recurrences = new Recurrences("");
+
+    @InjectMocks
+    private ScheduledPaymentForecastService forecastService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    /**
+     * Tests that each payment is expanded over the horizon up to its end date and summed per day,
+     * with overdue runs on the first day and invalid frequencies left out.
+     */
+    @Test
+    public void testExpandsPaymentsPerDay() {
+        LocalDateTime nine = FROM.atTime(9, 0);
+        when(scheduledPaymentRepository.findForecastRows(anyCollection(), any())).thenReturn(List.of(
+                row("acc-1", 100.0, nine, nine, null, "Monthly"),                       // Sep 1, Oct 1, Nov 1
+                row("acc-1", 10.0, nine.plusDays(6), nine, null, "WEEKLY"),             // Sep 7, 14, ... Nov 30
+                row("acc-1", 5.0, nine.minusDays(2), nine.minusDays(2), nine.plusDays(3), "daily"), // 2 overdue, 4 more
+                row("acc-1", 1000.0, nine, nine, null, "Fortnightly"),
+                row("acc-2", 50.0, nine.plusDays(30), nine.plusDays(30), null, "QUARTERLY")));
+
+        List<CashFlowForecast> forecasts = forecastService.forecast(List.of("acc-2", "acc-1", "acc-3"), "2024-09-01", 91,
+                FROM);
+
+        assertEquals(List.of("acc-2", "acc-1", "acc-3"), forecasts.stream().map(CashFlowForecast::getSourceAccount).toList());
+        CashFlowForecast first = forecasts.get(1);
+        assertEquals(LocalDate.of(2024, 11, 30), first.getTo());
+        assertEquals(3 + 13 + 6, first.getPayments());
+        assertEquals(300.0 + 130.0 + 30.0, first.getTotal(), 1e-9);
+        CashFlowForecast.Day firstDay = first.getDays().get(0);
+        assertEquals(FROM, firstDay.getDate());
+        assertEquals(100.0 + 3 * 5.0, firstDay.getAmount(), 1e-9);
+        assertEquals(4, firstDay.getPayments());
+        assertEquals(LocalDate.of(2024, 9, 2), first.getDays().get(1).getDate());
+
+        assertEquals(1, forecasts.get(0).getPayments());
+        assertEquals(LocalDate.of(2024, 10, 1), forecasts.get(0).getDays().get(0).getDate());
+        assertEquals(0, forecasts.get(2).getPayments());
+        assertTrue(forecasts.get(2).getDays().isEmpty());
+        verify(scheduledPaymentRepository).findForecastRows(List.of("acc-2", "acc-1", "acc-3"),
+                LocalDate.of(2024, 11, 30).atTime(23, 59, 59, 999_999_999));
+    }
+
+    /**
+     * Tests that a horizon starting after today leaves out the overdue runs and the runs due
+     * before it, all paid before its first day.
+     */
+    @Test
+    public void testStartsAfterToday() {
+        LocalDateTime nine = FROM.atTime(9, 0);
+        when(scheduledPaymentRepository.findForecastRows(anyCollection(), any())).thenReturn(List.of(
+                row("acc-1", 5.0, nine.minusDays(2), nine.minusDays(2), null, "DAILY"),
+                row("acc-1", 100.0, nine, nine, null, "MONTHLY")));
+
+        CashFlowForecast forecast = forecastService.forecast(List.of("acc-1"), "2024-09-11", 30, FROM).get(0);
+
+        assertEquals(30 + 1, forecast.getPayments()); // Sep 11 to Oct 10, and Oct 1
+        assertEquals(30 * 5.0 + 100.0, forecast.getTotal(), 1e-9);
+        assertEquals(LocalDate.of(2024, 9, 11), forecast.getDays().get(0).getDate());
+        assertEquals(5.0, forecast.getDays().get(0).getAmount(), 1e-9);
+        assertEquals(30, forecast.getDays().size());
+    }
+
+    /**
+     * Tests that only the overdue runs selected by the catch-up policy of a payment are made
+     * today, and that its later runs are forecast whatever its policy.
+     */
+    @Test
+    public void testAppliesCatchUpPolicy() {
+        LocalDateTime missed = FROM.minusDays(3).atTime(9, 0); // Aug 29, 30 and 31 overdue
+        when(scheduledPaymentRepository.findForecastRows(anyCollection(), any())).thenReturn(List.of(
+                row("acc-1", 1.0, missed, missed, null, "DAILY", CatchUpPolicy.RUN_ALL),
+                row("acc-1", 10.0, missed, missed, null, "DAILY", CatchUpPolicy.LATEST_ONLY),
+                row("acc-1", 100.0, missed, missed, null, "DAILY", CatchUpPolicy.SKIP)));
+
+        CashFlowForecast forecast = forecastService.forecast(List.of("acc-1"), null, 2, FROM).get(0);
+
+        CashFlowForecast.Day today = forecast.getDays().get(0);
+        assertEquals(FROM, today.getDate());
+        assertEquals(4 + 2 + 1, today.getPayments()); // Each payment also runs on time today
+        assertEquals(4 * 1.0 + 2 * 10.0 + 100.0, today.getAmount(), 1e-9);
+        assertEquals(111.0, forecast.getDays().get(1).getAmount(), 1e-9);
+        assertEquals(3 + 7, forecast.getPayments());
+    }
+
+    /**
+     * Tests that the accounts are split over several fork-join tasks without losing any.
+     */
+    @Test
+    public void testForecastsManyAccounts() {
+        List<String> accounts = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ScheduledPaymentForecastService.MAX_ACCOUNTS; i++) {
+            accounts.add("acc-" + i);
+            for (int j = 0; j <= i % 5; j++) {
+                rows.add(row("acc-" + i, 1.0, FROM.atStartOfDay(), FROM.atStartOfDay(), null, "DAILY"));
+            }
+        }
+        Collections.shuffle(rows);
+        when(scheduledPaymentRepository.findForecastRows(anyCollection(), any())).thenReturn(rows);
+
+        List<CashFlowForecast> forecasts = forecastService.forecast(accounts, null, 10, FROM);
+
+        for (int i = 0; i < accounts.size(); i++) {
+            assertEquals(accounts.get(i), forecasts.get(i).getSourceAccount());
+            assertEquals(10 * (i % 5 + 1), forecasts.get(i).getPayments());
+        }
+    }
+
+    /**
+     * Tests that invalid requests are rejected before the database is read.
+     */
+    @Test
+    public void testRejectsInvalidRequests() {
+        assertThrows(InvalidRequestException.class, () -> forecastService.forecast(List.of(" "), null, 90));
+        assertThrows(InvalidRequestException.class, () -> forecastService.forecast(List.of("acc-1"), null, 0));
+        assertThrows(InvalidRequestException.class, () -> forecastService.forecast(List.of("acc-1"), null, 367));
+        assertThrows(InvalidRequestException.class, () -> forecastService.forecast(List.of("acc-1"), "01/09/2024", 90));
+        verifyNoInteractions(scheduledPaymentRepository);
+    }
+
+    private static Object[] row(String account, double amount, LocalDateTime nextPaymentDate, LocalDateTime startDate,
+                                LocalDateTime endDate, String frequency) {
+        return row(account, amount, nextPaymentDate, startDate, endDate, frequency, null);
+    }
+
+    private static Object[] row(String account, double amount, LocalDateTime nextPaymentDate, LocalDateTime startDate,
+                                LocalDateTime endDate, String frequency, CatchUpPolicy catchUpPolicy) {
+        return new Object[] {account, amount, nextPaymentDate, startDate, endDate, frequency, catchUpPolicy};
+    }
+}
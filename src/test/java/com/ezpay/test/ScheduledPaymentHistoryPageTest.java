@@ -0,0 +1,194 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.KeysetPage;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentBulkRequest;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.service.ScheduledPaymentService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the filtered, keyset paginated scheduled payment history against the embedded database,
+ * and that the pages are read from the scheduled_payment indexes.
+ */
+@EmbeddedDatabaseTest
+public class ScheduledPaymentHistoryPageTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    @Autowired
+    private ScheduledPaymentService scheduledPaymentService;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        transactionRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that paging through every filter combination returns each matching payment once,
+     * in (next payment date, transaction ID) order, with ties on the date split across pages.
+     */
+    @Test
+    public void testPagesThroughFilteredPayments() {
+        List<ScheduledPayment> all = seed();
+
+        assertPages(all, p -> true, null, null, null, null, null, null);
+        assertPages(all, p -> p.getSourceAccount().equals("acc-1"), "acc-1", null, null, null, null, null);
+        assertPages(all, p -> p.getDestinationAccount().equals("payee-2"), null, "payee-2", null, null, null, null);
+        assertPages(all, p -> p.getStatus().equals("cancelled"), null, null, "cancelled", null, null, null);
+        assertPages(all, p -> !p.getIsAutoPayEnabled() && p.getSourceAccount().equals("acc-0"), "acc-0", null, null,
+                false, null, null);
+        assertPages(all, p -> !p.getNextPaymentDate().isBefore(START.plusDays(2))
+                        && !p.getNextPaymentDate().isAfter(START.plusDays(4).withHour(23)),
+                null, null, null, null, "2030-01-03", "2030-01-05");
+        assertPages(all, p -> p.getNextPaymentDate().isAfter(START.plusDays(1))
+                        && p.getDestinationAccount().equals("payee-1") && p.getIsAutoPayEnabled(),
+                null, "payee-1", null, true, "2030-01-02T09:00:01", null);
+
+        KeysetPage<ScheduledPayment> empty = scheduledPaymentService.findScheduledPaymentsPage("acc-9", null, null, null,
+                null, null, null, 10);
+        assertTrue(empty.getItems().isEmpty());
+        assertFalse(empty.isHasMore());
+    }
+
+    /**
+     * Tests that the status filter follows status changes, which are copied to the
+     * scheduled_payment row by entity updates and by bulk cancellation.
+     */
+    @Test
+    public void testStatusFilterFollowsStatusChanges() {
+        List<ScheduledPayment> all = seed();
+        ScheduledPayment completed = all.get(1);
+        completed.setStatus("Completed");
+        scheduledPaymentRepository.save(completed);
+        ScheduledPaymentBulkRequest request = new ScheduledPaymentBulkRequest();
+        request.setSourceAccount("acc-2");
+        scheduledPaymentService.cancelScheduledPayments(request);
+
+        List<ScheduledPayment> reloaded = scheduledPaymentRepository.findAllById(all.stream()
+                .map(ScheduledPayment::getTransactionId).toList());
+        reloaded.sort(Comparator.comparing(ScheduledPayment::getNextPaymentDate)
+                .thenComparing(ScheduledPayment::getTransactionId));
+        assertPages(reloaded, p -> p.getStatus().equals("cancelled"), null, null, "cancelled", null, null, null);
+        assertPages(reloaded, p -> p.getStatus().equals("Completed"), null, null, "Completed", null, null, null);
+    }
+
+    /**
+     * Tests that the pages of each filter read the index matching it.
+     */
+    @Test
+    public void testPagesUseIndexes() {
+        seed();
+        jdbcTemplate.execute("ANALYZE");
+
+        String plan = planOf(() -> page(null, null, null, null, "2030-01-03"), Timestamp.valueOf(START.plusDays(2)));
+        assertTrue(plan.contains("IDX_SP_NEXT_DUE"), plan);
+        plan = planOf(() -> page("acc-1", null, null, null, null), "acc-1");
+        assertTrue(plan.contains("IDX_SP_SOURCE_NEXT_DUE"), plan);
+        plan = planOf(() -> page(null, "payee-2", null, null, null), "payee-2");
+        assertTrue(plan.contains("IDX_SP_DESTINATION_DUE"), plan);
+        plan = planOf(() -> page(null, null, "cancelled", null, null), "cancelled");
+        assertTrue(plan.contains("IDX_SP_STATUS_DUE"), plan);
+        plan = planOf(() -> page(null, null, null, true, null), true);
+        assertTrue(plan.contains("IDX_SP_DUE"), plan);
+    }
+
+    /**
+     * Tests that invalid sizes, due windows and cursors are rejected.
+     */
+    @Test
+    public void testRejectsInvalidRequests() {
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.findScheduledPaymentsPage(null, null,
+                null, null, null, null, null, 0));
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.findScheduledPaymentsPage(null, null,
+                null, null, null, null, null, ScheduledPaymentService.MAX_PAGE_SIZE + 1));
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.findScheduledPaymentsPage(null, null,
+                null, null, "01/01/2030", null, null, 10));
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.findScheduledPaymentsPage(null, null,
+                null, null, "2030-01-05", "2030-01-04", null, 10));
+        assertThrows(InvalidRequestException.class, () -> scheduledPaymentService.findScheduledPaymentsPage(null, null,
+                null, null, null, null, "not-a-cursor", 10));
+    }
+
+    private void assertPages(List<ScheduledPayment> all, Predicate<ScheduledPayment> filter, String sourceAccount,
+                             String destinationAccount, String status, Boolean autoPayEnabled, String dueFrom,
+                             String dueTo) {
+        List<Long> expected = all.stream().filter(filter).map(ScheduledPayment::getTransactionId).toList();
+        List<Long> actual = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<ScheduledPayment> page = scheduledPaymentService.findScheduledPaymentsPage(sourceAccount,
+                    destinationAccount, status, autoPayEnabled, dueFrom, dueTo, cursor, 4);
+            assertTrue(page.getSize() <= 4);
+            assertEquals(page.isHasMore(), page.getNextCursor() != null);
+            page.getItems().forEach(payment -> actual.add(payment.getTransactionId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    private void page(String sourceAccount, String destinationAccount, String status, Boolean autoPayEnabled,
+                      String dueFrom) {
+        scheduledPaymentService.findScheduledPaymentsPage(sourceAccount, destinationAccount, status, autoPayEnabled,
+                dueFrom, null, null, 10);
+    }
+
+    /**
+     * Runs a page query and returns the plan of the SQL it generated, upper case.
+     * @param query Call issuing exactly one statement
+     * @param filter Value of the filter parameter, followed by the row limit of the page
+     */
+    private String planOf(Runnable query, Object filter) {
+        StatementRecorder.clear();
+        query.run();
+        List<String> statements = StatementRecorder.statements();
+        assertEquals(1, statements.size(), statements.toString());
+        return String.join(" ", jdbcTemplate.queryForList("EXPLAIN " + statements.get(0), String.class,
+                        filter, 11)).replaceAll("\\s+", " ").toUpperCase();
+    }
+
+    /**
+     * Stores 30 payments over 6 days, several on each date and time, from 3 source accounts to 3
+     * destination accounts, a third of them cancelled and without auto-pay.
+     */
+    private List<ScheduledPayment> seed() {
+        List<ScheduledPayment> payments = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            LocalDateTime due = START.plusDays(i % 6);
+            boolean cancelled = i % 3 == 0;
+            ScheduledPayment payment = new ScheduledPayment(10 + i, due, cancelled ? "cancelled" : "Active", "user" + i % 3,
+                    "payee" + i % 5, due, null, "DAILY", !cancelled, "acc-" + i % 3, "payee-" + i % 4);
+            payment.setTransactionType("Scheduled Payment");
+            payments.add(payment);
+        }
+        List<ScheduledPayment> saved = new ArrayList<>(scheduledPaymentRepository.saveAll(payments));
+        saved.sort(Comparator.comparing(ScheduledPayment::getNextPaymentDate)
+                .thenComparing(ScheduledPayment::getTransactionId));
+        return saved;
+    }
+}
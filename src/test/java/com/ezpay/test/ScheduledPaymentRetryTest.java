@@ -0,0 +1,211 @@
+package com.ezpay.test;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentRetry;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.BankTransferTransactionRepository;
+import com.ezpay.repository.ScheduledPaymentRetryRepository;
+import com.ezpay.repository.TransactionIdAllocator;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+import com.ezpay.scheduling.ShardLeaseManager;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+import com.ezpay.service.ScheduledPaymentRetryService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Tests the retry queue of failed scheduled payment runs against the embedded database. Runs
+ * fail by a database timeout injected into the lookup of the transfers of a batch.
+ */
+@DataJpaTest(properties = {"ezpay.scheduled-payments.batch-size=2", "ezpay.scheduled-payments.tick=PT1H",
+        "ezpay.scheduled-payments.catch-up.interval=PT1H", "ezpay.scheduled-payments.retry.initial-delay=PT10S",
+        "ezpay.scheduled-payments.retry.max-delay=PT40S", "ezpay.scheduled-payments.retry.max-attempts=3"})
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ScheduledPaymentExecutionService.class, ScheduledPaymentRetryService.class, ScheduledPaymentTimer.class,
+        ShardLeaseManager.class, Recurrences.class, TransactionCache.class, TransactionStatusEventWriter.class,
+        TransactionIdAllocator.class, ScheduledPaymentFixtures.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ScheduledPaymentRetryTest {
+
+    @Autowired
+    private ScheduledPaymentFixtures payments;
+
+    @Autowired
+    private ScheduledPaymentExecutionService executionService;
+
+    @Autowired
+    private ScheduledPaymentRetryService retryService;
+
+    @Autowired
+    private ScheduledPaymentRetryRepository retryRepository;
+
+    @SpyBean
+    private BankTransferTransactionRepository bankTransferTransactionRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ScheduledPaymentTimer scheduledPaymentTimer;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @BeforeEach
+    public void takeShards() {
+        shardLeaseManager.heartbeat(); // The only instance, owns every shard
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        Mockito.reset(bankTransferTransactionRepository);
+        retryRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that the delay doubles from the initial delay up to the maximum, less a random half.
+     */
+    @Test
+    public void testBackoffGrowsWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertBetween(5, 10, retryService.backoff(1));
+            assertBetween(10, 20, retryService.backoff(2));
+            assertBetween(20, 40, retryService.backoff(3));
+            assertBetween(20, 40, retryService.backoff(100));
+        }
+    }
+
+    /**
+     * Tests that a failed run is queued for a later attempt, holds back the later runs of its
+     * payment until then, does not hold back other payments and succeeds on the next attempt.
+     */
+    @Test
+    public void testFailedRunIsRetriedInOrder() {
+        LocalDateTime now = LocalDateTime.now().withNano(0); // The timer runs on the clock
+        LocalDateTime due = now.minusMinutes(1);
+        ScheduledPayment failing = payments.save(due);
+        failOn(failing, due);
+        scheduledPaymentTimer.load();
+        ScheduledPayment other = payments.save(due);
+
+        assertEquals(0, executionService.runTimerDue(now));
+        ScheduledPaymentRetry retry = retryRepository.findById(failing.getTransactionId()).orElseThrow();
+        assertEquals(ScheduledPaymentRetryService.PENDING, retry.getStatus());
+        assertEquals(1, retry.getAttempts());
+        assertEquals(due, retry.getDueTime());
+        assertTrue(retry.getLastError().contains("timed out"));
+        assertBetween(5, 10, Duration.between(now, retry.getNextAttemptAt()));
+
+        // Neither the sweep nor the next days run it ahead of its attempt
+        assertEquals(3, executionService.executeDue(due.plusDays(2)));
+        assertEquals(due, payments.reload(failing).getNextPaymentDate());
+        assertEquals(due.plusDays(3), payments.reload(other).getNextPaymentDate());
+
+        Mockito.reset(bankTransferTransactionRepository);
+        assertEquals(1, executionService.runTimerDue(now.plusSeconds(10)));
+        assertEquals(due.plusDays(1), payments.reload(failing).getNextPaymentDate());
+        assertFalse(retryRepository.existsById(failing.getTransactionId()));
+        assertTrue(bankTransferTransactionRepository.findAll().stream().map(BankTransferTransaction::getTransferId)
+                .anyMatch(ScheduledPaymentExecutionService.runKey(failing.getTransactionId(), due)::equals));
+    }
+
+    /**
+     * Tests that a run whose database transaction cannot be committed is queued for a later
+     * attempt like any other failure, rather than escaping the timer.
+     */
+    @Test
+    public void testTransactionFailureIsRetried() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LocalDateTime due = now.minusMinutes(1);
+        ScheduledPayment failing = payments.save(due);
+        failOn(failing, due, new TransactionSystemException("Could not commit JPA transaction"));
+        scheduledPaymentTimer.load();
+
+        assertEquals(0, executionService.runTimerDue(now));
+        ScheduledPaymentRetry retry = retryRepository.findById(failing.getTransactionId()).orElseThrow();
+        assertEquals(ScheduledPaymentRetryService.PENDING, retry.getStatus());
+        assertEquals(1, retry.getAttempts());
+        assertTrue(retry.getLastError().contains("commit"));
+
+        Mockito.reset(bankTransferTransactionRepository);
+        assertEquals(1, executionService.runTimerDue(now.plusSeconds(10)));
+        assertEquals(due.plusDays(1), payments.reload(failing).getNextPaymentDate());
+    }
+
+    /**
+     * Tests that a run failing on every attempt is dead-lettered, makes no more runs, and runs
+     * again once requeued.
+     */
+    @Test
+    public void testDeadLettersAfterMaxAttempts() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        LocalDateTime due = now.minusMinutes(1);
+        ScheduledPayment failing = payments.save(due);
+        failOn(failing, due);
+        scheduledPaymentTimer.load();
+
+        assertEquals(0, executionService.runTimerDue(now));
+        assertEquals(0, executionService.runTimerDue(now.plusMinutes(1)));
+        assertEquals(0, executionService.runTimerDue(now.plusMinutes(2)));
+        List<ScheduledPaymentRetry> deadLetters = retryService.getRetries(null);
+        assertEquals(1, deadLetters.size());
+        assertEquals(ScheduledPaymentRetryService.DEAD, deadLetters.get(0).getStatus());
+        assertEquals(3, deadLetters.get(0).getAttempts());
+        assertNull(deadLetters.get(0).getNextAttemptAt());
+        assertTrue(retryService.getRetries("pending").isEmpty());
+
+        Mockito.reset(bankTransferTransactionRepository);
+        assertEquals(0, executionService.runTimerDue(now.plusMinutes(3)));
+        assertEquals(0, executionService.executeDue(now));
+
+        retryService.requeue(failing.getTransactionId());
+        assertEquals(1, executionService.executeDue(now));
+        assertEquals(due.plusDays(1), payments.reload(failing).getNextPaymentDate());
+        assertThrows(TransactionNotFoundException.class, () -> retryService.requeue(failing.getTransactionId()));
+        assertThrows(InvalidRequestException.class, () -> retryService.getRetries("failed"));
+    }
+
+    private void failOn(ScheduledPayment payment, LocalDateTime due) {
+        failOn(payment, due, new QueryTimeoutException("Query timed out"));
+    }
+
+    private void failOn(ScheduledPayment payment, LocalDateTime due, RuntimeException failure) {
+        String runKey = ScheduledPaymentExecutionService.runKey(payment.getTransactionId(), due);
+        doThrow(failure).when(bankTransferTransactionRepository)
+                .findExistingTransferIds(argThat(runKeys -> runKeys != null && runKeys.contains(runKey)));
+    }
+
+    private static void assertBetween(long minSeconds, long maxSeconds, Duration delay) {
+        assertTrue(delay.compareTo(Duration.ofSeconds(minSeconds)) >= 0 && delay.compareTo(Duration.ofSeconds(maxSeconds)) <= 0,
+                delay.toString());
+    }
+}
@@ -0,0 +1,191 @@
+package com.ezpay.test;
+
+import com.ezpay.event.ShardOwnershipChangedEvent;
+import com.ezpay.repository.SchedulerLeaseRepository;
+import com.ezpay.repository.SchedulerNodeRepository;
+import com.ezpay.scheduling.ShardLeaseManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the shard leases of several instances sharing the embedded database, with simulated
+ * heartbeat times. Every heartbeat commits on its own, so the tests run outside a test transaction.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ShardLeaseManagerTest {
+
+    private static final int SHARDS = 8;
+    private static final Duration TTL = Duration.ofSeconds(30);
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Autowired
+    private SchedulerNodeRepository nodeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Instant start = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private final List<ShardOwnershipChangedEvent> events = new ArrayList<>();
+
+    @AfterEach
+    public void cleanUp() {
+        leaseRepository.deleteAllInBatch();
+        nodeRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that a single instance owns every shard, and that a second instance gets half of
+     * them once the first has released them, with no shard owned twice at any time.
+     */
+    @Test
+    public void testSharesShardsEvenly() {
+        ShardLeaseManager a = manager("a");
+        ShardLeaseManager b = manager("b");
+
+        a.heartbeat(start);
+        assertEquals(SHARDS, a.ownedShards().cardinality());
+
+        b.heartbeat(start.plusSeconds(1));
+        assertTrue(b.ownedShards().isEmpty()); // Nothing free yet
+        a.heartbeat(start.plusSeconds(5));
+        assertEquals(shards(0, 4), a.ownedShards());
+        b.heartbeat(start.plusSeconds(6));
+        assertEquals(shards(4, 8), b.ownedShards());
+
+        a.heartbeat(start.plusSeconds(10));
+        b.heartbeat(start.plusSeconds(11));
+        assertEquals(shards(0, 4), a.ownedShards());
+        assertEquals(shards(4, 8), b.ownedShards());
+        assertEquals(shards(4, 8), events.get(events.size() - 1).getGained());
+        assertEquals(ShardLeaseManager.shardOf(12345, SHARDS), a.shardOf(12345));
+    }
+
+    /**
+     * Tests that the shards of an instance that stops sending heartbeats are taken over once
+     * its leases expire, and that it owns nothing when it comes back.
+     */
+    @Test
+    public void testTakesOverExpiredLeases() {
+        ShardLeaseManager a = manager("a");
+        ShardLeaseManager b = manager("b");
+        a.heartbeat(start);
+        b.heartbeat(start);
+        a.heartbeat(start.plusSeconds(5));
+        b.heartbeat(start.plusSeconds(5));
+        assertEquals(shards(0, 4), a.ownedShards());
+
+        b.heartbeat(start.plusSeconds(20)); // a is still alive, its leases hold
+        assertEquals(shards(4, 8), b.ownedShards());
+        b.heartbeat(start.plusSeconds(40));
+        assertEquals(shards(0, 8), b.ownedShards());
+
+        a.heartbeat(start.plusSeconds(41));
+        assertTrue(a.ownedShards().isEmpty());
+        assertEquals(shards(0, 4), events.get(events.size() - 1).getLost());
+        b.heartbeat(start.plusSeconds(45));
+        a.heartbeat(start.plusSeconds(46));
+        assertEquals(shards(0, 4), b.ownedShards());
+        assertEquals(shards(4, 8), a.ownedShards());
+    }
+
+    /**
+     * Tests that the shards of an instance whose leases have run out are no longer leased to
+     * it, though it keeps them until its next heartbeat.
+     */
+    @Test
+    public void testExpiredLeasesAreNotLeased() {
+        ShardLeaseManager a = manager("a");
+        a.heartbeat(start.minus(TTL).minusSeconds(1));
+        assertEquals(SHARDS, a.ownedShards().cardinality());
+        assertTrue(a.leasedShards().isEmpty());
+        assertFalse(a.ownsShardOf(12345));
+
+        a.heartbeat(start);
+        assertEquals(shards(0, SHARDS), a.leasedShards());
+        assertTrue(a.ownsShardOf(12345));
+    }
+
+    /**
+     * Tests that an instance starting with the node ID of a live instance, or without a node ID
+     * while others run, is refused, and that a dead instance no longer counts.
+     */
+    @Test
+    public void testChecksNodeIds() {
+        manager("alone").checkNodeId(start); // No node ID needed without other instances
+        ShardLeaseManager a = manager("a", "1");
+        a.heartbeat(start);
+        a.checkNodeId(start); // Its own row does not count
+
+        ShardLeaseManager b = manager("b", "1");
+        b.heartbeat(start.plusSeconds(1));
+        assertThrows(IllegalStateException.class, () -> b.checkNodeId(start.plusSeconds(1)));
+        ShardLeaseManager c = manager("c", " ");
+        c.heartbeat(start.plusSeconds(1));
+        assertThrows(IllegalStateException.class, () -> c.checkNodeId(start.plusSeconds(1)));
+        ShardLeaseManager d = manager("d", "2");
+        d.heartbeat(start.plusSeconds(1));
+        d.checkNodeId(start.plusSeconds(1));
+
+        d.heartbeat(start.plusSeconds(40)); // a, b and c stopped sending heartbeats
+        d.checkNodeId(start.plusSeconds(40));
+        assertEquals(2, nodeRepository.findById("d").orElseThrow().getNodeId());
+    }
+
+    /**
+     * Tests that an instance stopping releases its shards to the others at once.
+     */
+    @Test
+    public void testStopReleasesShards() {
+        ShardLeaseManager a = manager("a");
+        ShardLeaseManager b = manager("b");
+        a.heartbeat(start);
+        b.heartbeat(start);
+        a.heartbeat(start.plusSeconds(5));
+        b.heartbeat(start.plusSeconds(5));
+
+        b.stop();
+        assertTrue(b.ownedShards().isEmpty());
+        assertFalse(nodeRepository.existsById("b"));
+        a.heartbeat(start.plusSeconds(10));
+        assertEquals(shards(0, 8), a.ownedShards());
+    }
+
+    private ShardLeaseManager manager(String instanceId) {
+        return manager(instanceId, "");
+    }
+
+    private ShardLeaseManager manager(String instanceId, String nodeId) {
+        return new ShardLeaseManager(leaseRepository, nodeRepository, transactionManager,
+                event -> events.add((ShardOwnershipChangedEvent) event), instanceId, nodeId, SHARDS, TTL,
+                TTL.dividedBy(3));
+    }
+
+    private static BitSet shards(int from, int to) {
+        BitSet shards = new BitSet();
+        shards.set(from, to);
+        return shards;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ezpay.test;
+
+import com.ezpay.BackendApplication;
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.repository.BankTransferTransactionRepository;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+import com.ezpay.scheduling.ShardLeaseManager;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests two instances of the application sharing one embedded database: each runs only the
+ * scheduled payments of its own shards, every run happens once, and the shards of an instance
+ * that stops are taken over by the other. Heartbeats and ticks are driven by the test.
+ */
+public class ShardedSchedulingTest {
+
+    private static final int PAYMENTS = 200;
+
+    private final String database = "jdbc:h2:mem:ezpay-sharded-" + UUID.randomUUID() + ";MODE=Oracle;DB_CLOSE_DELAY=-1";
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeEach
+    public void startInstances() {
+        first = start(1);
+        second = start(2);
+        // Both are live now: the first releases half of the shards, the second claims them
+        first.getBean(ShardLeaseManager.class).heartbeat();
+        second.getBean(ShardLeaseManager.class).heartbeat();
+    }
+
+    @AfterEach
+    public void stopInstances() {
+        if (second.isActive()) {
+            second.close();
+        }
+        first.getBean(TransactionRepository.class).deleteAllInBatch();
+        first.close();
+    }
+
+    /**
+     * Tests that the shards are split evenly and every due payment is run exactly once, by
+     * the instance owning its shard.
+     */
+    @Test
+    public void testEachPaymentRunsOnceOnItsOwner() {
+        ShardLeaseManager firstLeases = first.getBean(ShardLeaseManager.class);
+        ShardLeaseManager secondLeases = second.getBean(ShardLeaseManager.class);
+        BitSet firstShards = firstLeases.ownedShards();
+        BitSet secondShards = secondLeases.ownedShards();
+        assertEquals(8, firstShards.cardinality());
+        assertEquals(8, secondShards.cardinality());
+        assertFalse(firstShards.intersects(secondShards));
+
+        LocalDateTime due = LocalDateTime.now().withNano(0).minusMinutes(1);
+        List<Long> ids = seed(due);
+        long ownedByFirst = ids.stream().filter(id -> firstShards.get(firstLeases.shardOf(id))).count();
+        assertTrue(ownedByFirst > 0 && ownedByFirst < PAYMENTS);
+
+        LocalDateTime now = due.plusMinutes(5);
+        // Both run their timer and sweep the database; each only sees its own shards
+        assertEquals(ownedByFirst, first.getBean(ScheduledPaymentExecutionService.class).runTimerDue(now));
+        assertEquals(PAYMENTS - ownedByFirst, second.getBean(ScheduledPaymentExecutionService.class).executeDue(now));
+        assertEquals(0, first.getBean(ScheduledPaymentExecutionService.class).executeDue(now));
+        assertEquals(0, second.getBean(ScheduledPaymentExecutionService.class).runTimerDue(now));
+
+        List<BankTransferTransaction> transfers = first.getBean(BankTransferTransactionRepository.class).findAll();
+        assertEquals(PAYMENTS, transfers.size());
+        Set<String> runKeys = new HashSet<>();
+        for (long id : ids) {
+            runKeys.add(ScheduledPaymentExecutionService.runKey(id, due));
+        }
+        transfers.forEach(transfer -> assertTrue(runKeys.remove(transfer.getTransferId())));
+        assertTrue(runKeys.isEmpty());
+    }
+
+    /**
+     * Tests that the remaining instance takes over the payments of an instance that stops.
+     */
+    @Test
+    public void testTakesOverStoppedInstance() {
+        LocalDateTime due = LocalDateTime.now().withNano(0).minusMinutes(1);
+        seed(due);
+        second.close();
+
+        ShardLeaseManager leases = first.getBean(ShardLeaseManager.class);
+        leases.heartbeat();
+        assertEquals(16, leases.ownedShards().cardinality());
+        assertEquals(PAYMENTS, first.getBean(ScheduledPaymentTimer.class).size());
+        assertEquals(PAYMENTS, first.getBean(ScheduledPaymentExecutionService.class).runTimerDue(due.plusMinutes(5)));
+    }
+
+    private ConfigurableApplicationContext start(int node) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .profiles("h2")
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + database,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.properties.ezpay.ids.node-id=" + node,
+                        "--ezpay.scheduler.instance-id=node-" + node,
+                        "--ezpay.scheduler.shards=16",
+                        "--ezpay.scheduler.heartbeat=PT1H",
+                        "--ezpay.scheduled-payments.tick=PT1H",
+                        "--ezpay.scheduled-payments.sweep-interval=PT1H",
+                        "--ezpay.scheduled-payments.catch-up.interval=PT1H");
+    }
+
+    /**
+     * Stores daily auto-pay payments and loads them on the timers, as if the instances had
+     * started after they were added.
+     */
+    private List<Long> seed(LocalDateTime due) {
+        List<ScheduledPayment> payments = new ArrayList<>(PAYMENTS);
+        for (int i = 0; i < PAYMENTS; i++) {
+            ScheduledPayment payment = new ScheduledPayment(100.0 + i, due, "Active", "user1", "user2",
+                    due, null, "Daily", true, "acc-src", "acc-dst");
+            payment.setTransactionType("Scheduled Payment");
+            payments.add(payment);
+        }
+        List<Long> ids = first.getBean(ScheduledPaymentRepository.class).saveAll(payments).stream()
+                .map(ScheduledPayment::getTransactionId).toList();
+        first.getBean(ScheduledPaymentTimer.class).load();
+        second.getBean(ScheduledPaymentTimer.class).load();
+        return ids;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionSummary;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the single table storage layout of the transaction hierarchy.
+ */
+@DataJpaTest
+@ActiveProfiles({"h2", "single-table"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class SingleTableMappingTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Tests that every subtype is stored as one discriminated row of the transaction table
+     * and read back as its own class by the existing repository queries.
+     */
+    @Test
+    public void testSubtypesShareTransactionTable() {
+        transactionRepository.save(new UPITransaction(0, "UPI", 1000.0, LocalDate.of(2024, 9, 2), "Success",
+                "upi90", "user1"));
+        transactionRepository.save(new BankTransferTransaction(0, "Bank Transfer", 2000.0, LocalDate.of(2024, 9, 1),
+                "Failure", "Bank Transfer31", "user1", "user2"));
+        ScheduledPayment scheduledPayment = new ScheduledPayment();
+        scheduledPayment.setTransactionType("Scheduled Payment");
+        scheduledPayment.setDate(LocalDate.of(2024, 9, 3));
+        scheduledPayment.setNextPaymentDate(LocalDateTime.of(2024, 10, 1, 10, 0));
+        scheduledPayment.setFrequency("Monthly");
+        transactionRepository.save(scheduledPayment);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables "
+                + "WHERE LOWER(table_name) IN ('upi_transaction', 'bank_transfer_transaction', 'scheduled_payment')",
+                Integer.class));
+        assertEquals(List.of("Bank Transfer", "Scheduled Payment", "UPI"), jdbcTemplate.queryForList(
+                "SELECT entity_type FROM transaction ORDER BY entity_type", String.class));
+
+        List<Transaction> history = transactionRepository.findAllSortAndFilterScheduled();
+        assertEquals(2, history.size());
+        UPITransaction upiTransaction = assertInstanceOf(UPITransaction.class, history.get(0));
+        assertEquals("upi90", upiTransaction.getUpiId());
+        BankTransferTransaction bankTransfer = assertInstanceOf(BankTransferTransaction.class, history.get(1));
+        assertEquals("user2", bankTransfer.getReceiverAccount());
+
+        List<TransactionSummary> summaries = transactionRepository.findSummariesByStatus("Failure");
+        assertEquals("Bank Transfer", summaries.get(0).getTransactionType());
+    }
+}
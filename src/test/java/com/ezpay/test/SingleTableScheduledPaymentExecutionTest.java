@@ -0,0 +1,10 @@
+package com.ezpay.test;
+
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs the scheduled payment runner tests against the single table storage layout.
+ */
+@ActiveProfiles({"h2", "single-table"})
+public class SingleTableScheduledPaymentExecutionTest extends ScheduledPaymentExecutionServiceTest {
+}
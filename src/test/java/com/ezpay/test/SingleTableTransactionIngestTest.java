@@ -0,0 +1,10 @@
+package com.ezpay.test;
+
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs the bulk upload tests against the single table storage layout.
+ */
+@ActiveProfiles({"h2", "single-table"})
+public class SingleTableTransactionIngestTest extends TransactionIngestServiceTest {
+}
@@ -0,0 +1,35 @@
+package com.ezpay.test;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL of every statement Hibernate prepares, from any thread. Registered as the
+ * statement inspector of the embedded database tests, see {@link EmbeddedDatabaseTest}.
+ */
+public class StatementRecorder implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    /**
+     * Forgets the statements recorded so far.
+     */
+    static void clear() {
+        STATEMENTS.clear();
+    }
+
+    /**
+     * @return The statements recorded since the last {@link #clear()}, in the order they were prepared
+     */
+    static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.TimeOrderedIds;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TimeOrderedIds class.
+ */
+public class TimeOrderedIdsTest {
+
+    private static final long NOW = Instant.parse("2024-09-01T10:15:30Z").toEpochMilli();
+
+    /**
+     * Tests that an ID carries its creation time and node, and sorts by creation time across nodes.
+     */
+    @Test
+    public void testLayout() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIds node7 = new TimeOrderedIds(7, clock::get);
+        TimeOrderedIds node3 = new TimeOrderedIds(3, clock::get);
+
+        long first = node7.next();
+        clock.addAndGet(1);
+        long second = node3.next();
+
+        assertTrue(first > 0);
+        assertEquals(Instant.ofEpochMilli(NOW), TimeOrderedIds.timestampOf(first));
+        assertEquals(7, TimeOrderedIds.nodeOf(first));
+        assertEquals(3, TimeOrderedIds.nodeOf(second));
+        assertTrue(second > first); // Later millisecond, whatever the node
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIds(TimeOrderedIds.MAX_NODE_ID + 1, clock::get));
+    }
+
+    /**
+     * Tests that IDs keep increasing when the counter of a millisecond runs out and when the clock moves back.
+     */
+    @Test
+    public void testCounterOverflowAndClockBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIds ids = new TimeOrderedIds(1, clock::get);
+
+        long previous = 0;
+        for (int i = 0; i < 5000; i++) { // More than one millisecond holds
+            long id = ids.next();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertEquals(Instant.ofEpochMilli(NOW + 1), TimeOrderedIds.timestampOf(previous)); // Borrowed the next millisecond
+
+        clock.set(NOW - 1000);
+        long afterClockBack = ids.next();
+        assertTrue(afterClockBack > previous);
+        assertEquals(1, TimeOrderedIds.nodeOf(afterClockBack));
+
+        clock.set(NOW + 10);
+        assertEquals(Instant.ofEpochMilli(NOW + 10), TimeOrderedIds.timestampOf(ids.next())); // Back in line
+    }
+
+    /**
+     * Tests that concurrent callers never receive the same ID.
+     */
+    @Test
+    public void testConcurrentCallersGetUniqueIds() throws Exception {
+        TimeOrderedIds ids = new TimeOrderedIds(2, System::currentTimeMillis);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    long previous = 0;
+                    for (int i = 0; i < 20_000; i++) {
+                        long id = ids.next();
+                        assertTrue(id > previous); // Increasing within a thread
+                        assertTrue(seen.add(id));
+                        previous = id;
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(160_000, seen.size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.ezpay.test;
+
+import com.ezpay.scheduling.TimingWheel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TimingWheel class.
+ */
+public class TimingWheelTest {
+
+    private static final long START = 1_725_000_000L;
+
+    /**
+     * Tests that IDs on every level expire exactly at their deadline tick, however far the wheel
+     * is advanced at once.
+     */
+    @Test
+    public void testExpiresAtDeadlineOnEveryLevel() {
+        TimingWheel wheel = new TimingWheel(START, 16);
+        Random random = new Random(7);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long id = 1; id <= 20_000; id++) {
+            // Spread over all levels: up to about 2 years ahead
+            long deadline = START + 1 + (long) (Math.pow(random.nextDouble(), 4) * 64_000_000L);
+            wheel.schedule(id, deadline);
+            deadlines.put(id, deadline);
+        }
+
+        long tick = START;
+        int expiredCount = 0;
+        while (wheel.size() > 0) {
+            long previous = tick;
+            tick += 1 + random.nextInt(5_000);
+            long now = tick;
+            List<Long> expired = new ArrayList<>();
+            expiredCount += wheel.advance(now, expired::add);
+            for (long id : expired) {
+                long deadline = deadlines.remove(id);
+                assertTrue(deadline <= now, "expired early");
+                assertTrue(deadline > previous, "expired late");
+            }
+        }
+        assertEquals(20_000, expiredCount);
+        assertTrue(deadlines.isEmpty());
+    }
+
+    /**
+     * Tests that cancelled IDs never expire and rescheduled IDs expire only at their new deadline.
+     */
+    @Test
+    public void testCancelAndReschedule() {
+        TimingWheel wheel = new TimingWheel(START, 16);
+        wheel.schedule(1, START + 10);
+        wheel.schedule(2, START + 100_000);
+        wheel.schedule(3, START + 10);
+        assertTrue(wheel.cancel(2));
+        assertFalse(wheel.cancel(2));
+        wheel.schedule(3, START + 5_000); // Moved to a higher level
+        assertEquals(START + 5_000, wheel.deadlineOf(3));
+        assertEquals(Long.MIN_VALUE, wheel.deadlineOf(2));
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(START + 4_999, expired::add);
+        assertEquals(List.of(1L), expired);
+        wheel.advance(START + 5_000, expired::add);
+        assertEquals(List.of(1L, 3L), expired);
+        wheel.advance(START + 200_000, expired::add);
+        assertEquals(2, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests that removing IDs by predicate leaves the others due at their deadline.
+     */
+    @Test
+    public void testRemoveIf() {
+        TimingWheel wheel = new TimingWheel(START, 16);
+        for (long id = 1; id <= 1_000; id++) {
+            wheel.schedule(id, START + id * 97);
+        }
+        assertEquals(500, wheel.removeIf(id -> id % 2 == 0));
+        assertEquals(500, wheel.size());
+        assertEquals(Long.MIN_VALUE, wheel.deadlineOf(2));
+        assertEquals(START + 97, wheel.deadlineOf(1));
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(START + 1_000 * 97, expired::add);
+        assertEquals(500, expired.size());
+        assertTrue(expired.stream().allMatch(id -> id % 2 == 1));
+    }
+
+    /**
+     * Tests that IDs scheduled in the past expire on the next advance, even one that does not
+     * move the wheel, and that the entry storage is reused.
+     */
+    @Test
+    public void testOverdueIdsExpireAtOnce() {
+        TimingWheel wheel = new TimingWheel(START, 16);
+        for (long id = 1; id <= 100; id++) {
+            wheel.schedule(id, START - id);
+        }
+        List<Long> expired = new ArrayList<>();
+        assertEquals(100, wheel.advance(START - 1_000, expired::add));
+        assertEquals(100, expired.size());
+        assertEquals(START, wheel.currentTick());
+
+        for (long id = 101; id <= 200; id++) {
+            wheel.schedule(id, START + 1);
+        }
+        assertEquals(100, wheel.advance(START + 1, id -> { }));
+        assertEquals(0, wheel.size());
+    }
+}
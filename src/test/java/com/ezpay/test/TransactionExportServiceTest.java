@@ -0,0 +1,176 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.service.TransactionExportService;
+import com.ezpay.service.TransactionFilters;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the TransactionExportService class.
+ */
+public class TransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository; // Mocked repository supplying the streams
+
+    @Mock
+    private EntityManager entityManager; // Mocked persistence context to verify detaching
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private TransactionExportService transactionExportService; // Service under test
+
+    private UPITransaction upiTransaction;
+    private BankTransferTransaction bankTransferTransaction;
+
+    /**
+     * Initializes mocks and sets up test data before each test method.
+     */
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        upiTransaction = new UPITransaction(1, "UPI", 1000.0, LocalDate.of(2024, 9, 2), "Success", "upi90", "user1");
+        bankTransferTransaction = new BankTransferTransaction(2, "Bank Transfer", 2000.0, LocalDate.of(2024, 9, 1),
+                "Failure", "Bank Transfer31", "user1", "user2");
+    }
+
+    /**
+     * Tests that NDJSON output holds one typed document per line and that every row is detached once written.
+     */
+    @Test
+    public void testStreamTransactionHistory_Ndjson() throws Exception {
+        when(transactionRepository.streamAllSortAndFilterScheduled())
+                .thenReturn(Stream.of(upiTransaction, bankTransferTransaction));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = transactionExportService.streamTransactionHistory(TransactionExportService.Format.NDJSON, out);
+
+        assertEquals(2, count);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("upi90", objectMapper.readTree(lines[0]).get("upiId").asText());
+        assertEquals("Bank Transfer", objectMapper.readTree(lines[1]).get("transactionType").asText());
+        verify(entityManager).detach(upiTransaction);
+        verify(entityManager).detach(bankTransferTransaction);
+    }
+
+    /**
+     * Tests that JSON output is a single array which reads back as the original transactions.
+     */
+    @Test
+    public void testStreamByDateRange_JsonArray() throws Exception {
+        LocalDate start = LocalDate.of(2024, 9, 1);
+        LocalDate end = LocalDate.of(2024, 9, 30);
+        when(transactionRepository.streamByDateRange(start, end))
+                .thenReturn(Stream.of(upiTransaction, bankTransferTransaction));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        transactionExportService.streamByDateRange(start, end, TransactionExportService.Format.JSON, out);
+
+        JsonNode array = objectMapper.readTree(out.toByteArray());
+        assertTrue(array.isArray());
+        Transaction[] transactions = objectMapper.treeToValue(array, Transaction[].class);
+        assertInstanceOf(UPITransaction.class, transactions[0]);
+        assertInstanceOf(BankTransferTransaction.class, transactions[1]);
+    }
+
+    /**
+     * Tests that the filtered listings stream the transactions read through the specification,
+     * newest first, one document per line.
+     */
+    @Test
+    public void testStreamFiltered() throws Exception {
+        when(transactionRepository.stream(any(), any())).thenReturn(Stream.of(upiTransaction));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = transactionExportService.streamFiltered(null, null, "UPI", "Success",
+                TransactionExportService.Format.NDJSON, out);
+
+        assertEquals(1, count);
+        assertEquals("upi90", objectMapper.readTree(out.toString(StandardCharsets.UTF_8).trim()).get("upiId").asText());
+        verify(transactionRepository).stream(any(), eq(Sort.by(Sort.Order.desc("date"), Sort.Order.desc("transactionId"))));
+        verify(entityManager).detach(upiTransaction);
+    }
+
+    /**
+     * Tests that the CSV statement has a header, one row per transaction, quoted fields where needed,
+     * and that the gzipped variant decompresses to the same content.
+     */
+    @Test
+    public void testExportCsv() throws Exception {
+        bankTransferTransaction.setSender("Doe, John"); // Needs quoting
+        bankTransferTransaction.setReceiver("=HYPERLINK()"); // Must not be evaluated by spreadsheets
+        when(transactionRepository.stream(any(), any()))
+                .thenReturn(Stream.of(upiTransaction, bankTransferTransaction))
+                .thenReturn(Stream.of(upiTransaction, bankTransferTransaction));
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        long count = transactionExportService.exportCsv(null, null, null, "Success", false, plain);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        transactionExportService.exportCsv(null, null, null, "Success", true, gzipped);
+
+        assertEquals(2, count);
+        String csv = plain.toString(StandardCharsets.UTF_8);
+        String[] rows = csv.split("\r\n");
+        assertEquals(3, rows.length); // Header and two transactions
+        assertTrue(rows[0].startsWith("Transaction ID,Date,Type,Amount"));
+        assertEquals("1,2024-09-02,UPI,1000.0,Success,,,upi90,user1,,,", rows[1]);
+        assertEquals("2,2024-09-01,Bank Transfer,2000.0,Failure,\"Doe, John\",'=HYPERLINK(),,,Bank Transfer31,user1,user2",
+                rows[2]);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.toByteArray()))) {
+            assertEquals(csv, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        verify(entityManager, times(2)).detach(upiTransaction);
+    }
+
+    /**
+     * Tests that an inverted date range and an unknown format are rejected.
+     */
+    @Test
+    public void testInvalidRequests() {
+        assertThrows(InvalidRequestException.class, () -> transactionExportService.streamByDateRange(
+                LocalDate.of(2024, 9, 30), LocalDate.of(2024, 9, 1), TransactionExportService.Format.JSON,
+                new ByteArrayOutputStream()));
+        assertThrows(InvalidRequestException.class, () -> transactionExportService.exportCsv(
+                LocalDate.of(2024, 9, 30), LocalDate.of(2024, 9, 1), null, null, false, new ByteArrayOutputStream()));
+        assertThrows(InvalidRequestException.class, () -> TransactionExportService.Format.fromParameter("xml"));
+        assertThrows(InvalidRequestException.class, () -> TransactionFilters.validateType(" "));
+        assertThrows(InvalidRequestException.class, () -> TransactionFilters.validateStatus("settled"));
+        TransactionFilters.validateStatus("SUCCESS");
+        assertThrows(InvalidRequestException.class, () -> transactionExportService.streamByDateRange(
+                LocalDate.of(2024, 9, 1), LocalDate.now().plusDays(1), TransactionExportService.Format.JSON,
+                new ByteArrayOutputStream()));
+        assertThrows(InvalidRequestException.class, () -> TransactionFilters.validateDateRange(null,
+                LocalDate.of(2024, 9, 1)));
+        verifyNoInteractions(transactionRepository);
+    }
+}
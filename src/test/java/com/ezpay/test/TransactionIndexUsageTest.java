@@ -0,0 +1,119 @@
+package com.ezpay.test;
+
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionStatusRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on the embedded database in Oracle mode that the SQL Hibernate generates for the
+ * repository queries is answered from the indexes declared on the Transaction entity.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.ezpay.test.StatementRecorder")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TransactionIndexUsageTest {
+
+    private static final int ROWS = 5_000;
+    private static final String[] TYPES = {"UPI", "Bank Transfer", "Scheduled Payment"};
+    private static final String[] STATUSES = {"Success", "Failure", "processing"};
+    private static final LocalDate TODAY = LocalDate.of(2024, 9, 30);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionStatusRepository transactionStatusRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Seeds the transaction table once, ANALYZE commits so the rows outlive the test transaction.
+     */
+    @BeforeEach
+    public void seed() {
+        if (transactionRepository.count() > 0) {
+            return;
+        }
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int id = 1; id <= ROWS; id++) {
+            rows.add(new Object[] {id, TYPES[random.nextInt(TYPES.length)], random.nextInt(10_000),
+                    Date.valueOf(TODAY.minusDays(random.nextInt(3 * 365))), STATUSES[random.nextInt(STATUSES.length)]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transaction (transaction_id, transaction_type, amount, transaction_date, status) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    /**
+     * Tests that date ranges and the type and status listings read their composite index.
+     */
+    @Test
+    public void testListingsUseCompositeIndexes() {
+        LocalDate start = TODAY.minusDays(30);
+        String plan = planOf(() -> transactionRepository.findByDateRange(start, TODAY), start, TODAY);
+        assertTrue(plan.contains("IDX_TXN_DATE_ID"), plan);
+
+        plan = planOf(() -> transactionRepository.findByTransactionType("UPI"), "UPI");
+        assertTrue(plan.contains("IDX_TXN_TYPE_DATE_ID"), plan);
+
+        plan = planOf(() -> transactionRepository.findByStatus("Failure"), "Failure");
+        assertTrue(plan.contains("IDX_TXN_STATUS_DATE_ID"), plan);
+
+        plan = planOf(() -> transactionRepository.findSummariesByStatus("Failure"), "Failure");
+        assertTrue(plan.contains("IDX_TXN_STATUS_DATE_ID"), plan);
+    }
+
+    /**
+     * Tests that a newest-first history page reads the date index in order instead of sorting the table.
+     */
+    @Test
+    public void testHistoryPageReadsDateIndexInOrder() {
+        String plan = planOf(() -> transactionRepository.findHistoryFirstPage(PageRequest.of(0, 20)), 20);
+        assertTrue(plan.contains("IDX_TXN_DATE_ID"), plan);
+        assertTrue(plan.contains("INDEX SORTED"), plan);
+    }
+
+    /**
+     * Tests that the status lookup by transaction ID is answered from the covering
+     * (transaction_id, status) index alone, not from the primary key and the table.
+     */
+    @Test
+    public void testStatusLookupUsesIndex() {
+        String plan = planOf(() -> transactionStatusRepository.findByStatus(42L), 42L);
+        assertTrue(plan.contains("IDX_TXN_ID_STATUS: TRANSACTION_ID = ?1"), plan);
+        assertFalse(plan.contains("PRIMARY_KEY"), plan);
+    }
+
+    /**
+     * Runs a repository query and returns the plan of the SQL it generated, upper case.
+     * @param query Repository call issuing exactly one statement
+     * @param args Values of the statement parameters, in order
+     */
+    private String planOf(Runnable query, Object... args) {
+        StatementRecorder.clear();
+        query.run();
+        List<String> statements = StatementRecorder.statements();
+        assertEquals(1, statements.size(), statements.toString());
+        return String.join(" ", jdbcTemplate.queryForList("EXPLAIN " + statements.get(0), String.class, args))
+                .replaceAll("\\s+", " ").toUpperCase();
+    }
+}
@@ -0,0 +1,174 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.repository.TransactionBatchWriter;
+import com.ezpay.repository.TransactionIdAllocator;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.service.TransactionIngestService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests bulk uploads against the embedded database with the default joined storage layout.
+ * Every batch commits on its own, so the tests run outside a test transaction.
+ */
+@DataJpaTest(properties = "ezpay.ingest.batch-size=2")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({TransactionIngestService.class, TransactionBatchWriter.class, TransactionIdAllocator.class,
+        TransactionStatusEventWriter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TransactionIngestServiceTest {
+
+    private static final String UPI = "{\"transactionType\":\"UPI\",\"amount\":%d,\"date\":\"2024-09-01\","
+            + "\"status\":\"Success\",\"sender\":\"user1\",\"receiver\":\"user2\",\"upiId\":\"%s\",\"userId\":\"user1\"}";
+    private static final String BANK_TRANSFER = "{\"transactionType\":\"Bank Transfer\",\"amount\":%d,"
+            + "\"date\":\"2024-09-02\",\"status\":\"processing\",\"transferId\":\"%s\","
+            + "\"senderAccount\":\"acc1\",\"receiverAccount\":\"acc2\"}";
+    private static final String SCHEDULED = "{\"transactionType\":\"Scheduled Payment\",\"amount\":10,"
+            + "\"date\":\"2024-09-03\",\"status\":\"Active\",\"frequency\":\"Monthly\"}";
+
+    @Autowired
+    private TransactionIngestService transactionIngestService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    public void cleanUp() {
+        transactionRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that valid items are stored with both table rows and reported with their IDs,
+     * while unsupported and duplicate items fail alone without failing their batch.
+     */
+    @Test
+    public void testIngestReportsEveryItem() throws Exception {
+        String body = "[" + String.format(UPI, 100, "upi-1") + "," + String.format(BANK_TRANSFER, 200, "bt-1") + ","
+                + SCHEDULED + "," + String.format(UPI, 300, "upi-2") + "," + String.format(UPI, 400, "upi-2") + ","
+                + String.format(BANK_TRANSFER, 500, "bt-2") + "]";
+
+        JsonNode response = ingest(body);
+
+        assertEquals(4, response.get("created").asInt());
+        assertEquals(2, response.get("failed").asInt());
+        assertFalse(response.has("error"));
+        JsonNode results = response.get("results");
+        assertEquals(6, results.size());
+        assertEquals("FAILED", resultOf(results, 2).get("status").asText()); // Scheduled payments are not accepted
+        assertEquals("CREATED", resultOf(results, 3).get("status").asText());
+        assertEquals("FAILED", resultOf(results, 4).get("status").asText()); // Duplicate UPI ID in the same batch
+        assertEquals("CREATED", resultOf(results, 5).get("status").asText());
+
+        JsonNode upiIdNode = resultOf(results, 0).get("transactionId");
+        assertTrue(upiIdNode.isTextual()); // 64-bit IDs are written as strings
+        long upiId = upiIdNode.asLong();
+        UPITransaction upiTransaction = assertInstanceOf(UPITransaction.class,
+                transactionRepository.findById(upiId).orElseThrow());
+        assertEquals("upi-1", upiTransaction.getUpiId());
+        assertEquals(100.0, upiTransaction.getAmount());
+        long transferId = resultOf(results, 5).get("transactionId").asLong();
+        BankTransferTransaction bankTransfer = assertInstanceOf(BankTransferTransaction.class,
+                transactionRepository.findById(transferId).orElseThrow());
+        assertEquals("Bank Transfer", bankTransfer.getTransactionType());
+        assertEquals("acc2", bankTransfer.getReceiverAccount());
+        assertEquals(4, transactionRepository.count());
+    }
+
+    /**
+     * Tests that a syntax error ends the upload, keeping the items stored before it.
+     */
+    @Test
+    public void testMalformedInputKeepsEarlierItems() throws Exception {
+        String body = "[" + String.format(UPI, 100, "upi-3") + "," + String.format(UPI, 200, "upi-4") + ","
+                + "{\"transactionType\":\"UPI\",\"amount\": }]";
+
+        JsonNode response = ingest(body);
+
+        assertEquals(2, response.get("created").asInt());
+        assertTrue(response.get("error").asText().startsWith("Malformed JSON at item 2"));
+        assertEquals(2, transactionRepository.count());
+    }
+
+    /**
+     * Tests that a body which is not a JSON array is rejected before anything is stored.
+     */
+    @Test
+    public void testRejectsNonArrayBody() {
+        assertThrows(InvalidRequestException.class, () -> transactionIngestService.openArray(
+                new ByteArrayInputStream(String.format(UPI, 1, "upi-5").getBytes(StandardCharsets.UTF_8))));
+        assertThrows(InvalidRequestException.class, () -> transactionIngestService.openArray(
+                new ByteArrayInputStream("transactions".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Tests that bulk uploads and entity inserts draw their IDs from the same sequence blocks
+     * without handing out an ID twice.
+     */
+    @Test
+    public void testIdsDoNotCollideWithEntityInserts() throws Exception {
+        long before = transactionRepository.save(new UPITransaction(0, "UPI", 10.0, LocalDate.of(2024, 9, 1),
+                "Success", "upi-6", "user1")).getTransactionId();
+
+        JsonNode results = ingest("[" + String.format(UPI, 20, "upi-7") + "," + String.format(UPI, 30, "upi-8") + ","
+                + String.format(UPI, 40, "upi-9") + "]").get("results");
+
+        long after = transactionRepository.save(new UPITransaction(0, "UPI", 50.0, LocalDate.of(2024, 9, 1),
+                "Success", "upi-10", "user1")).getTransactionId();
+        assertNotEquals(before, after);
+        Set<Long> ids = new HashSet<>();
+        ids.add(before);
+        ids.add(after);
+        for (JsonNode result : results) {
+            assertTrue(ids.add(result.get("transactionId").asLong()));
+        }
+        assertEquals(5, ids.size());
+        assertEquals(5, transactionRepository.count());
+    }
+
+    private JsonNode ingest(String body) throws Exception {
+        JsonParser parser = transactionIngestService.openArray(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transactionIngestService.ingest(parser, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static JsonNode resultOf(JsonNode results, int index) {
+        for (JsonNode result : results) {
+            if (result.get("index").asInt() == index) {
+                return result;
+            }
+        }
+        throw new AssertionError("No result for item " + index);
+    }
+}
@@ -5,11 +5,19 @@
 package com.ezpay.test;
 
 import com.ezpay.service.TransactionService;
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.cache.TransactionCacheStats;
 import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.KeysetPage;
 import com.ezpay.entity.Transaction;
 import com.ezpay.entity.TransactionDetailsResponse;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionSummary;
 import com.ezpay.entity.UPITransaction;
+import com.ezpay.exception.InvalidRequestException;
 import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.service.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -18,17 +26,26 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 public class TransactionServiceTest {
@@ -36,6 +53,18 @@ public class TransactionServiceTest {
     @Mock
     private TransactionRepository transactionRepository; // Mocked repository to simulate database operations
 
+    @Spy
+    private TransactionCache transactionCache = new TransactionCache(100, Duration.ofMinutes(10)); // Real cache, empty for each test
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher; // Receives the status change events
+
+    @Mock
+    private TransactionStatusEventWriter statusEventWriter; // Receives the appended status events
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private TransactionService transactionService; // Service under test
 
@@ -99,7 +128,7 @@ public class TransactionServiceTest {
     @Test
     public void testGetTransactionById() {
         // Mock the repository method to return the sample UPITransaction
-        when(transactionRepository.findById(anyInt())).thenReturn(Optional.of(upiTransaction));
+        when(transactionRepository.findById(anyLong())).thenReturn(Optional.of(upiTransaction));
 
         // Call the service method
         Transaction transaction = transactionService.getTransactionById(1);
@@ -109,7 +138,7 @@ public class TransactionServiceTest {
         assertEquals(upiTransaction, transaction); // Verify the returned transaction matches the expected one
 
         // Verify repository interaction
-        verify(transactionRepository, times(1)).findById(1); // Verify repository method was called once
+        verify(transactionRepository, times(1)).findById(1L); // Verify repository method was called once
         verifyNoMoreInteractions(transactionRepository); // Ensure no other interactions occurred
     }
 
@@ -119,7 +148,7 @@ public class TransactionServiceTest {
     @Test
     public void testGetTransactionById_NotFound() {
         // Mock the repository method to return an empty result
-        when(transactionRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(transactionRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         // Call the service method and verify that it throws an exception
         RuntimeException thrown = assertThrows(RuntimeException.class, () -> {
@@ -130,7 +159,7 @@ public class TransactionServiceTest {
         assertEquals("Transaction not found with ID: 101", thrown.getMessage());
 
         // Verify repository interaction
-        verify(transactionRepository, times(1)).findById(101); // Verify repository method was called once
+        verify(transactionRepository, times(1)).findById(101L); // Verify repository method was called once
         verifyNoMoreInteractions(transactionRepository); // Ensure no other interactions occurred
     }
     
@@ -140,7 +169,7 @@ public class TransactionServiceTest {
     @Test
     public void testViewMoreDetails() {
         // Mock the repository method to return the sample UPITransaction
-        when(transactionRepository.findById(1)).thenReturn(Optional.of(upiTransaction));
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(upiTransaction));
 
         // Call the service method
         TransactionDetailsResponse response = transactionService.viewMoreDetails(1);
@@ -156,7 +185,7 @@ public class TransactionServiceTest {
         assertEquals("user1", response.getUserId()); // Verify user ID
 
         // Verify repository interaction
-        verify(transactionRepository, times(1)).findById(1); // Verify repository method was called once
+        verify(transactionRepository, times(1)).findById(1L); // Verify repository method was called once
         verifyNoMoreInteractions(transactionRepository); // Ensure no other interactions occurred
     }
 
@@ -279,6 +308,62 @@ public class TransactionServiceTest {
         verifyNoMoreInteractions(transactionRepository); // Ensure no other interactions occurred
     }
     
+    /**
+     * Tests that repeated lookups of a transaction are answered from the cache
+     * and that reviewing the transaction makes the next lookup reload it.
+     */
+    @Test
+    public void testGetTransactionById_Cached() {
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(upiTransaction));
+
+        transactionService.getTransactionById(1);
+        transactionService.viewMoreDetails(1);
+        transactionService.getTransactionById(1);
+
+        verify(transactionRepository, times(1)).findById(1L); // Loaded once, then served from the cache
+        TransactionCacheStats stats = transactionCache.stats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+
+        transactionService.reviewTransaction(upiTransaction);
+        transactionService.getTransactionById(1);
+
+        verify(transactionRepository, times(2)).findById(1L); // Reloaded after the save
+    }
+
+    /**
+     * Tests that batch details use cached transactions, load the rest with IN-list queries
+     * of at most 1000 IDs, and keep the order of the request.
+     */
+    @Test
+    public void testViewMoreDetails_Batch() {
+        when(transactionRepository.findById(2L)).thenReturn(Optional.of(bankTransferTransaction));
+        transactionService.getTransactionById(2L); // Cached
+        List<Long> ids = new ArrayList<>();
+        ids.add(2L);
+        for (int id = 1; id <= 1500; id++) {
+            if (id != 2) {
+                ids.add((long) id);
+            }
+        }
+        when(transactionRepository.findByTransactionIds(anyList()))
+                .thenReturn(List.of(upiTransaction))
+                .thenReturn(List.of());
+
+        List<TransactionDetailsResponse> responses = transactionService.viewMoreDetails(ids);
+
+        assertEquals(2, responses.size()); // Unknown IDs are left out
+        assertEquals("2", responses.get(0).getTransactionId()); // Request order
+        assertEquals("Bank Transfer31", responses.get(0).getTransferId());
+        assertEquals("upi90", responses.get(1).getUpiId());
+        ArgumentCaptor<List<Long>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository, times(2)).findByTransactionIds(chunks.capture());
+        assertEquals(1000, chunks.getAllValues().get(0).size());
+        assertEquals(499, chunks.getAllValues().get(1).size());
+        assertFalse(chunks.getAllValues().get(0).contains(2L)); // Cached transaction not queried
+        assertThrows(InvalidRequestException.class, () -> transactionService.viewMoreDetails(List.of()));
+    }
+
     /**
      * Tests the reviewTransaction method by verifying save operation is called.
      */
@@ -292,6 +377,8 @@ public class TransactionServiceTest {
         transaction.setDate(LocalDate.now());
         transaction.setStatus("Pending");
 
+        when(transactionRepository.findStatusById(1L)).thenReturn("processing");
+
         // Create an ArgumentCaptor to capture the argument passed to save()
         ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
 
@@ -308,6 +395,63 @@ public class TransactionServiceTest {
         List<Transaction> capturedTransactions = captor.getAllValues();
         assertEquals(1, capturedTransactions.size()); // Ensure save was called
 
+        // Verify that the transition was appended to the status event log
+        ArgumentCaptor<TransactionStatusEvent> event = ArgumentCaptor.forClass(TransactionStatusEvent.class);
+        verify(statusEventWriter).append(event.capture());
+        assertEquals("processing", event.getValue().getFromStatus());
+        assertEquals("Pending", event.getValue().getToStatus());
+    }
+
+    /**
+     * Tests that the first history page returns a cursor pointing at its last row
+     * and that the cursor is used to fetch the following page.
+     */
+    @Test
+    public void testFindTransactionHistoryPage() {
+        TransactionSummary newest = summaryOf(upiTransaction);
+        TransactionSummary oldest = summaryOf(bankTransferTransaction);
+        // One row more than the page size means another page follows
+        when(transactionRepository.findHistoryFirstPage(PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(newest, oldest));
+
+        KeysetPage<TransactionSummary> firstPage = transactionService.findTransactionHistoryPage(null, 1);
+
+        assertEquals(1, firstPage.getSize()); // Only the requested number of rows is returned
+        assertTrue(firstPage.isHasMore());
+        KeysetCursor cursor = KeysetCursor.decode(firstPage.getNextCursor());
+        assertEquals(upiTransaction.getTransactionId(), cursor.getTransactionId());
+        assertEquals(upiTransaction.getDate().toString(), cursor.getSortKey());
+
+        when(transactionRepository.findHistoryPageAfter(upiTransaction.getDate(), upiTransaction.getTransactionId(),
+                PageRequest.of(0, 2))).thenReturn(Arrays.asList(oldest));
+
+        KeysetPage<TransactionSummary> secondPage = transactionService.findTransactionHistoryPage(firstPage.getNextCursor(), 1);
+
+        assertEquals(oldest, secondPage.getItems().get(0));
+        assertFalse(secondPage.isHasMore()); // Last page has no cursor
+        assertNull(secondPage.getNextCursor());
     }
-}
 
+    /**
+     * Tests that malformed cursors and out of range page sizes are rejected without querying the repository.
+     */
+    @Test
+    public void testFindTransactionHistoryPage_InvalidRequest() {
+        assertThrows(InvalidRequestException.class, () -> transactionService.findTransactionHistoryPage("not-a-cursor", 10));
+        assertThrows(InvalidRequestException.class, () -> transactionService.findTransactionHistoryPage(null, 0));
+        assertThrows(InvalidRequestException.class,
+                () -> transactionService.findTransactionHistoryPage(null, TransactionService.MAX_PAGE_SIZE + 1));
+
+        verify(transactionRepository, never()).findHistoryFirstPage(any());
+        verifyNoMoreInteractions(transactionRepository);
+    }
+
+    /**
+     * Builds the listing row of a sample transaction.
+     */
+    private static TransactionSummary summaryOf(Transaction transaction) {
+        return new TransactionSummary(transaction.getTransactionId(), transaction.getTransactionType(),
+                transaction.getAmount(), transaction.getDate(), transaction.getStatus(),
+                transaction.getSender(), transaction.getReceiver());
+    }
+}
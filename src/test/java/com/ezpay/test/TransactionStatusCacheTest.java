@@ -0,0 +1,99 @@
+package com.ezpay.test;
+
+import com.ezpay.cache.TransactionCacheStats;
+import com.ezpay.cache.TransactionStatusCache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TransactionStatusCache class.
+ */
+public class TransactionStatusCacheTest {
+
+    /**
+     * Tests that statuses are stored, replaced and removed, including IDs sharing probe sequences.
+     */
+    @Test
+    public void testPutGetInvalidate() {
+        TransactionStatusCache cache = new TransactionStatusCache(1000, Duration.ofMinutes(1));
+        for (int id = 1; id <= 1000; id++) {
+            cache.put(id, id % 2 == 0 ? "Success" : "processing");
+        }
+        cache.put(7, "Failure");
+        for (int id = 2; id <= 1000; id += 3) {
+            cache.invalidate(id);
+        }
+
+        for (int id = 1; id <= 1000; id++) {
+            String expected = (id - 2) % 3 == 0 ? null : id == 7 ? "Failure" : id % 2 == 0 ? "Success" : "processing";
+            assertEquals(expected, cache.get(id), "transaction " + id);
+        }
+        assertNull(cache.get(0));
+        assertNull(cache.get(1001));
+        cache.put(1L << 40 | 7, "Success"); // Differs from 7 only above 32 bits
+        assertEquals("Success", cache.get(1L << 40 | 7));
+        assertEquals("Failure", cache.get(7));
+    }
+
+    /**
+     * Tests that a status loaded from the database does not replace a live cached status, but
+     * replaces an expired one.
+     */
+    @Test
+    public void testPutIfAbsentKeepsLiveStatus() {
+        TransactionStatusCache cache = new TransactionStatusCache(10, Duration.ZERO);
+        cache.put(1, "Success");
+        cache.putIfAbsent(1, "processing");
+        cache.putIfAbsent(2, "Failure");
+        cache.put(3, "processing");
+        cache.putIfAbsent(3, "Success");
+
+        assertEquals("Success", cache.get(1));
+        assertEquals("Failure", cache.get(2));
+        assertEquals("Success", cache.get(3));
+    }
+
+    /**
+     * Tests that statuses which are not final expire while final statuses do not.
+     */
+    @Test
+    public void testOnlyNonFinalStatusesExpire() {
+        TransactionStatusCache cache = new TransactionStatusCache(10, Duration.ZERO);
+        cache.put(1, "Success");
+        cache.put(2, "Failure");
+        cache.put(3, "processing");
+
+        assertEquals("Success", cache.get(1));
+        assertEquals("Failure", cache.get(2));
+        assertNull(cache.get(3));
+    }
+
+    /**
+     * Tests that a full cache makes room by dropping statuses which are not final.
+     */
+    @Test
+    public void testFullCacheEvictsNonFinalStatuses() {
+        TransactionStatusCache cache = new TransactionStatusCache(4, Duration.ofMinutes(1));
+        cache.put(1, "Success");
+        cache.put(2, "Failure");
+        cache.put(3, "processing");
+        cache.put(4, "Pending");
+
+        cache.put(5, "Success");
+
+        assertEquals("Success", cache.get(1));
+        assertEquals("Failure", cache.get(2));
+        assertNull(cache.get(3));
+        assertNull(cache.get(4));
+        assertEquals("Success", cache.get(5));
+        TransactionCacheStats stats = cache.stats();
+        assertEquals(2, stats.getEvictionCount());
+        assertEquals(3, stats.getSize());
+        assertEquals(3, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+}
@@ -7,9 +7,17 @@ package com.ezpay.test;
  * This class uses Mockito to mock dependencies and verify interactions with the TransactionRepository.
  */
 
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.cache.TransactionStatusCache;
 import com.ezpay.entity.BankTransferTransaction;
 import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.TransactionStatusResponse;
 import com.ezpay.entity.UPITransaction;
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.TransactionStatusEventRepository;
+import com.ezpay.repository.TransactionStatusEventWriter;
 import com.ezpay.repository.TransactionStatusRepository; // Import TransactionRepository interface
 import com.ezpay.service.TransactionStatusService; // Import TransactionService class
 
@@ -18,7 +26,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +39,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 
@@ -34,6 +49,24 @@ public class TransactionStatusServiceTest {
     @Mock
     private TransactionStatusRepository transactionRepository; // Mocked TransactionRepository
 
+    @Spy
+    private TransactionCache transactionCache = new TransactionCache(100, Duration.ofMinutes(10)); // Real cache, empty for each test
+
+    @Spy
+    private TransactionStatusCache transactionStatusCache = new TransactionStatusCache(100, Duration.ofMinutes(1));
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher; // Delivers the status change events to the status cache
+
+    @Mock
+    private TransactionStatusEventRepository statusEventRepository; // Mocked status event log
+
+    @Mock
+    private TransactionStatusEventWriter statusEventWriter; // Receives the appended status events
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private TransactionStatusService transactionService; // Service under test
 
@@ -46,6 +79,10 @@ public class TransactionStatusServiceTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this); // Initialize mocks
+        doAnswer(invocation -> {
+            transactionStatusCache.onStatusChanged(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(TransactionStatusChangedEvent.class));
         upiTransaction = new UPITransaction("UPI",1000.0, LocalDate.now(), "Success", "upiId1", "userId1");
         bankTransferTransaction = new BankTransferTransaction("Bank Transfer", 2000.0, LocalDate.now().minusDays(1), "Pending", "3", "accountNumber1", "receiver1");
     }
@@ -63,6 +100,26 @@ public class TransactionStatusServiceTest {
         assertEquals(0, savedTransaction.getTransactionId()); // Verify transaction ID
         assertEquals(1000.0, savedTransaction.getAmount()); // Verify transaction amount
         verify(transactionRepository, times(1)).save(upiTransaction); // Verify save method called once
+        verify(statusEventWriter).append(argThat((TransactionStatusEvent event) -> event.getFromStatus() == null
+                && "Success".equals(event.getToStatus()))); // Verify the first status is logged
+    }
+
+    /**
+     * Tests that the timeline is read from the status event log, and that a transaction
+     * without events must exist.
+     */
+    @Test
+    public void testGetStatusTimeline() {
+        List<TransactionStatusEvent> timeline = List.of(new TransactionStatusEvent(1, null, "Pending"),
+                new TransactionStatusEvent(1, "Pending", "Success"));
+        when(statusEventRepository.findTimeline(1)).thenReturn(timeline);
+
+        assertEquals(timeline, transactionService.getStatusTimeline(1));
+        verify(transactionRepository, never()).existsById(anyLong());
+
+        when(transactionRepository.existsById(2L)).thenReturn(true);
+        assertTrue(transactionService.getStatusTimeline(2).isEmpty());
+        assertThrows(TransactionNotFoundException.class, () -> transactionService.getStatusTimeline(3));
     }
 
     /**
@@ -78,6 +135,47 @@ public class TransactionStatusServiceTest {
         verify(transactionRepository, times(1)).findByStatus(1); // Verify findByStatus method called once
     }
 
+    /**
+     * Tests that repeated status polls are answered from the cache
+     * and that a saved transaction's status is served without a query.
+     */
+    @Test
+    public void testTrackTransactionStatus_Cached() throws Exception {
+        when(transactionRepository.findByStatus(1)).thenReturn("Success");
+
+        transactionService.trackTransactionStatus(1);
+        assertEquals("Success", transactionService.trackTransactionStatus(1));
+        verify(transactionRepository, times(1)).findByStatus(1); // Only the first poll queries
+
+        bankTransferTransaction.setTransactionId(2);
+        when(transactionRepository.save(bankTransferTransaction)).thenReturn(bankTransferTransaction);
+        transactionService.addTransactionService(bankTransferTransaction);
+
+        assertEquals("Pending", transactionService.trackTransactionStatus(2));
+        verify(transactionRepository, never()).findByStatus(2); // Cached when saved
+    }
+
+    /**
+     * Tests that batch status lookups answer cached statuses without a query
+     * and load the rest in one IN-list query, in the order of the request.
+     */
+    @Test
+    public void testTrackTransactionStatuses() throws Exception {
+        when(transactionRepository.findByStatus(1)).thenReturn("Success");
+        transactionService.trackTransactionStatus(1); // Cached
+        when(transactionRepository.findStatusesByTransactionIds(List.of(3L, 2L)))
+                .thenReturn(List.of(new TransactionStatusResponse(2, "Pending")));
+
+        List<TransactionStatusResponse> statuses = transactionService.trackTransactionStatuses(List.of(3L, 1L, 2L, 1L));
+
+        assertEquals(2, statuses.size()); // Unknown ID left out, duplicate ID answered once
+        assertEquals(1, statuses.get(0).getTransactionId());
+        assertEquals("Success", statuses.get(0).getStatus());
+        assertEquals(2, statuses.get(1).getTransactionId());
+        assertEquals("Pending", statuses.get(1).getStatus());
+        verify(transactionRepository, times(1)).findStatusesByTransactionIds(List.of(3L, 2L));
+    }
+
     /**
      * Tests the getTransactionHistory method to ensure it retrieves all transactions correctly.
      */
@@ -100,13 +198,13 @@ public class TransactionStatusServiceTest {
      */
     @Test
     public void testGetTransactionById() {
-        when(transactionRepository.findByTransactionId(1)).thenReturn(Optional.of(upiTransaction)); // Mock retrieval
+        when(transactionRepository.findByTransactionId(1L)).thenReturn(Optional.of(upiTransaction)); // Mock retrieval
 
         Optional<Transaction> foundTransaction = transactionService.getTransactionById(1); // Call service method
 
         assertTrue(foundTransaction.isPresent()); // Verify transaction is present
         assertEquals(upiTransaction, foundTransaction.get()); // Verify transaction matches expected
-        verify(transactionRepository, times(1)).findByTransactionId(1); // Verify findByTransactionId method called once
+        verify(transactionRepository, times(1)).findByTransactionId(1L); // Verify findByTransactionId method called once
     }
 
     /**
@@ -114,11 +212,11 @@ public class TransactionStatusServiceTest {
      */
     @Test
     public void testGetTransactionById_NotFound() {
-        when(transactionRepository.findByTransactionId(2)).thenReturn(Optional.empty()); // Mock empty result
+        when(transactionRepository.findByTransactionId(2L)).thenReturn(Optional.empty()); // Mock empty result
 
         Optional<Transaction> foundTransaction = transactionService.getTransactionById(2); // Call service method
 
         assertFalse(foundTransaction.isPresent()); // Verify transaction is not present
-        verify(transactionRepository, times(1)).findByTransactionId(2); // Verify findByTransactionId method called once
+        verify(transactionRepository, times(1)).findByTransactionId(2L); // Verify findByTransactionId method called once
     }
 }
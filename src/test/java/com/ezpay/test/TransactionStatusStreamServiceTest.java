@@ -0,0 +1,129 @@
+package com.ezpay.test;
+
+import com.ezpay.event.TransactionStatusChangedEvent;
+import com.ezpay.exception.InvalidRequestException;
+import com.ezpay.service.TransactionStatusService;
+import com.ezpay.service.TransactionStatusStreamService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the TransactionStatusStreamService class.
+ */
+public class TransactionStatusStreamServiceTest {
+
+    @Mock
+    private TransactionStatusService transactionStatusService; // Mocked source of the current statuses
+
+    @InjectMocks
+    private TransactionStatusStreamService transactionStatusStreamService; // Service under test
+
+    /**
+     * Initializes mocks before each test method.
+     */
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        transactionStatusStreamService.shutdown();
+    }
+
+    /**
+     * Tests that a pending long-poll is completed by the next change of a watched transaction only.
+     */
+    @Test
+    public void testPollCompletedByStatusChange() throws Exception {
+        DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> result =
+                transactionStatusStreamService.poll(List.of(1L, 2L), null, Duration.ofSeconds(30));
+        assertEquals(1, transactionStatusStreamService.getSubscriberCount(2));
+
+        transactionStatusStreamService.onStatusChanged(new TransactionStatusChangedEvent(3, "Success"));
+        transactionStatusStreamService.onStatusChanged(new TransactionStatusChangedEvent(2, "Success"));
+
+        ResponseEntity<List<TransactionStatusChangedEvent>> response = awaitResult(result);
+        assertEquals(1, response.getBody().size());
+        assertEquals(2, response.getBody().get(0).getTransactionId());
+        assertEquals("Success", response.getBody().get(0).getStatus());
+    }
+
+    /**
+     * Tests that a long-poll returns at once when a status already differs from the one the client knows.
+     */
+    @Test
+    public void testPollReturnsChangedStatusImmediately() throws Exception {
+        when(transactionStatusService.trackTransactionStatus(1)).thenReturn("processing");
+        when(transactionStatusService.trackTransactionStatus(2)).thenReturn("Failure");
+
+        DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> result = transactionStatusStreamService
+                .poll(List.of(1L, 2L), List.of("processing", "processing"), Duration.ofSeconds(30));
+
+        assertTrue(result.hasResult());
+        @SuppressWarnings("unchecked")
+        List<TransactionStatusChangedEvent> changed =
+                ((ResponseEntity<List<TransactionStatusChangedEvent>>) result.getResult()).getBody();
+        assertEquals(1, changed.size());
+        assertEquals("Failure", changed.get(0).getStatus());
+    }
+
+    /**
+     * Tests that a stream reads the current statuses on the subscribing thread, not on the
+     * threads sending the events, and keeps watching after the changes are queued.
+     */
+    @Test
+    public void testStreamReadsCurrentStatusesOnSubscribe() throws Exception {
+        when(transactionStatusService.trackTransactionStatus(1)).thenReturn("processing");
+
+        SseEmitter emitter = transactionStatusStreamService.subscribe(List.of(1L, 2L));
+
+        verify(transactionStatusService).trackTransactionStatus(1);
+        verify(transactionStatusService).trackTransactionStatus(2);
+        assertEquals(1, transactionStatusStreamService.getSubscriberCount(1));
+        transactionStatusStreamService.onStatusChanged(new TransactionStatusChangedEvent(1, "Success"));
+        transactionStatusStreamService.sendHeartbeats();
+        assertNotNull(emitter);
+        assertEquals(1, transactionStatusStreamService.getSubscriberCount(2));
+    }
+
+    /**
+     * Tests that subscriptions without IDs, with too many IDs or with an invalid timeout are rejected.
+     */
+    @Test
+    public void testInvalidSubscriptions() {
+        assertThrows(InvalidRequestException.class, () -> transactionStatusStreamService.subscribe(List.of()));
+        assertThrows(InvalidRequestException.class, () -> transactionStatusStreamService.subscribe(
+                Collections.nCopies(TransactionStatusStreamService.MAX_WATCHED_TRANSACTIONS + 1, 1L)));
+        assertThrows(InvalidRequestException.class, () -> transactionStatusStreamService.poll(
+                List.of(1L), null, Duration.ofMinutes(10)));
+        assertThrows(InvalidRequestException.class, () -> transactionStatusStreamService.poll(
+                List.of(1L, 2L), List.of("Success"), Duration.ofSeconds(30)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ResponseEntity<List<TransactionStatusChangedEvent>> awaitResult(
+            DeferredResult<ResponseEntity<List<TransactionStatusChangedEvent>>> result) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!result.hasResult() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(result.hasResult(), "long-poll was not completed");
+        return (ResponseEntity<List<TransactionStatusChangedEvent>>) result.getResult();
+    }
+}
@@ -0,0 +1,174 @@
+package com.ezpay.test;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.ScheduledPaymentBulkRequest;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.TransactionReview;
+import com.ezpay.entity.TransactionStatusEvent;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.exception.TransactionNotFoundException;
+import com.ezpay.repository.BankTransferTransactionRepository;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.scheduling.ShardLeaseManager;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+import com.ezpay.service.ScheduledPaymentService;
+import com.ezpay.service.TransactionService;
+import com.ezpay.service.TransactionStatusService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.ezpay.test.ScheduledPaymentFixtures.payment;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the transaction status event log against the embedded database: that every way of
+ * setting a status appends its transition in the same database transaction, that the status
+ * of the transaction stays the last status of its timeline, and that a timeline is read from
+ * the (transaction_id, event_id) index.
+ */
+@EmbeddedDatabaseTest
+public class TransactionStatusTimelineTest {
+
+    private static final LocalDateTime DUE = LocalDateTime.of(2024, 9, 1, 10, 0);
+
+    @Autowired
+    private TransactionStatusService transactionStatusService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ScheduledPaymentService scheduledPaymentService;
+
+    @Autowired
+    private ScheduledPaymentExecutionService executionService;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BankTransferTransactionRepository bankTransferTransactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM transaction_status_event"); // Immutable, not deleted through Hibernate
+        transactionRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Tests that adding and reviewing a transaction append one event per change of status, in
+     * order, that reviews keeping the status or rejected by the version check append nothing,
+     * and that the status of the transaction is the last status of the timeline.
+     */
+    @Test
+    public void testRecordsReviewTransitions() {
+        Transaction added = transactionStatusService.addTransactionService(
+                new UPITransaction("UPI", 500.0, LocalDate.of(2024, 9, 1), "processing", "upi-1", "user1"));
+        long id = added.getTransactionId();
+
+        transactionService.reviewTransaction(id, review(0, "In Review"));
+        assertThrows(OptimisticLockingFailureException.class, () -> transactionService.reviewTransaction(id,
+                review(0, "Failure")));
+        Transaction reviewed = transactionRepository.findById(id).orElseThrow();
+        reviewed.setStatus("Success");
+        transactionService.reviewTransaction(reviewed);
+        transactionService.reviewTransaction(id, review(2, "Success"));
+
+        List<TransactionStatusEvent> timeline = transactionStatusService.getStatusTimeline(id);
+        assertTransitions(timeline, null, "processing", "In Review", "Success");
+        for (int i = 1; i < timeline.size(); i++) {
+            assertTrue(timeline.get(i).getEventId() > timeline.get(i - 1).getEventId(), timeline.toString());
+            assertFalse(timeline.get(i).getChangedAt().isBefore(timeline.get(i - 1).getChangedAt()), timeline.toString());
+        }
+        assertEquals("Success", transactionRepository.findById(id).orElseThrow().getStatus());
+
+        assertThrows(TransactionNotFoundException.class, () -> transactionStatusService.getStatusTimeline(42L));
+    }
+
+    /**
+     * Tests that scheduled payments log their creation, their bulk cancellation and the
+     * transfers and completion of their runs.
+     */
+    @Test
+    public void testRecordsScheduledPaymentTransitions() {
+        ScheduledPayment cancelled =
+                scheduledPaymentService.addScheduledPayment(payment("acc-closed", "Active", DUE, null));
+        ScheduledPayment cancelledToo =
+                scheduledPaymentService.addScheduledPayment(payment("acc-closed", "Active", DUE, null));
+        ScheduledPayment lastRun = scheduledPaymentService.addScheduledPayment(payment("acc-open", "Active", DUE, DUE));
+
+        ScheduledPaymentBulkRequest request = new ScheduledPaymentBulkRequest();
+        request.setSourceAccount("acc-closed");
+        assertEquals(2, scheduledPaymentService.cancelScheduledPayments(request).getUpdated());
+        for (ScheduledPayment payment : List.of(cancelled, cancelledToo)) {
+            assertTransitions(transactionStatusService.getStatusTimeline(payment.getTransactionId()), null, "Active",
+                    "cancelled");
+        }
+
+        shardLeaseManager.heartbeat(); // The only instance, owns every shard
+        assertEquals(1, executionService.executeDue(DUE.plusMinutes(1)));
+        assertTransitions(transactionStatusService.getStatusTimeline(lastRun.getTransactionId()), null, "Active",
+                ScheduledPaymentExecutionService.COMPLETED);
+        List<BankTransferTransaction> transfers = bankTransferTransactionRepository.findAll();
+        assertEquals(1, transfers.size());
+        assertTransitions(transactionStatusService.getStatusTimeline(transfers.get(0).getTransactionId()), null,
+                ScheduledPaymentExecutionService.RUN_STATUS);
+    }
+
+    /**
+     * Tests that a timeline is read with one query, a range scan of the (transaction_id, event_id)
+     * index.
+     */
+    @Test
+    public void testTimelineUsesIndexRangeScan() {
+        for (int i = 0; i < 20; i++) {
+            Transaction added = transactionStatusService.addTransactionService(
+                    new UPITransaction("UPI", 10 + i, LocalDate.of(2024, 9, 1), "processing", "upi-" + i, "user1"));
+            transactionService.reviewTransaction(added.getTransactionId(), review(0, "Success"));
+        }
+        long id = transactionRepository.findAll().get(7).getTransactionId();
+        jdbcTemplate.execute("ANALYZE");
+
+        StatementRecorder.clear();
+        assertTransitions(transactionStatusService.getStatusTimeline(id), null, "processing", "Success");
+        List<String> statements = StatementRecorder.statements();
+        assertEquals(1, statements.size(), statements.toString());
+        String plan = String.join(" ", jdbcTemplate.queryForList("EXPLAIN " + statements.get(0), String.class,
+                id)).replaceAll("\\s+", " ").toUpperCase();
+        assertTrue(plan.contains("IDX_TSE_TRANSACTION_EVENT: TRANSACTION_ID = ?1"), plan);
+    }
+
+    /**
+     * Checks the statuses of a timeline.
+     * @param statuses The from status of the first event, then the to status of every event
+     */
+    private static void assertTransitions(List<TransactionStatusEvent> timeline, String... statuses) {
+        assertEquals(statuses.length - 1, timeline.size(), timeline.toString());
+        for (int i = 0; i < timeline.size(); i++) {
+            assertEquals(statuses[i], timeline.get(i).getFromStatus(), timeline.toString());
+            assertEquals(statuses[i + 1], timeline.get(i).getToStatus(), timeline.toString());
+        }
+    }
+
+    private static TransactionReview review(long version, String status) {
+        TransactionReview review = new TransactionReview();
+        review.setVersion(version);
+        review.setStatus(status);
+        return review;
+    }
+}
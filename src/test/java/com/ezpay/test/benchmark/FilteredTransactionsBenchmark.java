@@ -0,0 +1,171 @@
+package com.ezpay.test.benchmark;
+
+import com.ezpay.entity.Transaction;
+import com.ezpay.repository.TransactionRepository;
+import com.ezpay.repository.TransactionSpecifications;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the former catch-all filter query with the dynamic specification query
+ * on a seeded embedded database, for every combination of supplied filters.
+ *
+ * For each combination it prints the plan H2 chooses for both SQL shapes, the mean latency
+ * of both SQL shapes alone, and the mean latency of both repository queries including
+ * entity loading. Run with:
+ * mvn test -Dtest=FilteredTransactionsBenchmark -Dbenchmark=true
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class FilteredTransactionsBenchmark {
+
+    private static final int ROWS = 200_000;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private static final String CATCH_ALL_JPQL = "SELECT t FROM Transaction t "
+            + "WHERE (:startDate IS NULL OR t.date BETWEEN :startDate AND :endDate) "
+            + "AND (:type IS NULL OR t.transactionType = :type) "
+            + "AND (:status IS NULL OR t.status = :status) "
+            + "AND t.transactionType != 'Scheduled Payment'";
+
+    private static final String CATCH_ALL_SQL = "SELECT COUNT(t.transaction_id) FROM transaction t "
+            + "WHERE (CAST(? AS DATE) IS NULL OR t.transaction_date BETWEEN ? AND ?) "
+            + "AND (CAST(? AS VARCHAR) IS NULL OR t.transaction_type = ?) "
+            + "AND (CAST(? AS VARCHAR) IS NULL OR t.status = ?) "
+            + "AND t.transaction_type <> 'Scheduled Payment'";
+
+    private static final String[] TYPES = {"UPI", "Bank Transfer"};
+    private static final String[] STATUSES = {"Success", "Failure", "processing"};
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    /**
+     * Seeds the transaction table, whose indexes matching the filter shapes come from the mapping.
+     */
+    @BeforeEach
+    public void seed() {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int id = 1; id <= ROWS; id++) {
+            rows.add(new Object[] {id, TYPES[random.nextInt(TYPES.length)], random.nextInt(100_000),
+                    Date.valueOf(today.minusDays(random.nextInt(3 * 365))), STATUSES[random.nextInt(STATUSES.length)]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transaction (transaction_id, transaction_type, amount, transaction_date, status) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    public void compareFilterCombinations() {
+        LocalDate start = LocalDate.now().minusDays(30);
+        LocalDate end = LocalDate.now();
+        System.out.printf("%n%-20s %15s %15s %15s %15s %8s%n", "filters",
+                "catch-all sql", "dynamic sql", "catch-all jpa", "dynamic jpa", "rows");
+        for (int mask = 0; mask < 8; mask++) {
+            LocalDate from = (mask & 1) != 0 ? start : null;
+            LocalDate to = (mask & 1) != 0 ? end : null;
+            String type = (mask & 2) != 0 ? "UPI" : null;
+            String status = (mask & 4) != 0 ? "Failure" : null;
+
+            Object[] catchAllArgs = {from, from, to, type, type, status, status};
+            List<Object> dynamicArgs = new ArrayList<>();
+            String dynamicSql = dynamicSql(from, to, type, status, dynamicArgs);
+            Supplier<Object> catchAllSql = () -> jdbcTemplate.queryForObject(CATCH_ALL_SQL, Long.class, catchAllArgs);
+            Supplier<Object> dynamicSqlQuery = () -> jdbcTemplate.queryForObject(dynamicSql, Long.class,
+                    dynamicArgs.toArray());
+            Supplier<Object> catchAllJpa = () -> entityManager.createQuery(CATCH_ALL_JPQL, Transaction.class)
+                    .setParameter("startDate", from).setParameter("endDate", to)
+                    .setParameter("type", type).setParameter("status", status)
+                    .getResultList();
+            Supplier<Object> dynamicJpa = () -> transactionRepository.findAll(
+                    TransactionSpecifications.filtered(from, to, type, status));
+
+            System.out.printf("%-20s %12.2f ms %12.2f ms %12.2f ms %12.2f ms %8d%n", describe(from, type, status),
+                    measure(catchAllSql), measure(dynamicSqlQuery), measure(catchAllJpa), measure(dynamicJpa),
+                    (Long) dynamicSqlQuery.get());
+            System.out.println("  catch-all plan: " + explain(CATCH_ALL_SQL, catchAllArgs));
+            System.out.println("  dynamic plan:   " + explain(dynamicSql, dynamicArgs.toArray()));
+        }
+    }
+
+    private double measure(Supplier<Object> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+            entityManager.clear();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+            entityManager.clear();
+        }
+        return (System.nanoTime() - started) / 1_000_000.0 / ITERATIONS;
+    }
+
+    /**
+     * SQL shape of the specification query: one predicate per supplied filter.
+     */
+    private static String dynamicSql(LocalDate from, LocalDate to, String type, String status, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(t.transaction_id) FROM transaction t "
+                + "WHERE t.transaction_type <> 'Scheduled Payment'");
+        if (from != null) {
+            sql.append(" AND t.transaction_date >= ? AND t.transaction_date <= ?");
+            args.add(from);
+            args.add(to);
+        }
+        if (type != null) {
+            sql.append(" AND t.transaction_type = ?");
+            args.add(type);
+        }
+        if (status != null) {
+            sql.append(" AND t.status = ?");
+            args.add(status);
+        }
+        return sql.toString();
+    }
+
+    private String explain(String sql, Object... args) {
+        return String.join(" ", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args))
+                .replaceAll("\\s+", " ");
+    }
+
+    private static String describe(LocalDate from, String type, String status) {
+        List<String> parts = new ArrayList<>();
+        if (from != null) {
+            parts.add("date");
+        }
+        if (type != null) {
+            parts.add("type");
+        }
+        if (status != null) {
+            parts.add("status");
+        }
+        return parts.isEmpty() ? "(none)" : String.join("+", parts);
+    }
+}
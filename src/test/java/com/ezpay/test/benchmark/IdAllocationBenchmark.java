@@ -0,0 +1,94 @@
+package com.ezpay.test.benchmark;
+
+import com.ezpay.entity.UPITransaction;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures transaction insert throughput of one ID allocation mode on the embedded database,
+ * for a single writer and for concurrent writers, each committing every {@value #COMMIT_INTERVAL} rows.
+ * The modes are compared by running the subclasses, {@link IdentityIdBenchmark},
+ * {@link PooledIdBenchmark} and {@link TimeOrderedIdBenchmark} (the current mapping):
+ * mvn test -Dtest='*IdBenchmark' -Dbenchmark=true
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public abstract class IdAllocationBenchmark {
+
+    private static final int WARMUP_ROWS = 5_000;
+    private static final int ROWS = 40_000;
+    private static final int COMMIT_INTERVAL = 100;
+    private static final int WRITERS = 4;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * Name of the allocation mode printed with the results.
+     */
+    protected abstract String mode();
+
+    @Test
+    public void measureInserts() throws Exception {
+        insert(1, WARMUP_ROWS);
+        double single = insert(1, ROWS);
+        double concurrent = insert(WRITERS, ROWS);
+        System.out.printf("%n%-12s single writer: %9.0f inserts/s   %d writers: %9.0f inserts/s%n",
+                mode(), single, WRITERS, concurrent);
+    }
+
+    /**
+     * Inserts the rows split across the writers.
+     * @return Inserts per second
+     */
+    private double insert(int writers, int rows) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int i = 0; i < writers; i++) {
+                results.add(executor.submit(() -> write(rows / writers)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            return rows / ((System.nanoTime() - started) / 1_000_000_000.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void write(int rows) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (int written = 0; written < rows; written += COMMIT_INTERVAL) {
+            template.executeWithoutResult(status -> {
+                for (int i = 0; i < COMMIT_INTERVAL; i++) {
+                    int n = sequence.incrementAndGet();
+                    entityManager.persist(new UPITransaction(0, "UPI", n % 10_000, LocalDate.of(2024, 9, 1),
+                            "Success", "bench-upi-" + n, "user" + (n % 100)));
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ezpay.test.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs the ID allocation benchmark with an IDENTITY column, one database-assigned ID per insert.
+ */
+@DataJpaTest
+@ActiveProfiles({"h2", "identity-ids"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class IdentityIdBenchmark extends IdAllocationBenchmark {
+
+    @Override
+    protected String mode() {
+        return "IDENTITY";
+    }
+}
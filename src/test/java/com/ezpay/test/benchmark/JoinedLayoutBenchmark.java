@@ -0,0 +1,21 @@
+package com.ezpay.test.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs the layout benchmark against the JOINED storage layout of the transaction hierarchy.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class JoinedLayoutBenchmark extends TransactionLayoutBenchmark {
+
+    @Override
+    protected String layout() {
+        return "JOINED";
+    }
+}
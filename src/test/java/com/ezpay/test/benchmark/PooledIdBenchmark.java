@@ -0,0 +1,21 @@
+package com.ezpay.test.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Runs the ID allocation benchmark with pooled blocks of 50 IDs from a database sequence.
+ */
+@DataJpaTest
+@ActiveProfiles({"h2", "pooled-ids"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class PooledIdBenchmark extends IdAllocationBenchmark {
+
+    @Override
+    protected String mode() {
+        return "pooled";
+    }
+}
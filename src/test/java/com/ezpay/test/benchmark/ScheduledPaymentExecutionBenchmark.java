@@ -0,0 +1,103 @@
+package com.ezpay.test.benchmark;
+
+import com.ezpay.cache.TransactionCache;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.repository.BankTransferTransactionRepository;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.repository.TransactionIdAllocator;
+import com.ezpay.repository.TransactionStatusEventWriter;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.scheduling.ScheduledPaymentTimer;
+import com.ezpay.scheduling.ShardLeaseManager;
+import com.ezpay.service.ScheduledPaymentExecutionService;
+import com.ezpay.service.ScheduledPaymentRetryService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the throughput of the scheduled payment runner on the embedded database: a warm-up
+ * round, then {@value #PAYMENTS} auto-pay payments all due at once, run with the default batch size.
+ * The target is at least 10,000 runs per minute on one node. Run with:
+ * mvn test -Dtest=ScheduledPaymentExecutionBenchmark -Dbenchmark=true
+ */
+@DataJpaTest(properties = {"ezpay.scheduled-payments.tick=PT1H", "ezpay.scheduled-payments.catch-up.interval=PT1H"})
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ScheduledPaymentExecutionService.class, ScheduledPaymentTimer.class, ShardLeaseManager.class,
+        ScheduledPaymentRetryService.class, Recurrences.class, TransactionCache.class, TransactionStatusEventWriter.class,
+        TransactionIdAllocator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ScheduledPaymentExecutionBenchmark {
+
+    private static final int WARMUP_PAYMENTS = 5_000;
+    private static final int PAYMENTS = 50_000;
+    private static final int SEED_BATCH = 1_000;
+
+    @Autowired
+    private ScheduledPaymentExecutionService executionService;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private BankTransferTransactionRepository bankTransferTransactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardLeaseManager shardLeaseManager;
+
+    @Test
+    public void measureRuns() {
+        shardLeaseManager.heartbeat(); // The only instance, owns every shard
+        LocalDateTime warmupDue = LocalDateTime.of(2024, 9, 1, 9, 0);
+        seed(WARMUP_PAYMENTS, warmupDue);
+        assertEquals(WARMUP_PAYMENTS, executionService.executeDue(warmupDue));
+
+        LocalDateTime due = warmupDue.minusMonths(1); // The warm-up payments are not due again by then
+        seed(PAYMENTS, due);
+        long started = System.nanoTime();
+        int executed = executionService.executeDue(due);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        assertEquals(PAYMENTS, executed);
+        assertEquals(WARMUP_PAYMENTS + PAYMENTS, bankTransferTransactionRepository.count());
+        System.out.printf("%nscheduled payment runs: %d in %.2f s, %.0f runs/min%n", executed, seconds,
+                executed / seconds * 60);
+    }
+
+    /**
+     * Stores monthly auto-pay payments due at the given time, committing every {@value #SEED_BATCH} rows.
+     */
+    private void seed(int count, LocalDateTime due) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < count; from += SEED_BATCH) {
+            List<ScheduledPayment> payments = new ArrayList<>(SEED_BATCH);
+            for (int i = from; i < Math.min(from + SEED_BATCH, count); i++) {
+                ScheduledPayment payment = new ScheduledPayment(100 + i % 900, due, "Active", "user" + i % 100,
+                        "payee" + i % 50, due, null, "Monthly", true, "acc-" + i % 5000, "acc-payee-" + i % 50);
+                payment.setTransactionType("Scheduled Payment");
+                payments.add(payment);
+            }
+            transactionTemplate.executeWithoutResult(status -> scheduledPaymentRepository.saveAll(payments));
+        }
+    }
+}
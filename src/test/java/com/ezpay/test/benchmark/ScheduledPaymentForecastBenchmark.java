@@ -0,0 +1,105 @@
+package com.ezpay.test.benchmark;
+
+import com.ezpay.entity.CashFlowForecast;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.repository.ScheduledPaymentRepository;
+import com.ezpay.scheduling.Recurrences;
+import com.ezpay.service.ScheduledPaymentForecastService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the 90 day cash-flow forecast on the embedded database, for {@value #ACCOUNTS} accounts
+ * of {@value #PAYMENTS_PER_ACCOUNT} auto-pay payments each with mixed frequencies: one account,
+ * then all of them in one request. The target is a few milliseconds per account. Run with:
+ * mvn test -Dtest=ScheduledPaymentForecastBenchmark -Dbenchmark=true
+ */
+@DataJpaTest(properties = "ezpay.scheduled-payments.tick=PT1H")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ScheduledPaymentForecastService.class, Recurrences.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ScheduledPaymentForecastBenchmark {
+
+    private static final int ACCOUNTS = 50;
+    private static final int PAYMENTS_PER_ACCOUNT = 400;
+    private static final int ROUNDS = 200;
+    private static final String[] FREQUENCIES = {"DAILY", "WEEKLY", "MONTHLY", "QUARTERLY",
+            "WEEKLY;INTERVAL=2", "MONTHLY;BUSINESS_DAYS"};
+
+    @Autowired
+    private ScheduledPaymentForecastService forecastService;
+
+    @Autowired
+    private ScheduledPaymentRepository scheduledPaymentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void measureForecast() {
+        LocalDateTime start = LocalDateTime.now().withNano(0).plusHours(1);
+        List<String> accounts = seed(start);
+
+        for (int i = 0; i < ROUNDS; i++) { // Warm-up
+            forecastService.forecast(List.of(accounts.get(i % ACCOUNTS)), null, 90);
+        }
+        long started = System.nanoTime();
+        int payments = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            payments += forecastService.forecast(List.of(accounts.get(i % ACCOUNTS)), null, 90).get(0).getPayments();
+        }
+        double singleMillis = (System.nanoTime() - started) / 1e6 / ROUNDS;
+
+        started = System.nanoTime();
+        List<CashFlowForecast> all = null;
+        for (int i = 0; i < ROUNDS / 10; i++) {
+            all = forecastService.forecast(accounts, null, 90);
+        }
+        double allMillis = (System.nanoTime() - started) / 1e6 / (ROUNDS / 10);
+
+        assertEquals(ACCOUNTS, all.size());
+        System.out.printf("%nforecast of one account with %d payments (%d runs): %.2f ms%n", PAYMENTS_PER_ACCOUNT,
+                payments / ROUNDS, singleMillis);
+        System.out.printf("forecast of %d accounts in one request: %.2f ms%n", ACCOUNTS, allMillis);
+    }
+
+    /**
+     * Stores the payments of every account, one transaction per account.
+     */
+    private List<String> seed(LocalDateTime start) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<String> accounts = new ArrayList<>();
+        for (int a = 0; a < ACCOUNTS; a++) {
+            String account = "acc-" + a;
+            accounts.add(account);
+            List<ScheduledPayment> payments = new ArrayList<>(PAYMENTS_PER_ACCOUNT);
+            for (int i = 0; i < PAYMENTS_PER_ACCOUNT; i++) {
+                LocalDateTime due = start.plusDays(i % 30);
+                ScheduledPayment payment = new ScheduledPayment(10 + i % 90, due, "Active", "user" + a, "payee" + i,
+                        due, null, FREQUENCIES[i % FREQUENCIES.length], true, account, "acc-payee-" + i);
+                payment.setTransactionType("Scheduled Payment");
+                payments.add(payment);
+            }
+            transactionTemplate.executeWithoutResult(status -> scheduledPaymentRepository.saveAll(payments));
+        }
+        return accounts;
+    }
+}
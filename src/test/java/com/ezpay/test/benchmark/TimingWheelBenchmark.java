@@ -0,0 +1,84 @@
+package com.ezpay.test.benchmark;
+
+import com.ezpay.scheduling.TimingWheel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the timing wheel holding {@value #ENTRIES} scheduled payments due over the next year:
+ * the cost of scheduling, rescheduling and cancelling one payment, the heap the wheel takes,
+ * and the cost of the one second ticks over a simulated day, which expire the payments due
+ * without any database query. Run with:
+ * mvn test -Dtest=TimingWheelBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class TimingWheelBenchmark {
+
+    private static final int ENTRIES = 5_000_000;
+    private static final int CANCELLED = 1_000_000;
+    private static final long START = 1_725_000_000L;
+    private static final long YEAR = 365L * 24 * 3600;
+    private static final long DAY = 24 * 3600;
+
+    @Test
+    public void measureWheel() {
+        Random random = new Random(42);
+        long[] ids = new long[ENTRIES];
+        long[] deadlines = new long[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            ids[i] = (START << 22) + i * 7919L; // Spread like time-ordered IDs
+            deadlines[i] = START + 1 + (long) (random.nextDouble() * YEAR);
+        }
+
+        long heapBefore = usedHeap();
+        TimingWheel wheel = new TimingWheel(START, 1024);
+        long started = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            wheel.schedule(ids[i], deadlines[i]);
+        }
+        double scheduleNanos = (System.nanoTime() - started) / (double) ENTRIES;
+        long heapUsed = usedHeap() - heapBefore;
+
+        started = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i += 5) {
+            wheel.schedule(ids[i], deadlines[i] + 30 * DAY);
+        }
+        double rescheduleNanos = (System.nanoTime() - started) / (double) (ENTRIES / 5);
+
+        started = System.nanoTime();
+        for (int i = 1; i < ENTRIES; i += ENTRIES / CANCELLED) {
+            wheel.cancel(ids[i]);
+        }
+        double cancelNanos = (System.nanoTime() - started) / (double) CANCELLED;
+        assertEquals(ENTRIES - CANCELLED, wheel.size());
+
+        long[] expired = new long[1];
+        long slowestTick = 0;
+        started = System.nanoTime();
+        for (long tick = START + 1; tick <= START + DAY; tick++) {
+            long tickStarted = System.nanoTime();
+            wheel.advance(tick, id -> expired[0]++);
+            slowestTick = Math.max(slowestTick, System.nanoTime() - tickStarted);
+        }
+        double tickMicros = (System.nanoTime() - started) / 1_000.0 / DAY;
+
+        System.out.printf("%ntiming wheel with %d payments: %.0f MB heap%n", ENTRIES, heapUsed / 1e6);
+        System.out.printf("schedule: %6.0f ns   reschedule: %6.0f ns   cancel: %6.0f ns%n",
+                scheduleNanos, rescheduleNanos, cancelNanos);
+        System.out.printf("one day of ticks: %d payments due, %.2f us per tick on average, slowest %.2f ms%n",
+                expired[0], tickMicros, slowestTick / 1e6);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,147 @@
+package com.ezpay.test.benchmark;
+
+import com.ezpay.entity.BankTransferTransaction;
+import com.ezpay.entity.ScheduledPayment;
+import com.ezpay.entity.Transaction;
+import com.ezpay.entity.UPITransaction;
+import com.ezpay.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures insert throughput and history read latency of one storage layout of the
+ * transaction hierarchy on a seeded embedded database. The layouts are compared by running
+ * both subclasses, {@link JoinedLayoutBenchmark} and {@link SingleTableLayoutBenchmark}:
+ * mvn test -Dtest='*LayoutBenchmark' -Dbenchmark=true
+ *
+ * The mixed workload runs 95% reads of mixed types and 5% inserts.
+ */
+@Transactional
+public abstract class TransactionLayoutBenchmark {
+
+    private static final int ROWS = 30_000;
+    private static final int FLUSH_INTERVAL = 500;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+    private static final int MIXED_OPERATIONS = 5_000;
+
+    private static final String HISTORY_PAGE = "SELECT t FROM Transaction t "
+            + "WHERE t.transactionType != 'Scheduled Payment' ORDER BY t.date DESC, t.transactionId DESC";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private final Random random = new Random(42);
+
+    private int inserted;
+
+    /** IDs of the seeded transactions, read back by the lookups. */
+    private final long[] ids = new long[ROWS];
+
+    /**
+     * Name of the layout printed with the results.
+     */
+    protected abstract String layout();
+
+    @Test
+    public void measureLayout() {
+        long started = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            insertNext();
+        }
+        entityManager.flush();
+        entityManager.clear();
+        double insertSeconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        double historyPage = measure(() -> entityManager.createQuery(HISTORY_PAGE, Transaction.class)
+                .setMaxResults(PAGE_SIZE).getResultList());
+        double findById = measure(() -> transactionRepository.findById(ids[random.nextInt(ROWS)]));
+        double summaryPage = measure(() -> transactionRepository.findHistoryFirstPage(
+                PageRequest.of(0, PAGE_SIZE)));
+
+        started = System.nanoTime();
+        for (int i = 0; i < MIXED_OPERATIONS; i++) {
+            int operation = random.nextInt(100);
+            if (operation < 5) {
+                insertNext();
+            } else if (operation < 50) {
+                entityManager.createQuery(HISTORY_PAGE, Transaction.class).setMaxResults(PAGE_SIZE).getResultList();
+            } else {
+                transactionRepository.findById(ids[random.nextInt(ROWS)]);
+            }
+            if (i % FLUSH_INTERVAL == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        double mixedSeconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        System.out.printf("%n%s layout%n", layout());
+        System.out.printf("  inserts:             %10.0f rows/s%n", ROWS / insertSeconds);
+        System.out.printf("  history page (%d):   %10.3f ms%n", PAGE_SIZE, historyPage);
+        System.out.printf("  summary page (%d):   %10.3f ms%n", PAGE_SIZE, summaryPage);
+        System.out.printf("  find by id:          %10.3f ms%n", findById);
+        System.out.printf("  95/5 mixed workload: %10.0f ops/s%n", MIXED_OPERATIONS / mixedSeconds);
+    }
+
+    /**
+     * Inserts the next transaction: 45% UPI, 45% bank transfers and 10% scheduled payments.
+     */
+    private void insertNext() {
+        int n = ++inserted;
+        LocalDate date = LocalDate.now().minusDays(random.nextInt(3 * 365));
+        String status = random.nextBoolean() ? "Success" : "Failure";
+        int kind = random.nextInt(20);
+        Transaction transaction;
+        if (kind < 9) {
+            transaction = new UPITransaction(0, "UPI", random.nextInt(100_000), date, status, "upi" + n, "user" + n % 100);
+        } else if (kind < 18) {
+            transaction = new BankTransferTransaction(0, "Bank Transfer", random.nextInt(100_000), date, status,
+                    "transfer" + n, "account" + n % 100, "account" + (n + 1) % 100);
+        } else {
+            ScheduledPayment scheduledPayment = new ScheduledPayment();
+            scheduledPayment.setTransactionType("Scheduled Payment");
+            scheduledPayment.setDate(date);
+            scheduledPayment.setStatus("Active");
+            scheduledPayment.setNextPaymentDate(date.plusMonths(1).atStartOfDay());
+            scheduledPayment.setFrequency("Monthly");
+            transaction = scheduledPayment;
+        }
+        transaction.setSender("user" + n % 100);
+        transaction.setReceiver("user" + (n + 7) % 100);
+        entityManager.persist(transaction);
+        if (n <= ROWS) {
+            ids[n - 1] = transaction.getTransactionId();
+        }
+        if (n % FLUSH_INTERVAL == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    private double measure(Supplier<Object> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+            entityManager.clear();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+            entityManager.clear();
+        }
+        return (System.nanoTime() - started) / 1_000_000.0 / ITERATIONS;
+    }
+}
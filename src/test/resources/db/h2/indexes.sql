@@ -0,0 +1,3 @@
+-- Indexes standing in for Oracle storage options the entities cannot declare, run by Hibernate after it creates the embedded schema.
+-- transaction_status_event is index-organized by (transaction_id, event_id) in Oracle, see db/oracle/V11.
+CREATE INDEX idx_tse_transaction_event ON transaction_status_event (transaction_id, event_id);